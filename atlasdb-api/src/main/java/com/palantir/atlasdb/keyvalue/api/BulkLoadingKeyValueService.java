@@ -0,0 +1,37 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.api;
+
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * An extension of KeyValueService for key value services that can ingest large amounts of data
+ * faster than through {@link #put} by writing it the way that is cheapest for the backing store.
+ *
+ * Contract with the user:
+ * - Cells must be supplied in ascending {@link Cell} order, without duplicates.
+ * - Every cell is written at the same timestamp.
+ * - The load is not atomic: readers may see part of it, and a failed load may leave part of it behind.
+ *   Bulk loads are meant for tables that nobody reads yet, for example the target of a migration.
+ * - Loading the same cell again at the same timestamp with the same value is allowed, so a failed
+ *   load can simply be retried.
+ */
+public interface BulkLoadingKeyValueService extends KeyValueService {
+
+    void bulkLoad(TableReference tableRef, Iterator<Map.Entry<Cell, byte[]>> sortedCells, long timestamp);
+
+}
@@ -0,0 +1,44 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.api;
+
+/**
+ * An extension of KeyValueService for key value services that can return bulk reads as
+ * {@link ColumnarResults}, without first creating a {@link Cell}, {@link Value} and map entry
+ * for every cell read.
+ */
+public interface ColumnarKeyValueService extends KeyValueService {
+
+    /**
+     * Returns the same cells and values as {@link #getRows}, grouped by row. A row that is
+     * requested more than once is returned once.
+     */
+    ColumnarResults getRowsColumnar(TableReference tableRef,
+                                    Iterable<byte[]> rows,
+                                    ColumnSelection columnSelection,
+                                    long timestamp);
+
+    /**
+     * Returns the same values as the first rows of {@link #getRange}, stopping after
+     * {@link RangeRequest#getBatchHint()} rows (or 100 if the request has no hint). If fewer rows
+     * than that are returned, the range is exhausted; otherwise the caller continues from the
+     * row after the last one returned.
+     */
+    ColumnarResults getRangeColumnar(TableReference tableRef,
+                                     RangeRequest rangeRequest,
+                                     long timestamp);
+
+}
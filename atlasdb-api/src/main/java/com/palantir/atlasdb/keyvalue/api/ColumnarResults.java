@@ -0,0 +1,332 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.api;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.UnsignedBytes;
+
+/**
+ * The results of a bulk read, kept in a handful of flat arrays instead of one {@link Cell},
+ * {@link Value} and map entry per cell. Row names, column names and values are each
+ * concatenated into a single byte array and addressed through offset arrays. Cells are grouped
+ * by row and kept in the order the key value service produced them.
+ * <p>
+ * {@link Cell}, {@link Value} and {@link RowResult} objects are only created by the view methods,
+ * so callers that only look at some of the results, or only at their timestamps, never allocate
+ * them for the rest.
+ */
+public final class ColumnarResults {
+    private static final ColumnarResults EMPTY = builder().build();
+
+    private final byte[] rowData;
+    // rowOffsets[i] is where row i starts in rowData, rowOffsets[numRows] == rowData.length
+    private final int[] rowOffsets;
+    // rowCells[i] is the index of the first cell of row i, rowCells[numRows] == size()
+    private final int[] rowCells;
+    private final byte[] columnData;
+    private final int[] columnOffsets;
+    private final long[] timestamps;
+    private final byte[] valueData;
+    private final int[] valueOffsets;
+
+    private ColumnarResults(byte[] rowData,
+                            int[] rowOffsets,
+                            int[] rowCells,
+                            byte[] columnData,
+                            int[] columnOffsets,
+                            long[] timestamps,
+                            byte[] valueData,
+                            int[] valueOffsets) {
+        this.rowData = rowData;
+        this.rowOffsets = rowOffsets;
+        this.rowCells = rowCells;
+        this.columnData = columnData;
+        this.columnOffsets = columnOffsets;
+        this.timestamps = timestamps;
+        this.valueData = valueData;
+        this.valueOffsets = valueOffsets;
+    }
+
+    public static ColumnarResults empty() {
+        return EMPTY;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static ColumnarResults fromRowResults(Iterable<RowResult<Value>> rows) {
+        Builder builder = builder();
+        for (RowResult<Value> row : rows) {
+            for (Map.Entry<byte[], Value> e : row.getColumns().entrySet()) {
+                builder.add(row.getRowName(), e.getKey(), e.getValue().getTimestamp(), e.getValue().getContents());
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * The number of cells.
+     */
+    public int size() {
+        return timestamps.length;
+    }
+
+    public boolean isEmpty() {
+        return timestamps.length == 0;
+    }
+
+    public int getNumRows() {
+        return rowOffsets.length - 1;
+    }
+
+    public byte[] getRowName(int rowIndex) {
+        return Arrays.copyOfRange(rowData, rowOffsets[rowIndex], rowOffsets[rowIndex + 1]);
+    }
+
+    public int getRowNameLength(int rowIndex) {
+        return rowOffsets[rowIndex + 1] - rowOffsets[rowIndex];
+    }
+
+    /**
+     * The index of the first cell of the given row.
+     */
+    public int getFirstCell(int rowIndex) {
+        return rowCells[rowIndex];
+    }
+
+    /**
+     * One past the index of the last cell of the given row.
+     */
+    public int getEndCell(int rowIndex) {
+        return rowCells[rowIndex + 1];
+    }
+
+    public int getRowIndex(int cellIndex) {
+        Preconditions.checkElementIndex(cellIndex, size());
+        int index = Arrays.binarySearch(rowCells, 0, getNumRows(), cellIndex);
+        if (index >= 0) {
+            return index;
+        }
+        return -index - 2;
+    }
+
+    public byte[] getColumnName(int cellIndex) {
+        return Arrays.copyOfRange(columnData, columnOffsets[cellIndex], columnOffsets[cellIndex + 1]);
+    }
+
+    public int getColumnNameLength(int cellIndex) {
+        return columnOffsets[cellIndex + 1] - columnOffsets[cellIndex];
+    }
+
+    public long getTimestamp(int cellIndex) {
+        return timestamps[cellIndex];
+    }
+
+    public int getContentsLength(int cellIndex) {
+        return valueOffsets[cellIndex + 1] - valueOffsets[cellIndex];
+    }
+
+    public byte[] getContents(int cellIndex) {
+        return Arrays.copyOfRange(valueData, valueOffsets[cellIndex], valueOffsets[cellIndex + 1]);
+    }
+
+    public Cell getCell(int cellIndex) {
+        return Cell.create(getRowName(getRowIndex(cellIndex)), getColumnName(cellIndex));
+    }
+
+    public Value getValue(int cellIndex) {
+        return Value.create(getContents(cellIndex), timestamps[cellIndex]);
+    }
+
+    public RowResult<Value> getRowResult(int rowIndex) {
+        ImmutableSortedMap.Builder<byte[], Value> columns =
+                ImmutableSortedMap.orderedBy(UnsignedBytes.lexicographicalComparator());
+        for (int i = getFirstCell(rowIndex); i < getEndCell(rowIndex); i++) {
+            columns.put(getColumnName(i), getValue(i));
+        }
+        return RowResult.create(getRowName(rowIndex), columns.build());
+    }
+
+    /**
+     * A view of the rows that creates each {@link RowResult} when it is accessed.
+     */
+    public List<RowResult<Value>> asRowResults() {
+        return new AbstractList<RowResult<Value>>() {
+            @Override
+            public RowResult<Value> get(int index) {
+                return getRowResult(index);
+            }
+
+            @Override
+            public int size() {
+                return getNumRows();
+            }
+        };
+    }
+
+    public Map<Cell, Value> toCellMap() {
+        Map<Cell, Value> result = Maps.newHashMapWithExpectedSize(size());
+        for (int row = 0; row < getNumRows(); row++) {
+            byte[] rowName = getRowName(row);
+            for (int i = getFirstCell(row); i < getEndCell(row); i++) {
+                result.put(Cell.create(rowName, getColumnName(i)), getValue(i));
+            }
+        }
+        return result;
+    }
+
+    public long getApproxSizeInBytes() {
+        return rowData.length + columnData.length + valueData.length + 8L * timestamps.length
+                + 4L * (rowOffsets.length + rowCells.length + columnOffsets.length + valueOffsets.length);
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnarResults [rows=" + getNumRows() + ", cells=" + size() + "]";
+    }
+
+    /**
+     * Cells must be added grouped by row: a cell whose row differs from the previous cell's
+     * starts a new row.
+     */
+    public static final class Builder {
+        private byte[] rowData = new byte[64];
+        private int[] rowOffsets = new int[] {0, 0, 0, 0, 0, 0, 0, 0};
+        private int[] rowCells = new int[8];
+        private int numRows = 0;
+        private byte[] columnData = new byte[64];
+        private int[] columnOffsets = new int[16];
+        private long[] timestamps = new long[16];
+        private byte[] valueData = new byte[256];
+        private int[] valueOffsets = new int[16];
+        private int numCells = 0;
+
+        private Builder() {
+            // use ColumnarResults.builder()
+        }
+
+        public Builder add(byte[] row, byte[] col, long timestamp, byte[] contents) {
+            return add(row, 0, row.length, col, 0, col.length, timestamp, contents);
+        }
+
+        /**
+         * Adds a cell whose row and column names are slices of larger arrays, such as a key
+         * read from disk, without copying them first.
+         */
+        public Builder add(byte[] rowBuffer, int rowOffset, int rowLength,
+                           byte[] colBuffer, int colOffset, int colLength,
+                           long timestamp,
+                           byte[] contents) {
+            if (!isLastRow(rowBuffer, rowOffset, rowLength)) {
+                int start = rowOffsets[numRows];
+                rowData = append(rowData, start, rowBuffer, rowOffset, rowLength);
+                rowCells = ensureCapacity(rowCells, numRows + 1);
+                rowCells[numRows] = numCells;
+                rowOffsets = ensureCapacity(rowOffsets, numRows + 2);
+                rowOffsets[numRows + 1] = start + rowLength;
+                numRows++;
+            }
+            int colStart = columnOffsets[numCells];
+            columnData = append(columnData, colStart, colBuffer, colOffset, colLength);
+            int valueStart = valueOffsets[numCells];
+            valueData = append(valueData, valueStart, contents, 0, contents.length);
+            columnOffsets = ensureCapacity(columnOffsets, numCells + 2);
+            columnOffsets[numCells + 1] = colStart + colLength;
+            valueOffsets = ensureCapacity(valueOffsets, numCells + 2);
+            valueOffsets[numCells + 1] = valueStart + contents.length;
+            timestamps = ensureCapacity(timestamps, numCells + 1);
+            timestamps[numCells] = timestamp;
+            numCells++;
+            return this;
+        }
+
+        public int getNumRows() {
+            return numRows;
+        }
+
+        public int size() {
+            return numCells;
+        }
+
+        public ColumnarResults build() {
+            int[] builtRowCells = Arrays.copyOf(rowCells, numRows + 1);
+            builtRowCells[numRows] = numCells;
+            return new ColumnarResults(
+                    Arrays.copyOf(rowData, rowOffsets[numRows]),
+                    Arrays.copyOf(rowOffsets, numRows + 1),
+                    builtRowCells,
+                    Arrays.copyOf(columnData, columnOffsets[numCells]),
+                    Arrays.copyOf(columnOffsets, numCells + 1),
+                    Arrays.copyOf(timestamps, numCells),
+                    Arrays.copyOf(valueData, valueOffsets[numCells]),
+                    Arrays.copyOf(valueOffsets, numCells + 1));
+        }
+
+        /**
+         * Whether a cell of the given row would be added to the last row rather than start a new one.
+         */
+        public boolean isLastRow(byte[] row) {
+            return isLastRow(row, 0, row.length);
+        }
+
+        public boolean isLastRow(byte[] buffer, int offset, int length) {
+            if (numRows == 0) {
+                return false;
+            }
+            int start = rowOffsets[numRows - 1];
+            if (rowOffsets[numRows] - start != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (rowData[start + i] != buffer[offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static byte[] append(byte[] data, int size, byte[] src, int offset, int length) {
+            byte[] result = data;
+            if (size + length > data.length) {
+                result = Arrays.copyOf(data, Math.max(2 * data.length, size + length));
+            }
+            System.arraycopy(src, offset, result, size, length);
+            return result;
+        }
+
+        private static int[] ensureCapacity(int[] array, int minCapacity) {
+            if (minCapacity <= array.length) {
+                return array;
+            }
+            return Arrays.copyOf(array, Math.max(2 * array.length, minCapacity));
+        }
+
+        private static long[] ensureCapacity(long[] array, int minCapacity) {
+            if (minCapacity <= array.length) {
+                return array;
+            }
+            return Arrays.copyOf(array, Math.max(2 * array.length, minCapacity));
+        }
+    }
+}
@@ -31,6 +31,7 @@ import com.google.common.collect.Multimap;
 import com.palantir.common.annotation.Idempotent;
 import com.palantir.common.annotation.NonIdempotent;
 import com.palantir.common.base.ClosableIterator;
+import com.palantir.common.remoting.RemotingMediaTypes;
 import com.palantir.util.paging.BasicResultsPage;
 import com.palantir.util.paging.TokenBackedBasicResultsPage;
 
@@ -73,7 +74,7 @@ public interface KeyValueService extends AutoCloseable {
      */
     @POST
     @Path("get-delegates")
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
     Collection<? extends KeyValueService> getDelegates();
 
     /**
@@ -92,8 +93,8 @@ public interface KeyValueService extends AutoCloseable {
      */
     @POST
     @Path("get-rows")
-    @Produces(MediaType.APPLICATION_JSON)
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
+    @Consumes({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
     @Idempotent
     Map<Cell, Value> getRows(@QueryParam("tableRef") TableReference tableRef,
                              Iterable<byte[]> rows,
@@ -114,8 +115,8 @@ public interface KeyValueService extends AutoCloseable {
      */
     @POST
     @Path("get")
-    @Produces(MediaType.APPLICATION_JSON)
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
+    @Consumes({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
     @Idempotent
     Map<Cell, Value> get(@QueryParam("tableRef") TableReference tableRef, Map<Cell, Long> timestampByCell);
 
@@ -134,8 +135,8 @@ public interface KeyValueService extends AutoCloseable {
      */
     @POST
     @Path("get-latest-timestamps")
-    @Produces(MediaType.APPLICATION_JSON)
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
+    @Consumes({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
     @Idempotent
     Map<Cell, Long> getLatestTimestamps(@QueryParam("tableRef") TableReference tableRef,
                                         Map<Cell, Long> timestampByCell);
@@ -162,7 +163,7 @@ public interface KeyValueService extends AutoCloseable {
      */
     @POST
     @Path("put")
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Consumes({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
     @Idempotent
     void put(@QueryParam("tableRef") TableReference tableRef,
              Map<Cell, byte[]> values,
@@ -189,7 +190,7 @@ public interface KeyValueService extends AutoCloseable {
      */
     @POST
     @Path("multi-put")
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Consumes({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
     @Idempotent
     void multiPut(Map<TableReference, ? extends Map<Cell, byte[]>> valuesByTable,
                   @QueryParam("timestamp") long timestamp) throws KeyAlreadyExistsException;
@@ -219,7 +220,7 @@ public interface KeyValueService extends AutoCloseable {
      */
     @POST
     @Path("put-with-timestamps")
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Consumes({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
     @NonIdempotent
     @Idempotent
     void putWithTimestamps(@QueryParam("tableRef") TableReference tableRef,
@@ -248,7 +249,7 @@ public interface KeyValueService extends AutoCloseable {
      */
     @POST
     @Path("put-unless-exists")
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Consumes({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
     void putUnlessExists(@QueryParam("tableRef") TableReference tableRef,
                          Map<Cell, byte[]> values) throws KeyAlreadyExistsException;
 
@@ -276,7 +277,7 @@ public interface KeyValueService extends AutoCloseable {
      */
     @POST
     @Path("delete")
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Consumes({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
     @Idempotent
     void delete(@QueryParam("tableRef") TableReference tableRef, Multimap<Cell, Long> keys);
 
@@ -292,7 +293,7 @@ public interface KeyValueService extends AutoCloseable {
      */
     @POST
     @Path("truncate-table")
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Consumes({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
     @Idempotent
     void truncateTable(@QueryParam("tableRef") TableReference tableRef) throws InsufficientConsistencyException;
 
@@ -307,7 +308,7 @@ public interface KeyValueService extends AutoCloseable {
      */
     @POST
     @Path("truncate-tables")
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Consumes({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
     @Idempotent
     void truncateTables(Set<TableReference> tableRefs) throws InsufficientConsistencyException;
 
@@ -322,8 +323,8 @@ public interface KeyValueService extends AutoCloseable {
      */
     @POST
     @Path("get-range")
-    @Produces(MediaType.APPLICATION_JSON)
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
+    @Consumes({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
     @Idempotent
     ClosableIterator<RowResult<Value>> getRange(@QueryParam("tableRef") TableReference tableRef,
                                                 RangeRequest rangeRequest,
@@ -342,8 +343,8 @@ public interface KeyValueService extends AutoCloseable {
      */
     @POST
     @Path("get-range-with-history")
-    @Produces(MediaType.APPLICATION_JSON)
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
+    @Consumes({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
     @Idempotent
     ClosableIterator<RowResult<Set<Value>>> getRangeWithHistory(@QueryParam("tableRef") TableReference tableRef,
                                                                 RangeRequest rangeRequest,
@@ -367,8 +368,8 @@ public interface KeyValueService extends AutoCloseable {
      */
     @POST
     @Path("get-range-of-timestamps")
-    @Produces(MediaType.APPLICATION_JSON)
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
+    @Consumes({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
     @Idempotent
     ClosableIterator<RowResult<Set<Long>>> getRangeOfTimestamps(@QueryParam("tableRef") TableReference tableRef,
                                                                 RangeRequest rangeRequest,
@@ -392,8 +393,8 @@ public interface KeyValueService extends AutoCloseable {
      */
     @POST
     @Path("get-first-batch-for-ranges")
-    @Produces(MediaType.APPLICATION_JSON)
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
+    @Consumes({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
     @Idempotent
     Map<RangeRequest, TokenBackedBasicResultsPage<RowResult<Value>, byte[]>> getFirstBatchForRanges(@QueryParam("tableRef") TableReference tableRef,
             Iterable<RangeRequest> rangeRequests,
@@ -409,8 +410,8 @@ public interface KeyValueService extends AutoCloseable {
      */
     @DELETE
     @Path("drop-table")
-    @Produces(MediaType.APPLICATION_JSON)
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
+    @Consumes({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
     @Idempotent
     void dropTable(@QueryParam("tableName") TableReference tableRef) throws InsufficientConsistencyException;
 
@@ -424,8 +425,8 @@ public interface KeyValueService extends AutoCloseable {
      */
     @DELETE
     @Path("drop-tables")
-    @Produces(MediaType.APPLICATION_JSON)
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
+    @Consumes({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
     @Idempotent
     void dropTables(Set<TableReference> tableRefs) throws InsufficientConsistencyException;
 
@@ -437,8 +438,8 @@ public interface KeyValueService extends AutoCloseable {
      */
     @POST
     @Path("create-table")
-    @Produces(MediaType.APPLICATION_JSON)
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
+    @Consumes({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
     @Idempotent
     void createTable(@QueryParam("tableRef") TableReference tableRef, byte[] tableMetadata) throws InsufficientConsistencyException;
 
@@ -450,8 +451,8 @@ public interface KeyValueService extends AutoCloseable {
      */
     @POST
     @Path("create-tables")
-    @Produces(MediaType.APPLICATION_JSON)
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
+    @Consumes({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
     @Idempotent
     void createTables(Map<TableReference, byte[]> tableRefToTableMetadata) throws InsufficientConsistencyException;
 
@@ -464,7 +465,7 @@ public interface KeyValueService extends AutoCloseable {
      */
     @POST
     @Path("get-all-table-names")
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
     @Idempotent
     Set<TableReference> getAllTableNames();
 
@@ -483,7 +484,7 @@ public interface KeyValueService extends AutoCloseable {
 
     @POST
     @Path("get-metadata-for-tables")
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
     @Idempotent
     Map<TableReference, byte[]> getMetadataForTables();
 
@@ -495,7 +496,7 @@ public interface KeyValueService extends AutoCloseable {
 
     @POST
     @Path("put-metadata-for-tables")
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Consumes({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
     @Idempotent
     void putMetadataForTables(final Map<TableReference, byte[]> tableRefToMetadata);
 
@@ -509,7 +510,7 @@ public interface KeyValueService extends AutoCloseable {
      */
     @POST
     @Path("add-gc-sentinel-values")
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Consumes({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
     @Idempotent
     void addGarbageCollectionSentinelValues(@QueryParam("tableName") TableReference tableRef, Set<Cell> cells);
 
@@ -532,8 +533,8 @@ public interface KeyValueService extends AutoCloseable {
      */
     @POST
     @Path("get-all-timestamps")
-    @Produces(MediaType.APPLICATION_JSON)
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
+    @Consumes({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
     @Idempotent
     Multimap<Cell, Long> getAllTimestamps(@QueryParam("tableName") TableReference tableRef,
                                           Set<Cell> cells,
@@ -549,6 +550,6 @@ public interface KeyValueService extends AutoCloseable {
      */
     @POST
     @Path("compact-internally")
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Consumes({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
     void compactInternally(TableReference tableRef);
 }
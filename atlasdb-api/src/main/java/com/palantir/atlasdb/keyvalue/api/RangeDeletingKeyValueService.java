@@ -0,0 +1,35 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.api;
+
+import java.util.Map;
+
+/**
+ * An extension of KeyValueService for key value services that can delete all the old versions of
+ * a cell more cheaply than by listing each of them in {@link #delete}, as sweep and scrub do.
+ *
+ * Contract with the user:
+ * - Every version of each cell with a timestamp from 0 up to but excluding the given timestamp is
+ *   deleted, including versions written after the caller last read the cell. Callers should only
+ *   pass bounds up to the newest version they have read and decided to delete.
+ * - The garbage collection sentinel at {@link Value#INVALID_VALUE_TIMESTAMP} is never deleted.
+ * - Like {@link #delete}, the deletes are not atomic and should be retried if they fail.
+ */
+public interface RangeDeletingKeyValueService extends KeyValueService {
+
+    void deleteAllTimestampsBelow(TableReference tableRef, Map<Cell, Long> maxTimestampExclusiveByCell);
+
+}
@@ -0,0 +1,36 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.api;
+
+/**
+ * An extension of KeyValueService for key value services that can pin a consistent point in
+ * time view of their data, so that a read-only transaction can do all of its reads from one
+ * storage snapshot.
+ *
+ * Contract with the user:
+ * - Reads from the returned service see exactly the data that had been written when
+ *   {@link #openReadSnapshot} returned, however long the snapshot is held.
+ * - Writes, deletes and table and metadata operations on the returned service go to this key
+ *   value service and are not visible to reads from the snapshot.
+ * - The returned service must be closed, which releases the snapshot but not this service.
+ *   Holding a snapshot open keeps every version it can see from being reclaimed, so snapshots
+ *   should only be held for the duration of a transaction.
+ */
+public interface SnapshottingKeyValueService extends KeyValueService {
+
+    KeyValueService openReadSnapshot();
+
+}
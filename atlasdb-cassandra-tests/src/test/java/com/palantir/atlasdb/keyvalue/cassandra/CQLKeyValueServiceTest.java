@@ -0,0 +1,104 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.cassandra.CassandraKeyValueServiceConfigManager;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+
+public class CQLKeyValueServiceTest {
+    private static final TableReference TABLE = TableReference.createFromFullyQualifiedName("ns.cql_kvs_test");
+    private static final byte[] VALUE = PtBytes.toBytes("value");
+
+    private CQLKeyValueService keyValueService;
+
+    @Before
+    public void setUp() {
+        keyValueService = CQLKeyValueService.create(
+                CassandraKeyValueServiceConfigManager.createSimpleManager(CQLTestSuite.CQLKVS_CONFIG));
+        keyValueService.createTable(TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA);
+    }
+
+    @After
+    public void tearDown() {
+        keyValueService.dropTable(TABLE);
+        keyValueService.teardown();
+    }
+
+    @Test
+    public void testGetAllTimestampsOfSeveralColumnsInOneRow() {
+        // Several columns of one row are read with a single "column1 IN ?" query, which
+        // cannot restrict the timestamp, so later versions must be filtered out on the client.
+        Cell first = Cell.create(PtBytes.toBytes("row"), PtBytes.toBytes("col1"));
+        Cell second = Cell.create(PtBytes.toBytes("row"), PtBytes.toBytes("col2"));
+        Cell otherRow = Cell.create(PtBytes.toBytes("other"), PtBytes.toBytes("col1"));
+        for (long ts : ImmutableList.of(10L, 20L, 30L)) {
+            keyValueService.put(TABLE, ImmutableMap.of(first, VALUE, second, VALUE, otherRow, VALUE), ts);
+        }
+
+        Multimap<Cell, Long> timestamps = keyValueService.getAllTimestamps(TABLE, ImmutableSet.of(first, second, otherRow), 30L);
+
+        assertEquals(
+                ImmutableSetMultimap.builder().putAll(first, 10L, 20L).putAll(second, 10L, 20L).putAll(otherRow, 10L, 20L).build(),
+                ImmutableSetMultimap.copyOf(timestamps));
+    }
+
+    @Test
+    public void testPartitionByRowCountAndBytesKeepsRowsApart() {
+        Cell row0col0 = Cell.create(PtBytes.toBytes("row0"), PtBytes.toBytes("col0"));
+        Cell row0col1 = Cell.create(PtBytes.toBytes("row0"), PtBytes.toBytes("col1"));
+        Cell row0col2 = Cell.create(PtBytes.toBytes("row0"), PtBytes.toBytes("col2"));
+        Cell row1col0 = Cell.create(PtBytes.toBytes("row1"), PtBytes.toBytes("col0"));
+        List<Entry<Cell, Value>> entries = ImmutableList.of(
+                Maps.immutableEntry(row1col0, Value.create(VALUE, 1L)),
+                Maps.immutableEntry(row0col0, Value.create(VALUE, 1L)),
+                Maps.immutableEntry(row0col1, Value.create(VALUE, 1L)),
+                Maps.immutableEntry(row0col2, Value.create(VALUE, 1L)));
+
+        List<List<Entry<Cell, Value>>> byCount = keyValueService.partitionByRowCountAndBytes(
+                entries, 2, Long.MAX_VALUE, TABLE, CQLKeyValueServices.PUT_ENTRY_SIZING_FUNCTION);
+        assertEquals(ImmutableList.of(
+                ImmutableList.of(entries.get(1), entries.get(2)),
+                ImmutableList.of(entries.get(3)),
+                ImmutableList.of(entries.get(0))), byCount);
+
+        long entrySize = CQLKeyValueServices.PUT_ENTRY_SIZING_FUNCTION.apply(entries.get(1));
+        List<List<Entry<Cell, Value>>> byBytes = keyValueService.partitionByRowCountAndBytes(
+                entries, 100, entrySize, TABLE, CQLKeyValueServices.PUT_ENTRY_SIZING_FUNCTION);
+        assertEquals(4, byBytes.size());
+        for (List<Entry<Cell, Value>> partition : byBytes) {
+            assertEquals(1, partition.size());
+        }
+    }
+}
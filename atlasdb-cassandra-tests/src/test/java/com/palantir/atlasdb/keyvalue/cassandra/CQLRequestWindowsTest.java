@@ -0,0 +1,166 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.Metadata;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.palantir.exception.PalantirInterruptedException;
+
+public class CQLRequestWindowsTest {
+    private static final String KEYSPACE = "atlasdb";
+    private static final byte[] PARTITION = "row".getBytes();
+    private static final long MAX_WAIT_MILLIS = 50;
+
+    private final Metadata metadata = mock(Metadata.class);
+    private final Session session = mock(Session.class);
+    private final Statement statement = mock(Statement.class);
+    private final List<Runnable> completions = Lists.newArrayList();
+
+    @Before
+    public void setUp() {
+        when(session.executeAsync(any(Statement.class))).thenAnswer(new Answer<ResultSetFuture>() {
+            @Override
+            public ResultSetFuture answer(InvocationOnMock invocation) {
+                return newFuture();
+            }
+        });
+    }
+
+    @Test
+    public void testFailsWhenWindowStaysFull() {
+        setReplicas(ImmutableSet.of(mock(Host.class)));
+        CQLRequestWindows windows = new CQLRequestWindows(metadata, KEYSPACE, 2, MAX_WAIT_MILLIS);
+        windows.executeAsync(session, statement, PARTITION);
+        windows.executeAsync(session, statement, PARTITION);
+        try {
+            windows.executeAsync(session, statement, PARTITION);
+            fail("A request must not wait forever for a full window");
+        } catch (RejectedExecutionException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testCompletedRequestsFreeTheWindow() {
+        setReplicas(ImmutableSet.of(mock(Host.class)));
+        CQLRequestWindows windows = new CQLRequestWindows(metadata, KEYSPACE, 1, MAX_WAIT_MILLIS);
+        windows.executeAsync(session, statement, PARTITION);
+        completions.get(0).run();
+        windows.executeAsync(session, statement, PARTITION);
+        assertEquals(2, completions.size());
+    }
+
+    @Test
+    public void testFailedSendFreesTheWindow() {
+        setReplicas(ImmutableSet.of(mock(Host.class)));
+        CQLRequestWindows windows = new CQLRequestWindows(metadata, KEYSPACE, 1, MAX_WAIT_MILLIS);
+        Session failingSession = mock(Session.class);
+        when(failingSession.executeAsync(any(Statement.class))).thenThrow(new IllegalStateException("closed"));
+        try {
+            windows.executeAsync(failingSession, statement, PARTITION);
+            fail();
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+        windows.executeAsync(session, statement, PARTITION);
+        assertEquals(1, completions.size());
+    }
+
+    @Test
+    public void testUsesOtherReplicasWhenOneIsBusy() {
+        setReplicas(ImmutableSet.of(mock(Host.class), mock(Host.class)));
+        CQLRequestWindows windows = new CQLRequestWindows(metadata, KEYSPACE, 1, MAX_WAIT_MILLIS);
+        windows.executeAsync(session, statement, PARTITION);
+        windows.executeAsync(session, statement, PARTITION);
+        assertEquals(2, completions.size());
+        try {
+            windows.executeAsync(session, statement, PARTITION);
+            fail("Both replicas are busy");
+        } catch (RejectedExecutionException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testWaitingRequestCanBeInterrupted() throws InterruptedException {
+        setReplicas(ImmutableSet.of(mock(Host.class)));
+        final CQLRequestWindows windows = new CQLRequestWindows(metadata, KEYSPACE, 1, TimeUnit.MINUTES.toMillis(1));
+        windows.executeAsync(session, statement, PARTITION);
+
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicReference<Throwable> thrown = new AtomicReference<Throwable>();
+        Thread waiter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    windows.executeAsync(session, statement, PARTITION);
+                } catch (Throwable t) {
+                    thrown.set(t);
+                }
+            }
+        });
+        waiter.start();
+        started.await();
+        waiter.interrupt();
+        waiter.join(TimeUnit.SECONDS.toMillis(10));
+        assertTrue(thrown.get() instanceof PalantirInterruptedException);
+        assertEquals(1, completions.size());
+    }
+
+    private void setReplicas(Set<Host> replicas) {
+        when(metadata.getReplicas(KEYSPACE, ByteBuffer.wrap(PARTITION))).thenReturn(replicas);
+    }
+
+    private ResultSetFuture newFuture() {
+        ResultSetFuture future = mock(ResultSetFuture.class);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                completions.add((Runnable) invocation.getArguments()[0]);
+                return null;
+            }
+        }).when(future).addListener(any(Runnable.class), any(Executor.class));
+        return future;
+    }
+}
@@ -31,7 +31,8 @@ import com.palantir.atlasdb.cassandra.ImmutableCassandraKeyValueServiceConfig;
 @SuiteClasses({
         CQLKeyValueServiceSerializableTransactionTest.class,
         CQLKeyValueServiceTransactionTest.class,
-        CQLKeyValueServiceSweeperTest.class
+        CQLKeyValueServiceSweeperTest.class,
+        CQLKeyValueServiceTest.class
 })
 @Ignore
 public class CQLTestSuite {
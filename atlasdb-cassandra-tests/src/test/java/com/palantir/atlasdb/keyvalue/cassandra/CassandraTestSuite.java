@@ -43,7 +43,8 @@ import com.palantir.docker.compose.connection.waiting.SuccessOrFailure;
         CassandraTimestampTest.class,
         CassandraKeyValueServiceTest.class,
         CassandraDbLockTest.class,
-        CassandraLegacyLockTest.class
+        CassandraLegacyLockTest.class,
+        CQLRequestWindowsTest.class
 })
 public class CassandraTestSuite {
 
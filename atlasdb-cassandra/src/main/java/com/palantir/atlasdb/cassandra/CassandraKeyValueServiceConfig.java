@@ -71,6 +71,25 @@ public abstract class CassandraKeyValueServiceConfig implements KeyValueServiceC
         return 4 * 1024 * 1024;
     }
 
+    /**
+     * Write batches that take longer than this shrink the batch limits for their table below
+     * {@link #mutationBatchCount()} and {@link #mutationBatchSizeBytes()}. Batches the server
+     * rejects as too large always shrink them. Zero only adapts to rejections.
+     */
+    @Value.Default
+    public int mutationBatchTargetLatencyMillis() {
+        return 2 * 1000;
+    }
+
+    /**
+     * How long a small put waits for concurrent puts to the same table so that they can be
+     * written together. Zero, the default, writes every put on its own.
+     */
+    @Value.Default
+    public int writeCoalescingWindowMicros() {
+        return 0;
+    }
+
     @Value.Default
     public int fetchBatchCount() { return 5000; }
 
@@ -113,6 +132,26 @@ public abstract class CassandraKeyValueServiceConfig implements KeyValueServiceC
         return 5 * 1000;
     }
 
+    /**
+     * The CQL key value service will not have more requests than this in flight to
+     * any one Cassandra host at a time; further requests wait until earlier ones finish.
+     * This should not be larger than what the driver connection pool can take (see
+     * {@link #poolSize()}), otherwise requests queue up in the driver and may time out.
+     */
+    @Value.Default
+    public int cqlMaxRequestsInFlightPerHost() {
+        return 20;
+    }
+
+    /**
+     * How long a CQL request waits for the number of requests in flight to one of its replicas to
+     * drop below {@link #cqlMaxRequestsInFlightPerHost()} before it fails.
+     */
+    @Value.Default
+    public int cqlRequestWindowTimeoutMillis() {
+        return 60 * 1000;
+    }
+
     @Value.Default
     public int schemaMutationTimeoutMillis() { return 60 * 1000; }
 
@@ -135,5 +174,7 @@ public abstract class CassandraKeyValueServiceConfig implements KeyValueServiceC
             Preconditions.checkState(addr.getPort() > 0, "each server must specify a port ([host]:[port])");
         }
         Preconditions.checkNotNull(keyspace(), "'keyspace' must be specified");
+        Preconditions.checkState(cqlMaxRequestsInFlightPerHost() > 0, "'cqlMaxRequestsInFlightPerHost' must be positive");
+        Preconditions.checkState(cqlRequestWindowTimeoutMillis() >= 0, "'cqlRequestWindowTimeoutMillis' must not be negative");
     }
 }
@@ -87,7 +87,7 @@ public class CQLExpiringKeyValueService extends CQLKeyValueService implements Ex
             NavigableMap<Cell, byte[]> sortedMap = ImmutableSortedMap.copyOf(e.getValue());
 
 
-            Iterable<List<Entry<Cell, byte[]>>> partitions = partitionByCountAndBytes(sortedMap.entrySet(),
+            Iterable<List<Entry<Cell, byte[]>>> partitions = partitionByRowCountAndBytes(sortedMap.entrySet(),
                     getMultiPutBatchCount(), getMultiPutBatchSizeBytes(), table, CQLKeyValueServices.MULTIPUT_ENTRY_SIZING_FUNCTION);
 
 
@@ -81,6 +81,8 @@ import com.google.common.collect.Multimaps;
 import com.google.common.collect.Ordering;
 import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
+import com.google.common.primitives.UnsignedBytes;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.cassandra.CassandraKeyValueServiceConfig;
 import com.palantir.atlasdb.cassandra.CassandraKeyValueServiceConfigManager;
@@ -101,6 +103,7 @@ import com.palantir.atlasdb.keyvalue.cassandra.CQLKeyValueServices.TransactionTy
 import com.palantir.atlasdb.keyvalue.cassandra.jmx.CassandraJmxCompaction;
 import com.palantir.atlasdb.keyvalue.cassandra.jmx.CassandraJmxCompactionManager;
 import com.palantir.atlasdb.keyvalue.impl.AbstractKeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.AdaptiveBatchSizer;
 import com.palantir.atlasdb.keyvalue.impl.Cells;
 import com.palantir.atlasdb.keyvalue.impl.KeyValueServices;
 import com.palantir.common.annotation.Idempotent;
@@ -114,11 +117,13 @@ import com.palantir.util.paging.TokenBackedBasicResultsPage;
 
 public class CQLKeyValueService extends AbstractKeyValueService {
     private static final Logger log = LoggerFactory.getLogger(CQLKeyValueService.class);
+    private static final int MAX_COLUMNS_PER_IN_QUERY = 100;
 
     private Cluster cluster, longRunningQueryCluster;
     Session session, longRunningQuerySession;
 
     CQLStatementCache cqlStatementCache;
+    CQLRequestWindows requestWindows;
     protected CQLKeyValueServices cqlKeyValueServices;
 
     private final CassandraKeyValueServiceConfigManager configManager;
@@ -128,7 +133,7 @@ public class CQLKeyValueService extends AbstractKeyValueService {
     private final ConsistencyLevel writeConsistency = ConsistencyLevel.EACH_QUORUM;
     private final ConsistencyLevel deleteConsistency = ConsistencyLevel.ALL;
 
-    private boolean limitBatchSizesToServerDefaults = false;
+    private final AdaptiveBatchSizer batchSizer;
 
     public static CQLKeyValueService create(CassandraKeyValueServiceConfigManager configManager) {
         Optional<CassandraJmxCompactionManager> compactionManager = CassandraJmxCompaction.createJmxCompactionManager(configManager);
@@ -143,6 +148,8 @@ public class CQLKeyValueService extends AbstractKeyValueService {
         super(AbstractKeyValueService.createFixedThreadPool("Atlas CQL KVS", configManager.getConfig().poolSize()));
         this.configManager = configManager;
         this.compactionManager = compactionManager;
+        this.batchSizer = new AdaptiveBatchSizer("CQLKeyValueService",
+                configManager.getConfig().mutationBatchTargetLatencyMillis());
     }
 
     protected void initializeConnectionPool() {
@@ -215,6 +222,11 @@ public class CQLKeyValueService extends AbstractKeyValueService {
         longRunningQuerySession = longRunningQueryCluster.connect();
 
         cqlStatementCache = new CQLStatementCache(session, longRunningQuerySession);
+        requestWindows = new CQLRequestWindows(
+                metadata,
+                config.keyspace(),
+                config.cqlMaxRequestsInFlightPerHost(),
+                config.cqlRequestWindowTimeoutMillis());
         cqlKeyValueServices = new CQLKeyValueServices();
 
         if (log.isInfoEnabled()) {
@@ -345,7 +357,7 @@ public class CQLKeyValueService extends AbstractKeyValueService {
             PreparedStatement preparedStatement = getPreparedStatement(tableRef, getRowsQuery, session);
             for (byte[] row : batch) {
                 BoundStatement boundStatement = preparedStatement.bind(ByteBuffer.wrap(row));
-                resultSetFutures.add(session.executeAsync(boundStatement));
+                resultSetFutures.add(requestWindows.executeAsync(session, boundStatement, row));
             }
             for (ResultSetFuture resultSetFuture : resultSetFutures) {
                 ResultSet resultSet;
@@ -412,6 +424,10 @@ public class CQLKeyValueService extends AbstractKeyValueService {
         final String loadWithTsQuery = "SELECT * FROM " + getFullTableName(tableRef) + " "
                 + "WHERE " + CassandraConstants.ROW_NAME + " = ? AND " + CassandraConstants.COL_NAME_COL + " = ? AND " + CassandraConstants.TS_COL
                 + " > ?" + (!loadAllTs ? " LIMIT 1" : "");
+        // Cassandra 2.2 cannot restrict the timestamp after an IN on the column name,
+        // so the rows of this query are filtered by timestamp in visitResults.
+        final String loadAllTsForColumnsQuery = "SELECT * FROM " + getFullTableName(tableRef) + " "
+                + "WHERE " + CassandraConstants.ROW_NAME + " = ? AND " + CassandraConstants.COL_NAME_COL + " IN ?";
         final CassandraKeyValueServiceConfig config = configManager.getConfig();
         if (cells.size() > config.fetchBatchCount()) {
             log.warn("A call to " + tableRef
@@ -421,27 +437,93 @@ public class CQLKeyValueService extends AbstractKeyValueService {
         }
         final PreparedStatement preparedStatement = getPreparedStatement(tableRef, loadWithTsQuery, session).setConsistencyLevel(consistency);
         List<ResultSetFuture> resultSetFutures = Lists.newArrayListWithCapacity(cells.size());
+        List<String> queries = Lists.newArrayListWithCapacity(cells.size());
+
+        for (List<Cell> partition : partitionCellsByPrimaryKey(cells)) {
+            byte[] row = partition.get(0).getRowName();
+            if (loadAllTs && partition.size() > 1) {
+                // All versions are wanted anyway, so read the cells of a row with single-partition queries
+                PreparedStatement inStatement = getPreparedStatement(tableRef, loadAllTsForColumnsQuery, session).setConsistencyLevel(consistency);
+                for (List<Cell> batch : Lists.partition(partition, MAX_COLUMNS_PER_IN_QUERY)) {
+                    List<ByteBuffer> columns = Lists.newArrayListWithCapacity(batch.size());
+                    for (Cell cell : batch) {
+                        columns.add(ByteBuffer.wrap(cell.getColumnName()));
+                    }
+                    resultSetFutures.add(requestWindows.executeAsync(
+                            session,
+                            inStatement.bind(ByteBuffer.wrap(row), columns),
+                            row));
+                    queries.add(loadAllTsForColumnsQuery);
+                }
+            } else {
+                // A single IN query cannot limit each cell to its latest version
+                for (Cell cell : partition) {
+                    resultSetFutures.add(requestWindows.executeAsync(
+                            session,
+                            preparedStatement.bind(
+                                    ByteBuffer.wrap(row),
+                                    ByteBuffer.wrap(cell.getColumnName()),
+                                    ~startTs),
+                            row));
+                    queries.add(loadWithTsQuery);
+                }
+            }
+        }
 
-        for (Cell cell : cells) {
-            ResultSetFuture resultSetFuture = session.executeAsync(
-                    preparedStatement.bind(
-                            ByteBuffer.wrap(cell.getRowName()),
-                            ByteBuffer.wrap(cell.getColumnName()),
-                            ~startTs));
-            resultSetFutures.add(resultSetFuture);
+        for (int i = 0; i < resultSetFutures.size(); i++) {
+            visitResults(resultSetFutures.get(i).getUninterruptibly(), v, queries.get(i), loadAllTs, startTs);
         }
+    }
 
-        for (ResultSetFuture rsf : resultSetFutures) {
-            visitResults(rsf.getUninterruptibly(), v, loadWithTsQuery, loadAllTs);
+    // Cassandra partitions are Atlas rows, so each of these groups can be read
+    // by single-partition queries against the same replicas.
+    private static Collection<List<Cell>> partitionCellsByPrimaryKey(Collection<Cell> cells) {
+        SortedMap<byte[], List<Cell>> cellsByRow = Maps.newTreeMap(UnsignedBytes.lexicographicalComparator());
+        for (Cell cell : cells) {
+            List<Cell> rowCells = cellsByRow.get(cell.getRowName());
+            if (rowCells == null) {
+                rowCells = Lists.newArrayList();
+                cellsByRow.put(cell.getRowName(), rowCells);
+            }
+            rowCells.add(cell);
         }
+        return cellsByRow.values();
     }
 
-    // todo use this for insert and delete batch-to-owner-coordinator mapping
-    private Map<byte[], List<Cell>> partitionCellsByPrimaryKey(Collection<Cell> cells) {
-        return Multimaps.asMap(Multimaps.index(cells, Cells.getRowFunction()));
+    /**
+     * Like {@link #partitionByCountAndBytes(Iterable, int, long, TableReference, Function)}, but
+     * entries of different rows never end up in the same partition. Every resulting batch thus
+     * only touches a single Cassandra partition and is applied by its replicas directly instead
+     * of being split up by the coordinator.
+     */
+    protected <T extends Entry<Cell, ?>> List<List<T>> partitionByRowCountAndBytes(Iterable<T> entries,
+                                                                                  int maximumCountPerPartition,
+                                                                                  long maximumBytesPerPartition,
+                                                                                  TableReference tableRef,
+                                                                                  Function<T, Long> sizingFunction) {
+        SortedMap<byte[], List<T>> entriesByRow = Maps.newTreeMap(UnsignedBytes.lexicographicalComparator());
+        for (T entry : entries) {
+            byte[] row = entry.getKey().getRowName();
+            List<T> rowEntries = entriesByRow.get(row);
+            if (rowEntries == null) {
+                rowEntries = Lists.newArrayList();
+                entriesByRow.put(row, rowEntries);
+            }
+            rowEntries.add(entry);
+        }
+        List<List<T>> partitions = Lists.newArrayList();
+        for (List<T> rowEntries : entriesByRow.values()) {
+            Iterables.addAll(partitions, partitionByCountAndBytes(
+                    rowEntries,
+                    maximumCountPerPartition,
+                    maximumBytesPerPartition,
+                    tableRef,
+                    sizingFunction));
+        }
+        return partitions;
     }
 
-    private void visitResults(ResultSet resultSet, Visitor<Multimap<Cell, Value>> v, String query, boolean loadAllTs) {
+    private void visitResults(ResultSet resultSet, Visitor<Multimap<Cell, Value>> v, String query, boolean loadAllTs, long startTs) {
         List<Row> rows = resultSet.all();
         Multimap<Cell, Value> res;
         if (loadAllTs) {
@@ -450,8 +532,11 @@ public class CQLKeyValueService extends AbstractKeyValueService {
             res = HashMultimap.create(rows.size(), 1);
         }
         for (Row row : rows) {
-            res.put(Cell.create(CQLKeyValueServices.getRowName(row), CQLKeyValueServices.getColName(row)),
-                    Value.create(CQLKeyValueServices.getValue(row), CQLKeyValueServices.getTs(row)));
+            long ts = CQLKeyValueServices.getTs(row);
+            if (ts < startTs) {
+                res.put(Cell.create(CQLKeyValueServices.getRowName(row), CQLKeyValueServices.getColName(row)),
+                        Value.create(CQLKeyValueServices.getValue(row), ts));
+            }
         }
         cqlKeyValueServices.logTracedQuery(query, resultSet, session, cqlStatementCache.NORMAL_QUERY);
         v.visit(res);
@@ -499,7 +584,7 @@ public class CQLKeyValueService extends AbstractKeyValueService {
                         boundStatement.setBytes(
                                 CassandraConstants.COL_NAME_COL,
                                 ByteBuffer.wrap(c.getColumnName()));
-                        resultSetFutures.add(session.executeAsync(boundStatement));
+                        resultSetFutures.add(requestWindows.executeAsync(session, boundStatement, c.getRowName()));
                     }
                     Map<Cell, Long> res = Maps.newHashMapWithExpectedSize(partition.size());
                     for (ResultSetFuture resultSetFuture : resultSetFutures) {
@@ -562,7 +647,7 @@ public class CQLKeyValueService extends AbstractKeyValueService {
             NavigableMap<Cell, byte[]> sortedMap = ImmutableSortedMap.copyOf(e.getValue());
 
 
-            Iterable<List<Entry<Cell, byte[]>>> partitions = partitionByCountAndBytes(sortedMap.entrySet(),
+            Iterable<List<Entry<Cell, byte[]>>> partitions = partitionByRowCountAndBytes(sortedMap.entrySet(),
                     getMultiPutBatchCount(), getMultiPutBatchSizeBytes(), table, CQLKeyValueServices.MULTIPUT_ENTRY_SIZING_FUNCTION);
 
 
@@ -596,37 +681,45 @@ public class CQLKeyValueService extends AbstractKeyValueService {
     protected void putInternal(final TableReference tableRef, final Iterable<Map.Entry<Cell, Value>> values, TransactionType transactionType, final int ttl, boolean recursive)
             throws Exception {
         List<ResultSetFuture> resultSetFutures = Lists.newArrayList();
-        int mutationBatchCount = configManager.getConfig().mutationBatchCount();
-        long mutationBatchSizeBytes = limitBatchSizesToServerDefaults?
-                CQLKeyValueServices.UNCONFIGURED_DEFAULT_BATCH_SIZE_BYTES : configManager.getConfig().mutationBatchSizeBytes();
-        for (List<Entry<Cell, Value>> partition : partitionByCountAndBytes(
+        List<List<Entry<Cell, Value>>> partitions = Lists.newArrayList();
+        List<BatchTimer> timers = Lists.newArrayList();
+        int mutationBatchCount = batchSizer.getBatchCount(tableRef, configManager.getConfig().mutationBatchCount());
+        long mutationBatchSizeBytes = batchSizer.getBatchSizeBytes(tableRef, configManager.getConfig().mutationBatchSizeBytes());
+        for (List<Entry<Cell, Value>> partition : partitionByRowCountAndBytes(
                 values,
                 mutationBatchCount,
                 mutationBatchSizeBytes,
                 tableRef,
                 CQLKeyValueServices.PUT_ENTRY_SIZING_FUNCTION)) {
-            resultSetFutures.add(getPutPartitionResultSetFuture(tableRef, partition, transactionType));
+            BatchTimer timer = new BatchTimer();
+            ResultSetFuture future = getPutPartitionResultSetFuture(tableRef, partition, transactionType);
+            future.addListener(timer, MoreExecutors.directExecutor());
+            resultSetFutures.add(future);
+            partitions.add(partition);
+            timers.add(timer);
         }
 
         final String putQuery = getPutQueryForPossibleTransaction(tableRef, transactionType);
-        for (ResultSetFuture resultSetFuture : resultSetFutures) {
+        boolean rejected = false;
+        for (int i = 0; i < resultSetFutures.size(); i++) {
             ResultSet resultSet;
+            List<Entry<Cell, Value>> partition = partitions.get(i);
             try {
-                resultSet = resultSetFuture.getUninterruptibly();
+                resultSet = resultSetFutures.get(i).getUninterruptibly();
                 resultSet.all();
+                batchSizer.recordBatch(tableRef, partition.size(), getPutSize(partition), timers.get(i).getElapsedNanos());
                 cqlKeyValueServices.logTracedQuery(putQuery, resultSet, session, cqlStatementCache.NORMAL_QUERY);
                 if (!resultSet.wasApplied()) {
                     throw new KeyAlreadyExistsException("This transaction row already exists: " + putQuery);
                 }
             } catch (InvalidQueryException e) {
-                if (e.getMessage().contains("Batch too large") && !recursive) {
-                    log.error("Attempted a put to " + tableRef + " that the Cassandra server deemed to be too large to accept. Batch sizes on the Atlas-side have been artificially lowered to the Cassandra default maximum batch sizes.");
-                    limitBatchSizesToServerDefaults = true;
-                    try {
-                        putInternal(tableRef, values, transactionType, ttl, true);
-                    } catch (Throwable t) {
-                        throw Throwables.throwUncheckedException(t);
+                if (e.getMessage().contains("Batch too large")) {
+                    double scale = batchSizer.getScale(tableRef);
+                    batchSizer.recordRejection(tableRef, partition.size(), getPutSize(partition), timers.get(i).getElapsedNanos());
+                    if (batchSizer.getScale(tableRef) >= scale) {
+                        throw Throwables.throwUncheckedException(e);
                     }
+                    rejected = true;
                 } else {
                     throw Throwables.throwUncheckedException(e);
                 }
@@ -634,6 +727,43 @@ public class CQLKeyValueService extends AbstractKeyValueService {
                 throw Throwables.throwUncheckedException(t);
             }
         }
+
+        if (rejected) {
+            // The batch limits for this table have been lowered, so write everything again in smaller batches.
+            if (!recursive) {
+                log.warn("Attempted a put to " + tableRef + " that the Cassandra server deemed to be too large to accept."
+                        + " Batch sizes for this table have been lowered and the put is being retried.");
+            }
+            putInternal(tableRef, values, transactionType, ttl, true);
+        }
+    }
+
+    /**
+     * Measures one batch from when it is sent until its future completes, so that waiting on the
+     * batches sent before it does not count towards its latency.
+     */
+    private static final class BatchTimer implements Runnable {
+        private final long sentNanos = System.nanoTime();
+        private volatile long completedNanos = 0L;
+
+        @Override
+        public void run() {
+            completedNanos = System.nanoTime();
+        }
+
+        long getElapsedNanos() {
+            long completed = completedNanos;
+            // The future's listeners may not have run yet when get() returns
+            return (completed == 0L ? System.nanoTime() : completed) - sentNanos;
+        }
+    }
+
+    private static long getPutSize(List<Entry<Cell, Value>> partition) {
+        long size = 0;
+        for (Entry<Cell, Value> entry : partition) {
+            size += CQLKeyValueServices.PUT_ENTRY_SIZING_FUNCTION.apply(entry);
+        }
+        return size;
     }
 
     private String getPutQueryForPossibleTransaction(TableReference tableRef, TransactionType transactionType) {
@@ -689,10 +819,10 @@ public class CQLKeyValueService extends AbstractKeyValueService {
             if (partition.size() > 1) {
                 batchStatement.add(boundStatement);
             } else {
-                return session.executeAsync(boundStatement);
+                return requestWindows.executeAsync(session, boundStatement, e.getKey().getRowName());
             }
         }
-        return session.executeAsync(batchStatement);
+        return requestWindows.executeAsync(session, batchStatement, partition.get(0).getKey().getRowName());
     }
 
     @Override
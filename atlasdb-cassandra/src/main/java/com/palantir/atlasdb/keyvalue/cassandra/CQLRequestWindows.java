@@ -0,0 +1,115 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra;
+
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.Metadata;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.palantir.common.base.Throwables;
+
+/**
+ * Caps the number of requests in flight to each Cassandra host. A request for a partition
+ * waits until one of the replicas of that partition has fewer than <code>maxRequestsPerHost</code>
+ * requests running against it, so that large reads and writes queue up on the client instead of
+ * piling up (and timing out) on the coordinators. The driver may still pick another replica of
+ * the partition as coordinator, so the window bounds the load on each replica set rather than on
+ * the exact host serving a request.
+ * <p>
+ * A request that cannot get into a window within <code>maxWaitMillis</code> fails with a
+ * {@link RejectedExecutionException}, and waiting callers can be interrupted.
+ */
+@ThreadSafe
+class CQLRequestWindows {
+    private final Metadata metadata;
+    private final String keyspace;
+    private final long maxWaitMillis;
+    private final Semaphore unknownHostWindow;
+    private final LoadingCache<Host, Semaphore> windowByHost;
+
+    CQLRequestWindows(Metadata metadata, String keyspace, final int maxRequestsPerHost, long maxWaitMillis) {
+        this.metadata = metadata;
+        this.keyspace = keyspace;
+        this.maxWaitMillis = maxWaitMillis;
+        this.unknownHostWindow = new Semaphore(maxRequestsPerHost);
+        this.windowByHost = CacheBuilder.newBuilder().build(new CacheLoader<Host, Semaphore>() {
+            @Override
+            public Semaphore load(Host host) {
+                return new Semaphore(maxRequestsPerHost);
+            }
+        });
+    }
+
+    /**
+     * Executes a statement that only touches the partition with the given key, waiting while
+     * every replica of that partition has a full window.
+     */
+    ResultSetFuture executeAsync(Session session, Statement statement, byte[] partitionKey) {
+        final Semaphore window = getWindow(partitionKey);
+        try {
+            if (!window.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                throw new RejectedExecutionException("Gave up after waiting " + maxWaitMillis + " ms for one of the"
+                        + " Cassandra replicas of a partition to have fewer requests in flight. The cluster may be"
+                        + " overloaded; see cqlMaxRequestsInFlightPerHost and cqlRequestWindowTimeoutMillis.");
+            }
+        } catch (InterruptedException e) {
+            throw Throwables.throwUncheckedException(e);
+        }
+        ResultSetFuture future;
+        try {
+            future = session.executeAsync(statement);
+        } catch (RuntimeException e) {
+            window.release();
+            throw e;
+        }
+        future.addListener(new Runnable() {
+            @Override
+            public void run() {
+                window.release();
+            }
+        }, MoreExecutors.sameThreadExecutor());
+        return future;
+    }
+
+    private Semaphore getWindow(byte[] partitionKey) {
+        Set<Host> replicas = metadata.getReplicas(keyspace, ByteBuffer.wrap(partitionKey));
+        if (replicas.isEmpty()) {
+            return unknownHostWindow;
+        }
+        // Any replica can coordinate a single-partition request, so use the least busy one.
+        Semaphore leastBusy = null;
+        for (Host replica : replicas) {
+            Semaphore window = windowByHost.getUnchecked(replica);
+            if (leastBusy == null || window.availablePermits() > leastBusy.availablePermits()) {
+                leastBusy = window;
+            }
+        }
+        return leastBusy;
+    }
+}
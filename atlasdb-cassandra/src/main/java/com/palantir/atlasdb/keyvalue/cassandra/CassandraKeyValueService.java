@@ -90,6 +90,7 @@ import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
 import com.palantir.atlasdb.keyvalue.api.InsufficientConsistencyException;
 import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.keyvalue.api.RangeDeletingKeyValueService;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RangeRequests;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
@@ -101,8 +102,10 @@ import com.palantir.atlasdb.keyvalue.cassandra.CassandraKeyValueServices.ThreadS
 import com.palantir.atlasdb.keyvalue.cassandra.jmx.CassandraJmxCompaction;
 import com.palantir.atlasdb.keyvalue.cassandra.jmx.CassandraJmxCompactionManager;
 import com.palantir.atlasdb.keyvalue.impl.AbstractKeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.AdaptiveBatchSizer;
 import com.palantir.atlasdb.keyvalue.impl.Cells;
 import com.palantir.atlasdb.keyvalue.impl.KeyValueServices;
+import com.palantir.atlasdb.keyvalue.impl.WriteCoalescer;
 import com.palantir.atlasdb.protos.generated.TableMetadataPersistence;
 import com.palantir.atlasdb.table.description.TableMetadata;
 import com.palantir.common.annotation.Idempotent;
@@ -129,7 +132,7 @@ import com.palantir.util.paging.TokenBackedBasicResultsPage;
  * if some nodes are down, and the change can be detected through active hosts,
  * and these inactive nodes will be removed afterwards.
  */
-public class CassandraKeyValueService extends AbstractKeyValueService {
+public class CassandraKeyValueService extends AbstractKeyValueService implements RangeDeletingKeyValueService {
 
     static final Logger log = LoggerFactory.getLogger(CassandraKeyValueService.class);
 
@@ -142,6 +145,8 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
 
     private final CassandraKeyValueServiceConfigManager configManager;
     private final Optional<CassandraJmxCompactionManager> compactionManager;
+    private final AdaptiveBatchSizer batchSizer;
+    private final WriteCoalescer<Entry<Cell, Value>> writeCoalescer;
     protected final CassandraClientPool clientPool;
 
     protected boolean supportsCAS = false;
@@ -165,6 +170,22 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
         this.configManager = configManager;
         this.clientPool = new CassandraClientPool(configManager.getConfig());
         this.compactionManager = compactionManager;
+        CassandraKeyValueServiceConfig config = configManager.getConfig();
+        this.batchSizer = new AdaptiveBatchSizer("CassandraKeyValueService", config.mutationBatchTargetLatencyMillis());
+        this.writeCoalescer = new WriteCoalescer<Entry<Cell, Value>>(
+                "CassandraKeyValueService",
+                config.writeCoalescingWindowMicros(),
+                config.mutationBatchCount(),
+                new WriteCoalescer.Writer<Entry<Cell, Value>>() {
+                    @Override
+                    public void write(TableReference tableRef, List<Entry<Cell, Value>> entries) {
+                        try {
+                            putCoalesced(tableRef, entries);
+                        } catch (Exception e) {
+                            throw Throwables.throwUncheckedException(e);
+                        }
+                    }
+                });
     }
 
     protected void init() {
@@ -470,6 +491,11 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
 
     @Override
     public void put(final TableReference tableRef, final Map<Cell, byte[]> values, final long timestamp) {
+        if (configManager.getConfig().writeCoalescingWindowMicros() > 0) {
+            writeCoalescer.write(tableRef, ImmutableList.copyOf(
+                    KeyValueServices.toConstantTimestampValues(values.entrySet(), timestamp)));
+            return;
+        }
         try {
             putInternal(tableRef, KeyValueServices.toConstantTimestampValues(values.entrySet(), timestamp));
         } catch (Exception e) {
@@ -496,6 +522,31 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
         putInternal(tableRef, values, CassandraConstants.NO_TTL);
     }
 
+    /**
+     * Writes puts combined by the {@link WriteCoalescer}. {@link #putInternal} groups cells by host
+     * in maps, so writes of the same cell at different timestamps go in separate rounds.
+     */
+    private void putCoalesced(TableReference tableRef, List<Entry<Cell, Value>> entries) throws Exception {
+        List<Map<Cell, Value>> rounds = Lists.newArrayList();
+        for (Entry<Cell, Value> entry : entries) {
+            Map<Cell, Value> round = null;
+            for (Map<Cell, Value> existing : rounds) {
+                if (!existing.containsKey(entry.getKey())) {
+                    round = existing;
+                    break;
+                }
+            }
+            if (round == null) {
+                round = Maps.newHashMap();
+                rounds.add(round);
+            }
+            round.put(entry.getKey(), entry.getValue());
+        }
+        for (Map<Cell, Value> round : rounds) {
+            putInternal(tableRef, round.entrySet());
+        }
+    }
+
     protected void putInternal(final TableReference tableRef,
                                Iterable<Map.Entry<Cell, Value>> values,
                                final int ttl) throws Exception {
@@ -521,37 +572,11 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
             @Override
             public Void apply(Client client) throws Exception {
                 final CassandraKeyValueServiceConfig config = configManager.getConfig();
-                int mutationBatchCount = config.mutationBatchCount();
-                int mutationBatchSizeBytes = config.mutationBatchSizeBytes();
+                int mutationBatchCount = batchSizer.getBatchCount(tableRef, config.mutationBatchCount());
+                long mutationBatchSizeBytes = batchSizer.getBatchSizeBytes(tableRef, config.mutationBatchSizeBytes());
                 for (List<Entry<Cell, Value>> partition : partitionByCountAndBytes(values, mutationBatchCount,
                         mutationBatchSizeBytes, tableRef, ENTRY_SIZING_FUNCTION)) {
-                    Map<ByteBuffer, Map<String, List<Mutation>>> map = Maps.newHashMap();
-                    for (Map.Entry<Cell, Value> e : partition) {
-                        Cell cell = e.getKey();
-                        Column col = createColumn(cell, e.getValue(), ttl);
-
-                        ColumnOrSuperColumn colOrSup = new ColumnOrSuperColumn();
-                        colOrSup.setColumn(col);
-                        Mutation m = new Mutation();
-                        m.setColumn_or_supercolumn(colOrSup);
-
-                        ByteBuffer rowName = ByteBuffer.wrap(cell.getRowName());
-
-                        Map<String, List<Mutation>> rowPuts = map.get(rowName);
-                        if (rowPuts == null) {
-                            rowPuts = Maps.<String, List<Mutation>>newHashMap();
-                            map.put(rowName, rowPuts);
-                        }
-
-                        List<Mutation> tableMutations = rowPuts.get(internalTableName(tableRef));
-                        if (tableMutations == null) {
-                            tableMutations = Lists.<Mutation>newArrayList();
-                            rowPuts.put(internalTableName(tableRef), tableMutations);
-                        }
-
-                        tableMutations.add(m);
-                    }
-                    batchMutateInternal(client, tableRef, map, writeConsistency);
+                    putBatchForSingleHost(client, tableRef, partition, ttl);
                 }
                 return null;
             }
@@ -563,6 +588,62 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
         });
     }
 
+    /**
+     * Writes one batch, splitting it in half and retrying if the server rejects it as too large.
+     */
+    private void putBatchForSingleHost(Client client,
+                                       TableReference tableRef,
+                                       List<Entry<Cell, Value>> batch,
+                                       int ttl) throws TException {
+        Map<ByteBuffer, Map<String, List<Mutation>>> map = Maps.newHashMap();
+        long numBytes = 0;
+        for (Map.Entry<Cell, Value> e : batch) {
+            Cell cell = e.getKey();
+            Column col = createColumn(cell, e.getValue(), ttl);
+            numBytes += ENTRY_SIZING_FUNCTION.apply(e);
+
+            ColumnOrSuperColumn colOrSup = new ColumnOrSuperColumn();
+            colOrSup.setColumn(col);
+            Mutation m = new Mutation();
+            m.setColumn_or_supercolumn(colOrSup);
+
+            ByteBuffer rowName = ByteBuffer.wrap(cell.getRowName());
+
+            Map<String, List<Mutation>> rowPuts = map.get(rowName);
+            if (rowPuts == null) {
+                rowPuts = Maps.<String, List<Mutation>>newHashMap();
+                map.put(rowName, rowPuts);
+            }
+
+            List<Mutation> tableMutations = rowPuts.get(internalTableName(tableRef));
+            if (tableMutations == null) {
+                tableMutations = Lists.<Mutation>newArrayList();
+                rowPuts.put(internalTableName(tableRef), tableMutations);
+            }
+
+            tableMutations.add(m);
+        }
+
+        long start = System.nanoTime();
+        try {
+            batchMutateInternal(client, tableRef, map, writeConsistency);
+        } catch (InvalidRequestException e) {
+            if (batch.size() < 2 || !isBatchTooLarge(e)) {
+                throw e;
+            }
+            batchSizer.recordRejection(tableRef, batch.size(), numBytes, System.nanoTime() - start);
+            int half = batch.size() / 2;
+            putBatchForSingleHost(client, tableRef, batch.subList(0, half), ttl);
+            putBatchForSingleHost(client, tableRef, batch.subList(half, batch.size()), ttl);
+            return;
+        }
+        batchSizer.recordBatch(tableRef, batch.size(), numBytes, System.nanoTime() - start);
+    }
+
+    private static boolean isBatchTooLarge(InvalidRequestException e) {
+        return e.getWhy() != null && e.getWhy().contains("too large");
+    }
+
     // Overridden to batch more intelligently than the default implementation.
     @Override
     public void multiPut(Map<TableReference, ? extends Map<Cell, byte[]>> valuesByTable, final long timestamp) throws KeyAlreadyExistsException {
@@ -877,6 +958,74 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
         }
     }
 
+    /**
+     * Deletes each cell's old versions with a single range tombstone over the composite columns
+     * of those versions, instead of one column tombstone per version.
+     */
+    @Override
+    public void deleteAllTimestampsBelow(TableReference tableRef, Map<Cell, Long> maxTimestampExclusiveByCell) {
+        Map<InetSocketAddress, Map<Cell, Long>> cellsByHost = partitionMapByHost(maxTimestampExclusiveByCell.entrySet());
+        for (Map.Entry<InetSocketAddress, Map<Cell, Long>> entry : cellsByHost.entrySet()) {
+            deleteAllTimestampsBelowOnSingleHost(entry.getKey(), tableRef, entry.getValue());
+        }
+    }
+
+    private void deleteAllTimestampsBelowOnSingleHost(final InetSocketAddress host,
+                                                      final TableReference tableRef,
+                                                      final Map<Cell, Long> maxTimestampExclusiveByCell) {
+        try {
+            clientPool.runWithRetryOnHost(host, new FunctionCheckedException<Client, Void, Exception>() {
+                @Override
+                public Void apply(Client client) throws Exception {
+                    Map<ByteBuffer, Map<String, List<Mutation>>> map = Maps.newHashMap();
+                    for (Map.Entry<Cell, Long> entry : maxTimestampExclusiveByCell.entrySet()) {
+                        Cell cell = entry.getKey();
+                        long maxTimestampExclusive = entry.getValue();
+                        if (maxTimestampExclusive <= 0) {
+                            continue;
+                        }
+                        // Timestamps are stored inverted, so the newest version to delete starts the slice.
+                        SliceRange range = new SliceRange(
+                                CassandraKeyValueServices.makeCompositeBuffer(cell.getColumnName(), maxTimestampExclusive - 1),
+                                CassandraKeyValueServices.makeCompositeBuffer(cell.getColumnName(), 0L),
+                                false,
+                                Integer.MAX_VALUE);
+                        SlicePredicate pred = new SlicePredicate();
+                        pred.setSlice_range(range);
+                        Deletion del = new Deletion();
+                        del.setPredicate(pred);
+                        del.setTimestamp(Long.MAX_VALUE);
+                        Mutation m = new Mutation();
+                        m.setDeletion(del);
+                        ByteBuffer rowName = ByteBuffer.wrap(cell.getRowName());
+                        if (!map.containsKey(rowName)) {
+                            map.put(rowName, Maps.<String, List<Mutation>>newHashMap());
+                        }
+                        Map<String, List<Mutation>> rowPuts = map.get(rowName);
+                        if (!rowPuts.containsKey(internalTableName(tableRef))) {
+                            rowPuts.put(internalTableName(tableRef), Lists.<Mutation>newArrayList());
+                        }
+                        rowPuts.get(internalTableName(tableRef)).add(m);
+                    }
+                    if (!map.isEmpty()) {
+                        // NOTE: we run with ConsistencyLevel.ALL here instead of ConsistencyLevel.QUORUM
+                        // because we want to remove all copies of this data
+                        batchMutateInternal(client, tableRef, map, deleteConsistency);
+                    }
+                    return null;
+                }
+
+                @Override
+                public String toString() {
+                    return "batch_mutate(" + host + ", " + tableRef.getQualifiedName() + ", "
+                            + maxTimestampExclusiveByCell.size() + " range deletes" + ")";
+                }
+            });
+        } catch (Exception e) {
+            throw Throwables.throwUncheckedException(e);
+        }
+    }
+
     // update CKVS.isMatchingCf if you update this method
     private CfDef getCfForTable(TableReference tableRef, byte[] rawMetadata) {
         final CassandraKeyValueServiceConfig config = configManager.getConfig();
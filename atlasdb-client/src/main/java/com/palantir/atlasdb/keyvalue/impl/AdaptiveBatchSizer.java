@@ -0,0 +1,158 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Maps;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.util.metrics.MetricsRegistry;
+import com.palantir.util.metrics.OperationMetrics;
+
+/**
+ * Learns per table write batch sizes from the latency of the batches that were written and from
+ * batches the server rejected as too large.
+ * <p>
+ * A table starts at the configured batch count and size. Batches that take longer than the
+ * target latency shrink the limits multiplicatively, rejected batches halve them, and batches
+ * that complete in under half the target grow them back additively, never past the configured
+ * values. The limits are kept as a fraction of the configured values so that configuration
+ * changes take effect immediately.
+ * <p>
+ * Every batch is recorded in a "batch" {@link OperationMetrics} per table, with rejections
+ * counted as failures, and the current fraction is available from {@link #getScale}.
+ */
+@ThreadSafe
+public final class AdaptiveBatchSizer {
+    private static final Logger log = LoggerFactory.getLogger(AdaptiveBatchSizer.class);
+
+    public static final String METRIC_TYPE = "WriteBatches";
+
+    private static final double MIN_SCALE = 1.0 / 256;
+    private static final double GROWTH_STEP = 0.05;
+    private static final double SLOW_BATCH_FACTOR = 0.75;
+    private static final double REJECTED_BATCH_FACTOR = 0.5;
+    private static final int MIN_BATCH_COUNT = 16;
+    private static final long MIN_BATCH_SIZE_BYTES = 16 * 1024;
+
+    private final String name;
+    private final long targetLatencyNanos;
+    private final MetricsRegistry registry;
+    private final ConcurrentMap<TableReference, TableState> tables = Maps.newConcurrentMap();
+
+    /**
+     * @param name identifies the owning key value service in the metric names
+     * @param targetLatencyMillis the latency above which a batch is considered too large, or 0 to
+     *        only adapt to rejected batches
+     */
+    public AdaptiveBatchSizer(String name, long targetLatencyMillis) {
+        this(name, targetLatencyMillis, MetricsRegistry.getDefault());
+    }
+
+    public AdaptiveBatchSizer(String name, long targetLatencyMillis, MetricsRegistry registry) {
+        this.name = name;
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMillis);
+        this.registry = registry;
+    }
+
+    public int getBatchCount(TableReference tableRef, int configuredCount) {
+        double scale = getState(tableRef).scale;
+        int minCount = Math.min(configuredCount, MIN_BATCH_COUNT);
+        return Math.max(minCount, (int) (configuredCount * scale));
+    }
+
+    public long getBatchSizeBytes(TableReference tableRef, long configuredBytes) {
+        double scale = getState(tableRef).scale;
+        long minBytes = Math.min(configuredBytes, MIN_BATCH_SIZE_BYTES);
+        return Math.max(minBytes, (long) (configuredBytes * scale));
+    }
+
+    public double getScale(TableReference tableRef) {
+        return getState(tableRef).scale;
+    }
+
+    /**
+     * Records a batch that the server accepted.
+     */
+    public void recordBatch(TableReference tableRef, int numCells, long numBytes, long nanos) {
+        TableState state = getState(tableRef);
+        state.metrics.record(nanos, numCells, numBytes);
+        if (targetLatencyNanos <= 0) {
+            state.grow();
+        } else if (nanos > targetLatencyNanos) {
+            state.shrink(SLOW_BATCH_FACTOR, "a batch of " + numCells + " cells took "
+                    + TimeUnit.NANOSECONDS.toMillis(nanos) + " ms");
+        } else if (nanos < targetLatencyNanos / 2) {
+            state.grow();
+        }
+    }
+
+    /**
+     * Records a batch that the server refused because it was too large. The caller should
+     * re-partition the rejected cells with the new limits and retry.
+     */
+    public void recordRejection(TableReference tableRef, int numCells, long numBytes, long nanos) {
+        TableState state = getState(tableRef);
+        state.metrics.recordFailure(nanos);
+        state.shrink(REJECTED_BATCH_FACTOR, "the server rejected a batch of "
+                + numCells + " cells and " + numBytes + " bytes");
+    }
+
+    private TableState getState(TableReference tableRef) {
+        TableState state = tables.get(tableRef);
+        if (state == null) {
+            state = new TableState(tableRef,
+                    registry.operation(METRIC_TYPE, name + "." + tableRef.getQualifiedName(), "batch"));
+            TableState existing = tables.putIfAbsent(tableRef, state);
+            if (existing != null) {
+                state = existing;
+            }
+        }
+        return state;
+    }
+
+    private static final class TableState {
+        private final TableReference tableRef;
+        private final OperationMetrics metrics;
+        private volatile double scale = 1.0;
+
+        TableState(TableReference tableRef, OperationMetrics metrics) {
+            this.tableRef = tableRef;
+            this.metrics = metrics;
+        }
+
+        synchronized void grow() {
+            if (scale < 1.0) {
+                scale = Math.min(1.0, scale + GROWTH_STEP);
+            }
+        }
+
+        synchronized void shrink(double factor, String reason) {
+            double oldScale = scale;
+            scale = Math.max(MIN_SCALE, scale * factor);
+            if (scale != oldScale) {
+                log.info("Lowering write batch sizes for {} to {}% of the configured limits because {}.",
+                        tableRef, Math.round(scale * 100), reason);
+            }
+        }
+    }
+}
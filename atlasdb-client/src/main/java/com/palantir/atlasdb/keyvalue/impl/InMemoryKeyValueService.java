@@ -36,6 +36,7 @@ import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
@@ -47,7 +48,10 @@ import com.google.common.primitives.UnsignedBytes;
 import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.ColumnarKeyValueService;
+import com.palantir.atlasdb.keyvalue.api.ColumnarResults;
 import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.keyvalue.api.RangeDeletingKeyValueService;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
@@ -64,7 +68,7 @@ import com.palantir.util.paging.TokenBackedBasicResultsPage;
  * Intended for testing use only.
  */
 @ThreadSafe
-public class InMemoryKeyValueService extends AbstractKeyValueService {
+public class InMemoryKeyValueService extends AbstractKeyValueService implements ColumnarKeyValueService, RangeDeletingKeyValueService {
     private final ConcurrentMap<TableReference, Table> tables = Maps.newConcurrentMap();
     private final ConcurrentMap<TableReference, byte[]> tableMetadata = Maps.newConcurrentMap();
     private volatile boolean createTablesAutomatically;
@@ -122,6 +126,86 @@ public class InMemoryKeyValueService extends AbstractKeyValueService {
         return result;
     }
 
+    @Override
+    public ColumnarResults getRowsColumnar(TableReference tableRef, Iterable<byte[]> rows,
+                                           ColumnSelection columnSelection, long timestamp) {
+        ConcurrentSkipListMap<Key, byte[]> table = getTableMap(tableRef).entries;
+        ColumnarResults.Builder builder = ColumnarResults.builder();
+        for (byte[] row : ImmutableSortedSet.copyOf(UnsignedBytes.lexicographicalComparator(), rows)) {
+            Cell rowBegin = Cells.createSmallestCellForRow(row);
+            Cell rowEnd = Cells.createLargestCellForRow(row);
+            Iterator<Entry<Key, byte[]>> entries = table.subMap(
+                    new Key(rowBegin, Long.MIN_VALUE), new Key(rowEnd, timestamp)).entrySet().iterator();
+            appendLatestValues(entries, columnSelection, timestamp, Integer.MAX_VALUE, builder);
+        }
+        return builder.build();
+    }
+
+    @Override
+    public ColumnarResults getRangeColumnar(TableReference tableRef, RangeRequest range, long timestamp) {
+        if (range.isReverse()) {
+            return KeyValueServices.getRangeColumnarUsingGetRange(this, tableRef, range, timestamp);
+        }
+        ConcurrentNavigableMap<Key, byte[]> tableMap = getTableMap(tableRef).entries;
+        if (range.getStartInclusive().length != 0) {
+            Cell startCell = Cells.createSmallestCellForRow(range.getStartInclusive());
+            tableMap = tableMap.tailMap(new Key(startCell, Long.MIN_VALUE));
+        }
+        if (range.getEndExclusive().length != 0) {
+            Cell endCell = Cells.createSmallestCellForRow(range.getEndExclusive());
+            tableMap = tableMap.headMap(new Key(endCell, Long.MAX_VALUE));
+        }
+        ColumnSelection columns = range.getColumnNames().isEmpty()
+                ? ColumnSelection.all()
+                : ColumnSelection.create(range.getColumnNames());
+        ColumnarResults.Builder builder = ColumnarResults.builder();
+        appendLatestValues(
+                tableMap.entrySet().iterator(), columns, timestamp, KeyValueServices.getColumnarBatchSize(range), builder);
+        return builder.build();
+    }
+
+    /**
+     * Appends the latest value before the timestamp of each selected cell, stopping before the
+     * first cell that would start row number maxRows + 1.
+     */
+    private static void appendLatestValues(Iterator<Entry<Key, byte[]>> entries,
+                                           ColumnSelection columns,
+                                           long timestamp,
+                                           int maxRows,
+                                           @Output ColumnarResults.Builder builder) {
+        Key cellKey = null;
+        Entry<Key, byte[]> latest = null;
+        while (entries.hasNext()) {
+            Entry<Key, byte[]> entry = entries.next();
+            Key key = entry.getKey();
+            if (cellKey == null || !key.matchesCell(cellKey)) {
+                if (!appendIfPresent(latest, maxRows, builder)) {
+                    return;
+                }
+                cellKey = key;
+                latest = null;
+            }
+            if (key.ts < timestamp && columns.contains(key.col)) {
+                latest = entry;
+            }
+        }
+        appendIfPresent(latest, maxRows, builder);
+    }
+
+    private static boolean appendIfPresent(@Nullable Entry<Key, byte[]> entry,
+                                           int maxRows,
+                                           @Output ColumnarResults.Builder builder) {
+        if (entry == null) {
+            return true;
+        }
+        Key key = entry.getKey();
+        if (!builder.isLastRow(key.row) && builder.getNumRows() >= maxRows) {
+            return false;
+        }
+        builder.add(key.row, key.col, key.ts, entry.getValue());
+        return true;
+    }
+
     @Override
     public Map<Cell, Value> get(TableReference tableRef, Map<Cell, Long> timestampByCell) {
         ConcurrentSkipListMap<Key, byte[]> table = getTableMap(tableRef).entries;
@@ -358,6 +442,16 @@ public class InMemoryKeyValueService extends AbstractKeyValueService {
         }
     }
 
+    @Override
+    public void deleteAllTimestampsBelow(TableReference tableRef, Map<Cell, Long> maxTimestampExclusiveByCell) {
+        ConcurrentSkipListMap<Key, byte[]> table = getTableMap(tableRef).entries;
+        for (Map.Entry<Cell, Long> e : maxTimestampExclusiveByCell.entrySet()) {
+            if (e.getValue() > 0) {
+                table.subMap(new Key(e.getKey(), 0L), new Key(e.getKey(), e.getValue())).clear();
+            }
+        }
+    }
+
     @Override
     public Multimap<Cell, Long> getAllTimestamps(TableReference tableRef, Set<Cell> cells, long ts) {
         Multimap<Cell, Long> multimap = HashMultimap.create();
@@ -18,22 +18,36 @@ package com.palantir.atlasdb.keyvalue.impl;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
 import java.util.concurrent.ExecutorService;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.Collections2;
+import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Ordering;
+import com.palantir.atlasdb.keyvalue.api.BulkLoadingKeyValueService;
 import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.ColumnarKeyValueService;
+import com.palantir.atlasdb.keyvalue.api.ColumnarResults;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeDeletingKeyValueService;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RangeRequests;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.SnapshottingKeyValueService;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.atlasdb.table.description.TableMetadata;
@@ -46,6 +60,9 @@ import com.palantir.util.paging.TokenBackedBasicResultsPage;
 
 public class KeyValueServices {
     private static final Logger log = LoggerFactory.getLogger(KeyValueServices.class);
+    private static final int DEFAULT_COLUMNAR_BATCH_SIZE = 100;
+    private static final int DEFAULT_BULK_LOAD_BATCH_CELLS = 10000;
+    private static final long DEFAULT_BULK_LOAD_BATCH_BYTES = 16L * 1024 * 1024;
 
     private KeyValueServices() {/**/}
 
@@ -138,6 +155,66 @@ public class KeyValueServices {
         return ret;
     }
 
+    /**
+     * Reads the rows with {@link ColumnarKeyValueService#getRowsColumnar} if the key value service
+     * supports it, and converts the results of {@link KeyValueService#getRows} otherwise.
+     */
+    public static ColumnarResults getRowsColumnar(KeyValueService kvs,
+                                                  TableReference tableRef,
+                                                  Iterable<byte[]> rows,
+                                                  ColumnSelection columnSelection,
+                                                  long timestamp) {
+        if (kvs instanceof ColumnarKeyValueService) {
+            return ((ColumnarKeyValueService) kvs).getRowsColumnar(tableRef, rows, columnSelection, timestamp);
+        }
+        return toColumnarResults(kvs.getRows(tableRef, rows, columnSelection, timestamp));
+    }
+
+    public static ColumnarResults toColumnarResults(Map<Cell, Value> results) {
+        ColumnarResults.Builder builder = ColumnarResults.builder();
+        for (Map.Entry<byte[], SortedMap<byte[], Value>> row : Cells.breakCellsUpByRow(results).entrySet()) {
+            for (Map.Entry<byte[], Value> col : row.getValue().entrySet()) {
+                builder.add(row.getKey(), col.getKey(), col.getValue().getTimestamp(), col.getValue().getContents());
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Reads the first page of the range with {@link ColumnarKeyValueService#getRangeColumnar} if the
+     * key value service supports it, and with {@link KeyValueService#getRange} otherwise.
+     */
+    public static ColumnarResults getRangeColumnar(KeyValueService kvs,
+                                                   TableReference tableRef,
+                                                   RangeRequest rangeRequest,
+                                                   long timestamp) {
+        if (kvs instanceof ColumnarKeyValueService) {
+            return ((ColumnarKeyValueService) kvs).getRangeColumnar(tableRef, rangeRequest, timestamp);
+        }
+        return getRangeColumnarUsingGetRange(kvs, tableRef, rangeRequest, timestamp);
+    }
+
+    public static ColumnarResults getRangeColumnarUsingGetRange(KeyValueService kvs,
+                                                                TableReference tableRef,
+                                                                RangeRequest rangeRequest,
+                                                                long timestamp) {
+        ClosableIterator<RowResult<Value>> range = kvs.getRange(tableRef, rangeRequest, timestamp);
+        try {
+            return ColumnarResults.fromRowResults(
+                    ImmutableList.copyOf(Iterators.limit(range, getColumnarBatchSize(rangeRequest))));
+        } finally {
+            range.close();
+        }
+    }
+
+    /**
+     * The number of rows a single {@link ColumnarKeyValueService#getRangeColumnar} call returns.
+     */
+    public static int getColumnarBatchSize(RangeRequest rangeRequest) {
+        Integer batchHint = rangeRequest.getBatchHint();
+        return batchHint == null ? DEFAULT_COLUMNAR_BATCH_SIZE : batchHint;
+    }
+
     public static Collection<Map.Entry<Cell, Value>> toConstantTimestampValues(final Collection<Map.Entry<Cell, byte[]>> cells, final long timestamp) {
         return Collections2.transform(cells, new Function<Map.Entry<Cell, byte[]>, Map.Entry<Cell, Value>>() {
             @Override
@@ -146,4 +223,178 @@ public class KeyValueServices {
             }
         });
     }
+
+    /**
+     * Whether calls to an optional interface such as {@link RangeDeletingKeyValueService} end up in
+     * a key value service that implements it natively. Forwarding wrappers implement the optional
+     * interfaces whatever they wrap and fall back to the plain {@link KeyValueService} methods, so a
+     * wrapper only supports an interface if everything it forwards to does.
+     */
+    public static boolean supports(KeyValueService kvs, Class<? extends KeyValueService> optionalInterface) {
+        if (!optionalInterface.isInstance(kvs)) {
+            return false;
+        }
+        for (KeyValueService delegate : kvs.getDelegates()) {
+            if (!supports(delegate, optionalInterface)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Opens a read snapshot of the key value service with
+     * {@link SnapshottingKeyValueService#openReadSnapshot}.
+     *
+     * @throws UnsupportedOperationException if the key value service cannot take snapshots
+     */
+    public static KeyValueService openReadSnapshot(KeyValueService kvs) {
+        if (!(kvs instanceof SnapshottingKeyValueService)) {
+            throw new UnsupportedOperationException(kvs.getClass().getName() + " does not support read snapshots");
+        }
+        return ((SnapshottingKeyValueService) kvs).openReadSnapshot();
+    }
+
+    /**
+     * Deletes every version of each cell below its given timestamp, with
+     * {@link RangeDeletingKeyValueService#deleteAllTimestampsBelow} if the key value service supports
+     * it, and by reading the versions and deleting them one by one otherwise.
+     */
+    public static void deleteAllTimestampsBelow(KeyValueService kvs,
+                                                TableReference tableRef,
+                                                Map<Cell, Long> maxTimestampExclusiveByCell) {
+        if (kvs instanceof RangeDeletingKeyValueService) {
+            ((RangeDeletingKeyValueService) kvs).deleteAllTimestampsBelow(tableRef, maxTimestampExclusiveByCell);
+            return;
+        }
+        Multimap<Cell, Long> timestamps = kvs.getAllTimestamps(tableRef, maxTimestampExclusiveByCell.keySet(), Long.MAX_VALUE);
+        Multimap<Cell, Long> toDelete = HashMultimap.create();
+        for (Map.Entry<Cell, Long> entry : timestamps.entries()) {
+            if (entry.getValue() < maxTimestampExclusiveByCell.get(entry.getKey())) {
+                toDelete.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if (!toDelete.isEmpty()) {
+            kvs.delete(tableRef, toDelete);
+        }
+    }
+
+    /**
+     * Deletes the given versions, using {@link RangeDeletingKeyValueService#deleteAllTimestampsBelow}
+     * for the oldest versions of each cell if the key value service supports it and
+     * {@link KeyValueService#delete} for the rest.
+     * <p>
+     * A cell's oldest versions are only deleted as a range if every version of the cell that the
+     * caller read below the end of the range is being deleted, so readTimestamps must hold all the
+     * versions the caller read when deciding what to delete. Older versions are deleted before
+     * newer ones, so a failed delete never exposes an old version of a cell.
+     */
+    public static void deleteTimestamps(KeyValueService kvs,
+                                        TableReference tableRef,
+                                        Multimap<Cell, Long> timestampsToDelete,
+                                        Multimap<Cell, Long> readTimestamps) {
+        if (!supports(kvs, RangeDeletingKeyValueService.class)) {
+            kvs.delete(tableRef, timestampsToDelete);
+            return;
+        }
+        Map<Cell, Long> rangeEnds = Maps.newHashMap();
+        Multimap<Cell, Long> remaining = HashMultimap.create();
+        for (Map.Entry<Cell, Collection<Long>> entry : timestampsToDelete.asMap().entrySet()) {
+            Cell cell = entry.getKey();
+            Collection<Long> timestamps = entry.getValue();
+            long rangeEnd = 0L;
+            for (long ts : Ordering.natural().immutableSortedCopy(readTimestamps.get(cell))) {
+                if (ts < 0) {
+                    continue;
+                }
+                if (!timestamps.contains(ts)) {
+                    break;
+                }
+                rangeEnd = ts + 1;
+            }
+            if (rangeEnd > 0) {
+                rangeEnds.put(cell, rangeEnd);
+            }
+            for (long ts : timestamps) {
+                if (ts < 0 || ts >= rangeEnd) {
+                    remaining.put(cell, ts);
+                }
+            }
+        }
+        if (!rangeEnds.isEmpty()) {
+            ((RangeDeletingKeyValueService) kvs).deleteAllTimestampsBelow(tableRef, rangeEnds);
+        }
+        if (!remaining.isEmpty()) {
+            kvs.delete(tableRef, remaining);
+        }
+    }
+
+    /**
+     * Loads the sorted cells like {@link #bulkLoad(KeyValueService, TableReference, Iterator, long, int, long)},
+     * with puts of a default batch size if the key value service cannot bulk load.
+     */
+    public static void bulkLoad(KeyValueService kvs,
+                                TableReference tableRef,
+                                Iterator<Map.Entry<Cell, byte[]>> sortedCells,
+                                long timestamp) {
+        bulkLoad(kvs, tableRef, sortedCells, timestamp, DEFAULT_BULK_LOAD_BATCH_CELLS, DEFAULT_BULK_LOAD_BATCH_BYTES);
+    }
+
+    /**
+     * Loads the sorted cells with {@link BulkLoadingKeyValueService#bulkLoad} if the key value
+     * service supports it, and with batched puts otherwise.
+     */
+    public static void bulkLoad(KeyValueService kvs,
+                                TableReference tableRef,
+                                Iterator<Map.Entry<Cell, byte[]>> sortedCells,
+                                long timestamp,
+                                int batchSizeCells,
+                                long batchSizeBytes) {
+        if (kvs instanceof BulkLoadingKeyValueService) {
+            ((BulkLoadingKeyValueService) kvs).bulkLoad(tableRef, sortedCells, timestamp);
+            return;
+        }
+        Iterator<List<Map.Entry<Cell, byte[]>>> batches = partitionSortedCells(sortedCells, batchSizeCells, batchSizeBytes);
+        while (batches.hasNext()) {
+            List<Map.Entry<Cell, byte[]>> batch = batches.next();
+            Map<Cell, byte[]> values = Maps.newLinkedHashMap();
+            for (Map.Entry<Cell, byte[]> entry : batch) {
+                values.put(entry.getKey(), entry.getValue());
+            }
+            kvs.put(tableRef, values, timestamp);
+        }
+    }
+
+    /**
+     * Lazily splits a bulk load stream into batches of at most maxCells cells and, unless a single
+     * cell is larger, maxBytes bytes, checking that the cells really are in ascending order.
+     */
+    public static Iterator<List<Map.Entry<Cell, byte[]>>> partitionSortedCells(final Iterator<Map.Entry<Cell, byte[]>> sortedCells,
+                                                                             final int maxCells,
+                                                                             final long maxBytes) {
+        Preconditions.checkArgument(maxCells > 0, "maxCells must be positive");
+        return new AbstractIterator<List<Map.Entry<Cell, byte[]>>>() {
+            private Cell lastCell = null;
+
+            @Override
+            protected List<Map.Entry<Cell, byte[]>> computeNext() {
+                if (!sortedCells.hasNext()) {
+                    return endOfData();
+                }
+                List<Map.Entry<Cell, byte[]>> batch = Lists.newArrayList();
+                long bytes = 0;
+                while (sortedCells.hasNext() && batch.size() < maxCells && (batch.isEmpty() || bytes < maxBytes)) {
+                    Map.Entry<Cell, byte[]> entry = sortedCells.next();
+                    Cell cell = entry.getKey();
+                    Preconditions.checkArgument(lastCell == null || lastCell.compareTo(cell) < 0,
+                            "Bulk loaded cells must be in ascending order without duplicates, but %s came after %s",
+                            cell, lastCell);
+                    lastCell = cell;
+                    batch.add(entry);
+                    bytes += Cells.getApproxSizeOfCell(cell) + entry.getValue().length;
+                }
+                return batch;
+            }
+        };
+    }
 }
@@ -0,0 +1,461 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.palantir.atlasdb.keyvalue.api.BulkLoadingKeyValueService;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.ColumnarKeyValueService;
+import com.palantir.atlasdb.keyvalue.api.ColumnarResults;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeDeletingKeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.SnapshottingKeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.transaction.impl.TransactionConstants;
+import com.palantir.common.base.ClosableIterator;
+import com.palantir.common.base.ForwardingClosableIterator;
+import com.palantir.util.metrics.MetricsRegistry;
+import com.palantir.util.metrics.OperationMetrics;
+import com.palantir.util.paging.TokenBackedBasicResultsPage;
+
+/**
+ * Records a latency histogram, call and failure counts, and the number of cells and bytes
+ * transferred for every data operation, per table and per operation.
+ * <p>
+ * Unlike {@link StatsTrackingKeyValueService} and {@link ProfilingKeyValueService} the metrics
+ * are kept in a {@link MetricsRegistry}, so they can be published over JMX or any other
+ * {@link com.palantir.util.metrics.MetricsReporter}. The metrics for a table are created on its
+ * first use; after that recording does not allocate.
+ */
+@ThreadSafe
+public class MetricsKeyValueService extends ForwardingKeyValueService
+        implements BulkLoadingKeyValueService, ColumnarKeyValueService, RangeDeletingKeyValueService,
+        SnapshottingKeyValueService {
+    public static final String METRIC_TYPE = "KeyValueService";
+
+    public enum Operation {
+        GET,
+        GET_ROWS,
+        GET_RANGE,
+        GET_RANGE_WITH_HISTORY,
+        GET_RANGE_OF_TIMESTAMPS,
+        GET_FIRST_BATCH_FOR_RANGES,
+        GET_LATEST_TIMESTAMPS,
+        GET_ALL_TIMESTAMPS,
+        PUT,
+        PUT_WITH_TIMESTAMPS,
+        PUT_UNLESS_EXISTS,
+        DELETE,
+        ADD_GC_SENTINEL_VALUES;
+
+        private final String metricName = name().toLowerCase();
+    }
+
+    private final KeyValueService delegate;
+    private final MetricsRegistry registry;
+    private final ConcurrentMap<TableReference, OperationMetrics[]> metricsByTable = Maps.newConcurrentMap();
+
+    public static MetricsKeyValueService create(KeyValueService delegate) {
+        return new MetricsKeyValueService(delegate, MetricsRegistry.getDefault());
+    }
+
+    public MetricsKeyValueService(KeyValueService delegate, MetricsRegistry registry) {
+        this.delegate = delegate;
+        this.registry = registry;
+    }
+
+    @Override
+    protected KeyValueService delegate() {
+        return delegate;
+    }
+
+    public OperationMetrics getMetrics(TableReference tableRef, Operation operation) {
+        OperationMetrics[] metrics = metricsByTable.get(tableRef);
+        if (metrics == null) {
+            metrics = new OperationMetrics[Operation.values().length];
+            for (Operation op : Operation.values()) {
+                metrics[op.ordinal()] = registry.operation(METRIC_TYPE, tableRef.getQualifiedName(), op.metricName);
+            }
+            OperationMetrics[] existing = metricsByTable.putIfAbsent(tableRef, metrics);
+            if (existing != null) {
+                metrics = existing;
+            }
+        }
+        return metrics[operation.ordinal()];
+    }
+
+    @Override
+    public Map<Cell, Value> get(TableReference tableRef, Map<Cell, Long> timestampByCell) {
+        OperationMetrics metrics = getMetrics(tableRef, Operation.GET);
+        long start = System.nanoTime();
+        try {
+            Map<Cell, Value> result = super.get(tableRef, timestampByCell);
+            metrics.record(System.nanoTime() - start, result.size(), sizeOfValues(result));
+            return result;
+        } catch (RuntimeException e) {
+            metrics.recordFailure(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public Map<Cell, Value> getRows(TableReference tableRef,
+                                    Iterable<byte[]> rows,
+                                    ColumnSelection columnSelection,
+                                    long timestamp) {
+        OperationMetrics metrics = getMetrics(tableRef, Operation.GET_ROWS);
+        long start = System.nanoTime();
+        try {
+            Map<Cell, Value> result = super.getRows(tableRef, rows, columnSelection, timestamp);
+            metrics.record(System.nanoTime() - start, result.size(), sizeOfValues(result));
+            return result;
+        } catch (RuntimeException e) {
+            metrics.recordFailure(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public ColumnarResults getRowsColumnar(TableReference tableRef,
+                                           Iterable<byte[]> rows,
+                                           ColumnSelection columnSelection,
+                                           long timestamp) {
+        OperationMetrics metrics = getMetrics(tableRef, Operation.GET_ROWS);
+        long start = System.nanoTime();
+        try {
+            ColumnarResults result = KeyValueServices.getRowsColumnar(delegate(), tableRef, rows, columnSelection, timestamp);
+            metrics.record(System.nanoTime() - start, result.size(), sizeOfValues(result));
+            return result;
+        } catch (RuntimeException e) {
+            metrics.recordFailure(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public ColumnarResults getRangeColumnar(TableReference tableRef, RangeRequest rangeRequest, long timestamp) {
+        OperationMetrics metrics = getMetrics(tableRef, Operation.GET_RANGE);
+        long start = System.nanoTime();
+        try {
+            ColumnarResults result = KeyValueServices.getRangeColumnar(delegate(), tableRef, rangeRequest, timestamp);
+            metrics.record(System.nanoTime() - start, result.size(), sizeOfValues(result));
+            return result;
+        } catch (RuntimeException e) {
+            metrics.recordFailure(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public Map<Cell, Long> getLatestTimestamps(TableReference tableRef, Map<Cell, Long> timestampByCell) {
+        OperationMetrics metrics = getMetrics(tableRef, Operation.GET_LATEST_TIMESTAMPS);
+        long start = System.nanoTime();
+        try {
+            Map<Cell, Long> result = super.getLatestTimestamps(tableRef, timestampByCell);
+            metrics.record(System.nanoTime() - start, result.size(), 0L);
+            return result;
+        } catch (RuntimeException e) {
+            metrics.recordFailure(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public Multimap<Cell, Long> getAllTimestamps(TableReference tableRef, Set<Cell> keys, long timestamp) {
+        OperationMetrics metrics = getMetrics(tableRef, Operation.GET_ALL_TIMESTAMPS);
+        long start = System.nanoTime();
+        try {
+            Multimap<Cell, Long> result = super.getAllTimestamps(tableRef, keys, timestamp);
+            metrics.record(System.nanoTime() - start, result.size(), 0L);
+            return result;
+        } catch (RuntimeException e) {
+            metrics.recordFailure(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public ClosableIterator<RowResult<Value>> getRange(TableReference tableRef,
+                                                       RangeRequest rangeRequest,
+                                                       long timestamp) {
+        final OperationMetrics metrics = getMetrics(tableRef, Operation.GET_RANGE);
+        long start = System.nanoTime();
+        final ClosableIterator<RowResult<Value>> it;
+        try {
+            it = super.getRange(tableRef, rangeRequest, timestamp);
+        } catch (RuntimeException e) {
+            metrics.recordFailure(System.nanoTime() - start);
+            throw e;
+        }
+        metrics.record(System.nanoTime() - start);
+        return new ForwardingClosableIterator<RowResult<Value>>() {
+            @Override
+            protected ClosableIterator<RowResult<Value>> delegate() {
+                return it;
+            }
+
+            @Override
+            public RowResult<Value> next() {
+                RowResult<Value> row = super.next();
+                long bytes = row.getRowName().length;
+                int cells = 0;
+                for (Entry<byte[], Value> e : row.getColumns().entrySet()) {
+                    bytes += e.getKey().length + e.getValue().getContents().length;
+                    cells++;
+                }
+                metrics.recordSize(cells, bytes);
+                return row;
+            }
+        };
+    }
+
+    @Override
+    public ClosableIterator<RowResult<Set<Value>>> getRangeWithHistory(TableReference tableRef,
+                                                                       RangeRequest rangeRequest,
+                                                                       long timestamp) {
+        OperationMetrics metrics = getMetrics(tableRef, Operation.GET_RANGE_WITH_HISTORY);
+        long start = System.nanoTime();
+        try {
+            ClosableIterator<RowResult<Set<Value>>> result = super.getRangeWithHistory(tableRef, rangeRequest, timestamp);
+            metrics.record(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            metrics.recordFailure(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public ClosableIterator<RowResult<Set<Long>>> getRangeOfTimestamps(TableReference tableRef,
+                                                                       RangeRequest rangeRequest,
+                                                                       long timestamp) {
+        OperationMetrics metrics = getMetrics(tableRef, Operation.GET_RANGE_OF_TIMESTAMPS);
+        long start = System.nanoTime();
+        try {
+            ClosableIterator<RowResult<Set<Long>>> result = super.getRangeOfTimestamps(tableRef, rangeRequest, timestamp);
+            metrics.record(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            metrics.recordFailure(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public Map<RangeRequest, TokenBackedBasicResultsPage<RowResult<Value>, byte[]>> getFirstBatchForRanges(TableReference tableRef,
+                                                                                                           Iterable<RangeRequest> rangeRequests,
+                                                                                                           long timestamp) {
+        OperationMetrics metrics = getMetrics(tableRef, Operation.GET_FIRST_BATCH_FOR_RANGES);
+        long start = System.nanoTime();
+        try {
+            Map<RangeRequest, TokenBackedBasicResultsPage<RowResult<Value>, byte[]>> result =
+                    super.getFirstBatchForRanges(tableRef, rangeRequests, timestamp);
+            long cells = 0;
+            long bytes = 0;
+            for (TokenBackedBasicResultsPage<RowResult<Value>, byte[]> page : result.values()) {
+                for (RowResult<Value> row : page.getResults()) {
+                    bytes += row.getRowName().length;
+                    for (Entry<byte[], Value> e : row.getColumns().entrySet()) {
+                        bytes += e.getKey().length + e.getValue().getContents().length;
+                        cells++;
+                    }
+                }
+            }
+            metrics.record(System.nanoTime() - start, cells, bytes);
+            return result;
+        } catch (RuntimeException e) {
+            metrics.recordFailure(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public void put(TableReference tableRef, Map<Cell, byte[]> values, long timestamp) {
+        OperationMetrics metrics = getMetrics(tableRef, Operation.PUT);
+        long start = System.nanoTime();
+        try {
+            super.put(tableRef, values, timestamp);
+            metrics.record(System.nanoTime() - start, values.size(), sizeOfWrites(values));
+        } catch (RuntimeException e) {
+            metrics.recordFailure(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    /**
+     * Bulk loads are recorded as puts.
+     */
+    @Override
+    public void bulkLoad(TableReference tableRef, Iterator<Entry<Cell, byte[]>> sortedCells, long timestamp) {
+        OperationMetrics metrics = getMetrics(tableRef, Operation.PUT);
+        final long[] cellsAndBytes = new long[2];
+        long start = System.nanoTime();
+        try {
+            KeyValueServices.bulkLoad(delegate(), tableRef, Iterators.transform(sortedCells,
+                    new Function<Entry<Cell, byte[]>, Entry<Cell, byte[]>>() {
+                        @Override
+                        public Entry<Cell, byte[]> apply(Entry<Cell, byte[]> entry) {
+                            cellsAndBytes[0]++;
+                            cellsAndBytes[1] += Cells.getApproxSizeOfCell(entry.getKey()) + entry.getValue().length;
+                            return entry;
+                        }
+                    }), timestamp);
+            metrics.record(System.nanoTime() - start, cellsAndBytes[0], cellsAndBytes[1]);
+        } catch (RuntimeException e) {
+            metrics.recordFailure(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public void multiPut(Map<TableReference, ? extends Map<Cell, byte[]>> valuesByTable, long timestamp) {
+        long start = System.nanoTime();
+        try {
+            super.multiPut(valuesByTable, timestamp);
+        } catch (RuntimeException e) {
+            long elapsed = System.nanoTime() - start;
+            for (TableReference tableRef : valuesByTable.keySet()) {
+                getMetrics(tableRef, Operation.PUT).recordFailure(elapsed);
+            }
+            throw e;
+        }
+        // A multiPut is a single call, so every table it touched is charged with its full latency.
+        long elapsed = System.nanoTime() - start;
+        for (Entry<TableReference, ? extends Map<Cell, byte[]>> e : valuesByTable.entrySet()) {
+            getMetrics(e.getKey(), Operation.PUT).record(elapsed, e.getValue().size(), sizeOfWrites(e.getValue()));
+        }
+    }
+
+    @Override
+    public void putWithTimestamps(TableReference tableRef, Multimap<Cell, Value> values) {
+        OperationMetrics metrics = getMetrics(tableRef, Operation.PUT_WITH_TIMESTAMPS);
+        long start = System.nanoTime();
+        try {
+            super.putWithTimestamps(tableRef, values);
+            long bytes = 0;
+            for (Entry<Cell, Value> e : values.entries()) {
+                bytes += Cells.getApproxSizeOfCell(e.getKey()) + e.getValue().getContents().length;
+            }
+            metrics.record(System.nanoTime() - start, values.size(), bytes);
+        } catch (RuntimeException e) {
+            metrics.recordFailure(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public void putUnlessExists(TableReference tableRef, Map<Cell, byte[]> values) throws KeyAlreadyExistsException {
+        OperationMetrics metrics = getMetrics(tableRef, Operation.PUT_UNLESS_EXISTS);
+        long start = System.nanoTime();
+        try {
+            super.putUnlessExists(tableRef, values);
+            metrics.record(System.nanoTime() - start, values.size(), sizeOfWrites(values));
+        } catch (RuntimeException e) {
+            metrics.recordFailure(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public void delete(TableReference tableRef, Multimap<Cell, Long> keys) {
+        OperationMetrics metrics = getMetrics(tableRef, Operation.DELETE);
+        long start = System.nanoTime();
+        try {
+            super.delete(tableRef, keys);
+            metrics.record(System.nanoTime() - start, keys.size(), 0L);
+        } catch (RuntimeException e) {
+            metrics.recordFailure(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public void deleteAllTimestampsBelow(TableReference tableRef, Map<Cell, Long> maxTimestampExclusiveByCell) {
+        OperationMetrics metrics = getMetrics(tableRef, Operation.DELETE);
+        long start = System.nanoTime();
+        try {
+            KeyValueServices.deleteAllTimestampsBelow(delegate(), tableRef, maxTimestampExclusiveByCell);
+            metrics.record(System.nanoTime() - start, maxTimestampExclusiveByCell.size(), 0L);
+        } catch (RuntimeException e) {
+            metrics.recordFailure(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    /**
+     * Reads from the snapshot are recorded in the same metrics as reads from this service.
+     */
+    @Override
+    public MetricsKeyValueService openReadSnapshot() {
+        return new MetricsKeyValueService(KeyValueServices.openReadSnapshot(delegate()), registry);
+    }
+
+    @Override
+    public void addGarbageCollectionSentinelValues(TableReference tableRef, Set<Cell> cells) {
+        OperationMetrics metrics = getMetrics(tableRef, Operation.ADD_GC_SENTINEL_VALUES);
+        long start = System.nanoTime();
+        try {
+            super.addGarbageCollectionSentinelValues(tableRef, cells);
+            metrics.record(System.nanoTime() - start, cells.size(), 0L);
+        } catch (RuntimeException e) {
+            metrics.recordFailure(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    private static long sizeOfValues(Map<Cell, Value> values) {
+        long bytes = 0;
+        for (Entry<Cell, Value> e : values.entrySet()) {
+            bytes += Cells.getApproxSizeOfCell(e.getKey()) + e.getValue().getContents().length;
+        }
+        return bytes;
+    }
+
+    private static long sizeOfValues(ColumnarResults values) {
+        long bytes = 0;
+        for (int row = 0; row < values.getNumRows(); row++) {
+            for (int i = values.getFirstCell(row); i < values.getEndCell(row); i++) {
+                bytes += values.getRowNameLength(row) + values.getColumnNameLength(i) + values.getContentsLength(i)
+                        + TransactionConstants.APPROX_IN_MEM_CELL_OVERHEAD_BYTES;
+            }
+        }
+        return bytes;
+    }
+
+    private static long sizeOfWrites(Map<Cell, byte[]> values) {
+        long bytes = 0;
+        for (Entry<Cell, byte[]> e : values.entrySet()) {
+            bytes += Cells.getApproxSizeOfCell(e.getKey()) + e.getValue().length;
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,576 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.apache.commons.lang.ArrayUtils;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
+import com.google.common.io.BaseEncoding;
+import com.google.common.primitives.UnsignedBytes;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.ColumnarKeyValueService;
+import com.palantir.atlasdb.keyvalue.api.ColumnarResults;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.common.annotation.Output;
+import com.palantir.common.base.ClosableIterator;
+import com.palantir.common.base.ClosableIterators;
+import com.palantir.common.base.Throwables;
+import com.palantir.common.concurrent.PTExecutors;
+import com.palantir.util.paging.TokenBackedBasicResultsPage;
+
+/**
+ * In-memory key-value store that keeps its keys and values outside the Java heap, so that it
+ * can hold many gigabytes without adding to garbage collection pauses.
+ * <p>
+ * Each table is a sorted sequence of entries in {@link OffHeapTable} layers: recent writes sit
+ * in a small memtable on the heap, and everything else in immutable runs in direct buffers that
+ * are merged in the background of writes. Point reads search the runs in place, and range
+ * requests iterate over a snapshot of the table taken when the request is made, so concurrent
+ * writes, deletes and truncations never show up part way through a range.
+ * <p>
+ * If a directory is given, runs are written to memory-mapped files in it instead, and closing
+ * the key value service merges every table into files that are mapped again on the next start.
+ * Writes made since the last close are lost if the process dies, so this is suited to caches
+ * and other data that can be rebuilt, not as a durable store.
+ */
+@ThreadSafe
+public class OffHeapKeyValueService extends AbstractKeyValueService implements ColumnarKeyValueService {
+    private static final String METADATA_FILE = "metadata";
+
+    private final ConcurrentMap<TableReference, OffHeapTable> tables = Maps.newConcurrentMap();
+    private final ConcurrentMap<TableReference, byte[]> tableMetadata = Maps.newConcurrentMap();
+    @Nullable private final File directory;
+    private final boolean createTablesAutomatically;
+
+    public OffHeapKeyValueService(boolean createTablesAutomatically) {
+        this(createTablesAutomatically, null);
+    }
+
+    /**
+     * @param directory where to persist the tables, or null to keep them in memory only
+     */
+    public OffHeapKeyValueService(boolean createTablesAutomatically, @Nullable File directory) {
+        this(createTablesAutomatically, directory,
+                PTExecutors.newFixedThreadPool(16, PTExecutors.newNamedThreadFactory(true)));
+    }
+
+    public OffHeapKeyValueService(boolean createTablesAutomatically,
+                                  @Nullable File directory,
+                                  ExecutorService executor) {
+        super(executor);
+        this.createTablesAutomatically = createTablesAutomatically;
+        this.directory = directory;
+        if (directory != null) {
+            loadTables(directory);
+        }
+    }
+
+    private void loadTables(File dir) {
+        Preconditions.checkArgument(dir.isDirectory() || dir.mkdirs(), "Cannot create directory %s", dir);
+        File[] tableDirs = dir.listFiles();
+        for (File tableDir : tableDirs == null ? new File[0] : tableDirs) {
+            if (!tableDir.isDirectory()) {
+                continue;
+            }
+            TableReference tableRef = TableReference.createUnsafe(
+                    PtBytes.toString(BaseEncoding.base16().decode(tableDir.getName())));
+            tables.put(tableRef, OffHeapTable.open(tableDir));
+            File metadataFile = new File(tableDir, METADATA_FILE);
+            if (metadataFile.exists()) {
+                try {
+                    tableMetadata.put(tableRef, Files.readAllBytes(metadataFile.toPath()));
+                } catch (IOException e) {
+                    throw Throwables.rewrapAndThrowUncheckedException("Failed to read " + metadataFile, e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void initializeFromFreshInstance() {
+        // All initialization is done in the constructor
+    }
+
+    @Override
+    public Map<Cell, Value> getRows(TableReference tableRef, Iterable<byte[]> rows,
+                                    ColumnSelection columnSelection, long timestamp) {
+        OffHeapTable.View view = getTable(tableRef).liveView();
+        Map<Cell, Value> result = Maps.newHashMap();
+        for (byte[] row : rows) {
+            byte[] rowPrefix = OffHeapKeys.rowPrefix(row);
+            OffHeapTable.Cursor cursor = view.seek(rowPrefix);
+            while (cursor.isValid() && OffHeapKeys.hasPrefix(cursor, rowPrefix)) {
+                byte[] key = cursor.key();
+                byte[] col = OffHeapKeys.decodeColumn(key, rowPrefix.length);
+                if (columnSelection.contains(col)) {
+                    Value value = latestValue(cursor, key, timestamp);
+                    if (value != null) {
+                        result.put(Cell.create(row, col), value);
+                    }
+                } else {
+                    skipCell(cursor, key);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public ColumnarResults getRowsColumnar(TableReference tableRef, Iterable<byte[]> rows,
+                                           ColumnSelection columnSelection, long timestamp) {
+        OffHeapTable.View view = getTable(tableRef).liveView();
+        ColumnarResults.Builder builder = ColumnarResults.builder();
+        for (byte[] row : ImmutableSortedSet.copyOf(UnsignedBytes.lexicographicalComparator(), rows)) {
+            byte[] rowPrefix = OffHeapKeys.rowPrefix(row);
+            appendRow(view.seek(rowPrefix), row, rowPrefix, columnSelection, timestamp, builder);
+        }
+        return builder.build();
+    }
+
+    @Override
+    public ColumnarResults getRangeColumnar(TableReference tableRef, RangeRequest range, long timestamp) {
+        if (range.isReverse()) {
+            return KeyValueServices.getRangeColumnarUsingGetRange(this, tableRef, range, timestamp);
+        }
+        OffHeapTable.View view = getTable(tableRef).snapshot();
+        OffHeapTable.Cursor cursor = view.seek(OffHeapKeys.rowPrefix(range.getStartInclusive()));
+        byte[] endKey = range.getEndExclusive().length == 0 ? null : OffHeapKeys.rowPrefix(range.getEndExclusive());
+        ColumnSelection columns = range.getColumnNames().isEmpty()
+                ? ColumnSelection.all()
+                : ColumnSelection.create(range.getColumnNames());
+        int maxRows = KeyValueServices.getColumnarBatchSize(range);
+        ColumnarResults.Builder builder = ColumnarResults.builder();
+        while (cursor.isValid() && builder.getNumRows() < maxRows) {
+            if (endKey != null && OffHeapKeys.compare(cursor, endKey) >= 0) {
+                break;
+            }
+            byte[] key = cursor.key();
+            byte[] rowPrefix = Arrays.copyOf(key, OffHeapKeys.rowPrefixLength(key));
+            appendRow(cursor, OffHeapKeys.decodeRow(rowPrefix), rowPrefix, columns, timestamp, builder);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Appends the latest value before the timestamp of each selected cell in the row the cursor
+     * is positioned on, leaving the cursor after the row.
+     */
+    private static void appendRow(OffHeapTable.Cursor cursor,
+                                  byte[] row,
+                                  byte[] rowPrefix,
+                                  ColumnSelection columns,
+                                  long timestamp,
+                                  @Output ColumnarResults.Builder builder) {
+        while (cursor.isValid() && OffHeapKeys.hasPrefix(cursor, rowPrefix)) {
+            byte[] key = cursor.key();
+            byte[] col = OffHeapKeys.decodeColumn(key, rowPrefix.length);
+            if (columns.contains(col)) {
+                Value value = latestValue(cursor, key, timestamp);
+                if (value != null) {
+                    builder.add(row, col, value.getTimestamp(), value.getContents());
+                }
+            } else {
+                skipCell(cursor, key);
+            }
+        }
+    }
+
+    @Override
+    public Map<Cell, Value> get(TableReference tableRef, Map<Cell, Long> timestampByCell) {
+        OffHeapTable.View view = getTable(tableRef).liveView();
+        Map<Cell, Value> result = Maps.newHashMap();
+        for (Map.Entry<Cell, Long> e : timestampByCell.entrySet()) {
+            Cell cell = e.getKey();
+            byte[] cellPrefix = OffHeapKeys.cellPrefix(cell.getRowName(), cell.getColumnName());
+            OffHeapTable.Cursor cursor = view.seek(cellPrefix);
+            if (cursor.isValid() && OffHeapKeys.hasPrefix(cursor, cellPrefix)) {
+                Value value = latestValue(cursor, cursor.key(), e.getValue());
+                if (value != null) {
+                    result.put(cell, value);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Map<RangeRequest, TokenBackedBasicResultsPage<RowResult<Value>, byte[]>> getFirstBatchForRanges(TableReference tableRef,
+                                                                                                           Iterable<RangeRequest> rangeRequests,
+                                                                                                           long timestamp) {
+        return KeyValueServices.getFirstBatchForRangesUsingGetRange(this, tableRef, rangeRequests, timestamp);
+    }
+
+    @Override
+    public ClosableIterator<RowResult<Value>> getRange(TableReference tableRef, RangeRequest range, final long timestamp) {
+        return getRangeInternal(tableRef, range, new CellReader<Value>() {
+            @Override
+            public Value read(OffHeapTable.Cursor cursor, byte[] cellKey) {
+                return latestValue(cursor, cellKey, timestamp);
+            }
+        });
+    }
+
+    @Override
+    public ClosableIterator<RowResult<Set<Long>>> getRangeOfTimestamps(TableReference tableRef, RangeRequest range, final long timestamp) {
+        return getRangeInternal(tableRef, range, new CellReader<Set<Long>>() {
+            @Override
+            public Set<Long> read(OffHeapTable.Cursor cursor, byte[] cellKey) {
+                Set<Long> timestamps = Sets.newTreeSet();
+                for (; cursor.isValid() && OffHeapKeys.isSameCell(cursor, cellKey); cursor.next()) {
+                    long ts = OffHeapKeys.timestamp(cursor);
+                    if (ts < timestamp) {
+                        timestamps.add(ts);
+                    }
+                }
+                return timestamps.isEmpty() ? null : timestamps;
+            }
+        });
+    }
+
+    @Override
+    public ClosableIterator<RowResult<Set<Value>>> getRangeWithHistory(TableReference tableRef, RangeRequest range, final long timestamp) {
+        return getRangeInternal(tableRef, range, new CellReader<Set<Value>>() {
+            @Override
+            public Set<Value> read(OffHeapTable.Cursor cursor, byte[] cellKey) {
+                Set<Value> values = Sets.newHashSet();
+                for (; cursor.isValid() && OffHeapKeys.isSameCell(cursor, cellKey); cursor.next()) {
+                    long ts = OffHeapKeys.timestamp(cursor);
+                    if (ts < timestamp) {
+                        values.add(Value.create(cursor.value(), ts));
+                    }
+                }
+                return values.isEmpty() ? null : values;
+            }
+        });
+    }
+
+    private <T> ClosableIterator<RowResult<T>> getRangeInternal(TableReference tableRef,
+                                                                final RangeRequest range,
+                                                                final CellReader<T> reader) {
+        final OffHeapTable.View view = getTable(tableRef).snapshot();
+        if (range.isReverse()) {
+            return ClosableIterators.wrap(new AbstractIterator<RowResult<T>>() {
+                private byte[] bound = range.getStartInclusive().length == 0
+                        ? null
+                        : OffHeapKeys.rowSuccessor(OffHeapKeys.rowPrefix(range.getStartInclusive()));
+                private final byte[] endBound = range.getEndExclusive().length == 0
+                        ? null
+                        : OffHeapKeys.rowSuccessor(OffHeapKeys.rowPrefix(range.getEndExclusive()));
+
+                @Override
+                protected RowResult<T> computeNext() {
+                    while (true) {
+                        byte[] key = view.lastKeyBefore(bound);
+                        if (key == null || (endBound != null && OffHeapKeys.compare(key, endBound) < 0)) {
+                            return endOfData();
+                        }
+                        byte[] rowPrefix = Arrays.copyOf(key, OffHeapKeys.rowPrefixLength(key));
+                        bound = rowPrefix;
+                        RowResult<T> row = readRow(view.seek(rowPrefix), rowPrefix, range, reader);
+                        if (row != null) {
+                            return row;
+                        }
+                    }
+                }
+            });
+        }
+        final OffHeapTable.Cursor cursor = view.seek(OffHeapKeys.rowPrefix(range.getStartInclusive()));
+        final byte[] endKey = range.getEndExclusive().length == 0
+                ? null
+                : OffHeapKeys.rowPrefix(range.getEndExclusive());
+        return ClosableIterators.wrap(new AbstractIterator<RowResult<T>>() {
+            @Override
+            protected RowResult<T> computeNext() {
+                while (cursor.isValid()) {
+                    if (endKey != null && OffHeapKeys.compare(cursor, endKey) >= 0) {
+                        break;
+                    }
+                    byte[] key = cursor.key();
+                    byte[] rowPrefix = Arrays.copyOf(key, OffHeapKeys.rowPrefixLength(key));
+                    RowResult<T> row = readRow(cursor, rowPrefix, range, reader);
+                    if (row != null) {
+                        return row;
+                    }
+                }
+                return endOfData();
+            }
+        });
+    }
+
+    /**
+     * Reads the row the cursor is positioned on, leaving the cursor after the row. Returns null
+     * if none of the requested columns have a result.
+     */
+    @Nullable
+    private static <T> RowResult<T> readRow(OffHeapTable.Cursor cursor,
+                                            byte[] rowPrefix,
+                                            RangeRequest range,
+                                            CellReader<T> reader) {
+        ImmutableSortedMap.Builder<byte[], T> result = ImmutableSortedMap.orderedBy(UnsignedBytes.lexicographicalComparator());
+        while (cursor.isValid() && OffHeapKeys.hasPrefix(cursor, rowPrefix)) {
+            byte[] key = cursor.key();
+            byte[] col = OffHeapKeys.decodeColumn(key, rowPrefix.length);
+            if (range.containsColumn(col)) {
+                T value = reader.read(cursor, key);
+                if (value != null) {
+                    result.put(col, value);
+                }
+            } else {
+                skipCell(cursor, key);
+            }
+        }
+        SortedMap<byte[], T> columns = result.build();
+        if (columns.isEmpty()) {
+            return null;
+        }
+        return RowResult.create(OffHeapKeys.decodeRow(rowPrefix), columns);
+    }
+
+    private interface CellReader<T> {
+        /**
+         * Reads every version of the cell the cursor is positioned on, leaving the cursor after
+         * the cell.
+         */
+        @Nullable T read(OffHeapTable.Cursor cursor, byte[] cellKey);
+    }
+
+    @Nullable
+    private static Value latestValue(OffHeapTable.Cursor cursor, byte[] cellKey, long timestamp) {
+        Value latest = null;
+        for (; cursor.isValid() && OffHeapKeys.isSameCell(cursor, cellKey); cursor.next()) {
+            long ts = OffHeapKeys.timestamp(cursor);
+            if (ts < timestamp) {
+                latest = Value.create(cursor.value(), ts);
+            }
+        }
+        return latest;
+    }
+
+    private static void skipCell(OffHeapTable.Cursor cursor, byte[] cellKey) {
+        while (cursor.isValid() && OffHeapKeys.isSameCell(cursor, cellKey)) {
+            cursor.next();
+        }
+    }
+
+    @Override
+    public void put(TableReference tableRef, Map<Cell, byte[]> values, long timestamp) {
+        putInternal(tableRef, KeyValueServices.toConstantTimestampValues(values.entrySet(), timestamp), false);
+    }
+
+    @Override
+    public void putWithTimestamps(TableReference tableRef, Multimap<Cell, Value> values) {
+        putInternal(tableRef, values.entries(), false);
+    }
+
+    @Override
+    public void putUnlessExists(TableReference tableRef, Map<Cell, byte[]> values)
+            throws KeyAlreadyExistsException {
+        putInternal(tableRef, KeyValueServices.toConstantTimestampValues(values.entrySet(), 0), true);
+    }
+
+    private void putInternal(TableReference tableRef, Collection<Map.Entry<Cell, Value>> values, boolean doNotOverwriteWithSameValue) {
+        OffHeapTable table = getTable(tableRef);
+        try {
+            synchronized (table) {
+                for (Map.Entry<Cell, Value> e : values) {
+                    Cell cell = e.getKey();
+                    byte[] contents = e.getValue().getContents();
+                    byte[] key = OffHeapKeys.key(cell.getRowName(), cell.getColumnName(), e.getValue().getTimestamp());
+                    byte[] oldContents = table.get(key);
+                    if (oldContents != null && oldContents != OffHeapTable.TOMBSTONE) {
+                        if (doNotOverwriteWithSameValue || !Arrays.equals(oldContents, contents)) {
+                            throw new KeyAlreadyExistsException("We already have a value for this timestamp");
+                        }
+                        continue;
+                    }
+                    table.put(key, Arrays.copyOf(contents, contents.length));
+                }
+            }
+        } finally {
+            table.flushIfFull();
+        }
+    }
+
+    @Override
+    public void delete(TableReference tableRef, Multimap<Cell, Long> keys) {
+        OffHeapTable table = getTable(tableRef);
+        for (Map.Entry<Cell, Long> e : keys.entries()) {
+            Cell cell = e.getKey();
+            table.delete(OffHeapKeys.key(cell.getRowName(), cell.getColumnName(), e.getValue()));
+        }
+        table.flushIfFull();
+    }
+
+    @Override
+    public Multimap<Cell, Long> getAllTimestamps(TableReference tableRef, Set<Cell> cells, long ts) {
+        OffHeapTable.View view = getTable(tableRef).liveView();
+        Multimap<Cell, Long> multimap = HashMultimap.create();
+        for (Cell cell : cells) {
+            byte[] cellPrefix = OffHeapKeys.cellPrefix(cell.getRowName(), cell.getColumnName());
+            OffHeapTable.Cursor cursor = view.seek(cellPrefix);
+            for (; cursor.isValid() && OffHeapKeys.hasPrefix(cursor, cellPrefix); cursor.next()) {
+                long timestamp = OffHeapKeys.timestamp(cursor);
+                if (timestamp >= ts) {
+                    break;
+                }
+                multimap.put(cell, timestamp);
+            }
+        }
+        return multimap;
+    }
+
+    @Override
+    public void addGarbageCollectionSentinelValues(TableReference tableRef, Set<Cell> cells) {
+        OffHeapTable table = getTable(tableRef);
+        for (Cell cell : cells) {
+            table.put(OffHeapKeys.key(cell.getRowName(), cell.getColumnName(), Value.INVALID_VALUE_TIMESTAMP),
+                    ArrayUtils.EMPTY_BYTE_ARRAY);
+        }
+        table.flushIfFull();
+    }
+
+    @Override
+    public void dropTable(TableReference tableRef) {
+        OffHeapTable table = tables.remove(tableRef);
+        tableMetadata.remove(tableRef);
+        if (table != null) {
+            table.truncate();
+            if (directory != null) {
+                deleteRecursively(tableDirectory(tableRef));
+            }
+        }
+    }
+
+    @Override
+    public void truncateTable(TableReference tableRef) {
+        getTable(tableRef).truncate();
+    }
+
+    @Override
+    public void createTable(TableReference tableRef, byte[] metadata) {
+        if (!tables.containsKey(tableRef)) {
+            File tableDir = null;
+            if (directory != null) {
+                tableDir = tableDirectory(tableRef);
+                Preconditions.checkState(tableDir.isDirectory() || tableDir.mkdirs(), "Cannot create directory %s", tableDir);
+            }
+            tables.putIfAbsent(tableRef, new OffHeapTable(tableDir));
+        }
+        putMetadataForTable(tableRef, metadata);
+    }
+
+    @Override
+    public void putMetadataForTable(TableReference tableRef, byte[] metadata) {
+        if (!tables.containsKey(tableRef)) {
+            throw new IllegalArgumentException("No such table " + tableRef);
+        }
+        tableMetadata.put(tableRef, metadata);
+        if (directory != null) {
+            File metadataFile = new File(tableDirectory(tableRef), METADATA_FILE);
+            try {
+                Files.write(metadataFile.toPath(), metadata);
+            } catch (IOException e) {
+                throw Throwables.rewrapAndThrowUncheckedException("Failed to write " + metadataFile, e);
+            }
+        }
+    }
+
+    @Override
+    public byte[] getMetadataForTable(TableReference tableRef) {
+        if (!tables.containsKey(tableRef)) {
+            return AtlasDbConstants.EMPTY_TABLE_METADATA;
+        }
+        byte[] ret = tableMetadata.get(tableRef);
+        return ret == null ? ArrayUtils.EMPTY_BYTE_ARRAY : ret;
+    }
+
+    @Override
+    public Set<TableReference> getAllTableNames() {
+        return ImmutableSet.copyOf(tables.keySet());
+    }
+
+    @Override
+    public void compactInternally(TableReference tableRef) {
+        // nothing to do, tables are merged as they are written
+    }
+
+    /**
+     * Persists every table if a directory was given, so that the next key value service opened
+     * on the same directory starts with the same contents.
+     */
+    @Override
+    public void close() {
+        super.close();
+        for (OffHeapTable table : tables.values()) {
+            table.checkpoint();
+        }
+    }
+
+    private OffHeapTable getTable(TableReference tableRef) {
+        if (createTablesAutomatically && !tables.containsKey(tableRef)) {
+            createTable(tableRef, AtlasDbConstants.EMPTY_TABLE_METADATA);
+        }
+        OffHeapTable table = tables.get(tableRef);
+        if (table == null) {
+            throw new IllegalArgumentException("table " + tableRef.getQualifiedName() + " does not exist");
+        }
+        return table;
+    }
+
+    private File tableDirectory(TableReference tableRef) {
+        String name = BaseEncoding.base16().encode(PtBytes.toBytes(tableRef.getQualifiedName()));
+        return new File(directory, name);
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
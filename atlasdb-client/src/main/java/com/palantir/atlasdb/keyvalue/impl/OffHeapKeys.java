@@ -0,0 +1,216 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import java.util.Arrays;
+
+import com.google.common.primitives.UnsignedBytes;
+
+/**
+ * Encodes a row, column and timestamp as one key whose unsigned lexicographical order is the
+ * order of {@link com.palantir.atlasdb.keyvalue.api.Cell}s followed by timestamps, so that the
+ * off-heap key value service can keep every table as a single sorted sequence of byte strings.
+ * <p>
+ * Each name has its zero bytes escaped as {@code 00 FF} and is terminated by {@code 00 00}, and
+ * the timestamp is appended as eight big-endian bytes with the sign bit flipped. All keys of a
+ * row therefore share the encoded row as a prefix, and all versions of a cell share every byte
+ * but the last eight.
+ */
+final class OffHeapKeys {
+    private static final int TIMESTAMP_LENGTH = 8;
+
+    private OffHeapKeys() {
+        // utility
+    }
+
+    static byte[] rowPrefix(byte[] row) {
+        byte[] prefix = new byte[encodedLength(row)];
+        encode(row, prefix, 0);
+        return prefix;
+    }
+
+    static byte[] cellPrefix(byte[] row, byte[] col) {
+        byte[] prefix = new byte[encodedLength(row) + encodedLength(col)];
+        encode(col, prefix, encode(row, prefix, 0));
+        return prefix;
+    }
+
+    static byte[] key(byte[] row, byte[] col, long timestamp) {
+        byte[] key = new byte[encodedLength(row) + encodedLength(col) + TIMESTAMP_LENGTH];
+        int pos = encode(col, key, encode(row, key, 0));
+        long bits = timestamp ^ Long.MIN_VALUE;
+        for (int i = TIMESTAMP_LENGTH - 1; i >= 0; i--) {
+            key[pos + i] = (byte) bits;
+            bits >>>= 8;
+        }
+        return key;
+    }
+
+    /**
+     * Returns the smallest key that is greater than every key starting with the given row
+     * prefix. Escaped names never contain {@code 00 01}, so no other row sorts in between.
+     */
+    static byte[] rowSuccessor(byte[] rowPrefix) {
+        byte[] successor = Arrays.copyOf(rowPrefix, rowPrefix.length);
+        successor[successor.length - 1] = 1;
+        return successor;
+    }
+
+    static int rowPrefixLength(byte[] key) {
+        return componentEnd(key, 0);
+    }
+
+    static byte[] decodeRow(byte[] key) {
+        return decode(key, 0);
+    }
+
+    static byte[] decodeColumn(byte[] key, int rowPrefixLength) {
+        return decode(key, rowPrefixLength);
+    }
+
+    static long timestamp(byte[] key) {
+        long bits = 0;
+        for (int i = key.length - TIMESTAMP_LENGTH; i < key.length; i++) {
+            bits = (bits << 8) | (key[i] & 0xFF);
+        }
+        return bits ^ Long.MIN_VALUE;
+    }
+
+    static long timestamp(OffHeapTable.Cursor cursor) {
+        int length = cursor.keyLength();
+        long bits = 0;
+        for (int i = length - TIMESTAMP_LENGTH; i < length; i++) {
+            bits = (bits << 8) | (cursor.keyByte(i) & 0xFF);
+        }
+        return bits ^ Long.MIN_VALUE;
+    }
+
+    static boolean hasPrefix(OffHeapTable.Cursor cursor, byte[] prefix) {
+        if (cursor.keyLength() < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (cursor.keyByte(i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether the cursor is positioned on a version of the same cell as the given key.
+     */
+    static boolean isSameCell(OffHeapTable.Cursor cursor, byte[] key) {
+        if (cursor.keyLength() != key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length - TIMESTAMP_LENGTH; i++) {
+            if (cursor.keyByte(i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static int compare(OffHeapTable.Cursor left, OffHeapTable.Cursor right) {
+        int leftLength = left.keyLength();
+        int rightLength = right.keyLength();
+        int length = Math.min(leftLength, rightLength);
+        for (int i = 0; i < length; i++) {
+            int result = UnsignedBytes.compare(left.keyByte(i), right.keyByte(i));
+            if (result != 0) {
+                return result;
+            }
+        }
+        return leftLength - rightLength;
+    }
+
+    static int compare(OffHeapTable.Cursor left, byte[] right) {
+        int leftLength = left.keyLength();
+        int length = Math.min(leftLength, right.length);
+        for (int i = 0; i < length; i++) {
+            int result = UnsignedBytes.compare(left.keyByte(i), right[i]);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return leftLength - right.length;
+    }
+
+    static int compare(byte[] left, byte[] right) {
+        return UnsignedBytes.lexicographicalComparator().compare(left, right);
+    }
+
+    private static int encodedLength(byte[] name) {
+        int length = name.length + 2;
+        for (byte b : name) {
+            if (b == 0) {
+                length++;
+            }
+        }
+        return length;
+    }
+
+    private static int encode(byte[] name, byte[] dest, int pos) {
+        for (byte b : name) {
+            dest[pos++] = b;
+            if (b == 0) {
+                dest[pos++] = (byte) 0xFF;
+            }
+        }
+        dest[pos++] = 0;
+        dest[pos++] = 0;
+        return pos;
+    }
+
+    private static int componentEnd(byte[] key, int start) {
+        int pos = start;
+        while (true) {
+            if (key[pos] == 0) {
+                if (key[pos + 1] == 0) {
+                    return pos + 2;
+                }
+                pos += 2;
+            } else {
+                pos++;
+            }
+        }
+    }
+
+    private static byte[] decode(byte[] key, int start) {
+        int end = componentEnd(key, start) - 2;
+        byte[] name = new byte[end - start - countEscapes(key, start, end)];
+        int pos = 0;
+        for (int i = start; i < end; i++) {
+            name[pos++] = key[i];
+            if (key[i] == 0) {
+                i++;
+            }
+        }
+        return name;
+    }
+
+    private static int countEscapes(byte[] key, int start, int end) {
+        int escapes = 0;
+        for (int i = start; i < end; i++) {
+            if (key[i] == 0) {
+                escapes++;
+                i++;
+            }
+        }
+        return escapes;
+    }
+}
@@ -0,0 +1,361 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.primitives.UnsignedBytes;
+import com.palantir.common.base.Throwables;
+
+/**
+ * An immutable sorted sequence of entries held outside the Java heap, either in a direct buffer
+ * or in a memory-mapped file.
+ * <p>
+ * A run starts with a header holding a magic number, the number of entries and the offset of the
+ * index. Each entry is stored as the key length, the value length (-1 for a deletion marker), the
+ * key and the value. The index is the offset of every entry in key order, so that entries can be
+ * found by binary search without any per-entry objects on the heap.
+ */
+final class OffHeapRun {
+    static final int MAX_RUN_BYTES = 1 << 30;
+
+    private static final int MAGIC = 0x41544c52;
+    private static final int HEADER_BYTES = 12;
+    private static final int ENTRY_OVERHEAD_BYTES = 12;
+    private static final int TOMBSTONE_LENGTH = -1;
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private final int indexOffset;
+    @Nullable private final File file;
+    private final byte[] firstKey;
+    private final byte[] lastKey;
+
+    private OffHeapRun(ByteBuffer buffer, @Nullable File file) {
+        Preconditions.checkArgument(buffer.getInt(0) == MAGIC, "%s is not an off-heap run", file);
+        this.buffer = buffer;
+        this.size = buffer.getInt(4);
+        this.indexOffset = buffer.getInt(8);
+        this.file = file;
+        Preconditions.checkArgument(size > 0, "Runs may not be empty");
+        this.firstKey = key(0);
+        this.lastKey = key(size - 1);
+    }
+
+    /**
+     * Maps a run that was written to the given file.
+     */
+    static OffHeapRun open(File file) {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            return new OffHeapRun(raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length()), file);
+        } catch (IOException e) {
+            throw Throwables.rewrapAndThrowUncheckedException("Failed to map " + file, e);
+        }
+    }
+
+    /**
+     * The number of bytes an entry with the given key and value takes in a run, including its
+     * index slot.
+     */
+    static long entryBytes(byte[] key, byte[] value) {
+        return ENTRY_OVERHEAD_BYTES + key.length + value.length;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long sizeInBytes() {
+        return buffer.capacity();
+    }
+
+    @Nullable
+    File getFile() {
+        return file;
+    }
+
+    byte[] firstKey() {
+        return firstKey;
+    }
+
+    byte[] lastKey() {
+        return lastKey;
+    }
+
+    int entryOffset(int index) {
+        return buffer.getInt(indexOffset + 4 * index);
+    }
+
+    int keyLength(int entryOffset) {
+        return buffer.getInt(entryOffset);
+    }
+
+    byte keyByte(int entryOffset, int i) {
+        return buffer.get(entryOffset + 8 + i);
+    }
+
+    boolean isTombstone(int entryOffset) {
+        return buffer.getInt(entryOffset + 4) == TOMBSTONE_LENGTH;
+    }
+
+    byte[] key(int index) {
+        int offset = entryOffset(index);
+        return copy(offset + 8, keyLength(offset));
+    }
+
+    byte[] keyAt(int entryOffset) {
+        return copy(entryOffset + 8, keyLength(entryOffset));
+    }
+
+    /**
+     * Returns the value of the entry at the given offset, or {@link OffHeapTable#TOMBSTONE}.
+     */
+    byte[] valueAt(int entryOffset) {
+        int valueLength = buffer.getInt(entryOffset + 4);
+        if (valueLength == TOMBSTONE_LENGTH) {
+            return OffHeapTable.TOMBSTONE;
+        }
+        return copy(entryOffset + 8 + keyLength(entryOffset), valueLength);
+    }
+
+    /**
+     * Returns the index of the first entry whose key is at least the given key, or the size of
+     * the run if there is none.
+     */
+    int lowerBound(byte[] key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareKey(entryOffset(mid), key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the value stored for exactly the given key, {@link OffHeapTable#TOMBSTONE} if it
+     * was deleted, or null if this run has no entry for it.
+     */
+    @Nullable
+    byte[] get(byte[] key) {
+        int index = lowerBound(key);
+        if (index < size) {
+            int offset = entryOffset(index);
+            if (compareKey(offset, key) == 0) {
+                return valueAt(offset);
+            }
+        }
+        return null;
+    }
+
+    int compareKey(int entryOffset, byte[] key) {
+        int keyLength = keyLength(entryOffset);
+        int length = Math.min(keyLength, key.length);
+        for (int i = 0; i < length; i++) {
+            int result = UnsignedBytes.compare(buffer.get(entryOffset + 8 + i), key[i]);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return keyLength - key.length;
+    }
+
+    void delete() {
+        if (file != null && !file.delete() && file.exists()) {
+            throw new IllegalStateException("Failed to delete " + file);
+        }
+    }
+
+    private byte[] copy(int offset, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer source = buffer.duplicate();
+        source.position(offset);
+        source.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Writes entries in key order into a new run. Runs in memory are written straight into a
+     * direct buffer of the given capacity, and runs backed by a file are streamed to the file
+     * through a small staging buffer and mapped once they are complete.
+     */
+    static final class Writer {
+        private static final int STAGING_BYTES = 1 << 20;
+
+        private final ByteBuffer buffer;
+        @Nullable private final File file;
+        @Nullable private final RandomAccessFile output;
+        private final long capacity;
+        private long position = HEADER_BYTES;
+        private int[] offsets = new int[64];
+        private int size = 0;
+
+        /**
+         * @param capacity an upper bound on the bytes of the entries that will be written, as
+         *        computed by {@link #entryBytes}, which must not exceed {@link #MAX_RUN_BYTES}
+         * @param file the file to write the run to, or null to keep it in memory only
+         */
+        Writer(long capacity, @Nullable File file) {
+            Preconditions.checkArgument(capacity <= MAX_RUN_BYTES, "Runs are limited to %s bytes", MAX_RUN_BYTES);
+            this.capacity = capacity + HEADER_BYTES;
+            this.file = file;
+            if (file == null) {
+                this.output = null;
+                this.buffer = ByteBuffer.allocateDirect((int) this.capacity);
+                this.buffer.position(HEADER_BYTES);
+            } else {
+                try {
+                    this.output = new RandomAccessFile(file, "rw");
+                    this.output.setLength(0);
+                    this.output.seek(HEADER_BYTES);
+                } catch (IOException e) {
+                    throw Throwables.rewrapAndThrowUncheckedException("Failed to create " + file, e);
+                }
+                this.buffer = ByteBuffer.allocate(STAGING_BYTES);
+            }
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        boolean hasRoomFor(byte[] key, byte[] value) {
+            return position + entryBytes(key, value) + 4L * size <= capacity;
+        }
+
+        /**
+         * Appends an entry, which must sort after every entry written so far. Pass
+         * {@link OffHeapTable#TOMBSTONE} as the value to write a deletion marker.
+         */
+        void add(byte[] key, byte[] value) {
+            Preconditions.checkState(hasRoomFor(key, value), "The run is full");
+            if (size == offsets.length) {
+                offsets = Arrays.copyOf(offsets, size * 2);
+            }
+            offsets[size++] = (int) position;
+            boolean isTombstone = value == OffHeapTable.TOMBSTONE;
+            ensureRoom(8);
+            buffer.putInt(key.length);
+            buffer.putInt(isTombstone ? TOMBSTONE_LENGTH : value.length);
+            position += 8;
+            put(key);
+            if (!isTombstone) {
+                put(value);
+            }
+        }
+
+        OffHeapRun finish() {
+            Preconditions.checkState(size > 0, "Runs may not be empty");
+            int indexOffset = (int) position;
+            for (int i = 0; i < size; i++) {
+                ensureRoom(4);
+                buffer.putInt(offsets[i]);
+                position += 4;
+            }
+            if (file == null) {
+                return finishInMemory(indexOffset);
+            }
+            return finishInFile(indexOffset);
+        }
+
+        /**
+         * Discards a run that will not be finished.
+         */
+        void abort() {
+            if (output != null) {
+                try {
+                    output.close();
+                } catch (IOException e) {
+                    // ignored, the file is deleted below
+                }
+                file.delete();
+            }
+        }
+
+        private OffHeapRun finishInMemory(int indexOffset) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, size);
+            buffer.putInt(8, indexOffset);
+            buffer.flip();
+            ByteBuffer result = buffer;
+            if (buffer.limit() < buffer.capacity() * 3L / 4) {
+                // Most of the estimate went unused, typically because the merge dropped entries.
+                result = ByteBuffer.allocateDirect(buffer.limit());
+                result.put(buffer);
+                result.flip();
+            }
+            return new OffHeapRun(result.slice(), null);
+        }
+
+        private OffHeapRun finishInFile(int indexOffset) {
+            try {
+                flush();
+                output.seek(0);
+                output.writeInt(MAGIC);
+                output.writeInt(size);
+                output.writeInt(indexOffset);
+                output.getChannel().force(true);
+                output.close();
+            } catch (IOException e) {
+                abort();
+                throw Throwables.rewrapAndThrowUncheckedException("Failed to write " + file, e);
+            }
+            return open(file);
+        }
+
+        private void put(byte[] bytes) {
+            if (output != null && bytes.length > buffer.capacity()) {
+                try {
+                    flush();
+                    output.write(bytes);
+                } catch (IOException e) {
+                    throw Throwables.rewrapAndThrowUncheckedException("Failed to write " + file, e);
+                }
+            } else {
+                ensureRoom(bytes.length);
+                buffer.put(bytes);
+            }
+            position += bytes.length;
+        }
+
+        private void ensureRoom(int bytes) {
+            if (output != null && buffer.remaining() < bytes) {
+                try {
+                    flush();
+                } catch (IOException e) {
+                    throw Throwables.rewrapAndThrowUncheckedException("Failed to write " + file, e);
+                }
+            }
+        }
+
+        private void flush() throws IOException {
+            output.write(buffer.array(), 0, buffer.position());
+            buffer.clear();
+        }
+    }
+}
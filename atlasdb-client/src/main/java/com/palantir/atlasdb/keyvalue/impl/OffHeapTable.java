@@ -0,0 +1,754 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.primitives.UnsignedBytes;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.common.base.Throwables;
+
+/**
+ * One table of the {@link OffHeapKeyValueService}, kept as a stack of sorted layers.
+ * <p>
+ * Writes go to a small memtable on the heap. The memtable is frozen once it grows past
+ * {@link #MEMTABLE_BYTES}, and whenever a snapshot is taken, so that snapshots only ever contain
+ * immutable layers. Frozen layers are merged into {@link OffHeapRun}s in size tiers, newest first,
+ * so that each entry is rewritten a logarithmic number of times and the number of layers a read
+ * has to consult stays small. Deletions are written as markers that hide older entries and are
+ * dropped once a merge reaches the oldest layer.
+ * <p>
+ * Merges run on the thread whose write or snapshot triggered them, one at a time per table,
+ * without blocking other readers or writers.
+ */
+@ThreadSafe
+final class OffHeapTable {
+    private static final Logger log = LoggerFactory.getLogger(OffHeapTable.class);
+
+    /**
+     * The value of a deleted entry. Compared by identity.
+     */
+    static final byte[] TOMBSTONE = new byte[0];
+
+    static final long MEMTABLE_BYTES = 16 * 1024 * 1024;
+    private static final int MAX_LAYERS = 12;
+    private static final String MANIFEST = "MANIFEST";
+    private static final String RUN_PREFIX = "run-";
+
+    @Nullable private final File directory;
+    private final AtomicLong nextRunId = new AtomicLong();
+    private final ReentrantLock mergeLock = new ReentrantLock();
+    private volatile State state = new State(new MemtableLayer(), ImmutableList.<Layer>of());
+
+    OffHeapTable(@Nullable File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Opens a table persisted by {@link #checkpoint}, mapping the runs listed in its manifest and
+     * deleting any other runs left behind by merges that were in progress.
+     */
+    static OffHeapTable open(File directory) {
+        OffHeapTable table = new OffHeapTable(directory);
+        List<String> manifest = ImmutableList.of();
+        File manifestFile = new File(directory, MANIFEST);
+        try {
+            if (manifestFile.exists()) {
+                manifest = Files.readAllLines(manifestFile.toPath(), StandardCharsets.UTF_8);
+            }
+        } catch (IOException e) {
+            throw Throwables.rewrapAndThrowUncheckedException("Failed to read " + manifestFile, e);
+        }
+        File[] files = directory.listFiles();
+        for (File file : files == null ? new File[0] : files) {
+            String name = file.getName();
+            if (name.startsWith(RUN_PREFIX)) {
+                table.nextRunId.set(Math.max(table.nextRunId.get(), runId(name) + 1));
+                if (!manifest.contains(name)) {
+                    file.delete();
+                }
+            }
+        }
+        List<OffHeapRun> runs = Lists.newArrayListWithCapacity(manifest.size());
+        for (String name : manifest) {
+            if (!name.isEmpty()) {
+                runs.add(OffHeapRun.open(new File(directory, name)));
+            }
+        }
+        if (!runs.isEmpty()) {
+            table.state = new State(new MemtableLayer(), ImmutableList.<Layer>of(new RunLayer(runs)));
+        }
+        return table;
+    }
+
+    /**
+     * Returns the value stored for exactly the given key, {@link #TOMBSTONE} if it was deleted,
+     * or null if it was never written.
+     */
+    @Nullable
+    byte[] get(byte[] key) {
+        return new View(state.allLayers()).get(key);
+    }
+
+    /**
+     * Returns a view of the live table. Entries written after this call may or may not be seen
+     * by the view.
+     */
+    View liveView() {
+        return new View(state.allLayers());
+    }
+
+    /**
+     * Returns a view that sees exactly the entries written before this call.
+     */
+    View snapshot() {
+        State current = state;
+        if (!current.memtable.isEmpty()) {
+            current = freeze();
+            maybeMerge();
+        }
+        return new View(current.frozen);
+    }
+
+    /**
+     * Adds the given entry, replacing any entry with the same key. Callers that check for
+     * existing entries first must hold the lock on this table across the check and the put,
+     * and should call {@link #flushIfFull} once they have released it.
+     */
+    synchronized void put(byte[] key, byte[] value) {
+        state.memtable.put(key, value);
+    }
+
+    synchronized void delete(byte[] key) {
+        state.memtable.put(key, TOMBSTONE);
+    }
+
+    /**
+     * Moves the memtable off the heap if it has grown too large.
+     */
+    void flushIfFull() {
+        if (state.memtable.sizeInBytes() >= MEMTABLE_BYTES) {
+            freeze();
+            maybeMerge();
+        }
+    }
+
+    synchronized void truncate() {
+        List<Layer> discarded = state.frozen;
+        state = new State(new MemtableLayer(), ImmutableList.<Layer>of());
+        for (Layer layer : discarded) {
+            layer.discard();
+        }
+    }
+
+    /**
+     * Merges the whole table into runs in its directory and records them in its manifest, so
+     * that {@link #open} can restore it.
+     */
+    void checkpoint() {
+        if (directory == null) {
+            return;
+        }
+        freeze();
+        mergeLock.lock();
+        try {
+            List<Layer> layers = state.frozen;
+            if (layers.size() > 1 || (layers.size() == 1 && !(layers.get(0) instanceof RunLayer))) {
+                merge(layers.size());
+            }
+            List<String> names = Lists.newArrayList();
+            for (Layer layer : state.frozen) {
+                if (layer instanceof RunLayer) {
+                    for (OffHeapRun run : ((RunLayer) layer).runs) {
+                        names.add(run.getFile().getName());
+                    }
+                }
+            }
+            File tmp = new File(directory, MANIFEST + ".tmp");
+            Files.write(tmp.toPath(), Joiner.on('\n').join(names).getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp.toPath(), new File(directory, MANIFEST).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw Throwables.rewrapAndThrowUncheckedException("Failed to checkpoint " + directory, e);
+        } finally {
+            mergeLock.unlock();
+        }
+    }
+
+    private synchronized State freeze() {
+        State current = state;
+        if (current.memtable.isEmpty()) {
+            return current;
+        }
+        state = new State(new MemtableLayer(), ImmutableList.<Layer>builder()
+                .add(current.memtable)
+                .addAll(current.frozen)
+                .build());
+        return state;
+    }
+
+    private void maybeMerge() {
+        if (!mergeLock.tryLock()) {
+            return;
+        }
+        try {
+            int numLayers;
+            while ((numLayers = numLayersToMerge(state.frozen)) > 0) {
+                merge(numLayers);
+            }
+        } finally {
+            mergeLock.unlock();
+        }
+    }
+
+    /**
+     * Picks the newest layers that together are at least about as large as the next one, so
+     * that each merge roughly doubles the size of its output, and merges more if there would
+     * otherwise be too many layers.
+     */
+    private static int numLayersToMerge(List<Layer> layers) {
+        if (layers.isEmpty()) {
+            return 0;
+        }
+        int count = 1;
+        long mergedBytes = layers.get(0).sizeInBytes();
+        while (count < layers.size() && layers.get(count).sizeInBytes() <= 2 * mergedBytes) {
+            mergedBytes += layers.get(count).sizeInBytes();
+            count++;
+        }
+        count = Math.max(count, layers.size() - MAX_LAYERS + 1);
+        if (count >= 2) {
+            return count;
+        }
+        Layer newest = layers.get(0);
+        return newest instanceof MemtableLayer && newest.sizeInBytes() >= MEMTABLE_BYTES ? 1 : 0;
+    }
+
+    @GuardedBy("mergeLock")
+    private void merge(int numLayers) {
+        List<Layer> inputs = state.frozen.subList(0, numLayers);
+        boolean includesOldest = numLayers == state.frozen.size();
+        RunLayer merged = mergeLayers(inputs, includesOldest);
+        synchronized (this) {
+            List<Layer> layers = state.frozen;
+            int start = indexOfIdentical(layers, inputs.get(0));
+            if (start < 0) {
+                // The table was truncated while we were merging.
+                merged.discard();
+                return;
+            }
+            ImmutableList.Builder<Layer> newLayers = ImmutableList.builder();
+            newLayers.addAll(layers.subList(0, start));
+            if (!merged.runs.isEmpty()) {
+                newLayers.add(merged);
+            }
+            newLayers.addAll(layers.subList(start + numLayers, layers.size()));
+            state = new State(state.memtable, newLayers.build());
+        }
+        for (Layer input : inputs) {
+            input.discard();
+        }
+    }
+
+    private RunLayer mergeLayers(List<Layer> inputs, boolean dropTombstones) {
+        long remainingBytes = 0;
+        for (Layer input : inputs) {
+            remainingBytes += input.sizeInBytes();
+        }
+        long start = System.currentTimeMillis();
+        List<OffHeapRun> runs = Lists.newArrayList();
+        MergingCursor cursor = new MergingCursor(inputs, !dropTombstones);
+        cursor.seek(PtBytes.EMPTY_BYTE_ARRAY);
+        OffHeapRun.Writer writer = null;
+        try {
+            while (cursor.isValid()) {
+                byte[] key = cursor.key();
+                byte[] value = cursor.value();
+                if (writer != null && !writer.hasRoomFor(key, value)) {
+                    runs.add(writer.finish());
+                    writer = null;
+                }
+                if (writer == null) {
+                    writer = new OffHeapRun.Writer(
+                            Math.min(Math.max(remainingBytes, OffHeapRun.entryBytes(key, value)), OffHeapRun.MAX_RUN_BYTES),
+                            newRunFile());
+                }
+                writer.add(key, value);
+                remainingBytes -= OffHeapRun.entryBytes(key, value);
+                cursor.next();
+            }
+            if (writer != null) {
+                runs.add(writer.finish());
+                writer = null;
+            }
+        } finally {
+            if (writer != null) {
+                writer.abort();
+            }
+        }
+        log.debug("Merged {} layers into {} runs in {} ms.", inputs.size(), runs.size(), System.currentTimeMillis() - start);
+        return new RunLayer(runs);
+    }
+
+    @Nullable
+    private File newRunFile() {
+        if (directory == null) {
+            return null;
+        }
+        return new File(directory, RUN_PREFIX + nextRunId.getAndIncrement());
+    }
+
+    private static long runId(String fileName) {
+        try {
+            return Long.parseLong(fileName.substring(RUN_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static int indexOfIdentical(List<Layer> layers, Layer layer) {
+        for (int i = 0; i < layers.size(); i++) {
+            if (layers.get(i) == layer) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static final class State {
+        final MemtableLayer memtable;
+        final ImmutableList<Layer> frozen;
+
+        State(MemtableLayer memtable, ImmutableList<Layer> frozen) {
+            this.memtable = memtable;
+            this.frozen = frozen;
+        }
+
+        List<Layer> allLayers() {
+            return ImmutableList.<Layer>builder().add(memtable).addAll(frozen).build();
+        }
+    }
+
+    /**
+     * A fixed set of layers, newest first.
+     */
+    static final class View {
+        private final List<Layer> layers;
+
+        View(List<Layer> layers) {
+            this.layers = layers;
+        }
+
+        @Nullable
+        byte[] get(byte[] key) {
+            for (Layer layer : layers) {
+                byte[] value = layer.get(key);
+                if (value != null) {
+                    return value;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Returns a cursor over the entries that are not deleted, starting at the first key that
+         * is at least the given key.
+         */
+        Cursor seek(byte[] key) {
+            MergingCursor cursor = new MergingCursor(layers, false);
+            cursor.seek(key);
+            return cursor;
+        }
+
+        /**
+         * Returns the largest key before the given one, or before the end of the table if the
+         * given key is null. The key may belong to a deleted entry.
+         */
+        @Nullable
+        byte[] lastKeyBefore(@Nullable byte[] key) {
+            byte[] result = null;
+            for (Layer layer : layers) {
+                byte[] candidate = layer.lastKeyBefore(key);
+                if (candidate != null && (result == null || OffHeapKeys.compare(candidate, result) > 0)) {
+                    result = candidate;
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * A position in a sorted sequence of entries. Reading the key a byte at a time lets cursors
+     * be compared without copying their keys onto the heap.
+     */
+    interface Cursor {
+        boolean isValid();
+        void next();
+        int keyLength();
+        byte keyByte(int i);
+        byte[] key();
+        /**
+         * Returns the value, or {@link OffHeapTable#TOMBSTONE} for a deleted entry.
+         */
+        byte[] value();
+        boolean isTombstone();
+    }
+
+    private interface LayerCursor extends Cursor {
+        void seek(byte[] key);
+    }
+
+    abstract static class Layer {
+        abstract LayerCursor newCursor();
+
+        @Nullable
+        abstract byte[] get(byte[] key);
+
+        @Nullable
+        abstract byte[] lastKeyBefore(@Nullable byte[] key);
+
+        /**
+         * An upper bound on the bytes the entries of this layer take in a run.
+         */
+        abstract long sizeInBytes();
+
+        void discard() {
+            // nothing to release by default
+        }
+    }
+
+    private static final class MemtableLayer extends Layer {
+        private final ConcurrentSkipListMap<byte[], byte[]> entries =
+                new ConcurrentSkipListMap<byte[], byte[]>(UnsignedBytes.lexicographicalComparator());
+        private final AtomicLong bytes = new AtomicLong();
+
+        boolean isEmpty() {
+            return entries.isEmpty();
+        }
+
+        void put(byte[] key, byte[] value) {
+            entries.put(key, value);
+            bytes.addAndGet(OffHeapRun.entryBytes(key, value));
+        }
+
+        @Override
+        LayerCursor newCursor() {
+            return new LayerCursor() {
+                private Iterator<Map.Entry<byte[], byte[]>> iterator;
+                private Map.Entry<byte[], byte[]> current;
+
+                @Override
+                public void seek(byte[] key) {
+                    iterator = entries.tailMap(key, true).entrySet().iterator();
+                    next();
+                }
+
+                @Override
+                public boolean isValid() {
+                    return current != null;
+                }
+
+                @Override
+                public void next() {
+                    current = iterator.hasNext() ? iterator.next() : null;
+                }
+
+                @Override
+                public int keyLength() {
+                    return current.getKey().length;
+                }
+
+                @Override
+                public byte keyByte(int i) {
+                    return current.getKey()[i];
+                }
+
+                @Override
+                public byte[] key() {
+                    return current.getKey();
+                }
+
+                @Override
+                public byte[] value() {
+                    return current.getValue();
+                }
+
+                @Override
+                public boolean isTombstone() {
+                    return current.getValue() == TOMBSTONE;
+                }
+            };
+        }
+
+        @Override
+        byte[] get(byte[] key) {
+            return entries.get(key);
+        }
+
+        @Override
+        byte[] lastKeyBefore(byte[] key) {
+            if (key == null) {
+                return entries.isEmpty() ? null : entries.lastKey();
+            }
+            return entries.lowerKey(key);
+        }
+
+        @Override
+        long sizeInBytes() {
+            return bytes.get();
+        }
+    }
+
+    /**
+     * Runs with disjoint key ranges, in key order.
+     */
+    private static final class RunLayer extends Layer {
+        final ImmutableList<OffHeapRun> runs;
+        private final long bytes;
+
+        RunLayer(List<OffHeapRun> runs) {
+            this.runs = ImmutableList.copyOf(runs);
+            long total = 0;
+            for (OffHeapRun run : runs) {
+                total += run.sizeInBytes();
+            }
+            this.bytes = total;
+        }
+
+        /**
+         * Returns the index of the first run whose last key is at least the given key.
+         */
+        private int findRun(byte[] key) {
+            int low = 0;
+            int high = runs.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (OffHeapKeys.compare(runs.get(mid).lastKey(), key) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        @Override
+        LayerCursor newCursor() {
+            return new LayerCursor() {
+                private int runIndex;
+                private int index;
+                private int offset;
+                private OffHeapRun run;
+
+                @Override
+                public void seek(byte[] key) {
+                    runIndex = findRun(key);
+                    if (runIndex < runs.size()) {
+                        run = runs.get(runIndex);
+                        index = run.lowerBound(key);
+                        offset = run.entryOffset(index);
+                    }
+                }
+
+                @Override
+                public boolean isValid() {
+                    return runIndex < runs.size();
+                }
+
+                @Override
+                public void next() {
+                    index++;
+                    if (index == run.size()) {
+                        runIndex++;
+                        if (runIndex == runs.size()) {
+                            return;
+                        }
+                        run = runs.get(runIndex);
+                        index = 0;
+                    }
+                    offset = run.entryOffset(index);
+                }
+
+                @Override
+                public int keyLength() {
+                    return run.keyLength(offset);
+                }
+
+                @Override
+                public byte keyByte(int i) {
+                    return run.keyByte(offset, i);
+                }
+
+                @Override
+                public byte[] key() {
+                    return run.keyAt(offset);
+                }
+
+                @Override
+                public byte[] value() {
+                    return run.valueAt(offset);
+                }
+
+                @Override
+                public boolean isTombstone() {
+                    return run.isTombstone(offset);
+                }
+            };
+        }
+
+        @Override
+        byte[] get(byte[] key) {
+            int runIndex = findRun(key);
+            return runIndex < runs.size() ? runs.get(runIndex).get(key) : null;
+        }
+
+        @Override
+        byte[] lastKeyBefore(byte[] key) {
+            if (runs.isEmpty()) {
+                return null;
+            }
+            if (key == null) {
+                return runs.get(runs.size() - 1).lastKey();
+            }
+            int runIndex = Math.min(findRun(key), runs.size() - 1);
+            for (; runIndex >= 0; runIndex--) {
+                OffHeapRun run = runs.get(runIndex);
+                int index = run.lowerBound(key) - 1;
+                if (index >= 0) {
+                    return run.key(index);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        long sizeInBytes() {
+            return bytes;
+        }
+
+        @Override
+        void discard() {
+            for (OffHeapRun run : runs) {
+                run.delete();
+            }
+        }
+    }
+
+    /**
+     * Merges the cursors of several layers. Where layers have entries with the same key, the
+     * newest one wins, and deleted entries are skipped unless they are being kept for a merge.
+     */
+    private static final class MergingCursor implements Cursor {
+        private final LayerCursor[] cursors;
+        private final boolean keepTombstones;
+        private LayerCursor current;
+
+        MergingCursor(List<Layer> layers, boolean keepTombstones) {
+            this.cursors = new LayerCursor[layers.size()];
+            for (int i = 0; i < cursors.length; i++) {
+                cursors[i] = layers.get(i).newCursor();
+            }
+            this.keepTombstones = keepTombstones;
+        }
+
+        void seek(byte[] key) {
+            for (LayerCursor cursor : cursors) {
+                cursor.seek(key);
+            }
+            settle();
+        }
+
+        @Override
+        public boolean isValid() {
+            return current != null;
+        }
+
+        @Override
+        public void next() {
+            advance();
+            settle();
+        }
+
+        private void settle() {
+            while (true) {
+                current = null;
+                for (LayerCursor cursor : cursors) {
+                    if (cursor.isValid() && (current == null || OffHeapKeys.compare(cursor, current) < 0)) {
+                        current = cursor;
+                    }
+                }
+                if (current == null || keepTombstones || !current.isTombstone()) {
+                    return;
+                }
+                advance();
+            }
+        }
+
+        private void advance() {
+            for (LayerCursor cursor : cursors) {
+                if (cursor != current && cursor.isValid() && OffHeapKeys.compare(cursor, current) == 0) {
+                    cursor.next();
+                }
+            }
+            current.next();
+        }
+
+        @Override
+        public int keyLength() {
+            return current.keyLength();
+        }
+
+        @Override
+        public byte keyByte(int i) {
+            return current.keyByte(i);
+        }
+
+        @Override
+        public byte[] key() {
+            return current.key();
+        }
+
+        @Override
+        public byte[] value() {
+            return current.value();
+        }
+
+        @Override
+        public boolean isTombstone() {
+            return current.isTombstone();
+        }
+    }
+}
@@ -17,6 +17,7 @@ package com.palantir.atlasdb.keyvalue.impl;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -32,6 +33,7 @@ import java.util.concurrent.locks.ReentrantLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Function;
 import com.google.common.base.Functions;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Collections2;
@@ -39,14 +41,22 @@ import com.google.common.collect.ConcurrentHashMultiset;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultiset;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multiset;
 import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.keyvalue.api.BulkLoadingKeyValueService;
 import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.ColumnarKeyValueService;
+import com.palantir.atlasdb.keyvalue.api.ColumnarResults;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeDeletingKeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.SnapshottingKeyValueService;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.atlasdb.schema.SweepSchema;
@@ -63,7 +73,9 @@ import com.palantir.timestamp.TimestampService;
  * since the last time the table was completely swept. This is used when
  * deciding the order in which tables should be swept.
  */
-public class SweepStatsKeyValueService extends ForwardingKeyValueService {
+public class SweepStatsKeyValueService extends ForwardingKeyValueService
+        implements BulkLoadingKeyValueService, ColumnarKeyValueService, RangeDeletingKeyValueService,
+        SnapshottingKeyValueService {
 
     private static final Logger log = LoggerFactory.getLogger(SweepStatsKeyValueService.class);
     private static final int CLEAR_WEIGHT = 1 << 14;
@@ -118,6 +130,48 @@ public class SweepStatsKeyValueService extends ForwardingKeyValueService {
         recordModifications(cellValues.size());
     }
 
+    @Override
+    public void bulkLoad(TableReference tableRef, Iterator<Entry<Cell, byte[]>> sortedCells, long timestamp) {
+        final AtomicInteger newWrites = new AtomicInteger();
+        KeyValueServices.bulkLoad(delegate(), tableRef, Iterators.transform(sortedCells,
+                new Function<Entry<Cell, byte[]>, Entry<Cell, byte[]>>() {
+                    @Override
+                    public Entry<Cell, byte[]> apply(Entry<Cell, byte[]> entry) {
+                        newWrites.incrementAndGet();
+                        return entry;
+                    }
+                }), timestamp);
+        writesByTable.add(tableRef, newWrites.get());
+        recordModifications(newWrites.get());
+    }
+
+    @Override
+    public ColumnarResults getRowsColumnar(TableReference tableRef,
+                                           Iterable<byte[]> rows,
+                                           ColumnSelection columnSelection,
+                                           long timestamp) {
+        return KeyValueServices.getRowsColumnar(delegate(), tableRef, rows, columnSelection, timestamp);
+    }
+
+    @Override
+    public ColumnarResults getRangeColumnar(TableReference tableRef, RangeRequest rangeRequest, long timestamp) {
+        return KeyValueServices.getRangeColumnar(delegate(), tableRef, rangeRequest, timestamp);
+    }
+
+    @Override
+    public void deleteAllTimestampsBelow(TableReference tableRef, Map<Cell, Long> maxTimestampExclusiveByCell) {
+        KeyValueServices.deleteAllTimestampsBelow(delegate(), tableRef, maxTimestampExclusiveByCell);
+    }
+
+    /**
+     * Snapshots are read only, so there are no writes to count and the delegate's snapshot is
+     * returned as it is.
+     */
+    @Override
+    public KeyValueService openReadSnapshot() {
+        return KeyValueServices.openReadSnapshot(delegate());
+    }
+
     @Override
     public void truncateTable(TableReference tableRef) {
         delegate().truncateTable(tableRef);
@@ -0,0 +1,200 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.util.metrics.MetricsRegistry;
+import com.palantir.util.metrics.OperationMetrics;
+
+/**
+ * Combines small writes to the same table that arrive within a short window into one write.
+ * <p>
+ * The first writer to a table waits for the window to pass, collecting the writes of any other
+ * threads that arrive meanwhile, and then hands all of them to the {@link Writer} at once. The
+ * other writers block until that combined write finishes. If the combined write fails, every
+ * writer retries its own entries on its own thread, so failures such as
+ * {@link com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException} are reported to the writer
+ * whose entries caused them. Writes must therefore be idempotent.
+ * <p>
+ * Writes of at least the maximum coalesced size, and all writes when the window is zero, go
+ * straight to the {@link Writer}. A "flush" metric counts the combined writes and a "write"
+ * metric counts the writes submitted, so their ratio shows how much coalescing happens.
+ */
+@ThreadSafe
+public final class WriteCoalescer<T> {
+    public static final String METRIC_TYPE = "WriteCoalescing";
+
+    private static final int FLUSH = 0;
+    private static final int WRITE = 1;
+
+    public interface Writer<T> {
+        void write(TableReference tableRef, List<T> entries);
+    }
+
+    private final String name;
+    private final long windowNanos;
+    private final int maxCoalescedSize;
+    private final Writer<T> writer;
+    private final MetricsRegistry registry;
+    private final ConcurrentMap<TableReference, Group<T>> openGroups = Maps.newConcurrentMap();
+    private final ConcurrentMap<TableReference, OperationMetrics[]> metricsByTable = Maps.newConcurrentMap();
+
+    /**
+     * @param name identifies the owning key value service in the metric names
+     * @param windowMicros how long the first writer to a table waits for others to join it
+     * @param maxCoalescedSize the most entries a combined write may contain
+     */
+    public WriteCoalescer(String name, long windowMicros, int maxCoalescedSize, Writer<T> writer) {
+        this.name = name;
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+        this.maxCoalescedSize = maxCoalescedSize;
+        this.writer = writer;
+        this.registry = MetricsRegistry.getDefault();
+    }
+
+    public void write(TableReference tableRef, List<T> entries) {
+        if (windowNanos <= 0 || entries.size() >= maxCoalescedSize) {
+            writer.write(tableRef, entries);
+            return;
+        }
+
+        long start = System.nanoTime();
+        while (true) {
+            Group<T> group = openGroups.get(tableRef);
+            if (group == null) {
+                Group<T> newGroup = new Group<T>(entries);
+                if (openGroups.putIfAbsent(tableRef, newGroup) == null) {
+                    lead(tableRef, newGroup);
+                    break;
+                }
+            } else if (group.join(entries, maxCoalescedSize)) {
+                follow(tableRef, group, entries);
+                break;
+            } else {
+                // The group is full or already being written, so start a new one.
+                openGroups.remove(tableRef, group);
+            }
+        }
+        getMetrics(tableRef)[WRITE].record(System.nanoTime() - start, entries.size(), 0);
+    }
+
+    private void lead(TableReference tableRef, Group<T> group) {
+        try {
+            Uninterruptibles.sleepUninterruptibly(windowNanos, TimeUnit.NANOSECONDS);
+        } finally {
+            openGroups.remove(tableRef, group);
+        }
+        List<T> combined = group.close();
+        long start = System.nanoTime();
+        try {
+            writer.write(tableRef, combined);
+            getMetrics(tableRef)[FLUSH].record(System.nanoTime() - start, combined.size(), 0);
+            group.finish(true);
+        } catch (RuntimeException e) {
+            getMetrics(tableRef)[FLUSH].recordFailure(System.nanoTime() - start);
+            group.finish(false);
+            if (group.numMembers() == 1) {
+                throw e;
+            }
+            writer.write(tableRef, group.leaderEntries);
+        } catch (Error e) {
+            group.finish(false);
+            throw e;
+        }
+    }
+
+    private void follow(TableReference tableRef, Group<T> group, List<T> entries) {
+        if (!group.await()) {
+            writer.write(tableRef, entries);
+        }
+    }
+
+    private OperationMetrics[] getMetrics(TableReference tableRef) {
+        OperationMetrics[] metrics = metricsByTable.get(tableRef);
+        if (metrics == null) {
+            String scope = name + "." + tableRef.getQualifiedName();
+            metrics = new OperationMetrics[] {
+                    registry.operation(METRIC_TYPE, scope, "flush"),
+                    registry.operation(METRIC_TYPE, scope, "write") };
+            OperationMetrics[] existing = metricsByTable.putIfAbsent(tableRef, metrics);
+            if (existing != null) {
+                metrics = existing;
+            }
+        }
+        return metrics;
+    }
+
+    private static final class Group<T> {
+        final List<T> leaderEntries;
+        private final CountDownLatch done = new CountDownLatch(1);
+        @GuardedBy("this")
+        private final List<List<T>> members = Lists.newArrayList();
+        @GuardedBy("this")
+        private int size;
+        @GuardedBy("this")
+        private boolean closed = false;
+        private volatile boolean succeeded = false;
+
+        Group(List<T> leaderEntries) {
+            this.leaderEntries = leaderEntries;
+            members.add(leaderEntries);
+            size = leaderEntries.size();
+        }
+
+        synchronized boolean join(List<T> entries, int maxSize) {
+            if (closed || size + entries.size() > maxSize) {
+                return false;
+            }
+            members.add(entries);
+            size += entries.size();
+            return true;
+        }
+
+        synchronized List<T> close() {
+            closed = true;
+            List<T> combined = Lists.newArrayListWithCapacity(size);
+            for (List<T> member : members) {
+                combined.addAll(member);
+            }
+            return combined;
+        }
+
+        synchronized int numMembers() {
+            return members.size();
+        }
+
+        void finish(boolean success) {
+            succeeded = success;
+            done.countDown();
+        }
+
+        boolean await() {
+            Uninterruptibles.awaitUninterruptibly(done);
+            return succeeded;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.ptobject;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.UUID;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.palantir.atlasdb.encoding.PtBytes;
+
+/**
+ * A growable byte[] that row and column components are encoded into directly, so building a
+ * composite key allocates only the final array instead of one array per component plus the
+ * concatenation.
+ * <p>
+ * Every put method produces exactly the same bytes as the matching byte[] returning method on
+ * {@link EncodingUtils}.
+ */
+@NotThreadSafe
+public final class EncodingBuffer {
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    private static final ThreadLocal<EncodingBuffer> THREAD_LOCAL = new ThreadLocal<EncodingBuffer>() {
+        @Override
+        protected EncodingBuffer initialValue() {
+            return new EncodingBuffer(INITIAL_CAPACITY);
+        }
+    };
+
+    private byte[] bytes;
+    private int position;
+
+    private EncodingBuffer(int capacity) {
+        this.bytes = new byte[capacity];
+    }
+
+    public static EncodingBuffer create() {
+        return new EncodingBuffer(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Returns this thread's buffer, emptied. The buffer is only valid until the next call to
+     * this method on the same thread, so callers must finish with it (normally by calling
+     * {@link #toByteArray()}) before encoding anything else.
+     */
+    public static EncodingBuffer threadLocal() {
+        EncodingBuffer buffer = THREAD_LOCAL.get();
+        if (buffer.bytes.length > MAX_RETAINED_CAPACITY) {
+            // don't pin a huge array to the thread because of one large key
+            buffer.bytes = new byte[INITIAL_CAPACITY];
+        }
+        buffer.position = 0;
+        return buffer;
+    }
+
+    public int position() {
+        return position;
+    }
+
+    public EncodingBuffer reset() {
+        position = 0;
+        return this;
+    }
+
+    public EncodingBuffer putBytes(byte[] value) {
+        ensureRemaining(value.length);
+        System.arraycopy(value, 0, bytes, position, value.length);
+        position += value.length;
+        return this;
+    }
+
+    public EncodingBuffer putVarLong(long value) {
+        ensureRemaining(EncodingUtils.sizeOfVarLong(value));
+        position = EncodingUtils.encodeVarLong(value, bytes, position);
+        return this;
+    }
+
+    public EncodingBuffer putUnsignedVarLong(long value) {
+        ensureRemaining(EncodingUtils.sizeOfUnsignedVarLong(value));
+        position = EncodingUtils.encodeUnsignedVarLong(value, bytes, position);
+        return this;
+    }
+
+    public EncodingBuffer putSignedVarLong(long value) {
+        ensureRemaining(EncodingUtils.sizeOfSignedVarLong(value));
+        position = EncodingUtils.encodeSignedVarLong(value, bytes, position);
+        return this;
+    }
+
+    /**
+     * Writes the value the way {@code ValueType.FIXED_LONG} does, with the sign bit flipped so
+     * negative values sort first.
+     */
+    public EncodingBuffer putFixedLong(long value) {
+        return putBigEndianLong(Long.MIN_VALUE ^ value);
+    }
+
+    public EncodingBuffer putBigEndianLong(long value) {
+        ensureRemaining(PtBytes.SIZEOF_LONG);
+        position = EncodingUtils.encodeBigEndian(value, bytes, position);
+        return this;
+    }
+
+    public EncodingBuffer putLittleEndianLong(long value) {
+        ensureRemaining(PtBytes.SIZEOF_LONG);
+        position = EncodingUtils.encodeLittleEndian(value, bytes, position);
+        return this;
+    }
+
+    public EncodingBuffer putNullableFixedLong(Long value) {
+        ensureRemaining(1 + PtBytes.SIZEOF_LONG);
+        position = EncodingUtils.encodeNullableFixedLong(value, bytes, position);
+        return this;
+    }
+
+    public EncodingBuffer putString(String value) {
+        ensureRemaining(EncodingUtils.sizeOfUtf8(value));
+        position = EncodingUtils.encodeUtf8(value, bytes, position);
+        return this;
+    }
+
+    public EncodingBuffer putVarString(String value) {
+        ensureRemaining(EncodingUtils.sizeOfVarString(value));
+        position = EncodingUtils.encodeVarString(value, bytes, position);
+        return this;
+    }
+
+    public EncodingBuffer putSizedBytes(byte[] value) {
+        ensureRemaining(EncodingUtils.sizeOfSizedBytes(value));
+        position = EncodingUtils.encodeSizedBytes(value, bytes, position);
+        return this;
+    }
+
+    public EncodingBuffer putUUID(UUID value) {
+        ensureRemaining(2 * PtBytes.SIZEOF_LONG);
+        position = EncodingUtils.encodeUUID(value, bytes, position);
+        return this;
+    }
+
+    /**
+     * Flips every bit written since start, which is how DESCENDING components are encoded.
+     */
+    public EncodingBuffer flipAllBitsFrom(int start) {
+        EncodingUtils.flipAllBitsInPlace(bytes, start, position - start);
+        return this;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(bytes, position);
+    }
+
+    /**
+     * Returns a view of the encoded bytes without copying. The view is invalidated by any
+     * further writes to this buffer.
+     */
+    public ByteBuffer asByteBuffer() {
+        return ByteBuffer.wrap(bytes, 0, position).slice();
+    }
+
+    private void ensureRemaining(int length) {
+        int required = position + length;
+        if (required > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(required, bytes.length * 2));
+        }
+    }
+}
@@ -58,41 +58,64 @@ public class EncodingUtils {
     public static byte[] encodeVarLong(long value) {
         int size = sizeOfVarLong(value);
         byte[] ret = new byte[size];
-        encodeVarLongForSize(value, ret, size);
+        encodeVarLongForSize(value, ret, 0, size, size);
         return ret;
     }
 
+    /**
+     * Encodes the value into dest at offset, the same way as {@link #encodeVarLong(long)}.
+     * @return the offset just past the encoded value
+     */
+    public static int encodeVarLong(long value, @Output byte[] dest, int offset) {
+        int size = sizeOfVarLong(value);
+        Arrays.fill(dest, offset, offset + size, (byte) 0);
+        encodeVarLongForSize(value, dest, offset, size, size);
+        return offset + size;
+    }
+
     public static byte[] encodeUnsignedVarLong(long value) {
         return encodeVarLong(checkUnsigned(value));
     }
 
+    public static int encodeUnsignedVarLong(long value, @Output byte[] dest, int offset) {
+        return encodeVarLong(checkUnsigned(value), dest, offset);
+    }
+
     public static byte[] encodeSignedVarLong(long value) {
+        int size = sizeOfSignedVarLong(value);
+        byte[] ret = new byte[size];
+        encodeSignedVarLong(value, ret, 0);
+        return ret;
+    }
+
+    public static int encodeSignedVarLong(long value, @Output byte[] dest, int offset) {
         final boolean negative = value<0;
         int size = sizeOfSignedVarLong(value);
         value ^= (value >> 63);
-        byte[] ret = new byte[size];
-        encodeVarLongForSize(value, ret, size+1);
+        Arrays.fill(dest, offset, offset + size, (byte) 0);
+        encodeVarLongForSize(value, dest, offset, size, size+1);
         if (negative) {
-            flipAllBitsInPlace(ret);
+            flipAllBitsInPlace(dest, offset, size);
         }
-        return ret;
+        return offset + size;
     }
 
     /**
      * There will be size-1 bits set before there is a zero.
-     * All the bits of value will or-ed (|=) onto the the passed byte[].
+     * All the bits of value will or-ed (|=) onto the the passed byte[] in the range
+     * [offset, offset + length).
      * @param size must be <= 17 (but will most likely be 10 or 11 at most)
      */
-    private static void encodeVarLongForSize(long value, @Output byte[] ret, int size) {
-        int end = 0;
+    private static void encodeVarLongForSize(long value, @Output byte[] ret, int offset, int length, int size) {
+        int end = offset;
         if (size > 8) {
-            ret[0] = (byte)0xff;
-            end = 1;
+            ret[offset] = (byte)0xff;
+            end = offset + 1;
             size -= 8;
         }
         ret[end] = (byte)((0xff << (9-size)) & 0xff);
 
-        int index = ret.length;
+        int index = offset + length;
         while (index-- > end) {
             ret[index] |= (byte)((int)value & 0xff);
             value >>>= 8;
@@ -243,7 +266,8 @@ public class EncodingUtils {
     }
 
     public static int sizeOfVarString(String str) {
-        return sizeOfSizedBytes(PtBytes.toBytes(str));
+        int len = sizeOfUtf8(str);
+        return len + sizeOfVarLong(len);
     }
 
     public static int sizeOfSizedBytes(byte[] bytes) {
@@ -254,11 +278,85 @@ public class EncodingUtils {
         return encodeSizedBytes(PtBytes.toBytes(strValue));
     }
 
+    /**
+     * Encodes the string into dest at offset, the same way as {@link #encodeVarString(String)},
+     * without creating an intermediate byte[] for its UTF-8 form.
+     * @return the offset just past the encoded value
+     */
+    public static int encodeVarString(String strValue, @Output byte[] dest, int offset) {
+        int len = sizeOfUtf8(strValue);
+        offset = encodeVarLong(len, dest, offset);
+        return encodeUtf8(strValue, dest, offset);
+    }
+
     public static byte[] encodeSizedBytes(byte[] bytes) {
         byte[] len = encodeVarLong(bytes.length);
         return Bytes.concat(len, bytes);
     }
 
+    public static int encodeSizedBytes(byte[] bytes, @Output byte[] dest, int offset) {
+        offset = encodeVarLong(bytes.length, dest, offset);
+        System.arraycopy(bytes, 0, dest, offset, bytes.length);
+        return offset + bytes.length;
+    }
+
+    /**
+     * Returns the length of the UTF-8 encoding of the string, as produced by
+     * {@link PtBytes#toBytes(String)}.
+     */
+    public static int sizeOfUtf8(String str) {
+        int size = 0;
+        int length = str.length();
+        for (int i = 0; i < length; i++) {
+            char c = str.charAt(i);
+            if (c < 0x80) {
+                size += 1;
+            } else if (c < 0x800) {
+                size += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(str.charAt(i + 1))) {
+                size += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                // unpaired surrogates are replaced with '?', like String.getBytes does
+                size += 1;
+            } else {
+                size += 3;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Writes the UTF-8 encoding of the string into dest at offset. The output is identical to
+     * {@link PtBytes#toBytes(String)}.
+     * @return the offset just past the encoded string
+     */
+    public static int encodeUtf8(String str, @Output byte[] dest, int offset) {
+        int length = str.length();
+        for (int i = 0; i < length; i++) {
+            char c = str.charAt(i);
+            if (c < 0x80) {
+                dest[offset++] = (byte) c;
+            } else if (c < 0x800) {
+                dest[offset++] = (byte) (0xc0 | (c >> 6));
+                dest[offset++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(str.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, str.charAt(++i));
+                dest[offset++] = (byte) (0xf0 | (codePoint >> 18));
+                dest[offset++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                dest[offset++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                dest[offset++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                dest[offset++] = (byte) '?';
+            } else {
+                dest[offset++] = (byte) (0xe0 | (c >> 12));
+                dest[offset++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                dest[offset++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        return offset;
+    }
+
     public static byte[] encodeUUID(UUID uuid) {
         return ByteBuffer
                 .allocate(2 * Longs.BYTES)
@@ -268,6 +366,24 @@ public class EncodingUtils {
                 .array();
     }
 
+    public static int encodeUUID(UUID uuid, @Output byte[] dest, int offset) {
+        offset = encodeBigEndian(uuid.getMostSignificantBits(), dest, offset);
+        return encodeBigEndian(uuid.getLeastSignificantBits(), dest, offset);
+    }
+
+    /**
+     * Writes the 8 big endian bytes of the value into dest at offset, the same bytes as
+     * {@link PtBytes#toBytes(long)}.
+     * @return the offset just past the encoded value
+     */
+    public static int encodeBigEndian(long val, @Output byte[] dest, int offset) {
+        for (int i = PtBytes.SIZEOF_LONG - 1; i >= 0; i--) {
+            dest[offset + i] = (byte) val;
+            val >>>= 8;
+        }
+        return offset + PtBytes.SIZEOF_LONG;
+    }
+
     public static UUID decodeUUID(byte[] bytes, int offset) {
         ByteBuffer buf = ByteBuffer.wrap(bytes, offset, 2 * Longs.BYTES).order(ByteOrder.BIG_ENDIAN);
         long mostSigBits = buf.getLong();
@@ -365,9 +481,20 @@ public class EncodingUtils {
     }
 
     public static long decodeLittleEndian(byte[] value, int offset) {
-        byte[] subArray = ArrayUtils.subarray(value, offset, offset + PtBytes.SIZEOF_LONG);
-        ArrayUtils.reverse(subArray);
-        return PtBytes.toLong(subArray);
+        long ret = 0;
+        for (int i = PtBytes.SIZEOF_LONG - 1; i >= 0; i--) {
+            ret <<= 8;
+            ret |= value[offset + i] & 0xff;
+        }
+        return ret;
+    }
+
+    public static int encodeLittleEndian(long val, @Output byte[] dest, int offset) {
+        for (int i = 0; i < PtBytes.SIZEOF_LONG; i++) {
+            dest[offset + i] = (byte) val;
+            val >>>= 8;
+        }
+        return offset + PtBytes.SIZEOF_LONG;
     }
 
     public static byte[] encodeLittleEndian(long val) {
@@ -408,16 +535,17 @@ public class EncodingUtils {
     public static byte[] toBytes(List<EncodingType> types, List<Object> components) {
         Preconditions.checkArgument(types.size() == components.size());
 
-        byte[][] bytes = new byte[types.size()][];
+        EncodingBuffer buffer = EncodingBuffer.threadLocal();
         for (int i = 0; i < types.size(); i++) {
             EncodingType encodingType = types.get(i);
             Object obj = components.get(i);
-            bytes[i] = encodingType.getType().convertFromJava(obj);
+            int start = buffer.position();
+            encodingType.getType().convertFromJava(obj, buffer);
             if (encodingType.getOrder() == ValueByteOrder.DESCENDING) {
-                EncodingUtils.flipAllBitsInPlace(bytes[i]);
+                buffer.flipAllBitsFrom(start);
             }
         }
-        return EncodingUtils.add(bytes);
+        return buffer.toByteArray();
     }
 
     public static List<Object> fromBytes(byte[] b, List<EncodingType> types) {
@@ -463,4 +591,14 @@ public class EncodingUtils {
             return ArrayUtils.addAll(new byte[] { 1 }, PtBytes.toBytes(Long.MIN_VALUE ^ value));
         }
     }
+
+    public static int encodeNullableFixedLong(Long value, @Output byte[] dest, int offset) {
+        if (value == null) {
+            Arrays.fill(dest, offset, offset + 9, (byte) 0);
+            return offset + 9;
+        } else {
+            dest[offset] = 1;
+            return encodeBigEndian(Long.MIN_VALUE ^ value, dest, offset + 1);
+        }
+    }
 }
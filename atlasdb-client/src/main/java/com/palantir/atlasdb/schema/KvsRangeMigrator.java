@@ -87,6 +87,24 @@ public class KvsRangeMigrator implements RangeMigrator {
         } while (!isRangeDone(lastRow));
     }
 
+    /**
+     * Copies one transaction's worth of the range, starting from its checkpoint. Unlike
+     * {@link #migrateRange}, this lets the caller change the end of the range between batches.
+     *
+     * @return true if the range is done
+     */
+    boolean migrateNextBatch(RangeRequest range, long rangeId) {
+        return isRangeDone(copyOneTransaction(range, rangeId));
+    }
+
+    TableReference getSrcTable() {
+        return srcTable;
+    }
+
+    int getReadBatchSize() {
+        return readBatchSize;
+    }
+
     private boolean isRangeDone(byte[] row) {
         return row == null || RangeRequests.isLastRowName(row);
     }
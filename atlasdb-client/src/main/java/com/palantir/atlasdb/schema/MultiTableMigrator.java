@@ -0,0 +1,355 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.schema;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.transaction.api.Transaction;
+import com.palantir.atlasdb.transaction.api.TransactionTask;
+import com.palantir.common.base.Throwables;
+import com.palantir.common.concurrent.PTExecutors;
+
+/**
+ * Migrates many tables at once over a shared pool of workers.
+ * <p>
+ * Unlike {@link TableMigrator}, which migrates one table at a time using the static partitioners
+ * from its metadata, each table here is split using a {@link SampledRowNamePartitioner} and the
+ * ranges of all tables are queued on the same executor. Whenever workers would otherwise be idle,
+ * the range that has been running longest is split in two at the midpoint of what it has left to
+ * copy, so a skewed table does not leave the migration waiting on a single thread.
+ * <p>
+ * The ranges of each table are persisted through the checkpointer so that a restarted migration
+ * resumes with exactly the same ranges, including any that were split. Under the extra id
+ * {@code <table>.ranges}, range id 0 holds the number of ranges and range id n holds the end of
+ * range n. The start checkpoints of the ranges are kept under the table name, as
+ * {@link KvsRangeMigrator} expects.
+ * <p>
+ * A worker copies each batch of its range while holding the lock of the range, and a range is
+ * only split under that same lock. A split therefore always starts from the checkpoint left by
+ * the last batch, never races with the range completing, and no row is copied twice.
+ */
+public class MultiTableMigrator {
+    private static final Logger log = LoggerFactory.getLogger(MultiTableMigrator.class);
+
+    private static final String RANGES_SUFFIX = ".ranges";
+    private static final long RANGE_COUNT_ID = 0L;
+    private static final long DEFAULT_REBALANCE_INTERVAL_MILLIS = 5000L;
+    private static final long DEFAULT_MIN_RUNTIME_BEFORE_SPLIT_MILLIS = 30000L;
+
+    private final KeyValueService srcKvs;
+    private final long sampleTimestamp;
+    private final int partitions;
+    private final int threads;
+    private final ExecutorService executor;
+    private final AbstractTaskCheckpointer checkpointer;
+    private final TaskProgress progress;
+    private final long rebalanceIntervalMillis;
+    private final long minRuntimeBeforeSplitMillis;
+
+    public MultiTableMigrator(KeyValueService srcKvs,
+                              long sampleTimestamp,
+                              int partitions,
+                              int threads,
+                              ExecutorService executor,
+                              AbstractTaskCheckpointer checkpointer,
+                              TaskProgress progress) {
+        this(srcKvs,
+                sampleTimestamp,
+                partitions,
+                threads,
+                executor,
+                checkpointer,
+                progress,
+                DEFAULT_REBALANCE_INTERVAL_MILLIS,
+                DEFAULT_MIN_RUNTIME_BEFORE_SPLIT_MILLIS);
+    }
+
+    MultiTableMigrator(KeyValueService srcKvs,
+                       long sampleTimestamp,
+                       int partitions,
+                       int threads,
+                       ExecutorService executor,
+                       AbstractTaskCheckpointer checkpointer,
+                       TaskProgress progress,
+                       long rebalanceIntervalMillis,
+                       long minRuntimeBeforeSplitMillis) {
+        Preconditions.checkArgument(partitions > 0);
+        Preconditions.checkArgument(threads > 0);
+        this.srcKvs = srcKvs;
+        this.sampleTimestamp = sampleTimestamp;
+        this.partitions = partitions;
+        this.threads = threads;
+        this.executor = executor;
+        this.checkpointer = checkpointer;
+        this.progress = progress;
+        this.rebalanceIntervalMillis = rebalanceIntervalMillis;
+        this.minRuntimeBeforeSplitMillis = minRuntimeBeforeSplitMillis;
+    }
+
+    public void migrate(Collection<KvsRangeMigrator> rangeMigrators) {
+        progress.beginTask("Migrating " + rangeMigrators.size() + " tables...", rangeMigrators.size());
+
+        CompletionService<RangeTask> completionService = new ExecutorCompletionService<RangeTask>(executor);
+        Set<RangeTask> outstanding = Sets.newLinkedHashSet();
+        Map<TableReference, TableState> tables = Maps.newHashMap();
+        for (KvsRangeMigrator rangeMigrator : rangeMigrators) {
+            TableState table = new TableState(rangeMigrator);
+            tables.put(rangeMigrator.getSrcTable(), table);
+            for (RangeTask task : planTable(table)) {
+                submit(completionService, outstanding, task);
+            }
+        }
+
+        try {
+            while (!outstanding.isEmpty()) {
+                Future<RangeTask> future = completionService.poll(rebalanceIntervalMillis, TimeUnit.MILLISECONDS);
+                if (future != null) {
+                    RangeTask task = future.get();
+                    outstanding.remove(task);
+                    TableState table = tables.get(task.rangeMigrator.getSrcTable());
+                    if (--table.outstandingRanges == 0) {
+                        progress.subTaskComplete();
+                    }
+                } else {
+                    rebalance(completionService, outstanding, tables);
+                }
+            }
+        } catch (InterruptedException e) {
+            Throwables.throwUncheckedException(e);
+        } catch (ExecutionException e) {
+            Throwables.throwUncheckedException(e.getCause());
+        }
+
+        progress.taskComplete();
+    }
+
+    private void submit(CompletionService<RangeTask> completionService,
+                        Set<RangeTask> outstanding,
+                        RangeTask task) {
+        outstanding.add(task);
+        completionService.submit(PTExecutors.wrap(task));
+    }
+
+    /**
+     * Splits the ranges that have been running longest while there are fewer ranges than
+     * workers.
+     */
+    private void rebalance(CompletionService<RangeTask> completionService,
+                           Set<RangeTask> outstanding,
+                           Map<TableReference, TableState> tables) {
+        long now = System.currentTimeMillis();
+        List<RangeTask> candidates = Lists.newArrayList();
+        for (RangeTask task : outstanding) {
+            long startedMillis = task.startedMillis;
+            if (startedMillis != 0
+                    && now - startedMillis >= minRuntimeBeforeSplitMillis
+                    && now - task.lastSplitAttemptMillis >= minRuntimeBeforeSplitMillis) {
+                candidates.add(task);
+            }
+        }
+        Collections.sort(candidates, new Comparator<RangeTask>() {
+            @Override
+            public int compare(RangeTask task1, RangeTask task2) {
+                return Long.compare(task1.startedMillis, task2.startedMillis);
+            }
+        });
+        int idleWorkers = threads - outstanding.size();
+        for (int i = 0; i < candidates.size() && idleWorkers > 0; i++) {
+            RangeTask task = candidates.get(i);
+            task.lastSplitAttemptMillis = now;
+            RangeTask split = tables.get(task.rangeMigrator.getSrcTable()).split(task);
+            if (split != null) {
+                submit(completionService, outstanding, split);
+                idleWorkers--;
+            }
+        }
+    }
+
+    /**
+     * Persists the ranges of the table if a previous run has not already done so, and returns
+     * them.
+     */
+    private List<RangeTask> planTable(TableState state) {
+        TableReference table = state.rangeMigrator.getSrcTable();
+        List<byte[]> starts = new SampledRowNamePartitioner(srcKvs, table, sampleTimestamp).getPartitions(partitions);
+
+        // this is a no-op if a previous run already planned the table
+        Map<Long, byte[]> endById = Maps.newHashMap();
+        endById.put(RANGE_COUNT_ID, PtBytes.toBytes((long) starts.size()));
+        for (int i = 0; i < starts.size(); i++) {
+            endById.put(i + 1L, i + 1 < starts.size() ? starts.get(i + 1) : PtBytes.EMPTY_BYTE_ARRAY);
+        }
+        checkpointer.createCheckpoints(state.rangesId, endById);
+
+        List<RangeTask> ranges = state.loadRanges();
+        log.info("Migrating table {} in {} ranges", table, ranges.size());
+
+        // If the start checkpoints were never written then no range can have been split yet, so
+        // the persisted ranges are still contiguous in id order.
+        Map<Long, byte[]> startById = Maps.newHashMap();
+        byte[] start = PtBytes.EMPTY_BYTE_ARRAY;
+        for (RangeTask range : ranges) {
+            startById.put(range.rangeId, start);
+            start = range.end;
+        }
+        checkpointer.createCheckpoints(table.getQualifiedName(), startById);
+        return ranges;
+    }
+
+    private class TableState {
+        private final KvsRangeMigrator rangeMigrator;
+        private final String rangesId;
+        private long rangeCount;
+        private int outstandingRanges;
+
+        TableState(KvsRangeMigrator rangeMigrator) {
+            this.rangeMigrator = rangeMigrator;
+            this.rangesId = rangeMigrator.getSrcTable().getQualifiedName() + RANGES_SUFFIX;
+        }
+
+        List<RangeTask> loadRanges() {
+            List<byte[]> ends = checkpointer.txManager.runTaskReadOnly(new TransactionTask<List<byte[]>, RuntimeException>() {
+                @Override
+                public List<byte[]> execute(Transaction t) {
+                    long count = PtBytes.toLong(checkpointer.getCheckpoint(rangesId, RANGE_COUNT_ID, t));
+                    List<byte[]> ret = Lists.newArrayList();
+                    for (long rangeId = 1; rangeId <= count; rangeId++) {
+                        ret.add(getEnd(checkpointer.getCheckpoint(rangesId, rangeId, t)));
+                    }
+                    return ret;
+                }
+            });
+            rangeCount = ends.size();
+            outstandingRanges = ends.size();
+            List<RangeTask> ranges = Lists.newArrayList();
+            for (int i = 0; i < ends.size(); i++) {
+                ranges.add(new RangeTask(rangeMigrator, i + 1L, ends.get(i)));
+            }
+            return ranges;
+        }
+
+        /**
+         * Moves the upper half of what the task has left to copy into a new range, or returns
+         * null if the task cannot be split. This waits for the batch the task is copying, if any.
+         */
+        RangeTask split(final RangeTask task) {
+            synchronized (task) {
+                if (task.finished) {
+                    return null;
+                }
+                return splitUnfinished(task);
+            }
+        }
+
+        private RangeTask splitUnfinished(final RangeTask task) {
+            final byte[] end = task.end;
+            byte[] checkpoint = checkpointer.txManager.runTaskReadOnly(new TransactionTask<byte[], RuntimeException>() {
+                @Override
+                public byte[] execute(Transaction t) {
+                    return checkpointer.getCheckpoint(rangeMigrator.getSrcTable().getQualifiedName(), task.rangeId, t);
+                }
+            });
+            if (checkpoint == null) {
+                return null;
+            }
+            final byte[] mid = SampledRowNamePartitioner.midpoint(checkpoint, end);
+            if (mid == null) {
+                return null;
+            }
+
+            final long newRangeId = rangeCount + 1;
+            checkpointer.txManager.runTaskWithRetry(new TransactionTask<Void, RuntimeException>() {
+                @Override
+                public Void execute(Transaction t) {
+                    checkpointer.checkpoint(rangesId, RANGE_COUNT_ID, PtBytes.toBytes(newRangeId), t);
+                    checkpointer.checkpoint(rangesId, task.rangeId, mid, t);
+                    // an empty end reads back as a completed checkpoint, see getEnd
+                    checkpointer.checkpoint(rangesId, newRangeId, end, t);
+                    checkpointer.checkpoint(rangeMigrator.getSrcTable().getQualifiedName(), newRangeId, mid, t);
+                    return null;
+                }
+            });
+            // Only shrink the running range once the split is durable
+            task.end = mid;
+            rangeCount = newRangeId;
+            outstandingRanges++;
+            log.info("Split range {} of table {} to add range {}", task.rangeId, rangeMigrator.getSrcTable(), newRangeId);
+            return new RangeTask(rangeMigrator, newRangeId, end);
+        }
+
+        private byte[] getEnd(byte[] storedEnd) {
+            return storedEnd == null ? PtBytes.EMPTY_BYTE_ARRAY : storedEnd;
+        }
+    }
+
+    private static class RangeTask implements Callable<RangeTask> {
+        final KvsRangeMigrator rangeMigrator;
+        final long rangeId;
+        // guarded by this
+        byte[] end;
+        // guarded by this
+        boolean finished = false;
+        volatile long startedMillis;
+        long lastSplitAttemptMillis;
+
+        RangeTask(KvsRangeMigrator rangeMigrator, long rangeId, byte[] end) {
+            this.rangeMigrator = rangeMigrator;
+            this.rangeId = rangeId;
+            this.end = end;
+        }
+
+        @Override
+        public RangeTask call() {
+            startedMillis = System.currentTimeMillis();
+            boolean done;
+            do {
+                synchronized (this) {
+                    // re-read the end every batch, since the range may have been split
+                    RangeRequest range = RangeRequest.builder()
+                            .endRowExclusive(end)
+                            .batchHint(rangeMigrator.getReadBatchSize())
+                            .build();
+                    done = rangeMigrator.migrateNextBatch(range, rangeId);
+                    finished = done;
+                }
+            } while (!done);
+            return this;
+        }
+    }
+}
@@ -0,0 +1,329 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.schema;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.UnsignedBytes;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.table.description.RowNamePartitioner;
+import com.palantir.common.base.ClosableIterator;
+import com.palantir.util.paging.TokenBackedBasicResultsPage;
+
+/**
+ * Partitions a table by sampling the rows that are actually in it, rather than assuming its
+ * rows are spread evenly over the keyspace.
+ * <p>
+ * The keyspace is cut into evenly spaced probe ranges and the first few rows of each probe are
+ * read in a single {@link KeyValueService#getFirstBatchForRanges} call. A probe that is read to
+ * its end contributes its exact row count, otherwise the number of rows in it is estimated from
+ * how much of the probe the sampled rows spanned. If the rows turn out to be bunched into a few
+ * probes, those probes are cut up and sampled again. Partitions are then placed so each gets
+ * about the same estimated number of rows.
+ * <p>
+ * Row names are placed in the keyspace by their first 8 bytes, so tables whose rows share a
+ * longer common prefix will not split well.
+ */
+public class SampledRowNamePartitioner implements RowNamePartitioner {
+    private static final int PROBES_PER_PARTITION = 4;
+    private static final int MAX_SAMPLING_ROUNDS = 4;
+    private static final int ROWS_PER_PROBE = 16;
+    private static final int SMALL_TABLE_ROWS = 100;
+    // keeps a probe whose sampled rows share their first 8 bytes from swamping the estimate
+    private static final double MAX_SAMPLE_SCALE = 1 << 20;
+    private static final double TWO_TO_THE_64 = 18446744073709551616.0;
+
+    private final KeyValueService kvs;
+    private final TableReference table;
+    private final long timestamp;
+
+    public SampledRowNamePartitioner(KeyValueService kvs, TableReference table, long timestamp) {
+        this.kvs = kvs;
+        this.table = table;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Returns the sorted start rows of the partitions. The first is always the empty byte array,
+     * and fewer than numberRanges are returned if the table is small.
+     */
+    @Override
+    public List<byte[]> getPartitions(int numberRanges) {
+        if (numberRanges <= 1 || isSmallTable()) {
+            return ImmutableList.of(PtBytes.EMPTY_BYTE_ARRAY);
+        }
+
+        int probeBudget = numberRanges * PROBES_PER_PARTITION;
+        List<Probe> probes = Lists.newArrayList();
+        for (int i = 0; i < probeBudget; i++) {
+            long start = advance(Long.MIN_VALUE, i * (TWO_TO_THE_64 / probeBudget));
+            long end = advance(Long.MIN_VALUE, (i + 1) * (TWO_TO_THE_64 / probeBudget));
+            probes.add(new Probe(start, end, i == probeBudget - 1));
+        }
+        sample(probes);
+
+        for (int round = 1; round < MAX_SAMPLING_ROUNDS; round++) {
+            int unfinished = 0;
+            for (Probe probe : probes) {
+                if (probe.hasMoreRows) {
+                    unfinished++;
+                }
+            }
+            if (unfinished == 0 || unfinished * 2 > probeBudget) {
+                // the rows are already spread over enough probes to balance the partitions
+                break;
+            }
+            // the rows are bunched up, so look closer at the probes they are in
+            List<Probe> refinedProbes = Lists.newArrayList();
+            List<Probe> nextProbes = Lists.newArrayList();
+            for (Probe probe : probes) {
+                List<Probe> refined = probe.hasMoreRows
+                        ? probe.refine(probeBudget / unfinished)
+                        : ImmutableList.<Probe>of();
+                if (refined.isEmpty()) {
+                    nextProbes.add(probe);
+                } else {
+                    refinedProbes.addAll(refined);
+                    nextProbes.addAll(refined);
+                }
+            }
+            if (refinedProbes.isEmpty()) {
+                break;
+            }
+            sample(refinedProbes);
+            probes = nextProbes;
+        }
+
+        double totalRows = 0;
+        for (Probe probe : probes) {
+            totalRows += probe.estimateRows();
+        }
+        if (totalRows == 0) {
+            return ImmutableList.of(PtBytes.EMPTY_BYTE_ARRAY);
+        }
+
+        SortedSet<byte[]> starts = Sets.newTreeSet(UnsignedBytes.lexicographicalComparator());
+        starts.add(PtBytes.EMPTY_BYTE_ARRAY);
+        double rowsPerPartition = totalRows / numberRanges;
+        double nextSplit = rowsPerPartition;
+        double rowsBefore = 0;
+        for (Probe probe : probes) {
+            double rows = probe.estimateRows();
+            while (nextSplit < rowsBefore + rows && starts.size() < numberRanges) {
+                // assume rows are spread evenly over the part of the probe they were seen in
+                double fraction = (nextSplit - rowsBefore) / rows;
+                double extent = probe.hasMoreRows ? probe.widthFromFirstRow() : distance(probe.firstRow, probe.lastRow);
+                starts.add(toRowName(advance(probe.firstRow, fraction * extent)));
+                nextSplit += rowsPerPartition;
+            }
+            rowsBefore += rows;
+        }
+        return ImmutableList.copyOf(starts);
+    }
+
+    private void sample(List<Probe> probes) {
+        Map<RangeRequest, Probe> probesByRequest = Maps.newHashMap();
+        for (Probe probe : probes) {
+            RangeRequest request = RangeRequest.builder()
+                    .startRowInclusive(probe.start == Long.MIN_VALUE ? PtBytes.EMPTY_BYTE_ARRAY : toRowName(probe.start))
+                    .endRowExclusive(probe.openEnded ? PtBytes.EMPTY_BYTE_ARRAY : toRowName(probe.end))
+                    .batchHint(ROWS_PER_PROBE)
+                    .build();
+            probesByRequest.put(request, probe);
+        }
+        Map<RangeRequest, TokenBackedBasicResultsPage<RowResult<Value>, byte[]>> pages =
+                kvs.getFirstBatchForRanges(table, probesByRequest.keySet(), timestamp);
+        for (Map.Entry<RangeRequest, TokenBackedBasicResultsPage<RowResult<Value>, byte[]>> e : pages.entrySet()) {
+            Probe probe = probesByRequest.get(e.getKey());
+            List<RowResult<Value>> rows = e.getValue().getResults();
+            if (probe != null && !rows.isEmpty()) {
+                probe.rowCount = rows.size();
+                probe.hasMoreRows = e.getValue().moreResultsAvailable();
+                probe.firstRow = toPosition(rows.get(0).getRowName());
+                probe.lastRow = toPosition(rows.get(rows.size() - 1).getRowName());
+            }
+        }
+    }
+
+    private boolean isSmallTable() {
+        RangeRequest request = RangeRequest.builder().batchHint(SMALL_TABLE_ROWS).build();
+        ClosableIterator<RowResult<Value>> it = kvs.getRange(table, request, timestamp);
+        try {
+            for (int i = 0; i < SMALL_TABLE_ROWS; i++) {
+                if (!it.hasNext()) {
+                    return true;
+                }
+                it.next();
+            }
+            return false;
+        } finally {
+            it.close();
+        }
+    }
+
+    /**
+     * A section [start, end) of the keyspace, and what was seen when reading its first rows.
+     * Positions are as returned by {@link SampledRowNamePartitioner#toPosition(byte[])}.
+     */
+    private static class Probe {
+        final long start;
+        final long end;
+        final boolean openEnded;
+        int rowCount;
+        boolean hasMoreRows;
+        long firstRow;
+        long lastRow;
+
+        Probe(long start, long end, boolean openEnded) {
+            this.start = start;
+            this.end = end;
+            this.openEnded = openEnded;
+        }
+
+        double widthFromFirstRow() {
+            return openEnded ? distance(firstRow, Long.MAX_VALUE) + 1 : distance(firstRow, end);
+        }
+
+        /**
+         * A probe that was read to its end has exactly the rows that were read, otherwise the
+         * rows are assumed to carry on to its end as densely as they started.
+         */
+        double estimateRows() {
+            if (!hasMoreRows) {
+                return rowCount;
+            }
+            double span = distance(firstRow, lastRow);
+            double scale = span > 0 ? widthFromFirstRow() / span : MAX_SAMPLE_SCALE;
+            return rowCount * Math.max(1.0, Math.min(scale, MAX_SAMPLE_SCALE));
+        }
+
+        /**
+         * Cuts the part of the probe from its first row onwards into at most maxProbes probes
+         * that grow geometrically, starting with the span of the rows already sampled. Where the
+         * rows thin out is then found whatever the scale of the table's keys. Returns an empty
+         * list if the sampled rows already span most of the probe.
+         */
+        List<Probe> refine(int maxProbes) {
+            double width = widthFromFirstRow();
+            double span = Math.max(distance(firstRow, lastRow), 1.0);
+            double ratio = width / span;
+            if (ratio < 2) {
+                return ImmutableList.of();
+            }
+            double growth = Math.max(2.0, Math.pow(ratio, 1.0 / Math.max(maxProbes - 1, 1)));
+            List<Probe> ret = Lists.newArrayList();
+            double offset = 0;
+            double size = span;
+            while (offset + size < width) {
+                ret.add(new Probe(advance(firstRow, offset), advance(firstRow, offset + size), false));
+                offset += size;
+                size *= growth;
+            }
+            ret.add(new Probe(advance(firstRow, offset), end, openEnded));
+            return ret;
+        }
+    }
+
+    /**
+     * Returns a row name roughly halfway between start and end (an empty end meaning the end of
+     * the table), or null if there is no row name between them at the precision used here.
+     */
+    static @Nullable byte[] midpoint(byte[] start, byte[] end) {
+        long startPosition = toPosition(start);
+        long endPosition = end.length == 0 ? Long.MAX_VALUE : toPosition(end);
+        byte[] mid = toRowName(startPosition + ((endPosition - startPosition) >>> 1));
+        if (UnsignedBytes.lexicographicalComparator().compare(mid, start) <= 0) {
+            return null;
+        }
+        if (end.length != 0 && UnsignedBytes.lexicographicalComparator().compare(mid, end) >= 0) {
+            return null;
+        }
+        return mid;
+    }
+
+    /**
+     * Maps a row name to a long using its first 8 bytes, such that signed comparison of the
+     * longs agrees with unsigned lexicographic comparison of the row names.
+     */
+    static long toPosition(byte[] rowName) {
+        long value = 0;
+        for (int i = 0; i < PtBytes.SIZEOF_LONG; i++) {
+            value <<= 8;
+            if (i < rowName.length) {
+                value |= rowName[i] & 0xff;
+            }
+        }
+        return value ^ Long.MIN_VALUE;
+    }
+
+    static byte[] toRowName(long position) {
+        return PtBytes.toBytes(position ^ Long.MIN_VALUE);
+    }
+
+    /**
+     * Returns to - from as a double, for from <= to.
+     */
+    private static double distance(long from, long to) {
+        long difference = to - from;
+        return (difference >>> 1) * 2.0 + (difference & 1);
+    }
+
+    /**
+     * Returns the position the given distance after from, without overflowing past the end of
+     * the keyspace.
+     */
+    private static long advance(long from, double distance) {
+        double remaining = distance(from, Long.MAX_VALUE);
+        if (distance >= remaining) {
+            return Long.MAX_VALUE;
+        }
+        long delta;
+        if (distance >= TWO_TO_THE_64 / 2) {
+            delta = ((long) (distance - TWO_TO_THE_64 / 2)) | Long.MIN_VALUE;
+        } else {
+            delta = (long) distance;
+        }
+        return from + delta;
+    }
+
+    @Override
+    public boolean isHotSpot() {
+        return false;
+    }
+
+    @Override
+    public List<RowNamePartitioner> compound(RowNamePartitioner next) {
+        return ImmutableList.<RowNamePartitioner>of(this);
+    }
+
+    @Override
+    public String toString() {
+        return "SampledRowNamePartitioner [table=" + table + "]";
+    }
+}
@@ -51,6 +51,7 @@ import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.impl.Cells;
+import com.palantir.atlasdb.ptobject.EncodingBuffer;
 import com.palantir.atlasdb.ptobject.EncodingUtils;
 import com.palantir.atlasdb.table.api.AtlasDbDynamicMutableExpiringTable;
 import com.palantir.atlasdb.table.api.AtlasDbDynamicMutablePersistentTable;
@@ -173,8 +174,9 @@ public final class SweepPriorityTable implements
 
         @Override
         public byte[] persistToBytes() {
-            byte[] fullTableNameBytes = PtBytes.toBytes(fullTableName);
-            return EncodingUtils.add(fullTableNameBytes);
+            EncodingBuffer __buffer = EncodingBuffer.threadLocal();
+            __buffer.putString(fullTableName);
+            return __buffer.toByteArray();
         }
 
         public static final Hydrator<SweepPriorityRow> BYTES_HYDRATOR = new Hydrator<SweepPriorityRow>() {
@@ -530,6 +532,11 @@ public final class SweepPriorityTable implements
 
     public static final class SweepPriorityRowResult implements TypedRowResult {
         private final RowResult<byte[]> row;
+        private CellsDeleted cellsDeletedValue;
+        private CellsExamined cellsExaminedValue;
+        private LastSweepTime lastSweepTimeValue;
+        private MinimumSweptTimestamp minimumSweptTimestampValue;
+        private WriteCount writeCountValue;
 
         public static SweepPriorityRowResult of(RowResult<byte[]> row) {
             return new SweepPriorityRowResult(row);
@@ -583,48 +590,58 @@ public final class SweepPriorityTable implements
         }
 
         public Long getCellsDeleted() {
-            byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("d"));
-            if (bytes == null) {
-                return null;
+            if (cellsDeletedValue == null) {
+                byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("d"));
+                if (bytes == null) {
+                    return null;
+                }
+                cellsDeletedValue = CellsDeleted.BYTES_HYDRATOR.hydrateFromBytes(bytes);
             }
-            CellsDeleted value = CellsDeleted.BYTES_HYDRATOR.hydrateFromBytes(bytes);
-            return value.getValue();
+            return cellsDeletedValue.getValue();
         }
 
         public Long getCellsExamined() {
-            byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("e"));
-            if (bytes == null) {
-                return null;
+            if (cellsExaminedValue == null) {
+                byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("e"));
+                if (bytes == null) {
+                    return null;
+                }
+                cellsExaminedValue = CellsExamined.BYTES_HYDRATOR.hydrateFromBytes(bytes);
             }
-            CellsExamined value = CellsExamined.BYTES_HYDRATOR.hydrateFromBytes(bytes);
-            return value.getValue();
+            return cellsExaminedValue.getValue();
         }
 
         public Long getLastSweepTime() {
-            byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("t"));
-            if (bytes == null) {
-                return null;
+            if (lastSweepTimeValue == null) {
+                byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("t"));
+                if (bytes == null) {
+                    return null;
+                }
+                lastSweepTimeValue = LastSweepTime.BYTES_HYDRATOR.hydrateFromBytes(bytes);
             }
-            LastSweepTime value = LastSweepTime.BYTES_HYDRATOR.hydrateFromBytes(bytes);
-            return value.getValue();
+            return lastSweepTimeValue.getValue();
         }
 
         public Long getMinimumSweptTimestamp() {
-            byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("m"));
-            if (bytes == null) {
-                return null;
+            if (minimumSweptTimestampValue == null) {
+                byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("m"));
+                if (bytes == null) {
+                    return null;
+                }
+                minimumSweptTimestampValue = MinimumSweptTimestamp.BYTES_HYDRATOR.hydrateFromBytes(bytes);
             }
-            MinimumSweptTimestamp value = MinimumSweptTimestamp.BYTES_HYDRATOR.hydrateFromBytes(bytes);
-            return value.getValue();
+            return minimumSweptTimestampValue.getValue();
         }
 
         public Long getWriteCount() {
-            byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("w"));
-            if (bytes == null) {
-                return null;
+            if (writeCountValue == null) {
+                byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("w"));
+                if (bytes == null) {
+                    return null;
+                }
+                writeCountValue = WriteCount.BYTES_HYDRATOR.hydrateFromBytes(bytes);
             }
-            WriteCount value = WriteCount.BYTES_HYDRATOR.hydrateFromBytes(bytes);
-            return value.getValue();
+            return writeCountValue.getValue();
         }
 
         public static Function<SweepPriorityRowResult, Long> getCellsDeletedFun() {
@@ -1055,6 +1072,10 @@ public final class SweepPriorityTable implements
         return rowResults;
     }
 
+    public List<SweepPriorityRowResult> getRows(Iterable<SweepPriorityRow> rows, Collection<SweepPriorityNamedColumn> columns) {
+        return getRows(rows, getColumnSelection(columns));
+    }
+
     @Override
     public List<SweepPriorityRowResult> getAsyncRows(Iterable<SweepPriorityRow> rows, ExecutorService exec) {
         return getAsyncRows(rows, ColumnSelection.all(), exec);
@@ -1195,6 +1216,7 @@ public final class SweepPriorityTable implements
      * {@link CompressionUtils}
      * {@link ConstraintCheckingTransaction}
      * {@link Descending}
+     * {@link EncodingBuffer}
      * {@link EncodingUtils}
      * {@link Entry}
      * {@link EnumSet}
@@ -1244,5 +1266,5 @@ public final class SweepPriorityTable implements
      * {@link UnsignedBytes}
      * {@link ValueType}
      */
-    static String __CLASS_HASH = "x71bt7mpWXXGo3KAX+BzUw==";
+    static String __CLASS_HASH = "XkcM1He2KJ59/sMJUjwW1g==";
 }
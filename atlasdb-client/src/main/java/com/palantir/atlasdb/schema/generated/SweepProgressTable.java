@@ -51,6 +51,7 @@ import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.impl.Cells;
+import com.palantir.atlasdb.ptobject.EncodingBuffer;
 import com.palantir.atlasdb.ptobject.EncodingUtils;
 import com.palantir.atlasdb.table.api.AtlasDbDynamicMutableExpiringTable;
 import com.palantir.atlasdb.table.api.AtlasDbDynamicMutablePersistentTable;
@@ -173,8 +174,9 @@ public final class SweepProgressTable implements
 
         @Override
         public byte[] persistToBytes() {
-            byte[] dummyBytes = EncodingUtils.encodeUnsignedVarLong(dummy);
-            return EncodingUtils.add(dummyBytes);
+            EncodingBuffer __buffer = EncodingBuffer.threadLocal();
+            __buffer.putUnsignedVarLong(dummy);
+            return __buffer.toByteArray();
         }
 
         public static final Hydrator<SweepProgressRow> BYTES_HYDRATOR = new Hydrator<SweepProgressRow>() {
@@ -530,6 +532,11 @@ public final class SweepProgressTable implements
 
     public static final class SweepProgressRowResult implements TypedRowResult {
         private final RowResult<byte[]> row;
+        private CellsDeleted cellsDeletedValue;
+        private CellsExamined cellsExaminedValue;
+        private FullTableName fullTableNameValue;
+        private MinimumSweptTimestamp minimumSweptTimestampValue;
+        private StartRow startRowValue;
 
         public static SweepProgressRowResult of(RowResult<byte[]> row) {
             return new SweepProgressRowResult(row);
@@ -583,48 +590,58 @@ public final class SweepProgressTable implements
         }
 
         public Long getCellsDeleted() {
-            byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("d"));
-            if (bytes == null) {
-                return null;
+            if (cellsDeletedValue == null) {
+                byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("d"));
+                if (bytes == null) {
+                    return null;
+                }
+                cellsDeletedValue = CellsDeleted.BYTES_HYDRATOR.hydrateFromBytes(bytes);
             }
-            CellsDeleted value = CellsDeleted.BYTES_HYDRATOR.hydrateFromBytes(bytes);
-            return value.getValue();
+            return cellsDeletedValue.getValue();
         }
 
         public Long getCellsExamined() {
-            byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("e"));
-            if (bytes == null) {
-                return null;
+            if (cellsExaminedValue == null) {
+                byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("e"));
+                if (bytes == null) {
+                    return null;
+                }
+                cellsExaminedValue = CellsExamined.BYTES_HYDRATOR.hydrateFromBytes(bytes);
             }
-            CellsExamined value = CellsExamined.BYTES_HYDRATOR.hydrateFromBytes(bytes);
-            return value.getValue();
+            return cellsExaminedValue.getValue();
         }
 
         public String getFullTableName() {
-            byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("n"));
-            if (bytes == null) {
-                return null;
+            if (fullTableNameValue == null) {
+                byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("n"));
+                if (bytes == null) {
+                    return null;
+                }
+                fullTableNameValue = FullTableName.BYTES_HYDRATOR.hydrateFromBytes(bytes);
             }
-            FullTableName value = FullTableName.BYTES_HYDRATOR.hydrateFromBytes(bytes);
-            return value.getValue();
+            return fullTableNameValue.getValue();
         }
 
         public Long getMinimumSweptTimestamp() {
-            byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("m"));
-            if (bytes == null) {
-                return null;
+            if (minimumSweptTimestampValue == null) {
+                byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("m"));
+                if (bytes == null) {
+                    return null;
+                }
+                minimumSweptTimestampValue = MinimumSweptTimestamp.BYTES_HYDRATOR.hydrateFromBytes(bytes);
             }
-            MinimumSweptTimestamp value = MinimumSweptTimestamp.BYTES_HYDRATOR.hydrateFromBytes(bytes);
-            return value.getValue();
+            return minimumSweptTimestampValue.getValue();
         }
 
         public byte[] getStartRow() {
-            byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("s"));
-            if (bytes == null) {
-                return null;
+            if (startRowValue == null) {
+                byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("s"));
+                if (bytes == null) {
+                    return null;
+                }
+                startRowValue = StartRow.BYTES_HYDRATOR.hydrateFromBytes(bytes);
             }
-            StartRow value = StartRow.BYTES_HYDRATOR.hydrateFromBytes(bytes);
-            return value.getValue();
+            return startRowValue.getValue();
         }
 
         public static Function<SweepProgressRowResult, Long> getCellsDeletedFun() {
@@ -1055,6 +1072,10 @@ public final class SweepProgressTable implements
         return rowResults;
     }
 
+    public List<SweepProgressRowResult> getRows(Iterable<SweepProgressRow> rows, Collection<SweepProgressNamedColumn> columns) {
+        return getRows(rows, getColumnSelection(columns));
+    }
+
     @Override
     public List<SweepProgressRowResult> getAsyncRows(Iterable<SweepProgressRow> rows, ExecutorService exec) {
         return getAsyncRows(rows, ColumnSelection.all(), exec);
@@ -1195,6 +1216,7 @@ public final class SweepProgressTable implements
      * {@link CompressionUtils}
      * {@link ConstraintCheckingTransaction}
      * {@link Descending}
+     * {@link EncodingBuffer}
      * {@link EncodingUtils}
      * {@link Entry}
      * {@link EnumSet}
@@ -1244,5 +1266,5 @@ public final class SweepProgressTable implements
      * {@link UnsignedBytes}
      * {@link ValueType}
      */
-    static String __CLASS_HASH = "JdYIsvXhQw3ZkZMVh3ypQA==";
+    static String __CLASS_HASH = "9m/zq2WEAFuwLK6qYUEBdw==";
 }
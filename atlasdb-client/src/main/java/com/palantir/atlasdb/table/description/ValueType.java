@@ -22,6 +22,7 @@ import org.json.simple.JSONValue;
 import com.google.common.base.Preconditions;
 import com.palantir.atlasdb.encoding.PtBytes;
 import com.palantir.atlasdb.protos.generated.TableMetadataPersistence;
+import com.palantir.atlasdb.ptobject.EncodingBuffer;
 import com.palantir.atlasdb.ptobject.EncodingUtils;
 import com.palantir.util.Pair;
 import com.palantir.util.crypto.Sha256Hash;
@@ -98,6 +99,12 @@ public enum ValueType {
             return EncodingUtils.encodeUnsignedVarLong((Long)value);
         }
 
+        @Override
+        public void convertFromJava(Object value, EncodingBuffer buffer) {
+            Preconditions.checkArgument(value instanceof Long);
+            buffer.putUnsignedVarLong((Long) value);
+        }
+
         @Override
         public int sizeOf(Object value) {
             Preconditions.checkArgument(value instanceof Long);
@@ -109,6 +116,11 @@ public enum ValueType {
             return "EncodingUtils.encodeUnsignedVarLong(" + variableName + ")";
         }
 
+        @Override
+        public String getBufferPersistCode(String bufferName, String variableName) {
+            return bufferName + ".putUnsignedVarLong(" + variableName + ")";
+        }
+
         @Override
         public Class<?> getTypeClass() {
             return Long.class;
@@ -183,6 +195,12 @@ public enum ValueType {
             return EncodingUtils.encodeSignedVarLong((Long)value);
         }
 
+        @Override
+        public void convertFromJava(Object value, EncodingBuffer buffer) {
+            Preconditions.checkArgument(value instanceof Long);
+            buffer.putSignedVarLong((Long) value);
+        }
+
         @Override
         public int sizeOf(Object value) {
             Preconditions.checkArgument(value instanceof Long);
@@ -194,6 +212,11 @@ public enum ValueType {
             return "EncodingUtils.encodeSignedVarLong(" + variableName + ")";
         }
 
+        @Override
+        public String getBufferPersistCode(String bufferName, String variableName) {
+            return bufferName + ".putSignedVarLong(" + variableName + ")";
+        }
+
         @Override
         public Class<?> getTypeClass() {
             return Long.class;
@@ -267,6 +290,12 @@ public enum ValueType {
             return PtBytes.toBytes(Long.MIN_VALUE ^ (Long)value);
         }
 
+        @Override
+        public void convertFromJava(Object value, EncodingBuffer buffer) {
+            Preconditions.checkArgument(value instanceof Long);
+            buffer.putFixedLong((Long) value);
+        }
+
         @Override
         public int sizeOf(Object value) {
             Preconditions.checkArgument(value instanceof Long);
@@ -278,6 +307,11 @@ public enum ValueType {
             return "PtBytes.toBytes(Long.MIN_VALUE ^ " + variableName + ")";
         }
 
+        @Override
+        public String getBufferPersistCode(String bufferName, String variableName) {
+            return bufferName + ".putFixedLong(" + variableName + ")";
+        }
+
         @Override
         public Class<?> getTypeClass() {
             return Long.class;
@@ -352,6 +386,12 @@ public enum ValueType {
             return EncodingUtils.encodeLittleEndian((Long)value);
         }
 
+        @Override
+        public void convertFromJava(Object value, EncodingBuffer buffer) {
+            Preconditions.checkArgument(value instanceof Long);
+            buffer.putLittleEndianLong((Long) value);
+        }
+
         @Override
         public int sizeOf(Object value) {
             Preconditions.checkArgument(value instanceof Long);
@@ -363,6 +403,11 @@ public enum ValueType {
             return "EncodingUtils.encodeLittleEndian(" + variableName + ")";
         }
 
+        @Override
+        public String getBufferPersistCode(String bufferName, String variableName) {
+            return bufferName + ".putLittleEndianLong(" + variableName + ")";
+        }
+
         @Override
         public boolean supportsRangeScans() {
             return false;
@@ -519,6 +564,12 @@ public enum ValueType {
             return EncodingUtils.encodeVarString((String) value);
         }
 
+        @Override
+        public void convertFromJava(Object value, EncodingBuffer buffer) {
+            Preconditions.checkArgument(value instanceof String);
+            buffer.putVarString((String) value);
+        }
+
         @Override
         public int sizeOf(Object value) {
             Preconditions.checkArgument(value instanceof String);
@@ -530,6 +581,11 @@ public enum ValueType {
             return "EncodingUtils.encodeVarString(" + variableName + ")";
         }
 
+        @Override
+        public String getBufferPersistCode(String bufferName, String variableName) {
+            return bufferName + ".putVarString(" + variableName + ")";
+        }
+
         @Override
         public Class<?> getTypeClass() {
             return String.class;
@@ -593,6 +649,12 @@ public enum ValueType {
             return PtBytes.toBytes((String)value);
         }
 
+        @Override
+        public void convertFromJava(Object value, EncodingBuffer buffer) {
+            Preconditions.checkArgument(value instanceof String);
+            buffer.putString((String) value);
+        }
+
         @Override
         public int sizeOf(Object value) {
             Preconditions.checkArgument(value instanceof String);
@@ -605,6 +667,11 @@ public enum ValueType {
             return "PtBytes.toBytes(" + variableName + ")";
         }
 
+        @Override
+        public String getBufferPersistCode(String bufferName, String variableName) {
+            return bufferName + ".putString(" + variableName + ")";
+        }
+
         @Override
         public Class<?> getTypeClass() {
             return String.class;
@@ -725,6 +792,12 @@ public enum ValueType {
             return EncodingUtils.encodeSizedBytes((byte[]) value);
         }
 
+        @Override
+        public void convertFromJava(Object value, EncodingBuffer buffer) {
+            Preconditions.checkArgument(value instanceof byte[]);
+            buffer.putSizedBytes((byte[]) value);
+        }
+
         @Override
         public int sizeOf(Object value) {
             Preconditions.checkArgument(value instanceof byte[]);
@@ -736,6 +809,11 @@ public enum ValueType {
             return "EncodingUtils.encodeSizedBytes(" + variableName + ")";
         }
 
+        @Override
+        public String getBufferPersistCode(String bufferName, String variableName) {
+            return bufferName + ".putSizedBytes(" + variableName + ")";
+        }
+
         @Override
         public String getHydrateCode(String inputName, String indexName) {
             return "EncodingUtils.decodeSizedBytes(" + inputName + ", " + indexName + ")";
@@ -826,6 +904,12 @@ public enum ValueType {
             return EncodingUtils.encodeNullableFixedLong((Long) value);
         }
 
+        @Override
+        public void convertFromJava(Object value, EncodingBuffer buffer) {
+            Preconditions.checkArgument(value == null || value instanceof Long);
+            buffer.putNullableFixedLong((Long) value);
+        }
+
         @Override
         public int sizeOf(Object value) {
             Preconditions.checkArgument(value == null || value instanceof Long);
@@ -837,6 +921,11 @@ public enum ValueType {
             return String.format("EncodingUtils.encodeNullableFixedLong(%s)", variableName);
         }
 
+        @Override
+        public String getBufferPersistCode(String bufferName, String variableName) {
+            return bufferName + ".putNullableFixedLong(" + variableName + ")";
+        }
+
         @Override
         public Class<?> getTypeClass() {
             return Long.class;
@@ -855,6 +944,12 @@ public enum ValueType {
             return EncodingUtils.encodeUUID((UUID) value);
         }
 
+        @Override
+        public void convertFromJava(Object value, EncodingBuffer buffer) {
+            Preconditions.checkArgument(value instanceof UUID);
+            buffer.putUUID((UUID) value);
+        }
+
         @Override
         public Pair<String, Integer> convertToString(byte[] value, int offset) {
             return Pair.create(convertToJava(value, offset).toString(), 16);
@@ -887,6 +982,11 @@ public enum ValueType {
             return String.format("EncodingUtils.encodeUUID(%s)", variableName);
         }
 
+        @Override
+        public String getBufferPersistCode(String bufferName, String variableName) {
+            return bufferName + ".putUUID(" + variableName + ")";
+        }
+
         @Override
         public String getHydrateCode(String inputName, String indexName) {
             return String.format("EncodingUtils.decodeUUID(%s, %s)", inputName, indexName);
@@ -920,6 +1020,14 @@ public enum ValueType {
     public abstract Pair<String, Integer> convertToString(byte[] value, int offset);
     public abstract byte[] convertFromString(String strValue);
     public abstract byte[] convertFromJava(Object value);
+
+    /**
+     * Appends the same bytes as {@link #convertFromJava(Object)} to the buffer.
+     */
+    public void convertFromJava(Object value, EncodingBuffer buffer) {
+        buffer.putBytes(convertFromJava(value));
+    }
+
     public abstract byte[] convertFromJson(String jsonValue);
     public abstract int sizeOf(Object value);
 
@@ -940,6 +1048,15 @@ public enum ValueType {
         return getJavaClassName();
     }
     public abstract String getPersistCode(String variableName);
+
+    /**
+     * Returns code that appends the encoded variable to the {@link EncodingBuffer} named
+     * bufferName, producing the same bytes as {@link #getPersistCode(String)}.
+     */
+    public String getBufferPersistCode(String bufferName, String variableName) {
+        return bufferName + ".putBytes(" + getPersistCode(variableName) + ")";
+    }
+
     public abstract String getHydrateCode(String inputName, String indexName);
     public abstract String getFlippedHydrateCode(String inputName, String indexName);
     public abstract String getHydrateSizeCode(String variableName);
@@ -68,6 +68,9 @@ class NamedRowResultRenderer extends Renderer {
 
     private void fields() {
         line("private final RowResult<byte[]> row;");
+        for (NamedColumnDescription col : cols) {
+            line("private ", Renderers.CamelCase(col.getLongName()), " ", hydratedName(col), ";");
+        }
     }
 
     private void staticFactory() {
@@ -117,17 +120,28 @@ class NamedRowResultRenderer extends Renderer {
         } line("}");
     }
 
+    /**
+     * Each column is hydrated the first time it is read and kept for later reads. Racing readers
+     * may both hydrate it, which is harmless because the column values are immutable.
+     */
     private void getCol(NamedColumnDescription col) {
         line("public ", TypeName(col), " get", VarName(col), "() {"); {
-            line("byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes(", short_name(col), "));");
-            line("if (bytes == null) {"); {
-                line("return null;");
+            line("if (", hydratedName(col), " == null) {"); {
+                line("byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes(", short_name(col), "));");
+                line("if (bytes == null) {"); {
+                    line("return null;");
+                } line("}");
+                line(hydratedName(col), " = ", Renderers.CamelCase(col.getLongName()), ".BYTES_HYDRATOR.hydrateFromBytes(bytes);");
             } line("}");
-            line(Renderers.CamelCase(col.getLongName()), " value = ", Renderers.CamelCase(col.getLongName()), ".BYTES_HYDRATOR.hydrateFromBytes(bytes);");
-            line("return value.getValue();");
+            line("return ", hydratedName(col), ".getValue();");
         } line("}");
     }
 
+    private static String hydratedName(NamedColumnDescription col) {
+        String name = Renderers.CamelCase(col.getLongName());
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1) + "Value";
+    }
+
     private void getColFun(NamedColumnDescription col) {
         line("public static Function<", RowResult, ", ", TypeName(col), "> get", VarName(col), "Fun() {"); {
             line("return new Function<", RowResult, ", ", TypeName(col), ">() {"); {
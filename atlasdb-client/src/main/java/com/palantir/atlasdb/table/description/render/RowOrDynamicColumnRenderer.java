@@ -160,19 +160,25 @@ class RowOrDynamicColumnRenderer extends Renderer {
     private void persistToBytes() {
         line("@Override");
         line("public byte[] persistToBytes() {"); {
-            List<String> vars = Lists.newArrayList();
+            line("EncodingBuffer __buffer = EncodingBuffer.threadLocal();");
             for (NameComponentDescription comp : desc.getRowParts()) {
-                String var = varName(comp) + "Bytes";
-                vars.add(var);
-                line("byte[] ", var, " = ", comp.getType().getPersistCode(varName(comp)), ";");
-                if (comp.getOrder() == ValueByteOrder.DESCENDING) {
-                    line("EncodingUtils.flipAllBitsInPlace(", var, ");");
-                }
+                renderBufferPersist(comp.getType(), comp.getOrder(), varName(comp));
             }
-            line("return EncodingUtils.add(", Joiner.on(", ").join(vars), ");");
+            line("return __buffer.toByteArray();");
         } line("}");
     }
 
+    private void renderBufferPersist(ValueType type, ValueByteOrder order, String var) {
+        if (order == ValueByteOrder.DESCENDING) {
+            String start = "__" + var + "Start";
+            line("int ", start, " = __buffer.position();");
+            line(type.getBufferPersistCode("__buffer", var), ";");
+            line("__buffer.flipAllBitsFrom(", start, ");");
+        } else {
+            line(type.getBufferPersistCode("__buffer", var), ";");
+        }
+    }
+
     private void bytesHydrator() {
         line("public static final Hydrator<", Name, "> BYTES_HYDRATOR = new Hydrator<", Name, ">() {"); {
             line("@Override");
@@ -197,44 +203,34 @@ class RowOrDynamicColumnRenderer extends Renderer {
     private void createPrefixRange(int i, boolean isSorted) {
         List<NameComponentDescription> components = getRowPartsWithoutHash().subList(0, i);
         line("public static RangeRequest.Builder createPrefixRange", isSorted ? "" : "Unsorted"); renderParameterList(components); lineEnd(" {"); {
-            List<String> vars = Lists.newArrayList();
             if (desc.hasFirstComponentHash()) {
                 renderComputeFirstComponentHash();
-                String var = NameMetadataDescription.HASH_ROW_COMPONENT_NAME + "Bytes";
-                vars.add(var);
-                line("byte[] ", var, " = ", ValueType.FIXED_LONG.getPersistCode(NameMetadataDescription.HASH_ROW_COMPONENT_NAME), ";");
+            }
+            line("EncodingBuffer __buffer = EncodingBuffer.threadLocal();");
+            if (desc.hasFirstComponentHash()) {
+                renderBufferPersist(ValueType.FIXED_LONG, ValueByteOrder.ASCENDING, NameMetadataDescription.HASH_ROW_COMPONENT_NAME);
             }
             for (NameComponentDescription comp : components) {
-                String var = varName(comp) + "Bytes";
-                vars.add(var);
-                line("byte[] ", var, " = ", comp.getType().getPersistCode(varName(comp)), ";");
-                if (comp.getOrder() == ValueByteOrder.DESCENDING) {
-                    line("EncodingUtils.flipAllBitsInPlace(", var, ");");
-                }
+                renderBufferPersist(comp.getType(), comp.getOrder(), varName(comp));
             }
-            line("return RangeRequest.builder().prefixRange(EncodingUtils.add(", Joiner.on(", ").join(vars), "));");
+            line("return RangeRequest.builder().prefixRange(__buffer.toByteArray());");
         } line("}");
     }
 
     private void prefix(int i, boolean isSorted) {
         List<NameComponentDescription> components = getRowPartsWithoutHash().subList(0, i);
         line("public static Prefix prefix", isSorted ? "" : "Unsorted"); renderParameterList(components); lineEnd(" {"); {
-            List<String> vars = Lists.newArrayList();
             if (desc.hasFirstComponentHash()) {
                 renderComputeFirstComponentHash();
-                String var = NameMetadataDescription.HASH_ROW_COMPONENT_NAME + "Bytes";
-                vars.add(var);
-                line("byte[] ", var, " = ", ValueType.FIXED_LONG.getPersistCode(NameMetadataDescription.HASH_ROW_COMPONENT_NAME), ";");
+            }
+            line("EncodingBuffer __buffer = EncodingBuffer.threadLocal();");
+            if (desc.hasFirstComponentHash()) {
+                renderBufferPersist(ValueType.FIXED_LONG, ValueByteOrder.ASCENDING, NameMetadataDescription.HASH_ROW_COMPONENT_NAME);
             }
             for (NameComponentDescription comp : components) {
-                String var = varName(comp) + "Bytes";
-                vars.add(var);
-                line("byte[] ", var, " = ", comp.getType().getPersistCode(varName(comp)), ";");
-                if (comp.getOrder() == ValueByteOrder.DESCENDING) {
-                    line("EncodingUtils.flipAllBitsInPlace(", var, ");");
-                }
+                renderBufferPersist(comp.getType(), comp.getOrder(), varName(comp));
             }
-            line("return new Prefix(EncodingUtils.add(", Joiner.on(", ").join(vars), "));");
+            line("return new Prefix(__buffer.toByteArray());");
         } line("}");
     }
 
@@ -72,6 +72,7 @@ import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.impl.Cells;
 import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.ExpirationStrategy;
+import com.palantir.atlasdb.ptobject.EncodingBuffer;
 import com.palantir.atlasdb.ptobject.EncodingUtils;
 import com.palantir.atlasdb.table.api.AtlasDbDynamicMutableExpiringTable;
 import com.palantir.atlasdb.table.api.AtlasDbDynamicMutablePersistentTable;
@@ -488,11 +489,7 @@ public class TableRenderer {
             line("public void put(Multimap<", Row, ", ? extends ", ColumnValue, "> values", lastParams, ") {"); {
                 line("t.useTable(tableRef, this);");
                 if (!indices.isEmpty()) {
-                    line("for (Entry<", Row, ", ? extends ", ColumnValue, "> e : values.entries()) {"); {
-                        for (IndexMetadata index : indices) {
-                            renderIndexPut(index);
-                        }
-                    } line("}");
+                    renderIndexPuts("values", args);
                 }
                 line("t.put(tableRef, ColumnValues.toCellValues(values", args, "));");
                 line("for (", Trigger, " trigger : triggers) {"); {
@@ -511,6 +508,42 @@ public class TableRenderer {
             } line("}");
         }
 
+        /**
+         * Gathers the index entries for all of the given values and then writes each index table
+         * with a single put.
+         */
+        private void renderIndexPuts(String values, String args) {
+            for (IndexMetadata index : indices) {
+                String indexName = Renderers.getIndexTableName(index);
+                if (isExistsIndex(index)) {
+                    line("Map<", indexName, "Table.", indexName, "Row, Long> ", indexPutsName(index), " = Maps.newHashMap();");
+                } else {
+                    line("Multimap<", indexName, "Table.", indexName, "Row, ", indexName, "Table.", indexName, "ColumnValue> ",
+                            indexPutsName(index), " = ArrayListMultimap.create();");
+                }
+            }
+            line("for (Entry<", Row, ", ? extends ", ColumnValue, "> e : ", values, ".entries()) {"); {
+                for (IndexMetadata index : indices) {
+                    renderIndexPut(index);
+                }
+            } line("}");
+            for (IndexMetadata index : indices) {
+                String indexName = Renderers.getIndexTableName(index);
+                line("if (!", indexPutsName(index), ".isEmpty()) {"); {
+                    line(indexName, "Table.of(this).put", isExistsIndex(index) ? "Exists" : "", "(", indexPutsName(index), args, ");");
+                } line("}");
+            }
+        }
+
+        private boolean isExistsIndex(IndexMetadata index) {
+            return !index.isDynamicIndex() && !index.getIndexType().equals(IndexType.CELL_REFERENCING);
+        }
+
+        private String indexPutsName(IndexMetadata index) {
+            String indexName = Renderers.getIndexTableName(index);
+            return Character.toLowerCase(indexName.charAt(0)) + indexName.substring(1) + "Puts";
+        }
+
         private void renderIndexPut(IndexMetadata index) {
             List<String> rowArgumentNames = Lists.newArrayList();
             List<String> colArgumentNames = Lists.newArrayList();
@@ -533,7 +566,6 @@ public class TableRenderer {
                 }
                 line("{"); {
                     line(Row, " row = e.getKey();");
-                    line(indexName, "Table table = ", indexName, "Table.of(this);");
                     for (IndexComponent component : index.getRowComponents()) {
                         String varName = renderIndexComponent(component);
                         rowArgumentNames.add(varName);
@@ -559,21 +591,12 @@ public class TableRenderer {
                     }
 
                     line(indexName, "Table.", indexName, "Row indexRow = ", indexName, "Table.", indexName, "Row.of(", Joiner.on(", ").join(rowArgumentNames), ");");
-                    if (!index.isDynamicIndex() && !index.getIndexType().equals(IndexType.CELL_REFERENCING)) {
-                        if (isExpiring(table)) {
-                            line("table.putExists(indexRow, 0L, duration, unit);");
-                        } else {
-                            line("table.putExists(indexRow, 0L);");
-                        }
+                    if (isExistsIndex(index)) {
+                        line(indexPutsName(index), ".put(indexRow, 0L);");
                     } else {
                         line(indexName, "Table.", indexName, "Column indexCol = ", indexName, "Table.", indexName, "Column.of(", Joiner.on(", ").join(colArgumentNames), ");");
                         line(indexName, "Table.", indexName, "ColumnValue indexColVal = ", indexName, "Table.", indexName, "ColumnValue.of(indexCol, 0L);");
-                        if (isExpiring(table)) {
-                            line("table.put(duration, unit, indexRow, indexColVal);");
-                        } else {
-                            line("table.put(indexRow, indexColVal);");
-
-                        }
+                        line(indexPutsName(index), ".put(indexRow, indexColVal);");
                     }
 
                     for (int i = 0; i < iterableArgNames.size(); i++) {
@@ -703,7 +726,15 @@ public class TableRenderer {
 
         private void renderNamedGetAffectedCells() {
             line("private Multimap<", Row, ", ", ColumnValue, "> getAffectedCells(Multimap<", Row, ", ? extends ", ColumnValue, "> rows) {"); {
-                line("Multimap<", Row, ", ", ColumnValue, "> oldData = getRowsMultimap(rows.keySet());");
+                line("Set<String> shortNames = new HashSet<String>();");
+                line("for (", ColumnValue, " v : rows.values()) {"); {
+                    line("shortNames.add(v.getShortColumnName());");
+                } line("}");
+                line("List<byte[]> columnNames = Lists.newArrayListWithCapacity(shortNames.size());");
+                line("for (String shortName : shortNames) {"); {
+                    line("columnNames.add(PtBytes.toCachedBytes(shortName));");
+                } line("}");
+                line("Multimap<", Row, ", ", ColumnValue, "> oldData = getRowsMultimap(rows.keySet(), ColumnSelection.create(columnNames));");
                 line("Multimap<", Row, ", ", ColumnValue, "> cellsAffected = ArrayListMultimap.create();");
                 line("for (", Row, " row : oldData.keySet()) {"); {
                     line("Set<String> columns = new HashSet<String>();");
@@ -736,11 +767,7 @@ public class TableRenderer {
                 }
 
                 if (!indices.isEmpty()) {
-                    line("for (Entry<", Row, ", ? extends ", ColumnValue, "> e : rows.entries()) {"); {
-                        for (IndexMetadata index : indices) {
-                            renderIndexPut(index);
-                        }
-                    } line("}");
+                    renderIndexPuts("rows", args);
                 }
                 line("t.put(tableRef, ColumnValues.toCellValues(rows", args, "));");
                 line("for (", Trigger, " trigger : triggers) {"); {
@@ -929,7 +956,13 @@ public class TableRenderer {
             line("public void delete(Iterable<", Row, "> rows) {"); {
 
                 if (!cellReferencingIndices.isEmpty()) {
-                    line("Multimap<", Row, ", ", ColumnValue, "> result = getRowsMultimap(rows);");
+                    List<String> indexedColumns = getIndexedColumnBytes();
+                    if (indexedColumns == null) {
+                        line("Multimap<", Row, ", ", ColumnValue, "> result = getRowsMultimap(rows);");
+                    } else {
+                        line("Multimap<", Row, ", ", ColumnValue, "> result = getRowsMultimap(rows, ColumnSelection.create(ImmutableList.of(",
+                                Joiner.on(", ").join(indexedColumns), ")));");
+                    }
                     for (IndexMetadata index : cellReferencingIndices) {
                         line("delete", Renderers.getIndexTableName(index), "(result);");
                     }
@@ -946,6 +979,27 @@ public class TableRenderer {
             } line("}");
         }
 
+        /**
+         * The code for the short names of the columns the cell referencing indices read, or null
+         * if one of them reads every column.
+         */
+        private List<String> getIndexedColumnBytes() {
+            Set<String> longNames = Sets.newHashSet();
+            for (IndexMetadata index : cellReferencingIndices) {
+                if (index.getColumnNameToAccessData() == null) {
+                    return null;
+                }
+                longNames.add(index.getColumnNameToAccessData());
+            }
+            List<String> columnBytes = Lists.newArrayList();
+            for (NamedColumnDescription col : ColumnRenderers.namedColumns(table)) {
+                if (longNames.contains(col.getLongName())) {
+                    columnBytes.add("PtBytes.toCachedBytes(" + ColumnRenderers.short_name(col) + ")");
+                }
+            }
+            return columnBytes;
+        }
+
         private void renderGetRange() {
             line("public BatchingVisitableView<", RowResult, "> getRange(RangeRequest range) {"); {
                 line("if (range.getColumnNames().isEmpty()) {"); {
@@ -958,6 +1012,12 @@ public class TableRenderer {
                     } line("}");
                 } line("});");
             } line("}");
+            if (!isDynamic(table)) {
+                line();
+                line("public BatchingVisitableView<", RowResult, "> getRange(RangeRequest range, Collection<", Column, "> columns) {"); {
+                    line("return getRange(range.getBuilder().retainColumns(getColumnSelection(columns)).build());");
+                } line("}");
+            }
         }
 
         private void renderGetRanges() {
@@ -1066,6 +1126,10 @@ public class TableRenderer {
                 line("return rowResults;");
             } line("}");
             line();
+            line("public List<", RowResult, "> getRows(Iterable<", Row, "> rows, Collection<", Column, "> columns) {"); {
+                line("return getRows(rows, getColumnSelection(columns));");
+            } line("}");
+            line();
             line("@Override");
             line("public List<", RowResult, "> getAsyncRows(Iterable<", Row, "> rows, ExecutorService exec) {"); {
                 line("return getAsyncRows(rows, ColumnSelection.all(), exec);");
@@ -1286,6 +1350,7 @@ public class TableRenderer {
         ImmutableMultimap.class,
         Cell.class,
         Cells.class,
+        EncodingBuffer.class,
         EncodingUtils.class,
         PtBytes.class,
         MoreObjects.class,
@@ -0,0 +1,36 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.common.remoting;
+
+public final class RemotingMediaTypes {
+    private RemotingMediaTypes() {
+        // constants
+    }
+
+    /**
+     * Jackson's binary encoding of the JSON data model. Byte arrays are sent as raw bytes
+     * instead of base64 and field names are back-referenced, so it is both smaller and
+     * cheaper to produce and parse than JSON.
+     */
+    public static final String APPLICATION_JACKSON_SMILE = "application/x-jackson-smile";
+
+    /**
+     * Response header set by servers that read and write {@link #APPLICATION_JACKSON_SMILE}.
+     * Clients only start sending and asking for it once they have seen this header, so that
+     * they keep working against servers that only speak JSON.
+     */
+    public static final String ACCEPTS_SMILE_HEADER = "X-Accepts-Smile";
+}
@@ -0,0 +1,165 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.util;
+
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * A thread safe cache with the same semantics as {@link SoftCache} that does not take a global
+ * lock on every operation.
+ * <p>
+ * Values are softly referenced and entries whose values have been collected are pruned as part
+ * of normal cache writes, so unlike {@link SoftCache} no instances are registered with the
+ * static cleanup timer. Reads are lock free and writes lock a single segment of the cache.
+ * An optional maximum size bounds the cache independently of memory pressure.
+ * <p>
+ * Null keys and values are not supported; putting a null value removes the key.
+ */
+public class ConcurrentSoftCache<K, V> extends MBeanCache<K, V> {
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+    private static final int UNBOUNDED = -1;
+
+    private final Cache<K, V> cache;
+    private final int maxSize;
+
+    public ConcurrentSoftCache() {
+        this(UNBOUNDED);
+    }
+
+    /**
+     * @param maxSize the maximum number of entries to hold, or -1 to bound the cache only by
+     *        memory pressure
+     */
+    public ConcurrentSoftCache(int maxSize) {
+        this(maxSize, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    public ConcurrentSoftCache(int maxSize, int concurrencyLevel) {
+        Preconditions.checkArgument(maxSize == UNBOUNDED || maxSize >= 0,
+                "maxSize must be non-negative or -1 for unbounded: %s", maxSize);
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+                .softValues()
+                .concurrencyLevel(concurrencyLevel);
+        if (maxSize != UNBOUNDED) {
+            builder.maximumSize(maxSize);
+        }
+        this.cache = builder.build();
+        this.maxSize = maxSize;
+        setName("ConcurrentSoftCache");
+    }
+
+    @Override
+    public int getMaxCacheSize() {
+        return maxSize;
+    }
+
+    /**
+     * The maximum size is fixed at construction, so this does nothing.
+     */
+    @Override
+    public void setMaxCacheSize(int size) {
+        /* do nothing */
+    }
+
+    @Override
+    public V get(K key) {
+        V ret = cache.getIfPresent(key);
+        if (ret == null) {
+            mbean.misses.incrementAndGet();
+        } else {
+            mbean.hits.incrementAndGet();
+        }
+        return ret;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        mbean.puts.incrementAndGet();
+        if (value == null) {
+            return cache.asMap().remove(key);
+        }
+        return cache.asMap().put(key, value);
+    }
+
+    /**
+     * @return The value that was in the cache, null if none was there before
+     */
+    public V putIfAbsent(K key, V value) {
+        V ret = cache.asMap().putIfAbsent(key, value);
+        if (ret == null) {
+            mbean.puts.incrementAndGet();
+        }
+        return ret;
+    }
+
+    public void putAll(Map<? extends K, ? extends V> map) {
+        for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    public void putAllIfAbsent(Map<? extends K, ? extends V> map) {
+        for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            putIfAbsent(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return get(key) != null;
+    }
+
+    public V remove(K key) {
+        return cache.asMap().remove(key);
+    }
+
+    /**
+     * The size may include entries whose values have been collected but not yet pruned.
+     */
+    @Override
+    public int size() {
+        return (int) Math.min(cache.size(), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    public Set<K> keySet() {
+        return ImmutableSet.copyOf(cache.asMap().keySet());
+    }
+
+    /**
+     * Prunes entries whose values have been collected by the garbage collector.  This happens
+     * incrementally on writes anyway, so calling it is only needed to reclaim space promptly.
+     */
+    public void cleanup() {
+        mbean.cleanups.incrementAndGet();
+        cache.cleanUp();
+    }
+
+    @Override
+    public String toString() {
+        return getName() + " (size: " + size() + ")";
+    }
+}
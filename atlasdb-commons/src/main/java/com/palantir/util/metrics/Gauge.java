@@ -0,0 +1,43 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.util.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A single value that its owner samples and sets from time to time, for example the length of
+ * a work queue. Unlike {@link OperationMetrics} it keeps no history.
+ */
+@ThreadSafe
+public final class Gauge implements GaugeMBean {
+    private final AtomicLong value = new AtomicLong();
+
+    public void set(long newValue) {
+        value.set(newValue);
+    }
+
+    @Override
+    public long getValue() {
+        return value.get();
+    }
+
+    @Override
+    public String toString() {
+        return "Gauge [value=" + getValue() + "]";
+    }
+}
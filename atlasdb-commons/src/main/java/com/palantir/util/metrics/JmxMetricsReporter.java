@@ -0,0 +1,47 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.util.metrics;
+
+import javax.management.ObjectName;
+
+import com.palantir.util.JMXUtils;
+
+/**
+ * Registers every metric as an {@link OperationMetricsMBean} (or a {@link GaugeMBean}) with the
+ * platform MBean server, under {@code com.palantir.atlasdb:type=<type>,scope=<scope>,name=<name>}.
+ */
+public final class JmxMetricsReporter implements MetricsReporter {
+    private static final String DOMAIN = "com.palantir.atlasdb";
+
+    @Override
+    public void metricAdded(MetricName name, OperationMetrics metrics) {
+        JMXUtils.registerMBeanCatchAndLogExceptions(metrics, getObjectName(name));
+    }
+
+    @Override
+    public void gaugeAdded(MetricName name, Gauge gauge) {
+        JMXUtils.registerMBeanCatchAndLogExceptions(gauge, getObjectName(name));
+    }
+
+    static String getObjectName(MetricName name) {
+        StringBuilder sb = new StringBuilder(DOMAIN)
+                .append(":type=").append(ObjectName.quote(name.getType()));
+        if (name.getScope() != null) {
+            sb.append(",scope=").append(ObjectName.quote(name.getScope()));
+        }
+        return sb.append(",name=").append(ObjectName.quote(name.getName())).toString();
+    }
+}
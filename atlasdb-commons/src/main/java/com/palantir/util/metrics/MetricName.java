@@ -0,0 +1,84 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.util.metrics;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+
+/**
+ * Identifies a metric by the component that emits it (for example "KeyValueService"), an
+ * optional scope within that component (for example a table name) and the operation name.
+ */
+@Immutable
+public final class MetricName {
+    private final String type;
+    @Nullable private final String scope;
+    private final String name;
+
+    public static MetricName of(String type, String name) {
+        return new MetricName(type, null, name);
+    }
+
+    public static MetricName of(String type, @Nullable String scope, String name) {
+        return new MetricName(type, scope, name);
+    }
+
+    private MetricName(String type, @Nullable String scope, String name) {
+        this.type = Preconditions.checkNotNull(type);
+        this.scope = scope;
+        this.name = Preconditions.checkNotNull(name);
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    @Nullable
+    public String getScope() {
+        return scope;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        MetricName other = (MetricName) obj;
+        return type.equals(other.type)
+                && Objects.equal(scope, other.scope)
+                && name.equals(other.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(type, scope, name);
+    }
+
+    @Override
+    public String toString() {
+        return scope == null ? type + "." + name : type + "." + scope + "." + name;
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.util.metrics;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Owns a set of named {@link OperationMetrics} and {@link Gauge}s and hands them to the
+ * registered {@link MetricsReporter}s.
+ * <p>
+ * Looking a metric up by name allocates, so instrumented code should look its metrics up once
+ * (or cache them per table) and hold on to the returned instances.
+ */
+@ThreadSafe
+public final class MetricsRegistry {
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+    private final ConcurrentMap<MetricName, OperationMetrics> metrics = Maps.newConcurrentMap();
+    private final ConcurrentMap<MetricName, Gauge> gauges = Maps.newConcurrentMap();
+    private final List<MetricsReporter> reporters = new CopyOnWriteArrayList<MetricsReporter>();
+    private final AtomicBoolean reportingToJmx = new AtomicBoolean();
+
+    /**
+     * The process wide registry used by components that are not handed one explicitly.
+     */
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    public OperationMetrics operation(MetricName name) {
+        OperationMetrics existing = metrics.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        OperationMetrics created = new OperationMetrics();
+        existing = metrics.putIfAbsent(name, created);
+        if (existing != null) {
+            return existing;
+        }
+        for (MetricsReporter reporter : reporters) {
+            reporter.metricAdded(name, created);
+        }
+        return created;
+    }
+
+    public OperationMetrics operation(String type, String scope, String name) {
+        return operation(MetricName.of(type, scope, name));
+    }
+
+    public Gauge gauge(MetricName name) {
+        Gauge existing = gauges.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        Gauge created = new Gauge();
+        existing = gauges.putIfAbsent(name, created);
+        if (existing != null) {
+            return existing;
+        }
+        for (MetricsReporter reporter : reporters) {
+            reporter.gaugeAdded(name, created);
+        }
+        return created;
+    }
+
+    public Gauge gauge(String type, String scope, String name) {
+        return gauge(MetricName.of(type, scope, name));
+    }
+
+    public void addReporter(MetricsReporter reporter) {
+        reporters.add(reporter);
+        for (Map.Entry<MetricName, OperationMetrics> e : metrics.entrySet()) {
+            reporter.metricAdded(e.getKey(), e.getValue());
+        }
+        for (Map.Entry<MetricName, Gauge> e : gauges.entrySet()) {
+            reporter.gaugeAdded(e.getKey(), e.getValue());
+        }
+    }
+
+    /**
+     * Publishes every metric over JMX with a {@link JmxMetricsReporter}. Only the first call adds
+     * the reporter, so every component that wants JMX reporting can ask for it; adding a second
+     * reporter would try to register every MBean again.
+     */
+    public void reportToJmx() {
+        if (reportingToJmx.compareAndSet(false, true)) {
+            addReporter(new JmxMetricsReporter());
+        }
+    }
+
+    public Map<MetricName, OperationMetrics> getMetrics() {
+        return Collections.unmodifiableMap(metrics);
+    }
+
+    public Map<MetricName, Gauge> getGauges() {
+        return Collections.unmodifiableMap(gauges);
+    }
+}
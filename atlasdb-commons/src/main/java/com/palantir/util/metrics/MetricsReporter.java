@@ -0,0 +1,27 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.util.metrics;
+
+/**
+ * Publishes the metrics of a {@link MetricsRegistry} somewhere. Reporters are told about every
+ * metric once, when it is first created (or when the reporter is added, for metrics that already
+ * exist), and are expected to read the live values from then on.
+ */
+public interface MetricsReporter {
+    void metricAdded(MetricName name, OperationMetrics metrics);
+
+    void gaugeAdded(MetricName name, Gauge gauge);
+}
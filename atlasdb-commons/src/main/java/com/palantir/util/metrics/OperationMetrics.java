@@ -0,0 +1,129 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.util.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Latency, throughput and size statistics for a single kind of operation, for example
+ * key value service gets against one table.
+ * <p>
+ * The record methods take plain longs and never allocate; callers should time operations
+ * with {@link System#nanoTime()}.
+ */
+@ThreadSafe
+public final class OperationMetrics implements OperationMetricsMBean {
+    private final LatencyHistogram latencyNanos = new LatencyHistogram();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong cells = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+
+    public void record(long nanos) {
+        latencyNanos.record(nanos);
+    }
+
+    public void record(long nanos, long numCells, long numBytes) {
+        latencyNanos.record(nanos);
+        cells.addAndGet(numCells);
+        bytes.addAndGet(numBytes);
+    }
+
+    /**
+     * Adds cells and bytes that were processed after the timed call returned, for example rows
+     * read from a range iterator.
+     */
+    public void recordSize(long numCells, long numBytes) {
+        cells.addAndGet(numCells);
+        bytes.addAndGet(numBytes);
+    }
+
+    public void recordFailure(long nanos) {
+        latencyNanos.record(nanos);
+        failures.incrementAndGet();
+    }
+
+    public LatencyHistogram getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    @Override
+    public long getCalls() {
+        return latencyNanos.getCount();
+    }
+
+    @Override
+    public long getFailures() {
+        return failures.get();
+    }
+
+    @Override
+    public long getCells() {
+        return cells.get();
+    }
+
+    @Override
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return latencyNanos.getMean() / TimeUnit.MICROSECONDS.toNanos(1);
+    }
+
+    @Override
+    public long getMedianMicros() {
+        return toMicros(latencyNanos.getValueAtQuantile(0.5));
+    }
+
+    @Override
+    public long get95thPercentileMicros() {
+        return toMicros(latencyNanos.getValueAtQuantile(0.95));
+    }
+
+    @Override
+    public long get99thPercentileMicros() {
+        return toMicros(latencyNanos.getValueAtQuantile(0.99));
+    }
+
+    @Override
+    public long get999thPercentileMicros() {
+        return toMicros(latencyNanos.getValueAtQuantile(0.999));
+    }
+
+    @Override
+    public long getMaxMicros() {
+        return toMicros(latencyNanos.getMax());
+    }
+
+    private static long toMicros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    @Override
+    public String toString() {
+        return "OperationMetrics [calls=" + getCalls()
+                + ", failures=" + getFailures()
+                + ", cells=" + getCells()
+                + ", bytes=" + getBytes()
+                + ", p50=" + getMedianMicros() + "us"
+                + ", p99=" + get99thPercentileMicros() + "us"
+                + ", max=" + getMaxMicros() + "us]";
+    }
+}
@@ -21,11 +21,16 @@ import org.junit.runners.Suite.SuiteClasses;
 
 import com.palantir.common.base.ThrowablesTest;
 import com.palantir.util.crypto.Sha256HashTest;
+import com.palantir.util.metrics.LatencyHistogramTest;
+import com.palantir.util.metrics.MetricsRegistryTest;
 
 @RunWith(Suite.class)
 @SuiteClasses({
     ThrowablesTest.class,
     Sha256HashTest.class,
+    LatencyHistogramTest.class,
+    MetricsRegistryTest.class,
+    ConcurrentSoftCacheTest.class,
 })
 public class AllAtlasCommonsTests {
     // blank
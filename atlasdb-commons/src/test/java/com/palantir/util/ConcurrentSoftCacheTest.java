@@ -0,0 +1,52 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConcurrentSoftCacheTest {
+
+    @Test
+    public void testGetPutAndStats() {
+        ConcurrentSoftCache<Long, Long> cache = new ConcurrentSoftCache<Long, Long>();
+        Assert.assertNull(cache.get(1L));
+        Assert.assertNull(cache.put(1L, 2L));
+        Assert.assertEquals(Long.valueOf(2L), cache.get(1L));
+        Assert.assertEquals(Long.valueOf(2L), cache.putIfAbsent(1L, 3L));
+        Assert.assertEquals(Long.valueOf(2L), cache.get(1L));
+        Assert.assertEquals(1, cache.size());
+
+        CacheStats stats = cache.mbean;
+        Assert.assertEquals(2, stats.getHitCount());
+        Assert.assertEquals(1, stats.getMissCount());
+        Assert.assertEquals(1, stats.getPutCount());
+
+        Assert.assertEquals(Long.valueOf(2L), cache.put(1L, null));
+        Assert.assertFalse(cache.containsKey(1L));
+    }
+
+    @Test
+    public void testMaximumSize() {
+        ConcurrentSoftCache<Long, Long> cache = new ConcurrentSoftCache<Long, Long>(10, 1);
+        for (long i = 0; i < 100; i++) {
+            cache.put(i, i);
+        }
+        Assert.assertTrue(cache.size() <= 10);
+        Assert.assertEquals(10, cache.getMaxCacheSize());
+    }
+
+}
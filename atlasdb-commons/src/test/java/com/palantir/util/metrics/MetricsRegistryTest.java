@@ -0,0 +1,97 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.util.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+
+public class MetricsRegistryTest {
+    @Test
+    public void testLookupsReturnTheSameInstance() {
+        MetricsRegistry registry = new MetricsRegistry();
+        assertSame(registry.operation("type", null, "op"), registry.operation(MetricName.of("type", "op")));
+        assertSame(registry.gauge("type", null, "gauge"), registry.gauge(MetricName.of("type", "gauge")));
+        assertEquals(1, registry.getMetrics().size());
+        assertEquals(1, registry.getGauges().size());
+    }
+
+    @Test
+    public void testReportersSeeGaugesAddedBeforeAndAfterThem() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Gauge before = registry.gauge("type", null, "before");
+        RecordingReporter reporter = new RecordingReporter();
+        registry.addReporter(reporter);
+        Gauge after = registry.gauge("type", "scope", "after");
+        registry.gauge("type", "scope", "after");
+
+        assertEquals(2, reporter.gauges.size());
+        assertSame(before, reporter.gauges.get(MetricName.of("type", "before")));
+        assertSame(after, reporter.gauges.get(MetricName.of("type", "scope", "after")));
+        assertEquals(0, reporter.metrics.size());
+    }
+
+    @Test
+    public void testGaugeKeepsTheLastValue() {
+        Gauge gauge = new MetricsRegistry().gauge("type", null, "gauge");
+        assertEquals(0, gauge.getValue());
+        gauge.set(42);
+        gauge.set(7);
+        assertEquals(7, gauge.getValue());
+    }
+
+    @Test
+    public void testJmxReporterIsOnlyAddedOnce() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.operation(MetricsRegistryTest.class.getSimpleName(), null, "op");
+        ObjectName objectName = new ObjectName(JmxMetricsReporter.getObjectName(
+                MetricName.of(MetricsRegistryTest.class.getSimpleName(), "op")));
+
+        registry.reportToJmx();
+        assertTrue(server.isRegistered(objectName));
+
+        server.unregisterMBean(objectName);
+        registry.reportToJmx();
+        assertFalse(server.isRegistered(objectName));
+    }
+
+    private static class RecordingReporter implements MetricsReporter {
+        final Map<MetricName, OperationMetrics> metrics = Maps.newHashMap();
+        final Map<MetricName, Gauge> gauges = Maps.newHashMap();
+
+        @Override
+        public void metricAdded(MetricName name, OperationMetrics operationMetrics) {
+            metrics.put(name, operationMetrics);
+        }
+
+        @Override
+        public void gaugeAdded(MetricName name, Gauge gauge) {
+            gauges.put(name, gauge);
+        }
+    }
+}
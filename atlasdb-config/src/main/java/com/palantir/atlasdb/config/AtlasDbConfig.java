@@ -148,4 +148,14 @@ public abstract class AtlasDbConfig {
     public int getSweepBatchSize() {
         return AtlasDbConstants.DEFAULT_SWEEP_BATCH_SIZE;
     }
+
+    /**
+     * If true, key value service calls are timed per table and per
+     * operation, and these metrics along with transaction commit
+     * metrics are published over JMX.
+     */
+    @Value.Default
+    public boolean enableMetrics() {
+        return AtlasDbConstants.DEFAULT_ENABLE_METRICS;
+    }
 }
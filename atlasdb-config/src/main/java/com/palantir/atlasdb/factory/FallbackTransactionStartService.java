@@ -0,0 +1,64 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.factory;
+
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.palantir.atlasdb.http.EndpointNotFoundException;
+import com.palantir.atlasdb.transaction.api.TransactionStartResponse;
+import com.palantir.atlasdb.transaction.api.TransactionStartService;
+
+/**
+ * Starts transactions through the leaders' transaction start endpoint, and through separate lock
+ * and timestamp calls while the leaders do not serve it, as happens during a rolling upgrade from
+ * a version without it. The endpoint is tried again every few minutes.
+ */
+final class FallbackTransactionStartService implements TransactionStartService {
+    private static final Logger log = LoggerFactory.getLogger(FallbackTransactionStartService.class);
+
+    static final long DEFAULT_RETRY_REMOTE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private final TransactionStartService remote;
+    private final TransactionStartService fallback;
+    private final long retryRemoteMillis;
+    private volatile long useFallbackUntilMillis = 0L;
+
+    FallbackTransactionStartService(TransactionStartService remote,
+                                    TransactionStartService fallback,
+                                    long retryRemoteMillis) {
+        this.remote = remote;
+        this.fallback = fallback;
+        this.retryRemoteMillis = retryRemoteMillis;
+    }
+
+    @Override
+    public TransactionStartResponse startTransaction(String client) throws InterruptedException {
+        if (System.currentTimeMillis() >= useFallbackUntilMillis) {
+            try {
+                return remote.startTransaction(client);
+            } catch (EndpointNotFoundException e) {
+                useFallbackUntilMillis = System.currentTimeMillis() + retryRemoteMillis;
+                log.warn("The leaders do not serve the transaction start endpoint, so transactions will be started "
+                        + "with separate lock and timestamp calls for the next {} seconds.",
+                        TimeUnit.MILLISECONDS.toSeconds(retryRemoteMillis));
+            }
+        }
+        return fallback.startTransaction(client);
+    }
+}
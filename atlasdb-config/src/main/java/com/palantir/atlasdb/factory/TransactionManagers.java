@@ -38,6 +38,7 @@ import com.palantir.atlasdb.config.AtlasDbConfig;
 import com.palantir.atlasdb.config.ServerListConfig;
 import com.palantir.atlasdb.http.AtlasDbHttpClients;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.MetricsKeyValueService;
 import com.palantir.atlasdb.keyvalue.impl.NamespacedKeyValueServices;
 import com.palantir.atlasdb.keyvalue.impl.SweepStatsKeyValueService;
 import com.palantir.atlasdb.schema.SweepSchema;
@@ -51,11 +52,14 @@ import com.palantir.atlasdb.table.description.Schema;
 import com.palantir.atlasdb.table.description.Schemas;
 import com.palantir.atlasdb.transaction.api.AtlasDbConstraintCheckingMode;
 import com.palantir.atlasdb.transaction.api.TransactionManager;
+import com.palantir.atlasdb.transaction.api.TransactionStartResponse;
+import com.palantir.atlasdb.transaction.api.TransactionStartService;
 import com.palantir.atlasdb.transaction.impl.ConflictDetectionManager;
 import com.palantir.atlasdb.transaction.impl.ConflictDetectionManagers;
 import com.palantir.atlasdb.transaction.impl.SerializableTransactionManager;
 import com.palantir.atlasdb.transaction.impl.SweepStrategyManager;
 import com.palantir.atlasdb.transaction.impl.SweepStrategyManagers;
+import com.palantir.atlasdb.transaction.impl.TransactionStartServiceImpl;
 import com.palantir.atlasdb.transaction.impl.TransactionTables;
 import com.palantir.atlasdb.transaction.service.TransactionService;
 import com.palantir.atlasdb.transaction.service.TransactionServices;
@@ -66,6 +70,7 @@ import com.palantir.lock.RemoteLockService;
 import com.palantir.lock.client.LockRefreshingRemoteLockService;
 import com.palantir.lock.impl.LockServiceImpl;
 import com.palantir.timestamp.TimestampService;
+import com.palantir.util.metrics.MetricsRegistry;
 
 public class TransactionManagers {
 
@@ -103,8 +108,7 @@ public class TransactionManagers {
                 atlasFactory::getTimestampService
         );
 
-        KeyValueService kvs = NamespacedKeyValueServices.wrapWithStaticNamespaceMappingKvs(rawKvs);
-        kvs = new SweepStatsKeyValueService(kvs, lts.time());
+        KeyValueService kvs = wrapKeyValueService(rawKvs, lts.time(), config.enableMetrics());
 
         TransactionTables.createTables(kvs);
 
@@ -142,7 +146,8 @@ public class TransactionManagers {
                 conflictManager,
                 sweepStrategyManager,
                 cleaner,
-                allowHiddenTableAccess);
+                allowHiddenTableAccess,
+                lts.transactionStart());
 
         SweepTaskRunner sweepRunner = new SweepTaskRunnerImpl(
                 transactionManager,
@@ -165,6 +170,22 @@ public class TransactionManagers {
         return transactionManager;
     }
 
+    /**
+     * Wraps a raw key value service the way {@link #create} does: with table name mapping, sweep
+     * statistics and, if enabled, metrics.
+     */
+    public static KeyValueService wrapKeyValueService(KeyValueService rawKvs,
+                                                      TimestampService timestampService,
+                                                      boolean enableMetrics) {
+        KeyValueService kvs = NamespacedKeyValueServices.wrapWithStaticNamespaceMappingKvs(rawKvs);
+        kvs = new SweepStatsKeyValueService(kvs, timestampService);
+        if (enableMetrics) {
+            MetricsRegistry.getDefault().reportToJmx();
+            kvs = MetricsKeyValueService.create(kvs);
+        }
+        return kvs;
+    }
+
     private static Supplier<Long> getImmutableTsSupplier(final TransactionManager txManager) {
         return new Supplier<Long>() {
             @Override
@@ -195,31 +216,53 @@ public class TransactionManagers {
     }
 
     private static LockAndTimestampServices withRefreshingLockService(LockAndTimestampServices lockAndTimestampServices) {
+        LockRefreshingRemoteLockService lock = LockRefreshingRemoteLockService.create(lockAndTimestampServices.lock());
+        TransactionStartService transactionStart = lockAndTimestampServices.transactionStart();
         return ImmutableLockAndTimestampServices.builder()
                 .from(lockAndTimestampServices)
-                .lock(LockRefreshingRemoteLockService.create(lockAndTimestampServices.lock()))
+                .lock(lock)
+                .transactionStart(client -> {
+                    TransactionStartResponse response = transactionStart.startTransaction(client);
+                    lock.addLockToRefresh(response.getImmutableTsLock());
+                    return response;
+                })
                 .build();
     }
 
     private static LockAndTimestampServices createRawServices(AtlasDbConfig config, Optional<SSLSocketFactory> sslSocketFactory, Environment env, Supplier<RemoteLockService> lock, Supplier<TimestampService> time) {
         if (config.leader().isPresent()) {
             LeaderElectionService leader = Leaders.create(sslSocketFactory, env, config.leader().get());
-            env.register(AwaitingLeadershipProxy.newProxyInstance(RemoteLockService.class, lock, leader));
-            env.register(AwaitingLeadershipProxy.newProxyInstance(TimestampService.class, time, leader));
+            RemoteLockService localLock = AwaitingLeadershipProxy.newProxyInstance(RemoteLockService.class, lock, leader);
+            TimestampService localTime = AwaitingLeadershipProxy.newProxyInstance(TimestampService.class, time, leader);
+            env.register(localLock);
+            env.register(localTime);
+            env.register(new TransactionStartServiceImpl(localLock, localTime));
+            env.register(AtlasDbHttpClients.smileFeature());
 
             warnIf(config.lock().isPresent(), "Ignoring lock server configuration because leadership election is enabled");
             warnIf(config.timestamp().isPresent(), "Ignoring timestamp server configuration because leadership election is enabled");
 
+            Set<String> leaders = config.leader().get().leaders();
+            RemoteLockService remoteLock = createService(sslSocketFactory, leaders, RemoteLockService.class);
+            TimestampService remoteTime = createService(sslSocketFactory, leaders, TimestampService.class);
+            TransactionStartService transactionStart = new FallbackTransactionStartService(
+                    createService(sslSocketFactory, leaders, TransactionStartService.class),
+                    new TransactionStartServiceImpl(remoteLock, remoteTime),
+                    FallbackTransactionStartService.DEFAULT_RETRY_REMOTE_MILLIS);
             return ImmutableLockAndTimestampServices.builder()
-                    .lock(createService(sslSocketFactory, config.leader().get().leaders(), RemoteLockService.class))
-                    .time(createService(sslSocketFactory, config.leader().get().leaders(), TimestampService.class))
+                    .lock(remoteLock)
+                    .time(remoteTime)
+                    .transactionStart(transactionStart)
                     .build();
         } else {
             warnIf(config.lock().isPresent() != config.timestamp().isPresent(), "Using embedded instances for one (but not both) of lock and timestamp services");
 
+            RemoteLockService lockService = config.lock().transform(new ServiceCreator<>(sslSocketFactory, RemoteLockService.class)).or(lock);
+            TimestampService timeService = config.timestamp().transform(new ServiceCreator<>(sslSocketFactory, TimestampService.class)).or(time);
             return ImmutableLockAndTimestampServices.builder()
-                    .lock(config.lock().transform(new ServiceCreator<>(sslSocketFactory, RemoteLockService.class)).or(lock))
-                    .time(config.timestamp().transform(new ServiceCreator<>(sslSocketFactory, TimestampService.class)).or(time))
+                    .lock(lockService)
+                    .time(timeService)
+                    .transactionStart(new TransactionStartServiceImpl(lockService, timeService))
                     .build();
         }
     }
@@ -253,6 +296,13 @@ public class TransactionManagers {
     public interface LockAndTimestampServices {
         RemoteLockService lock();
         TimestampService time();
+
+        /**
+         * Starts transactions in one remote call when the lock and timestamp services are served by
+         * the leaders, and through {@link #lock()} and {@link #time()} otherwise or while the leaders
+         * run a version that does not serve the transaction start endpoint.
+         */
+        TransactionStartService transactionStart();
     }
 
     public interface Environment {
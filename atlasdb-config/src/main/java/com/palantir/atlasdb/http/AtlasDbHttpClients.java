@@ -23,12 +23,15 @@ import javax.net.ssl.SSLSocketFactory;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Optional;
 import com.google.common.collect.Lists;
+import com.palantir.atlasdb.keyvalue.remoting.SmileContentNegotiation;
+import com.palantir.atlasdb.keyvalue.remoting.SmileFeature;
 
 import feign.Client;
 import feign.Contract;
 import feign.Feign;
 import feign.codec.Decoder;
 import feign.codec.Encoder;
+import feign.codec.ErrorDecoder;
 import feign.jackson.JacksonDecoder;
 import feign.jackson.JacksonEncoder;
 import feign.jaxrs.JAXRSContract;
@@ -40,16 +43,21 @@ public class AtlasDbHttpClients {
     private static final Contract contract = new JAXRSContract();
     private static final Encoder encoder = new JacksonEncoder(mapper);
     private static final Decoder decoder = new TextDelegateDecoder(new JacksonDecoder(mapper));
+    private static final ErrorDecoder errorDecoder = new EndpointNotFoundErrorDecoder();
+    private static final ObjectMapper smileMapper = SmileContentNegotiation.newSmileMapper();
 
     /**
      * Constructs a dynamic proxy for the specified type, using the supplied SSL factory if is present, and feign {@link
      * feign.Client.Default} HTTP client.
      */
     public static <T> T createProxy(Optional<SSLSocketFactory> sslSocketFactory, String uri, Class<T> type) {
+        SmileContentNegotiation negotiation = newNegotiation();
         return Feign.builder()
                 .contract(contract)
                 .encoder(encoder)
-                .decoder(decoder)
+                .decoder(negotiation.decoder(decoder))
+                .errorDecoder(errorDecoder)
+                .requestInterceptor(negotiation.requestInterceptor())
                 .client(newOkHttpClient(sslSocketFactory))
                 .target(type, uri);
     }
@@ -78,15 +86,42 @@ public class AtlasDbHttpClients {
             Optional<SSLSocketFactory> sslSocketFactory, Collection<String> endpointUris, Class<T> type) {
         FailoverFeignTarget<T> failoverFeignTarget = new FailoverFeignTarget<>(endpointUris, type);
         Client client = failoverFeignTarget.wrapClient(newOkHttpClient(sslSocketFactory));
+        SmileContentNegotiation negotiation = newNegotiation();
         return Feign.builder()
                 .contract(contract)
                 .encoder(encoder)
-                .decoder(decoder)
+                .decoder(negotiation.decoder(decoder))
+                .errorDecoder(errorDecoder)
+                .requestInterceptor(negotiation.requestInterceptor())
                 .client(client)
                 .retryer(failoverFeignTarget)
                 .target(failoverFeignTarget);
     }
 
+    /**
+     * Responses are read as Smile from servers that support it. Request bodies stay JSON,
+     * since a failover proxy may switch to a server that only reads JSON at any time.
+     */
+    private static SmileContentNegotiation newNegotiation() {
+        return new SmileContentNegotiation(smileMapper, false);
+    }
+
+    /**
+     * Registers the server side of the Smile negotiation for the services created by
+     * {@link #createProxy} and {@link #createProxyWithFailover}.
+     */
+    public static SmileFeature smileFeature() {
+        return new SmileFeature(smileMapper);
+    }
+
+    /**
+     * The mapper used for Smile on both sides of the negotiation. Like the JSON mapper of the
+     * clients it has no modules registered.
+     */
+    static ObjectMapper smileMapper() {
+        return smileMapper;
+    }
+
     /**
      * Returns a feign {@link Client} wrapping a {@link com.squareup.okhttp.OkHttpClient} client with optionally
      * specified {@link SSLSocketFactory}.
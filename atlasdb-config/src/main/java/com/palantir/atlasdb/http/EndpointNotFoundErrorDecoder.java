@@ -0,0 +1,35 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.http;
+
+import feign.Response;
+import feign.codec.ErrorDecoder;
+
+/**
+ * Turns 404 responses into an {@link EndpointNotFoundException} so that callers can tell an
+ * endpoint the server does not serve apart from other failures.
+ */
+class EndpointNotFoundErrorDecoder implements ErrorDecoder {
+    private final ErrorDecoder delegate = new ErrorDecoder.Default();
+
+    @Override
+    public Exception decode(String methodKey, Response response) {
+        if (response.status() == 404) {
+            return new EndpointNotFoundException("status 404 reading " + methodKey);
+        }
+        return delegate.decode(methodKey, response);
+    }
+}
@@ -0,0 +1,30 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.http;
+
+import feign.FeignException;
+
+/**
+ * Thrown by the clients created by {@link AtlasDbHttpClients} when the server answers with a 404,
+ * which usually means that it is running a version that does not serve the called endpoint yet.
+ */
+public class EndpointNotFoundException extends FeignException {
+    private static final long serialVersionUID = 1L;
+
+    public EndpointNotFoundException(String message) {
+        super(message);
+    }
+}
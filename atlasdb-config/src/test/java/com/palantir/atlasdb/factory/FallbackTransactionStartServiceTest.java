@@ -0,0 +1,76 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.factory;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigInteger;
+
+import org.junit.Test;
+
+import com.palantir.atlasdb.http.EndpointNotFoundException;
+import com.palantir.atlasdb.transaction.api.TransactionStartResponse;
+import com.palantir.atlasdb.transaction.api.TransactionStartService;
+import com.palantir.lock.LockRefreshToken;
+
+public class FallbackTransactionStartServiceTest {
+    private static final String CLIENT = "client";
+    private static final TransactionStartResponse RESPONSE =
+            new TransactionStartResponse(new LockRefreshToken(BigInteger.ONE, Long.MAX_VALUE), 2L, 1L, 3L);
+
+    private final TransactionStartService remote = mock(TransactionStartService.class);
+    private final TransactionStartService fallback = mock(TransactionStartService.class);
+
+    @Test
+    public void usesRemoteEndpointWhenServed() throws InterruptedException {
+        when(remote.startTransaction(CLIENT)).thenReturn(RESPONSE);
+        TransactionStartService service = new FallbackTransactionStartService(remote, fallback, Long.MAX_VALUE);
+
+        assertThat(service.startTransaction(CLIENT), is(RESPONSE));
+        verify(fallback, times(0)).startTransaction(CLIENT);
+    }
+
+    @Test
+    public void fallsBackWhileRemoteEndpointIsNotFound() throws InterruptedException {
+        when(remote.startTransaction(CLIENT)).thenThrow(new EndpointNotFoundException("status 404"));
+        when(fallback.startTransaction(CLIENT)).thenReturn(RESPONSE);
+        TransactionStartService service = new FallbackTransactionStartService(remote, fallback, Long.MAX_VALUE / 2);
+
+        assertThat(service.startTransaction(CLIENT), is(RESPONSE));
+        assertThat(service.startTransaction(CLIENT), is(RESPONSE));
+        verify(remote, times(1)).startTransaction(CLIENT);
+        verify(fallback, times(2)).startTransaction(CLIENT);
+    }
+
+    @Test
+    public void retriesRemoteEndpointAfterRetryInterval() throws InterruptedException {
+        when(remote.startTransaction(CLIENT))
+                .thenThrow(new EndpointNotFoundException("status 404"))
+                .thenReturn(RESPONSE);
+        when(fallback.startTransaction(CLIENT)).thenReturn(RESPONSE);
+        TransactionStartService service = new FallbackTransactionStartService(remote, fallback, 0L);
+
+        service.startTransaction(CLIENT);
+        service.startTransaction(CLIENT);
+        verify(remote, times(2)).startTransaction(CLIENT);
+        verify(fallback, times(1)).startTransaction(CLIENT);
+    }
+}
@@ -0,0 +1,178 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.factory;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+import java.util.Map;
+import java.util.SortedMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Multimap;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.cleaner.NoOpCleaner;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.ColumnarKeyValueService;
+import com.palantir.atlasdb.keyvalue.api.ColumnarResults;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeDeletingKeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.impl.ForwardingKeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.KeyValueServices;
+import com.palantir.atlasdb.transaction.api.AtlasDbConstraintCheckingMode;
+import com.palantir.atlasdb.transaction.impl.ConflictDetectionManagers;
+import com.palantir.atlasdb.transaction.impl.SerializableTransactionManager;
+import com.palantir.atlasdb.transaction.impl.SweepStrategyManagers;
+import com.palantir.atlasdb.transaction.impl.TransactionTables;
+import com.palantir.atlasdb.transaction.service.TransactionServices;
+import com.palantir.lock.LockClient;
+import com.palantir.lock.impl.LockServiceImpl;
+import com.palantir.timestamp.InMemoryTimestampService;
+
+public class TransactionManagersTest {
+    private static final TableReference TABLE = TableReference.createFromFullyQualifiedName("test.table");
+    private static final Cell CELL = Cell.create(PtBytes.toBytes("row"), PtBytes.toBytes("col"));
+
+    private final RecordingKeyValueService rawKvs = new RecordingKeyValueService();
+    private KeyValueService kvs;
+
+    @Before
+    public void setUp() {
+        kvs = TransactionManagers.wrapKeyValueService(rawKvs, new InMemoryTimestampService(), true);
+        kvs.createTable(TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA);
+    }
+
+    @After
+    public void tearDown() {
+        kvs.close();
+    }
+
+    @Test
+    public void wrappedKvsDeletesOldVersionsAsRanges() {
+        putVersions(kvs, 1L, 2L, 3L);
+        assertThat(KeyValueServices.supports(kvs, RangeDeletingKeyValueService.class), is(true));
+
+        KeyValueServices.deleteTimestamps(kvs, TABLE,
+                ImmutableMultimap.of(CELL, 1L, CELL, 2L),
+                ImmutableMultimap.of(CELL, 1L, CELL, 2L, CELL, 3L));
+
+        assertThat(rawKvs.rangeDeletes, is(1));
+        assertThat(getAllTimestamps(kvs), is(ImmutableSet.of(3L)));
+    }
+
+    @Test
+    public void wrappedKvsFallsBackWithoutRangeDeletes() {
+        KeyValueService plainKvs = TransactionManagers.wrapKeyValueService(new ForwardingKeyValueService() {
+            @Override
+            protected KeyValueService delegate() {
+                return rawKvs;
+            }
+        }, new InMemoryTimestampService(), true);
+        try {
+            putVersions(plainKvs, 1L, 2L, 3L);
+            assertThat(KeyValueServices.supports(plainKvs, RangeDeletingKeyValueService.class), is(false));
+
+            KeyValueServices.deleteTimestamps(plainKvs, TABLE,
+                    ImmutableMultimap.of(CELL, 1L),
+                    ImmutableMultimap.of(CELL, 1L, CELL, 2L, CELL, 3L));
+            ((RangeDeletingKeyValueService) plainKvs).deleteAllTimestampsBelow(TABLE, ImmutableMap.of(CELL, 3L));
+
+            assertThat(rawKvs.rangeDeletes, is(0));
+            assertThat(getAllTimestamps(plainKvs), is(ImmutableSet.of(3L)));
+        } finally {
+            plainKvs.close();
+        }
+    }
+
+    @Test
+    public void transactionsReadRowsColumnarThroughWrappedKvs() {
+        assertThat(KeyValueServices.supports(kvs, ColumnarKeyValueService.class), is(true));
+        TransactionTables.createTables(kvs);
+        LockServiceImpl lockService = LockServiceImpl.create();
+        try {
+            SerializableTransactionManager txManager = new SerializableTransactionManager(
+                    kvs,
+                    new InMemoryTimestampService(),
+                    LockClient.of("test"),
+                    lockService,
+                    TransactionServices.createTransactionService(kvs),
+                    Suppliers.ofInstance(AtlasDbConstraintCheckingMode.NO_CONSTRAINT_CHECKING),
+                    ConflictDetectionManagers.createDefault(kvs),
+                    SweepStrategyManagers.createDefault(kvs),
+                    NoOpCleaner.INSTANCE);
+            txManager.runTaskWithRetry(t -> {
+                t.put(TABLE, ImmutableMap.of(CELL, PtBytes.toBytes("value")));
+                return null;
+            });
+
+            SortedMap<byte[], RowResult<byte[]>> rows = txManager.runTaskReadOnly(t ->
+                    t.getRows(TABLE, ImmutableList.of(CELL.getRowName()), ColumnSelection.all()));
+
+            assertThat(rawKvs.columnarReads, is(1));
+            assertThat(rows.get(CELL.getRowName()).getColumns().get(CELL.getColumnName()), is(PtBytes.toBytes("value")));
+        } finally {
+            lockService.close();
+        }
+    }
+
+    private static void putVersions(KeyValueService kvs, long... timestamps) {
+        for (long ts : timestamps) {
+            kvs.put(TABLE, ImmutableMap.of(CELL, PtBytes.toBytes("value" + ts)), ts);
+        }
+    }
+
+    private static ImmutableSet<Long> getAllTimestamps(KeyValueService kvs) {
+        Multimap<Cell, Long> timestamps = kvs.getAllTimestamps(TABLE, ImmutableSet.of(CELL), Long.MAX_VALUE);
+        return ImmutableSet.copyOf(timestamps.get(CELL));
+    }
+
+    private static class RecordingKeyValueService extends InMemoryKeyValueService {
+        volatile int rangeDeletes = 0;
+        volatile int columnarReads = 0;
+
+        RecordingKeyValueService() {
+            super(true);
+        }
+
+        @Override
+        public void deleteAllTimestampsBelow(TableReference tableRef, Map<Cell, Long> maxTimestampExclusiveByCell) {
+            rangeDeletes++;
+            super.deleteAllTimestampsBelow(tableRef, maxTimestampExclusiveByCell);
+        }
+
+        @Override
+        public ColumnarResults getRowsColumnar(TableReference tableRef,
+                                               Iterable<byte[]> rows,
+                                               ColumnSelection columnSelection,
+                                               long timestamp) {
+            columnarReads++;
+            return super.getRowsColumnar(tableRef, rows, columnSelection, timestamp);
+        }
+    }
+}
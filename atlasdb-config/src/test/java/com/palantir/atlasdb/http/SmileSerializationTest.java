@@ -0,0 +1,137 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.http;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import com.palantir.lock.HeldLocksToken;
+import com.palantir.lock.LockClient;
+import com.palantir.lock.LockCollections;
+import com.palantir.lock.LockDescriptor;
+import com.palantir.lock.LockMode;
+import com.palantir.lock.LockRefreshToken;
+import com.palantir.lock.LockRequest;
+import com.palantir.lock.LockResponse;
+import com.palantir.lock.SimpleTimeDuration;
+import com.palantir.lock.StringLockDescriptor;
+import com.palantir.timestamp.TimestampRange;
+
+import io.dropwizard.jackson.Jackson;
+
+/**
+ * The Smile mapper of {@link AtlasDbHttpClients} has no modules registered, while servers write
+ * JSON with the Dropwizard mapper. Every type sent over the Smile endpoints of the lock and
+ * timestamp services has to come out the same either way.
+ */
+public class SmileSerializationTest {
+    private static final ObjectMapper dropwizardMapper = Jackson.newObjectMapper();
+    private static final ObjectMapper smileMapper = AtlasDbHttpClients.smileMapper();
+
+    private static final ImmutableSortedMap<LockDescriptor, LockMode> LOCKS = ImmutableSortedMap.of(
+            StringLockDescriptor.of("read"), LockMode.READ,
+            StringLockDescriptor.of("write"), LockMode.WRITE);
+
+    @Test
+    public void lockRefreshToken() throws IOException {
+        assertSerializesLikeDropwizardJson(new LockRefreshToken(BigInteger.valueOf(Long.MAX_VALUE).pow(2), 123L),
+                type(LockRefreshToken.class));
+    }
+
+    @Test
+    public void lockRefreshTokens() throws IOException {
+        Set<LockRefreshToken> tokens = ImmutableSet.of(
+                new LockRefreshToken(BigInteger.ONE, 1L),
+                new LockRefreshToken(BigInteger.TEN, 2L));
+        assertSerializesLikeDropwizardJson(tokens,
+                dropwizardMapper.getTypeFactory().constructCollectionType(Set.class, LockRefreshToken.class));
+    }
+
+    @Test
+    public void lockRequests() throws IOException {
+        assertSerializesLikeDropwizardJson(LockRequest.builder(LOCKS)
+                .doNotBlock()
+                .withLockedInVersionId(7L)
+                .build(), type(LockRequest.class));
+        assertSerializesLikeDropwizardJson(LockRequest.builder(LOCKS)
+                .blockForAtMost(SimpleTimeDuration.of(5, TimeUnit.SECONDS))
+                .timeoutAfter(SimpleTimeDuration.of(1, TimeUnit.MINUTES))
+                .lockAsManyAsPossible()
+                .withCreatingThreadName("thread")
+                .build(), type(LockRequest.class));
+    }
+
+    @Test
+    public void heldLocksTokens() throws IOException {
+        assertSerializesLikeDropwizardJson(heldLocksToken(42L), type(HeldLocksToken.class));
+        assertSerializesLikeDropwizardJson(heldLocksToken(null), type(HeldLocksToken.class));
+    }
+
+    @Test
+    public void lockResponse() throws IOException {
+        assertSerializesLikeDropwizardJson(new LockResponse(heldLocksToken(42L)), type(LockResponse.class));
+    }
+
+    @Test
+    public void timestamps() throws IOException {
+        assertSerializesLikeDropwizardJson(TimestampRange.createInclusiveRange(1L, 100L), type(TimestampRange.class));
+        assertSerializesLikeDropwizardJson(Long.MAX_VALUE, type(Long.class));
+    }
+
+    private static HeldLocksToken heldLocksToken(Long versionId) {
+        return new HeldLocksToken(
+                BigInteger.valueOf(17L),
+                LockClient.of("client"),
+                1000L,
+                2000L,
+                LockCollections.of(LOCKS),
+                SimpleTimeDuration.of(2, TimeUnit.MINUTES),
+                versionId);
+    }
+
+    private static JavaType type(Class<?> clazz) {
+        return dropwizardMapper.constructType(clazz);
+    }
+
+    private static void assertSerializesLikeDropwizardJson(Object value, JavaType type) throws IOException {
+        byte[] json = dropwizardMapper.writeValueAsBytes(value);
+        byte[] smile = smileMapper.writeValueAsBytes(value);
+        JsonNode expected = dropwizardMapper.readTree(json);
+        // Smile keeps byte arrays as binary; going through JSON encodes them as base64 again
+        assertThat(toJsonTree(smileMapper.readTree(smile)), is(expected));
+
+        Object fromJson = dropwizardMapper.readValue(json, type);
+        Object fromSmile = smileMapper.readValue(smile, type);
+        assertThat(toJsonTree(fromSmile), is(toJsonTree(fromJson)));
+        assertThat(toJsonTree(fromSmile), is(expected));
+    }
+
+    private static JsonNode toJsonTree(Object value) throws IOException {
+        return dropwizardMapper.readTree(dropwizardMapper.writeValueAsBytes(value));
+    }
+}
@@ -45,4 +45,22 @@ public abstract class DbSharedConfig {
         return 2 * 1024 * 1024;
     }
 
+    /**
+     * Write batches that take longer than this shrink the batch limits for their table below
+     * {@link #mutationBatchCount()} and {@link #mutationBatchSizeBytes()}. Zero disables this.
+     */
+    @Value.Default
+    public int mutationBatchTargetLatencyMillis() {
+        return 1000;
+    }
+
+    /**
+     * How long a small put waits for concurrent puts to the same table so that they can be
+     * written together. Zero, the default, writes every put on its own.
+     */
+    @Value.Default
+    public int writeCoalescingWindowMicros() {
+        return 0;
+    }
+
 }
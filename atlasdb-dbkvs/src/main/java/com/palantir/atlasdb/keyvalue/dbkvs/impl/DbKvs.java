@@ -17,6 +17,8 @@ package com.palantir.atlasdb.keyvalue.dbkvs.impl;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
@@ -51,9 +53,13 @@ import com.google.common.collect.Sets;
 import com.google.common.primitives.UnsignedBytes;
 import com.google.common.util.concurrent.Atomics;
 import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.keyvalue.api.BulkLoadingKeyValueService;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.ColumnarKeyValueService;
+import com.palantir.atlasdb.keyvalue.api.ColumnarResults;
 import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.keyvalue.api.RangeDeletingKeyValueService;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RangeRequests;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
@@ -62,7 +68,10 @@ import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.atlasdb.keyvalue.dbkvs.DbKeyValueServiceConfig;
 import com.palantir.atlasdb.keyvalue.dbkvs.impl.ranges.DbKvsGetRanges;
 import com.palantir.atlasdb.keyvalue.impl.AbstractKeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.AdaptiveBatchSizer;
 import com.palantir.atlasdb.keyvalue.impl.Cells;
+import com.palantir.atlasdb.keyvalue.impl.KeyValueServices;
+import com.palantir.atlasdb.keyvalue.impl.WriteCoalescer;
 import com.palantir.common.base.ClosableIterator;
 import com.palantir.common.base.ClosableIterators;
 import com.palantir.common.base.Throwables;
@@ -83,11 +92,13 @@ import com.palantir.util.paging.AbstractPagingIterable;
 import com.palantir.util.paging.SimpleTokenBackedResultsPage;
 import com.palantir.util.paging.TokenBackedBasicResultsPage;
 
-public class DbKvs extends AbstractKeyValueService {
+public class DbKvs extends AbstractKeyValueService implements BulkLoadingKeyValueService, ColumnarKeyValueService, RangeDeletingKeyValueService {
     private static final Logger log = LoggerFactory.getLogger(DbKvs.class);
     private final DbKeyValueServiceConfig config;
     private final DbTableFactory dbTables;
     private final SqlConnectionSupplier connections;
+    private final AdaptiveBatchSizer batchSizer;
+    private final WriteCoalescer<Entry<Cell, Value>> writeCoalescer;
 
     public static DbKvs create(DbKeyValueServiceConfig config) {
         Preconditions.checkArgument(config.connection().isPresent(),
@@ -149,6 +160,12 @@ public class DbKvs extends AbstractKeyValueService {
         this.config = config;
         this.dbTables = dbTables;
         this.connections = connections;
+        this.batchSizer = new AdaptiveBatchSizer("DbKvs", config.shared().mutationBatchTargetLatencyMillis());
+        this.writeCoalescer = new WriteCoalescer<>(
+                "DbKvs",
+                config.shared().writeCoalescingWindowMicros(),
+                config.shared().mutationBatchCount(),
+                (tableRef, entries) -> putWithTimestamps(tableRef, entries));
     }
 
     public DbKeyValueServiceConfig getConfig() {
@@ -187,6 +204,72 @@ public class DbKvs extends AbstractKeyValueService {
         });
     }
 
+    @Override
+    public ColumnarResults getRowsColumnar(TableReference tableRef,
+                                           final Iterable<byte[]> rows,
+                                           final ColumnSelection columnSelection,
+                                           final long timestamp) {
+        return runRead(tableRef, new Function<DbReadTable, ColumnarResults>() {
+            @Override
+            public ColumnarResults apply(DbReadTable table) {
+                ClosableIterator<AgnosticLightResultRow> iter = table.getLatestRows(rows, columnSelection, timestamp, true);
+                if (table.hasOverflowValues()) {
+                    return KeyValueServices.toColumnarResults(extractResults(table, iter));
+                }
+                return extractColumnarResults(iter);
+            }
+        });
+    }
+
+    /**
+     * The latest rows query returns one result per cell, so without overflow values the results
+     * only need to be grouped by row, which we do by sorting indexes into the raw columns rather
+     * than building a map of cells.
+     */
+    @SuppressWarnings("deprecation")
+    private static ColumnarResults extractColumnarResults(ClosableIterator<AgnosticLightResultRow> iter) {
+        final List<byte[]> rowNames = Lists.newArrayList();
+        final List<byte[]> colNames = Lists.newArrayList();
+        List<Long> timestamps = Lists.newArrayList();
+        List<byte[]> values = Lists.newArrayList();
+        try {
+            while (iter.hasNext()) {
+                AgnosticLightResultRow row = iter.next();
+                rowNames.add(row.getBytes("row_name"));
+                colNames.add(row.getBytes("col_name"));
+                timestamps.add(row.getLong("ts"));
+                values.add(row.getBytes("val"));
+            }
+        } finally {
+            iter.close();
+        }
+        Integer[] order = new Integer[rowNames.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        final Comparator<byte[]> comparator = UnsignedBytes.lexicographicalComparator();
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer left, Integer right) {
+                int cmp = comparator.compare(rowNames.get(left), rowNames.get(right));
+                return cmp != 0 ? cmp : comparator.compare(colNames.get(left), colNames.get(right));
+            }
+        });
+        ColumnarResults.Builder builder = ColumnarResults.builder();
+        for (int i : order) {
+            builder.add(rowNames.get(i), colNames.get(i), timestamps.get(i), values.get(i));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Ranges are already read page by page through {@link #getRange}, so this only converts a page.
+     */
+    @Override
+    public ColumnarResults getRangeColumnar(TableReference tableRef, RangeRequest rangeRequest, long timestamp) {
+        return KeyValueServices.getRangeColumnarUsingGetRange(this, tableRef, rangeRequest, timestamp);
+    }
+
     @Override
     public Map<Cell, Value> get(TableReference tableRef, final Map<Cell, Long> timestampByCell) {
         return runRead(tableRef, new Function<DbReadTable, Map<Cell, Value>>() {
@@ -302,15 +385,39 @@ public class DbKvs extends AbstractKeyValueService {
         };
     }
 
+    private int getMutationBatchCount(TableReference tableRef) {
+        return batchSizer.getBatchCount(tableRef, config.shared().mutationBatchCount());
+    }
+
+    private long getMutationBatchSizeBytes(TableReference tableRef) {
+        return batchSizer.getBatchSizeBytes(tableRef, config.shared().mutationBatchSizeBytes());
+    }
+
+    private <T> void recordBatch(TableReference tableRef, List<T> batch, Function<T, Long> sizingFunction, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        long bytes = 0;
+        for (T entry : batch) {
+            bytes += sizingFunction.apply(entry);
+        }
+        batchSizer.recordBatch(tableRef, batch.size(), bytes, elapsed);
+    }
+
     private void put(TableReference tableRef, Map<Cell, byte[]> values, long timestamp, boolean idempotent) {
+        if (idempotent && config.shared().writeCoalescingWindowMicros() > 0) {
+            writeCoalescer.write(tableRef, ImmutableList.copyOf(
+                    KeyValueServices.toConstantTimestampValues(values.entrySet(), timestamp)));
+            return;
+        }
         final Iterable<List<Entry<Cell, byte[]>>> batches = partitionByCountAndBytes(
-                values.entrySet(), config.shared().mutationBatchCount(), config.shared().mutationBatchSizeBytes(), tableRef, getByteSizingFunction());
+                values.entrySet(), getMutationBatchCount(tableRef), getMutationBatchSizeBytes(tableRef), tableRef, getByteSizingFunction());
         runWrite(tableRef, new Function<DbWriteTable, Void>() {
             @Override
             public Void apply(DbWriteTable table) {
                 for (List<Entry<Cell, byte[]>> batch : batches) {
                     try {
+                        long start = System.nanoTime();
                         table.put(batch, timestamp);
+                        recordBatch(tableRef, batch, getByteSizingFunction(), start);
                     } catch (KeyAlreadyExistsException e) {
                         if (idempotent) {
                             putIfNotUpdate(tableRef, table, batch, timestamp, e);
@@ -329,6 +436,30 @@ public class DbKvs extends AbstractKeyValueService {
         put(tableRef, values, timestamp, true);
     }
 
+    /**
+     * Streams the cells into array bound batch inserts on a single connection, without first
+     * collecting them into a map the way {@link #put} does.
+     */
+    @Override
+    public void bulkLoad(final TableReference tableRef, Iterator<Entry<Cell, byte[]>> sortedCells, final long timestamp) {
+        final Iterator<List<Entry<Cell, byte[]>>> batches = KeyValueServices.partitionSortedCells(
+                sortedCells, config.shared().mutationBatchCount(), config.shared().mutationBatchSizeBytes());
+        runWrite(tableRef, new Function<DbWriteTable, Void>() {
+            @Override
+            public Void apply(DbWriteTable table) {
+                while (batches.hasNext()) {
+                    List<Entry<Cell, byte[]>> batch = batches.next();
+                    try {
+                        table.put(batch, timestamp);
+                    } catch (KeyAlreadyExistsException e) {
+                        putIfNotUpdate(tableRef, table, batch, timestamp, e);
+                    }
+                }
+                return null;
+            }
+        });
+    }
+
     private void putIfNotUpdate(TableReference tableRef, DbWriteTable table, List<Entry<Cell, Value>> batch, KeyAlreadyExistsException e) {
         Map<Cell, Long> timestampByCell = Maps.newHashMap();
         for (Entry<Cell, Value> entry : batch) {
@@ -380,14 +511,20 @@ public class DbKvs extends AbstractKeyValueService {
 
     @Override
     public void putWithTimestamps(TableReference tableRef, final Multimap<Cell, Value> cellValues) throws KeyAlreadyExistsException {
+        putWithTimestamps(tableRef, cellValues.entries());
+    }
+
+    private void putWithTimestamps(TableReference tableRef, Iterable<Entry<Cell, Value>> cellValues) {
         final Iterable<List<Entry<Cell, Value>>> batches = partitionByCountAndBytes(
-                cellValues.entries(), config.shared().mutationBatchCount(), config.shared().mutationBatchSizeBytes(), tableRef, getValueSizingFunction());
+                cellValues, getMutationBatchCount(tableRef), getMutationBatchSizeBytes(tableRef), tableRef, getValueSizingFunction());
         runWrite(tableRef, new Function<DbWriteTable, Void>() {
             @Override
             public Void apply(DbWriteTable table) {
                 for (List<Entry<Cell, Value>> batch : batches) {
                     try {
+                        long start = System.nanoTime();
                         table.put(batch);
+                        recordBatch(tableRef, batch, getValueSizingFunction(), start);
                     } catch (KeyAlreadyExistsException e) {
                         putIfNotUpdate(tableRef, table, batch, e);
                     }
@@ -404,27 +541,50 @@ public class DbKvs extends AbstractKeyValueService {
 
     @Override
     public void delete(TableReference tableRef, Multimap<Cell, Long> keys) {
-        // QA-86494: We sort our deletes here because we have seen oracle deadlock errors here.
-        ImmutableList<Entry<Cell, Long>> sorted = ORDERING.immutableSortedCopy(keys.entries());
-        final Iterable<List<Entry<Cell, Long>>> partitions =
-                partitionByCountAndBytes(sorted, 10000, getMultiPutBatchSizeBytes(), tableRef,
-                new Function<Entry<Cell, Long>, Long>() {
+        final Iterable<List<Entry<Cell, Long>>> partitions = partitionDeletes(tableRef, keys.entries());
+        runWriteForceAutocommit(tableRef, new Function<DbWriteTable, Void>() {
             @Override
-            public Long apply(Entry<Cell, Long> entry) {
-                return Cells.getApproxSizeOfCell(entry.getKey()) + 8;
+            public Void apply(DbWriteTable table) {
+                for (List<Entry<Cell, Long>> partition : partitions) {
+                    table.delete(partition);
+                }
+                return null;
             }
         });
+    }
+
+    /**
+     * Deletes each cell's old versions with one array bound range delete per cell instead of one
+     * delete per version.
+     */
+    @Override
+    public void deleteAllTimestampsBelow(TableReference tableRef, Map<Cell, Long> maxTimestampExclusiveByCell) {
+        final Iterable<List<Entry<Cell, Long>>> partitions =
+                partitionDeletes(tableRef, maxTimestampExclusiveByCell.entrySet());
         runWriteForceAutocommit(tableRef, new Function<DbWriteTable, Void>() {
             @Override
             public Void apply(DbWriteTable table) {
                 for (List<Entry<Cell, Long>> partition : partitions) {
-                    table.delete(partition);
+                    table.deleteAllTimestampsBelow(partition);
                 }
                 return null;
             }
         });
     }
 
+    private Iterable<List<Entry<Cell, Long>>> partitionDeletes(TableReference tableRef,
+                                                               Collection<Entry<Cell, Long>> entries) {
+        // QA-86494: We sort our deletes here because we have seen oracle deadlock errors here.
+        ImmutableList<Entry<Cell, Long>> sorted = ORDERING.immutableSortedCopy(entries);
+        return partitionByCountAndBytes(sorted, 10000, getMultiPutBatchSizeBytes(), tableRef,
+                new Function<Entry<Cell, Long>, Long>() {
+            @Override
+            public Long apply(Entry<Cell, Long> entry) {
+                return Cells.getApproxSizeOfCell(entry.getKey()) + 8;
+            }
+        });
+    }
+
     private static final Ordering<Entry<Cell, Long>> ORDERING = Ordering.from(new Comparator<Entry<Cell, Long>>() {
         @Override
         public int compare(Entry<Cell, Long> entry1, Entry<Cell, Long> entry2) {
@@ -28,4 +28,5 @@ public interface DbWriteTable {
     void put(Collection<Map.Entry<Cell, Value>> data);
     void putSentinels(Iterable<Cell> cells);
     void delete(List<Entry<Cell, Long>> partition);
+    void deleteAllTimestampsBelow(List<Entry<Cell, Long>> partition);
 }
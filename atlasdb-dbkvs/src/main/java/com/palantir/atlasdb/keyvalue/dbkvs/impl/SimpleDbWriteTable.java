@@ -125,4 +125,22 @@ public class SimpleDbWriteTable implements DbWriteTable {
                 "  AND m.ts = ?",
                 args);
     }
+
+    @Override
+    public void deleteAllTimestampsBelow(List<Entry<Cell, Long>> entries) {
+        List<Object[]> args = Lists.newArrayListWithCapacity(entries.size());
+        for (Map.Entry<Cell, Long> entry : entries) {
+            Cell cell = entry.getKey();
+            args.add(new Object[] {cell.getRowName(), cell.getColumnName(), entry.getValue()});
+        }
+        conns.get().updateManyUnregisteredQuery(
+                " /* SQL_MET_DELETE_BELOW_TS (" + tableName + ") */ " +
+                " DELETE /*+ INDEX(m pk_pt_met_" + tableName + ") */ " +
+                " FROM pt_met_" + tableName + " m " +
+                " WHERE m.row_name = ? " +
+                "  AND m.col_name = ? " +
+                "  AND m.ts >= 0 " +
+                "  AND m.ts < ?",
+                args);
+    }
 }
@@ -154,26 +154,8 @@ public class OracleOverflowWriteTable implements DbWriteTable {
 
     @Override
     public void delete(List<Entry<Cell, Long>> entries) {
-        List<Object[]> args = Lists.newArrayListWithCapacity(entries.size());
-        for (Map.Entry<Cell, Long> entry : entries) {
-            Cell cell = entry.getKey();
-            args.add(new Object[] {cell.getRowName(), cell.getColumnName(), entry.getValue()});
-        }
-        switch (migrationState) {
-        case UNSTARTED:
-            deleteOverflow("pt_metropolis_overflow", args);
-            break;
-        case IN_PROGRESS:
-            deleteOverflow("pt_metropolis_overflow", args);
-            deleteOverflow("pt_mo_" + tableName, args);
-            break;
-        case FINISHING: // fall through
-        case FINISHED:
-            deleteOverflow("pt_mo_" + tableName, args);
-            break;
-        default:
-            throw new EnumConstantNotPresentException(OverflowMigrationState.class, migrationState.name());
-        }
+        List<Object[]> args = getDeleteArgs(entries);
+        deleteOverflows("SQL_MET_DELETE_ONE_OVERFLOW", "i.ts = ?", args);
         SqlConnection conn = conns.get();
         try {
             log.info("Got connection for delete on table {}: {}, autocommit={}", tableName, conn.getUnderlyingConnection(), conn.getUnderlyingConnection().getAutoCommit());
@@ -192,9 +174,51 @@ public class OracleOverflowWriteTable implements DbWriteTable {
                 args);
     }
 
-    private void deleteOverflow(String overflowTable, List<Object[]> args) {
+    @Override
+    public void deleteAllTimestampsBelow(List<Entry<Cell, Long>> entries) {
+        List<Object[]> args = getDeleteArgs(entries);
+        deleteOverflows("SQL_MET_DELETE_BELOW_TS_OVERFLOW", "i.ts >= 0 AND i.ts < ?", args);
+        conns.get().updateManyUnregisteredQuery(
+                " /* SQL_MET_DELETE_BELOW_TS (" + tableName + ") */ " +
+                " DELETE /*+ INDEX(m pk_pt_met_" + tableName + ") */ " +
+                " FROM pt_met_" + tableName + " m " +
+                " WHERE m.row_name = ? " +
+                "  AND m.col_name = ? " +
+                "  AND m.ts >= 0 " +
+                "  AND m.ts < ?",
+                args);
+    }
+
+    private static List<Object[]> getDeleteArgs(List<Entry<Cell, Long>> entries) {
+        List<Object[]> args = Lists.newArrayListWithCapacity(entries.size());
+        for (Map.Entry<Cell, Long> entry : entries) {
+            Cell cell = entry.getKey();
+            args.add(new Object[] {cell.getRowName(), cell.getColumnName(), entry.getValue()});
+        }
+        return args;
+    }
+
+    private void deleteOverflows(String queryName, String tsCondition, List<Object[]> args) {
+        switch (migrationState) {
+        case UNSTARTED:
+            deleteOverflow("pt_metropolis_overflow", queryName, tsCondition, args);
+            break;
+        case IN_PROGRESS:
+            deleteOverflow("pt_metropolis_overflow", queryName, tsCondition, args);
+            deleteOverflow("pt_mo_" + tableName, queryName, tsCondition, args);
+            break;
+        case FINISHING: // fall through
+        case FINISHED:
+            deleteOverflow("pt_mo_" + tableName, queryName, tsCondition, args);
+            break;
+        default:
+            throw new EnumConstantNotPresentException(OverflowMigrationState.class, migrationState.name());
+        }
+    }
+
+    private void deleteOverflow(String overflowTable, String queryName, String tsCondition, List<Object[]> args) {
         conns.get().updateManyUnregisteredQuery(
-                " /* SQL_MET_DELETE_ONE_OVERFLOW (" + tableName + ") */ " +
+                " /* " + queryName + " (" + tableName + ") */ " +
                 " DELETE /*+ INDEX(m pk_" + overflowTable + ") */ " +
                 "   FROM " + overflowTable + " m " +
                 "  WHERE m.id IN (SELECT /*+ INDEX(i pk_pt_met_" + tableName + ") */ " +
@@ -202,7 +226,7 @@ public class OracleOverflowWriteTable implements DbWriteTable {
                 "                   FROM pt_met_" + tableName + " i " +
                 "                  WHERE i.row_name = ? " +
                 "                    AND i.col_name = ? " +
-                "                    AND i.ts = ? " +
+                "                    AND " + tsCondition + " " +
                 "                    AND i.overflow IS NOT NULL)",
                 args);
     }
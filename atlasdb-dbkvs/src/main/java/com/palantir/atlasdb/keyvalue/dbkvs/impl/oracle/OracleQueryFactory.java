@@ -171,28 +171,16 @@ public abstract class OracleQueryFactory implements DbQueryFactory {
     public FullQuery getLatestCellsQuery(Iterable<Cell> cells, long ts, boolean includeValue) {
         String query =
                 " /* SQL_MET_GET_LATEST_CELLS_SINGLE_BOUND_INNER (" + tableName + ") */ " +
-                " SELECT /*+ USE_NL(t m) CARDINALITY(t 1) CARDINALITY(m 10) INDEX(m pk_pt_met_" + tableName + ") */ " +
-                "   m.row_name, m.col_name, max(m.ts) as ts " +
-                " FROM pt_met_" + tableName + " m, TABLE(CAST(? AS PT_MET_CELL_TS_TABLE)) t " +
-                " WHERE m.row_name = t.row_name " +
-                "   AND m.col_name = t.col_name " +
-                "   AND m.ts < ? " +
-                " GROUP BY m.row_name, m.col_name";
+                latestVersionOfCells("?");
         query = wrapQueryWithIncludeValue("SQL_MET_GET_LATEST_CELLS_SINGLE_BOUND", query, includeValue);
-        return new FullQuery(query).withArgs(cellsToOracleArray(cells), ts);
+        return new FullQuery(query).withArgs(ts, cellsToOracleArray(cells));
     }
 
     @Override
     public FullQuery getLatestCellsQuery(Collection<Map.Entry<Cell, Long>> cells, boolean includeValue) {
         String query =
                 " /* SQL_MET_GET_LATEST_CELLS_MANY_BOUNDS_INNER (" + tableName + ") */ " +
-                " SELECT /*+ USE_NL(t m) CARDINALITY(t 1) CARDINALITY(m 10) INDEX(m pk_pt_met_" + tableName + ") */ " +
-                "   m.row_name, m.col_name, max(m.ts) as ts " +
-                " FROM pt_met_" + tableName + " m, TABLE(CAST(? AS PT_MET_CELL_TS_TABLE)) t " +
-                " WHERE m.row_name = t.row_name " +
-                "   AND m.col_name = t.col_name " +
-                "   AND m.ts < t.max_ts " +
-                " GROUP BY m.row_name, m.col_name";
+                latestVersionOfCells("t.max_ts");
         query = wrapQueryWithIncludeValue("SQL_MET_GET_LATEST_CELLS_MANY_BOUNDS", query, includeValue);
         return new FullQuery(query).withArg(cellsAndTimestampsToOracleArray(cells));
     }
@@ -285,6 +273,24 @@ public abstract class OracleQueryFactory implements DbQueryFactory {
                 "   AND wrap.ts = i.ts ";
     }
 
+    /**
+     * Looks up the latest version of each cell of t with a scalar max over the primary key, which
+     * Oracle answers with a single index probe per cell (INDEX RANGE SCAN (MIN/MAX)) instead of
+     * reading and aggregating every version. Cells with no version below the timestamp are dropped.
+     * The timestamp bind, if any, comes before the cell array.
+     */
+    private String latestVersionOfCells(String maxTs) {
+        return " SELECT c.row_name, c.col_name, c.ts FROM " +
+               "   ( SELECT /*+ CARDINALITY(t 1) */ t.row_name, t.col_name, " +
+               "            ( SELECT /*+ INDEX(m pk_pt_met_" + tableName + ") */ max(m.ts) " +
+               "                FROM pt_met_" + tableName + " m " +
+               "               WHERE m.row_name = t.row_name " +
+               "                 AND m.col_name = t.col_name " +
+               "                 AND m.ts < " + maxTs + " ) as ts " +
+               "       FROM TABLE(CAST(? AS PT_MET_CELL_TS_TABLE)) t ) c " +
+               " WHERE c.ts IS NOT NULL";
+    }
+
     abstract String getValueSubselect(String tableAlias, boolean includeValue);
 
     private ArrayHandler rowsToOracleArray(Iterable<byte[]> rows) {
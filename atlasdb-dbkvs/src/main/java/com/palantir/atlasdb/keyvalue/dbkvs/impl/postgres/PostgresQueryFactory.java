@@ -20,8 +20,8 @@ import java.util.List;
 import java.util.Map.Entry;
 
 import com.google.common.base.Joiner;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.io.BaseEncoding;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
@@ -29,7 +29,18 @@ import com.palantir.atlasdb.keyvalue.dbkvs.impl.DbQueryFactory;
 import com.palantir.atlasdb.keyvalue.dbkvs.impl.FullQuery;
 import com.palantir.atlasdb.keyvalue.dbkvs.impl.OverflowValue;
 
+/**
+ * Row and cell lists are bound as single array parameters so that every query has one statement
+ * text regardless of the batch size. Arrays are passed as text literals and cast on the server,
+ * which works with every driver version. Latest version lookups read the primary key index
+ * backwards per row or cell and stop at the first version below the timestamp rather than
+ * aggregating over all versions.
+ */
 public class PostgresQueryFactory implements DbQueryFactory {
+    private static final String BYTEA_ARRAY = "CAST(? AS bytea[])";
+    private static final String INT8_ARRAY = "CAST(? AS int8[])";
+    private static final BaseEncoding HEX = BaseEncoding.base16().lowerCase();
+
     private final String tableName;
 
     public PostgresQueryFactory(String tableName) {
@@ -42,17 +53,17 @@ public class PostgresQueryFactory implements DbQueryFactory {
                                        ColumnSelection columns,
                                        boolean includeValue) {
         String query =
-                " /* SQL_MET_GET_LATEST_ROW_INNER (" + tableName + ") */ " +
-                " SELECT m.row_name, m.col_name, max(m.ts) as ts " +
+                " /* SQL_MET_GET_LATEST_ROW (" + tableName + ") */ " +
+                " SELECT DISTINCT ON (m.col_name) " +
+                "        m.row_name, m.col_name, m.ts" + (includeValue ? ", m.val " : " ") +
                 "   FROM pt_met_" + tableName + " m " +
                 "  WHERE m.row_name = ? " +
                 "    AND m.ts < ? " +
                 (columns.allColumnsSelected() ? "" :
-                    "    AND m.col_name IN " + nParams(Iterables.size(columns.getSelectedColumns()))) +
-                " GROUP BY m.row_name, m.col_name";
-        query = wrapQueryWithIncludeValue("SQL_MET_GET_LATEST_ROW", query, includeValue);
+                    "    AND m.col_name = ANY(" + BYTEA_ARRAY + ") ") +
+                " ORDER BY m.col_name DESC, m.ts DESC";
         FullQuery fullQuery = new FullQuery(query).withArgs(row, ts);
-        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArgs(columns.getSelectedColumns());
+        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArg(toByteaArray(columns.getSelectedColumns()));
     }
 
     @Override
@@ -61,17 +72,12 @@ public class PostgresQueryFactory implements DbQueryFactory {
                                         ColumnSelection columns,
                                         boolean includeValue) {
         String query =
-                " /* SQL_MET_GET_LATEST_ROWS_INNER (" + tableName + ") */ " +
-                " SELECT m.row_name, m.col_name, max(m.ts) as ts " +
-                "   FROM pt_met_" + tableName + " m " +
-                "  WHERE m.row_name IN " + nParams(Iterables.size(rows)) +
-                "    AND m.ts < ? " +
-                (columns.allColumnsSelected() ? "" :
-                    "    AND m.col_name IN " + nParams(Iterables.size(columns.getSelectedColumns()))) +
-                " GROUP BY m.row_name, m.col_name ";
-        query = wrapQueryWithIncludeValue("SQL_MET_GET_LATEST_ROW", query, includeValue);
-        FullQuery fullQuery = new FullQuery(query).withArgs(rows).withArg(ts);
-        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArgs(columns.getSelectedColumns());
+                " /* SQL_MET_GET_LATEST_ROWS_SINGLE_BOUND (" + tableName + ") */ " +
+                " SELECT l.row_name, l.col_name, l.ts" + (includeValue ? ", l.val " : " ") +
+                "   FROM unnest(" + BYTEA_ARRAY + ") AS t(row_name), " +
+                "        LATERAL " + latestVersionsOfRow("t.row_name", "?", columns, includeValue) + " l";
+        FullQuery fullQuery = new FullQuery(query).withArgs(toByteaArray(rows), ts);
+        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArg(toByteaArray(columns.getSelectedColumns()));
     }
 
     @Override
@@ -79,17 +85,12 @@ public class PostgresQueryFactory implements DbQueryFactory {
                                         ColumnSelection columns,
                                         boolean includeValue) {
         String query =
-                " /* SQL_MET_GET_LATEST_ROWS_INNER (" + tableName + ") */ " +
-                " SELECT m.row_name, m.col_name, max(m.ts) as ts " +
-                "   FROM pt_met_" + tableName + " m, (VALUES " + nkParams(2, rows.size()) + ") t(row_name, ts) " +
-                "  WHERE m.row_name = t.row_name " +
-                "    AND m.ts < t.ts " +
-                (columns.allColumnsSelected() ? "" :
-                    "    AND m.col_name IN " + nParams(Iterables.size(columns.getSelectedColumns()))) +
-                " GROUP BY m.row_name, m.col_name ";
-        query = wrapQueryWithIncludeValue("SQL_MET_GET_LATEST_ROW", query, includeValue);
+                " /* SQL_MET_GET_LATEST_ROWS_MANY_BOUNDS (" + tableName + ") */ " +
+                " SELECT l.row_name, l.col_name, l.ts" + (includeValue ? ", l.val " : " ") +
+                "   FROM unnest(" + BYTEA_ARRAY + ", " + INT8_ARRAY + ") AS t(row_name, ts), " +
+                "        LATERAL " + latestVersionsOfRow("t.row_name", "t.ts", columns, includeValue) + " l";
         FullQuery fullQuery = addRowTsArgs(new FullQuery(query), rows);
-        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArgs(columns.getSelectedColumns());
+        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArg(toByteaArray(columns.getSelectedColumns()));
     }
 
     @Override
@@ -104,9 +105,9 @@ public class PostgresQueryFactory implements DbQueryFactory {
                 "  WHERE m.row_name = ? " +
                 "    AND m.ts < ? " +
                 (columns.allColumnsSelected() ? "" :
-                    "    AND m.col_name IN " + nParams(Iterables.size(columns.getSelectedColumns())));
+                    "    AND m.col_name = ANY(" + BYTEA_ARRAY + ") ");
         FullQuery fullQuery = new FullQuery(query).withArgs(row, ts);
-        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArgs(columns.getSelectedColumns());
+        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArg(toByteaArray(columns.getSelectedColumns()));
     }
 
     @Override
@@ -115,15 +116,15 @@ public class PostgresQueryFactory implements DbQueryFactory {
                                      ColumnSelection columns,
                                      boolean includeValue) {
         String query =
-                " /* SQL_MET_GET_ALL_ROWS (" + tableName + ") */ " +
+                " /* SQL_MET_GET_ALL_ROWS_SINGLE_BOUND (" + tableName + ") */ " +
                 " SELECT m.row_name, m.col_name, m.ts" + (includeValue ? ", m.val " : " ") +
                 "   FROM pt_met_" + tableName + " m " +
-                "  WHERE m.row_name IN " + nParams(Iterables.size(rows)) +
+                "  WHERE m.row_name = ANY(" + BYTEA_ARRAY + ") " +
                 "    AND m.ts < ? " +
                 (columns.allColumnsSelected() ? "" :
-                    "    AND m.col_name IN " + nParams(Iterables.size(columns.getSelectedColumns())));
-        FullQuery fullQuery = new FullQuery(query).withArgs(rows).withArg(ts);
-        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArgs(columns.getSelectedColumns());
+                    "    AND m.col_name = ANY(" + BYTEA_ARRAY + ") ");
+        FullQuery fullQuery = new FullQuery(query).withArgs(toByteaArray(rows), ts);
+        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArg(toByteaArray(columns.getSelectedColumns()));
     }
 
     @Override
@@ -131,57 +132,50 @@ public class PostgresQueryFactory implements DbQueryFactory {
                                      ColumnSelection columns,
                                      boolean includeValue) {
         String query =
-                " /* SQL_MET_GET_ALL_ROWS (" + tableName + ") */ " +
+                " /* SQL_MET_GET_ALL_ROWS_MANY_BOUNDS (" + tableName + ") */ " +
                 " SELECT m.row_name, m.col_name, m.ts" + (includeValue ? ", m.val " : " ") +
-                "   FROM pt_met_" + tableName + " m, (VALUES " + nkParams(2, rows.size()) + ") t(row_name, ts) " +
+                "   FROM unnest(" + BYTEA_ARRAY + ", " + INT8_ARRAY + ") AS t(row_name, ts), " +
+                "        pt_met_" + tableName + " m " +
                 "  WHERE m.row_name = t.row_name " +
                 "    AND m.ts < t.ts " +
                 (columns.allColumnsSelected() ? "" :
-                    "    AND m.col_name IN " + nParams(Iterables.size(columns.getSelectedColumns())));
+                    "    AND m.col_name = ANY(" + BYTEA_ARRAY + ") ");
         FullQuery fullQuery = addRowTsArgs(new FullQuery(query), rows);
-        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArgs(columns.getSelectedColumns());
+        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArg(toByteaArray(columns.getSelectedColumns()));
     }
 
     @Override
     public FullQuery getLatestCellQuery(Cell cell, long ts, boolean includeValue) {
         String query =
-                " /* SQL_MET_GET_LATEST_CELL_INNER (" + tableName + ") */ " +
-                " SELECT m.row_name, m.col_name, max(m.ts) as ts " +
+                " /* SQL_MET_GET_LATEST_CELL (" + tableName + ") */ " +
+                " SELECT m.row_name, m.col_name, m.ts" + (includeValue ? ", m.val " : " ") +
                 "   FROM pt_met_" + tableName + " m " +
                 "  WHERE m.row_name = ? " +
                 "    AND m.col_name = ? " +
                 "    AND m.ts < ? " +
-                " GROUP BY m.row_name, m.col_name " +
+                " ORDER BY m.ts DESC " +
                 " LIMIT 1";
-        query = wrapQueryWithIncludeValue("SQL_MET_GET_LATEST_CELL", query, includeValue);
         return new FullQuery(query).withArgs(cell.getRowName(), cell.getColumnName(), ts);
     }
 
     @Override
     public FullQuery getLatestCellsQuery(Iterable<Cell> cells, long ts, boolean includeValue) {
         String query =
-                " /* SQL_MET_GET_LATEST_CELLS_INNER (" + tableName + ") */ " +
-                " SELECT m.row_name, m.col_name, max(m.ts) as ts " +
-                "   FROM pt_met_" + tableName + " m, (VALUES " + nkParams(2, Iterables.size(cells)) + ") t(row_name, col_name) " +
-                "  WHERE m.row_name = t.row_name " +
-                "    AND m.col_name = t.col_name " +
-                "    AND m.ts < ? " +
-                " GROUP BY m.row_name, m.col_name ";
-        query = wrapQueryWithIncludeValue("SQL_MET_GET_LATEST_CELLS", query, includeValue);
+                " /* SQL_MET_GET_LATEST_CELLS_SINGLE_BOUND (" + tableName + ") */ " +
+                " SELECT t.row_name, t.col_name, l.ts" + (includeValue ? ", l.val " : " ") +
+                "   FROM unnest(" + BYTEA_ARRAY + ", " + BYTEA_ARRAY + ") AS t(row_name, col_name), " +
+                "        LATERAL " + latestVersionOfCell("?", includeValue) + " l";
         return addCellArgs(new FullQuery(query), cells).withArg(ts);
     }
 
     @Override
     public FullQuery getLatestCellsQuery(Collection<Entry<Cell, Long>> cells, boolean includeValue) {
         String query =
-                " /* SQL_MET_GET_LATEST_CELLS_INNER (" + tableName + ") */ " +
-                " SELECT m.row_name, m.col_name, max(m.ts) as ts " +
-                "   FROM pt_met_" + tableName + " m, (VALUES " + nkParams(3, Iterables.size(cells)) + ") t(row_name, col_name, ts) " +
-                "  WHERE m.row_name = t.row_name " +
-                "    AND m.col_name = t.col_name " +
-                "    AND m.ts < t.ts " +
-                " GROUP BY m.row_name, m.col_name ";
-        query = wrapQueryWithIncludeValue("SQL_MET_GET_LATEST_CELLS", query, includeValue);
+                " /* SQL_MET_GET_LATEST_CELLS_MANY_BOUNDS (" + tableName + ") */ " +
+                " SELECT t.row_name, t.col_name, l.ts" + (includeValue ? ", l.val " : " ") +
+                "   FROM unnest(" + BYTEA_ARRAY + ", " + BYTEA_ARRAY + ", " + INT8_ARRAY + ") " +
+                "          AS t(row_name, col_name, ts), " +
+                "        LATERAL " + latestVersionOfCell("t.ts", includeValue) + " l";
         return addCellTsArgs(new FullQuery(query), cells);
     }
 
@@ -200,9 +194,10 @@ public class PostgresQueryFactory implements DbQueryFactory {
     @Override
     public FullQuery getAllCellsQuery(Iterable<Cell> cells, long ts, boolean includeValue) {
         String query =
-                " /* SQL_MET_GET_ALL_CELLS (" + tableName + ") */ " +
+                " /* SQL_MET_GET_ALL_CELLS_SINGLE_BOUND (" + tableName + ") */ " +
                 " SELECT m.row_name, m.col_name, m.ts" + (includeValue ? ", m.val " : " ") +
-                "   FROM pt_met_" + tableName + " m, (VALUES " + nkParams(2, Iterables.size(cells)) + ") t(row_name, col_name) " +
+                "   FROM unnest(" + BYTEA_ARRAY + ", " + BYTEA_ARRAY + ") AS t(row_name, col_name), " +
+                "        pt_met_" + tableName + " m " +
                 "  WHERE m.row_name = t.row_name " +
                 "    AND m.col_name = t.col_name " +
                 "    AND m.ts < ? ";
@@ -212,9 +207,11 @@ public class PostgresQueryFactory implements DbQueryFactory {
     @Override
     public FullQuery getAllCellsQuery(Collection<Entry<Cell, Long>> cells, boolean includeValue) {
         String query =
-                " /* SQL_MET_GET_ALL_CELLS (" + tableName + ") */ " +
+                " /* SQL_MET_GET_ALL_CELLS_MANY_BOUNDS (" + tableName + ") */ " +
                 " SELECT m.row_name, m.col_name, m.ts" + (includeValue ? ", m.val " : " ") +
-                "   FROM pt_met_" + tableName + " m, (VALUES " + nkParams(3, Iterables.size(cells)) + ") t(row_name, col_name, ts) " +
+                "   FROM unnest(" + BYTEA_ARRAY + ", " + BYTEA_ARRAY + ", " + INT8_ARRAY + ") " +
+                "          AS t(row_name, col_name, ts), " +
+                "        pt_met_" + tableName + " m " +
                 "  WHERE m.row_name = t.row_name " +
                 "    AND m.col_name = t.col_name " +
                 "    AND m.ts < t.ts ";
@@ -254,48 +251,85 @@ public class PostgresQueryFactory implements DbQueryFactory {
         throw new IllegalStateException("postgres tables don't have overflow fields");
     }
 
-    private String nParams(int numParams) {
-        StringBuilder builder = new StringBuilder(2*numParams + 1).append('(');
-        Joiner.on(',').appendTo(builder, Iterables.limit(Iterables.cycle('?'), numParams));
-        return builder.append(')').toString();
-    }
-
-    private String nkParams(int numParams, int numEntries) {
-        String params = nParams(numParams);
-        return Joiner.on(',').join(Iterables.limit(Iterables.cycle(params.toString()), numEntries));
+    /**
+     * The latest version of each column of one row below the timestamp. Both sort keys descend so
+     * that the primary key index is read backwards without a sort.
+     */
+    private String latestVersionsOfRow(String rowName, String ts, ColumnSelection columns, boolean includeValue) {
+        return "( SELECT DISTINCT ON (m.col_name) " +
+               "         m.row_name, m.col_name, m.ts" + (includeValue ? ", m.val " : " ") +
+               "    FROM pt_met_" + tableName + " m " +
+               "   WHERE m.row_name = " + rowName +
+               "     AND m.ts < " + ts +
+               (columns.allColumnsSelected() ? "" :
+                   "     AND m.col_name = ANY(" + BYTEA_ARRAY + ") ") +
+               "   ORDER BY m.col_name DESC, m.ts DESC )";
     }
 
-    private String wrapQueryWithIncludeValue(String wrappedName, String query, boolean includeValue) {
-        if (!includeValue) {
-            return query;
-        }
-        return " /* " + wrappedName + " (" + tableName + ") */ " +
-                " SELECT wrap.row_name, wrap.col_name, wrap.ts, wrap.val " +
-                " FROM pt_met_" + tableName + " wrap, ( " + query + " ) i " +
-                " WHERE wrap.row_name = i.row_name " +
-                "   AND wrap.col_name = i.col_name " +
-                "   AND wrap.ts = i.ts ";
+    /**
+     * The latest version of the cell t below the timestamp, which is the first primary key index
+     * entry found reading backwards from it.
+     */
+    private String latestVersionOfCell(String ts, boolean includeValue) {
+        return "( SELECT m.ts" + (includeValue ? ", m.val " : " ") +
+               "    FROM pt_met_" + tableName + " m " +
+               "   WHERE m.row_name = t.row_name " +
+               "     AND m.col_name = t.col_name " +
+               "     AND m.ts < " + ts +
+               "   ORDER BY m.ts DESC " +
+               "   LIMIT 1 )";
     }
 
-    private FullQuery addRowTsArgs(FullQuery fullQuery, Iterable<Entry<byte[], Long>> rows) {
+    private FullQuery addRowTsArgs(FullQuery fullQuery, Collection<Entry<byte[], Long>> rows) {
+        List<byte[]> rowNames = Lists.newArrayListWithCapacity(rows.size());
+        List<Long> timestamps = Lists.newArrayListWithCapacity(rows.size());
         for (Entry<byte[], Long> entry : rows) {
-            fullQuery.withArgs(entry.getKey(), entry.getValue());
+            rowNames.add(entry.getKey());
+            timestamps.add(entry.getValue());
         }
-        return fullQuery;
+        return fullQuery.withArgs(toByteaArray(rowNames), toInt8Array(timestamps));
     }
 
     private FullQuery addCellArgs(FullQuery fullQuery, Iterable<Cell> cells) {
+        List<byte[]> rowNames = Lists.newArrayList();
+        List<byte[]> colNames = Lists.newArrayList();
         for (Cell cell : cells) {
-            fullQuery.withArgs(cell.getRowName(), cell.getColumnName());
+            rowNames.add(cell.getRowName());
+            colNames.add(cell.getColumnName());
         }
-        return fullQuery;
+        return fullQuery.withArgs(toByteaArray(rowNames), toByteaArray(colNames));
     }
 
     private FullQuery addCellTsArgs(FullQuery fullQuery, Collection<Entry<Cell, Long>> cells) {
+        List<byte[]> rowNames = Lists.newArrayListWithCapacity(cells.size());
+        List<byte[]> colNames = Lists.newArrayListWithCapacity(cells.size());
+        List<Long> timestamps = Lists.newArrayListWithCapacity(cells.size());
         for (Entry<Cell, Long> entry : cells) {
             Cell cell = entry.getKey();
-            fullQuery.withArgs(cell.getRowName(), cell.getColumnName(), entry.getValue());
+            rowNames.add(cell.getRowName());
+            colNames.add(cell.getColumnName());
+            timestamps.add(entry.getValue());
+        }
+        return fullQuery.withArgs(toByteaArray(rowNames), toByteaArray(colNames), toInt8Array(timestamps));
+    }
+
+    /**
+     * Formats the values as a bytea[] literal with each element in hex, e.g. {"\\x0a0b","\\x"}.
+     */
+    static String toByteaArray(Iterable<byte[]> values) {
+        StringBuilder builder = new StringBuilder().append('{');
+        boolean first = true;
+        for (byte[] value : values) {
+            if (!first) {
+                builder.append(',');
+            }
+            first = false;
+            builder.append("\"\\\\x").append(HEX.encode(value)).append('"');
         }
-        return fullQuery;
+        return builder.append('}').toString();
+    }
+
+    static String toInt8Array(Iterable<Long> values) {
+        return "{" + Joiner.on(',').join(values) + "}";
     }
 }
@@ -0,0 +1,63 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.dbkvs.impl.postgres;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+
+public class PostgresQueryFactoryTest {
+    private final PostgresQueryFactory factory = new PostgresQueryFactory("test");
+
+    @Test
+    public void testByteaArrayLiteral() {
+        assertEquals("{}", PostgresQueryFactory.toByteaArray(ImmutableList.<byte[]>of()));
+        assertEquals("{\"\\\\x0aff\",\"\\\\x\"}",
+                PostgresQueryFactory.toByteaArray(ImmutableList.of(new byte[] {10, -1}, new byte[0])));
+    }
+
+    @Test
+    public void testInt8ArrayLiteral() {
+        assertEquals("{1,-2}", PostgresQueryFactory.toInt8Array(ImmutableList.of(1L, -2L)));
+    }
+
+    @Test
+    public void testStatementDoesNotDependOnBatchSize() {
+        Cell cell = Cell.create(new byte[] {1}, new byte[] {2});
+        String one = factory.getLatestCellsQuery(ImmutableList.of(cell), 5L, true).getQuery();
+        String two = factory.getLatestCellsQuery(ImmutableList.of(cell, cell), 5L, true).getQuery();
+        assertEquals(one, two);
+
+        byte[] row = new byte[] {1};
+        assertEquals(
+                factory.getLatestRowsQuery(ImmutableList.of(row), 5L, ColumnSelection.all(), false).getQuery(),
+                factory.getLatestRowsQuery(ImmutableList.of(row, row, row), 5L, ColumnSelection.all(), false).getQuery());
+    }
+
+    @Test
+    public void testArgumentsAreBoundInStatementOrder() {
+        Cell cell = Cell.create(new byte[] {1}, new byte[] {2});
+        Object[] args = factory.getLatestCellsQuery(ImmutableList.of(cell), 5L, false).getArgs();
+        assertEquals(3, args.length);
+        assertEquals("{\"\\\\x01\"}", args[0]);
+        assertEquals("{\"\\\\x02\"}", args[1]);
+        assertEquals(5L, args[2]);
+    }
+}
@@ -0,0 +1,288 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.remoting;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.net.ssl.SSLSocketFactory;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.http.AtlasDbHttpClients;
+import com.palantir.atlasdb.http.NotCurrentLeaderExceptionMapper;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.common.base.ClosableIterator;
+import com.palantir.common.remoting.RemotingMediaTypes;
+import com.palantir.leader.NotCurrentLeaderException;
+import com.palantir.lock.HeldLocksToken;
+import com.palantir.lock.LockDescriptor;
+import com.palantir.lock.LockMode;
+import com.palantir.lock.LockRefreshToken;
+import com.palantir.lock.LockRequest;
+import com.palantir.lock.RemoteLockService;
+import com.palantir.lock.StringLockDescriptor;
+import com.palantir.lock.impl.LockServiceImpl;
+import com.palantir.timestamp.InMemoryTimestampService;
+import com.palantir.timestamp.TimestampRange;
+import com.palantir.timestamp.TimestampService;
+
+import io.dropwizard.testing.junit.DropwizardClientRule;
+
+/**
+ * Checks that remote clients switch to Smile against servers that register the Smile feature,
+ * and stay on (or go back to) JSON against servers that do not.
+ */
+public class SmileNegotiationTest {
+    private static final String SMILE = RemotingMediaTypes.APPLICATION_JACKSON_SMILE;
+    private static final TableReference TABLE = TableReference.createFromFullyQualifiedName("ns.smile_test");
+    private static final byte[] COLUMN = PtBytes.toBytes("c");
+    private static final long TIMESTAMP = 10L;
+
+    private final KeyValueService remoteKvs = RemotingKeyValueService.createServerSide(
+            new InMemoryKeyValueService(false), Suppliers.ofInstance(-1L));
+    private final Utils.MediaTypeRecorder smileKvsTypes = new Utils.MediaTypeRecorder();
+    private final Utils.MediaTypeRecorder jsonKvsTypes = new Utils.MediaTypeRecorder();
+
+    @Rule
+    public final DropwizardClientRule smileKvs = Utils.getRemoteKvsRuleWith(
+            remoteKvs, RemotingKeyValueService.smileFeature(), smileKvsTypes);
+
+    @Rule
+    public final DropwizardClientRule jsonKvs = Utils.getRemoteKvsRuleWith(remoteKvs, jsonKvsTypes);
+
+    private final LockServiceImpl rawLock = LockServiceImpl.create();
+    private final Utils.MediaTypeRecorder lockTypes = new Utils.MediaTypeRecorder();
+
+    @Rule
+    public final DropwizardClientRule smileLock = new DropwizardClientRule(
+            rawLock, AtlasDbHttpClients.smileFeature(), lockTypes);
+
+    private final AtomicBoolean lostLeadership = new AtomicBoolean(false);
+    private final Utils.MediaTypeRecorder smileTimestampTypes = new Utils.MediaTypeRecorder();
+    private final Utils.MediaTypeRecorder jsonTimestampTypes = new Utils.MediaTypeRecorder();
+
+    @Rule
+    public final DropwizardClientRule smileTimestamp = new DropwizardClientRule(new TimestampService() {
+        private final TimestampService delegate = new InMemoryTimestampService();
+
+        @Override
+        public long getFreshTimestamp() {
+            checkLeadership();
+            return delegate.getFreshTimestamp();
+        }
+
+        @Override
+        public TimestampRange getFreshTimestamps(int numTimestampsRequested) {
+            checkLeadership();
+            return delegate.getFreshTimestamps(numTimestampsRequested);
+        }
+
+        private void checkLeadership() {
+            if (lostLeadership.get()) {
+                throw new NotCurrentLeaderException("not the leader");
+            }
+        }
+    }, new NotCurrentLeaderExceptionMapper(), AtlasDbHttpClients.smileFeature(), smileTimestampTypes);
+
+    @Rule
+    public final DropwizardClientRule jsonTimestamp = new DropwizardClientRule(
+            new InMemoryTimestampService(), jsonTimestampTypes);
+
+    @Before
+    public void setupHacks() {
+        Utils.setupRuleHacks(smileKvs);
+        Utils.setupRuleHacks(jsonKvs);
+    }
+
+    @After
+    public void closeLockService() {
+        rawLock.close();
+    }
+
+    @Test
+    public void testKvsRoundTripsRowsAndRangePagesAsSmile() {
+        KeyValueService kvs = RemotingKeyValueService.createClientSide(
+                smileKvs.baseUri().toString(), Suppliers.ofInstance(-1L));
+        Map<Cell, byte[]> values = putRows(kvs, 25);
+        // The table names came back as JSON, after which the rows were sent as Smile
+        Assert.assertTrue(smileKvsTypes.getResponseTypes().contains("application/json"));
+        Assert.assertTrue(smileKvsTypes.getRequestTypes().contains(SMILE));
+
+        smileKvsTypes.clear();
+        Map<Cell, Value> rows = kvs.getRows(TABLE, rowNames(values.keySet()), ColumnSelection.all(), TIMESTAMP + 1);
+        assertValues(values, rows);
+
+        List<RowResult<Value>> rowResults = Lists.newArrayList();
+        try (ClosableIterator<RowResult<Value>> range = kvs.getRange(
+                TABLE, RangeRequest.builder().batchHint(10).build(), TIMESTAMP + 1)) {
+            Iterators.addAll(rowResults, range);
+        }
+        Assert.assertEquals(values.size(), rowResults.size());
+        Map<Cell, Value> rangeValues = Maps.newHashMap();
+        for (RowResult<Value> rowResult : rowResults) {
+            for (Map.Entry<Cell, Value> e : rowResult.getCells()) {
+                rangeValues.put(e.getKey(), e.getValue());
+            }
+        }
+        assertValues(values, rangeValues);
+
+        // One get and at least three range pages, all of them sent as Smile
+        Assert.assertTrue(smileKvsTypes.getResponseTypes().size() >= 4);
+        for (String responseType : smileKvsTypes.getResponseTypes()) {
+            Assert.assertEquals(SMILE, responseType);
+        }
+    }
+
+    @Test
+    public void testKvsStaysOnJsonWithoutSmileServer() {
+        KeyValueService kvs = RemotingKeyValueService.createClientSide(
+                jsonKvs.baseUri().toString(), Suppliers.ofInstance(-1L));
+        Map<Cell, byte[]> values = putRows(kvs, 5);
+        assertValues(values, kvs.getRows(TABLE, rowNames(values.keySet()), ColumnSelection.all(), TIMESTAMP + 1));
+        try (ClosableIterator<RowResult<Value>> range = kvs.getRange(
+                TABLE, RangeRequest.builder().batchHint(2).build(), TIMESTAMP + 1)) {
+            Assert.assertEquals(values.size(), ImmutableList.copyOf(range).size());
+        }
+
+        assertNoSmile(jsonKvsTypes);
+    }
+
+    @Test
+    public void testLockResponsesRoundTripAsSmile() throws InterruptedException {
+        RemoteLockService lock = AtlasDbHttpClients.createProxy(
+                Optional.<SSLSocketFactory>absent(), smileLock.baseUri().toString(), RemoteLockService.class);
+        lock.currentTimeMillis();
+
+        String client = "client";
+        LockRefreshToken token = lock.lock(client, lockRequest("a", 7L));
+        Assert.assertNotNull(token);
+        Assert.assertEquals(ImmutableSet.of(token), lock.refreshLockRefreshTokens(ImmutableList.of(token)));
+        Assert.assertEquals(Long.valueOf(7L), lock.getMinLockedInVersionId(client));
+
+        HeldLocksToken heldLocks = lock.lockAndGetHeldLocks(client, lockRequest("b", 8L));
+        Assert.assertNotNull(heldLocks);
+        Assert.assertEquals(ImmutableSet.of(StringLockDescriptor.of("b")),
+                ImmutableSet.copyOf(heldLocks.getLockDescriptors()));
+        Assert.assertEquals(Long.valueOf(8L), heldLocks.getVersionId());
+        Assert.assertNull(lock.lockAndGetHeldLocks("other client", lockRequest("b", 9L)));
+
+        Assert.assertTrue(lock.unlock(token));
+        Assert.assertTrue(lock.unlock(heldLocks.getLockRefreshToken()));
+
+        List<String> responseTypes = lockTypes.getResponseTypes();
+        Assert.assertEquals("application/json", responseTypes.get(0));
+        for (String responseType : responseTypes.subList(1, responseTypes.size())) {
+            Assert.assertEquals(SMILE, responseType);
+        }
+        // Lock clients may fail over to a JSON only server, so they keep sending JSON
+        Assert.assertFalse(lockTypes.getRequestTypes().contains(SMILE));
+    }
+
+    @Test
+    public void testFailoverClientGoesBackToJson() {
+        TimestampService timestamps = AtlasDbHttpClients.createProxyWithFailover(
+                Optional.<SSLSocketFactory>absent(),
+                ImmutableList.of(smileTimestamp.baseUri().toString(), jsonTimestamp.baseUri().toString()),
+                TimestampService.class);
+        timestamps.getFreshTimestamp();
+        timestamps.getFreshTimestamps(10);
+        Assert.assertEquals(ImmutableList.of("application/json", SMILE), smileTimestampTypes.getResponseTypes());
+
+        lostLeadership.set(true);
+        long first = timestamps.getFreshTimestamp();
+        long second = timestamps.getFreshTimestamp();
+        Assert.assertTrue(second > first);
+
+        List<String> accepted = jsonTimestampTypes.getAcceptedTypes();
+        Assert.assertEquals(2, accepted.size());
+        // The first request after failing over still asked for Smile, the next one does not
+        Assert.assertTrue(accepted.get(0).contains(SMILE));
+        Assert.assertFalse(accepted.get(1).contains(SMILE));
+        Assert.assertEquals(ImmutableList.of("application/json", "application/json"), jsonTimestampTypes.getResponseTypes());
+    }
+
+    private static Map<Cell, byte[]> putRows(KeyValueService kvs, int numRows) {
+        kvs.createTable(TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA);
+        Assert.assertTrue(kvs.getAllTableNames().contains(TABLE));
+        Map<Cell, byte[]> values = Maps.newHashMap();
+        for (int i = 0; i < numRows; i++) {
+            // Every byte value, to check that nothing is lost in the binary encoding
+            byte[] value = new byte[256];
+            for (int b = 0; b < value.length; b++) {
+                value[b] = (byte) (b + i);
+            }
+            values.put(Cell.create(PtBytes.toBytes("row" + i), COLUMN), value);
+        }
+        kvs.put(TABLE, values, TIMESTAMP);
+        return values;
+    }
+
+    private static List<byte[]> rowNames(Iterable<Cell> cells) {
+        List<byte[]> rows = Lists.newArrayList();
+        for (Cell cell : cells) {
+            rows.add(cell.getRowName());
+        }
+        return rows;
+    }
+
+    private static void assertValues(Map<Cell, byte[]> expected, Map<Cell, Value> actual) {
+        Assert.assertEquals(expected.keySet(), actual.keySet());
+        for (Map.Entry<Cell, byte[]> e : expected.entrySet()) {
+            Assert.assertArrayEquals(e.getValue(), actual.get(e.getKey()).getContents());
+            Assert.assertEquals(TIMESTAMP, actual.get(e.getKey()).getTimestamp());
+        }
+    }
+
+    private static LockRequest lockRequest(String lockName, long versionId) {
+        return LockRequest.builder(ImmutableSortedMap.<LockDescriptor, LockMode>of(
+                StringLockDescriptor.of(lockName), LockMode.WRITE))
+                .doNotBlock()
+                .withLockedInVersionId(versionId)
+                .build();
+    }
+
+    private static void assertNoSmile(Utils.MediaTypeRecorder recorder) {
+        Assert.assertFalse(recorder.getResponseTypes().isEmpty());
+        Assert.assertFalse(recorder.getRequestTypes().contains(SMILE));
+        Assert.assertFalse(recorder.getResponseTypes().contains(SMILE));
+        for (String accepted : recorder.getAcceptedTypes()) {
+            Assert.assertFalse(accepted, accepted.contains(SMILE));
+        }
+    }
+}
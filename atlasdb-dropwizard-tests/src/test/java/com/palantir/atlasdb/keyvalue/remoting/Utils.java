@@ -15,12 +15,23 @@
  */
 package com.palantir.atlasdb.keyvalue.remoting;
 
+import java.io.IOException;
 import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.fasterxml.jackson.datatype.guava.GuavaModule;
 import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.partition.map.PartitionMapService;
 import com.palantir.atlasdb.keyvalue.partition.server.EndpointServer;
@@ -37,13 +48,22 @@ public class Utils {
     public static final ObjectMapper mapper = RemotingKeyValueService.kvsMapper();
 
     public static DropwizardClientRule getRemoteKvsRule(KeyValueService remoteKvs) {
-        DropwizardClientRule rule = new DropwizardClientRule(remoteKvs,
+        return getRemoteKvsRuleWith(remoteKvs, RemotingKeyValueService.smileFeature());
+    }
+
+    /**
+     * Like {@link #getRemoteKvsRule} but with the given extra providers instead of the
+     * Smile feature, eg. to stand in for a server that only speaks JSON.
+     */
+    public static DropwizardClientRule getRemoteKvsRuleWith(KeyValueService remoteKvs, Object... providers) {
+        List<Object> resources = Lists.<Object>newArrayList(remoteKvs,
                 KeyAlreadyExistsExceptionMapper.instance(),
                 InsufficientConsistencyExceptionMapper.instance(),
                 ClientVersionTooOldExceptionMapper.instance(),
                 EndpointVersionTooOldExceptionMapper.instance(),
                 new InboxPopulatingContainerRequestFilter(mapper));
-        return rule;
+        resources.addAll(Arrays.asList(providers));
+        return new DropwizardClientRule(resources.toArray());
     }
 
     public static void setupRuleHacks(DropwizardClientRule rule) {
@@ -100,4 +120,43 @@ public class Utils {
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * Records the content types of the requests a server received and of its responses.
+     */
+    public static class MediaTypeRecorder implements ContainerResponseFilter {
+        private final List<String> requestTypes = Lists.newCopyOnWriteArrayList();
+        private final List<String> acceptedTypes = Lists.newCopyOnWriteArrayList();
+        private final List<String> responseTypes = Lists.newCopyOnWriteArrayList();
+
+        @Override
+        public void filter(ContainerRequestContext requestContext,
+                           ContainerResponseContext responseContext) throws IOException {
+            requestTypes.add(toString(requestContext.getMediaType()));
+            acceptedTypes.add(String.valueOf(requestContext.getHeaderString(HttpHeaders.ACCEPT)));
+            responseTypes.add(toString(responseContext.getMediaType()));
+        }
+
+        private static String toString(MediaType mediaType) {
+            return mediaType == null ? "none" : mediaType.getType() + "/" + mediaType.getSubtype();
+        }
+
+        public List<String> getRequestTypes() {
+            return ImmutableList.copyOf(requestTypes);
+        }
+
+        public List<String> getAcceptedTypes() {
+            return ImmutableList.copyOf(acceptedTypes);
+        }
+
+        public List<String> getResponseTypes() {
+            return ImmutableList.copyOf(responseTypes);
+        }
+
+        public void clear() {
+            requestTypes.clear();
+            acceptedTypes.clear();
+            responseTypes.clear();
+        }
+    }
+
+}
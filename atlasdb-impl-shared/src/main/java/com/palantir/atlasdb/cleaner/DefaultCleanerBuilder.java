@@ -95,12 +95,12 @@ public class DefaultCleanerBuilder {
 
     private Puncher buildPuncher() {
         KeyValueServicePuncherStore keyValuePuncherStore = KeyValueServicePuncherStore.create(keyValueService);
-        PuncherStore cachingPuncherStore = CachingPuncherStore.create(
+        PuncherStore indexedPuncherStore = IndexedPuncherStore.create(
                 keyValuePuncherStore,
-                punchIntervalMillis * 3);
+                punchIntervalMillis);
         Clock clock = GlobalClock.create(lockService);
         SimplePuncher simplePuncher = SimplePuncher.create(
-                cachingPuncherStore,
+                indexedPuncherStore,
                 clock,
                 Suppliers.ofInstance(transactionReadTimeout));
         return AsyncPuncher.create(simplePuncher, punchIntervalMillis);
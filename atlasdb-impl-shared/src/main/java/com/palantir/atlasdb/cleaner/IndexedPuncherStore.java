@@ -0,0 +1,331 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.cleaner;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.SortedMap;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.Immutable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Maps;
+
+/**
+ * Wrap a {@link KeyValueServicePuncherStore}, answering both lookups from an in memory index of
+ * every punch instead of scanning the punch table.
+ * <p>
+ * The index is loaded once when the store is created. Punches made through this store go straight
+ * into the index, and punches made by other clients are picked up by re-reading the newest part of
+ * the punch table at most once per refresh interval.
+ * <p>
+ * Other clients punch with their own clocks, so each refresh re-reads every punch stamped no earlier
+ * than the previous refresh minus the maximum clock skew. A punch from a client whose clock lags ours
+ * by more than that bound is only seen by stores created after it was made.
+ * <p>
+ * The punch table gains a row every punch interval forever, so punches older than the compaction
+ * age are thinned out to the earliest punch in each compaction bucket, both in the index and in the
+ * table. This is safe because both lookups can only move to an earlier punch, which makes the
+ * unreadable timestamp more conservative. Compaction runs from {@link #put}, which is called on the
+ * background puncher thread.
+ */
+public class IndexedPuncherStore implements PuncherStore {
+    private static final Logger log = LoggerFactory.getLogger(IndexedPuncherStore.class);
+
+    public static final long DEFAULT_COMPACTION_AGE_MILLIS = 24L * 60 * 60 * 1000;
+    public static final long DEFAULT_COMPACTION_GRANULARITY_MILLIS = 60L * 60 * 1000;
+    public static final long DEFAULT_MAX_CLOCK_SKEW_MILLIS = 10L * 60 * 1000;
+
+    public static IndexedPuncherStore create(KeyValueServicePuncherStore puncherStore, long refreshIntervalMillis) {
+        return create(puncherStore,
+                refreshIntervalMillis,
+                DEFAULT_COMPACTION_AGE_MILLIS,
+                DEFAULT_COMPACTION_GRANULARITY_MILLIS);
+    }
+
+    public static IndexedPuncherStore create(KeyValueServicePuncherStore puncherStore,
+                                             long refreshIntervalMillis,
+                                             long compactionAgeMillis,
+                                             long compactionGranularityMillis) {
+        return create(puncherStore,
+                refreshIntervalMillis,
+                compactionAgeMillis,
+                compactionGranularityMillis,
+                DEFAULT_MAX_CLOCK_SKEW_MILLIS);
+    }
+
+    public static IndexedPuncherStore create(KeyValueServicePuncherStore puncherStore,
+                                             long refreshIntervalMillis,
+                                             long compactionAgeMillis,
+                                             long compactionGranularityMillis,
+                                             long maxClockSkewMillis) {
+        Preconditions.checkArgument(maxClockSkewMillis < compactionAgeMillis,
+                "The maximum clock skew must be less than the compaction age.");
+        IndexedPuncherStore store = new IndexedPuncherStore(
+                puncherStore,
+                refreshIntervalMillis,
+                compactionAgeMillis,
+                compactionGranularityMillis,
+                maxClockSkewMillis);
+        store.load();
+        return store;
+    }
+
+    private final KeyValueServicePuncherStore puncherStore;
+    private final long refreshIntervalMillis;
+    private final long compactionAgeMillis;
+    private final long compactionGranularityMillis;
+    private final long maxClockSkewMillis;
+
+    private volatile PunchIndex index = PunchIndex.EMPTY;
+    private volatile long lastRefreshMillis;
+    @GuardedBy("this") private long lastCompactionMillis;
+
+    private IndexedPuncherStore(KeyValueServicePuncherStore puncherStore,
+                                long refreshIntervalMillis,
+                                long compactionAgeMillis,
+                                long compactionGranularityMillis,
+                                long maxClockSkewMillis) {
+        this.puncherStore = puncherStore;
+        this.refreshIntervalMillis = refreshIntervalMillis;
+        this.compactionAgeMillis = compactionAgeMillis;
+        this.compactionGranularityMillis = compactionGranularityMillis;
+        this.maxClockSkewMillis = maxClockSkewMillis;
+    }
+
+    private synchronized void load() {
+        index = PunchIndex.EMPTY.merge(puncherStore.getPunchesSince(0L));
+        lastRefreshMillis = System.currentTimeMillis();
+        lastCompactionMillis = lastRefreshMillis;
+    }
+
+    @Override
+    public void put(long timestamp, long timeMillis) {
+        puncherStore.put(timestamp, timeMillis);
+        synchronized (this) {
+            index = index.merge(ImmutableSortedMap.of(timeMillis, timestamp));
+        }
+        maybeCompact();
+    }
+
+    @Override
+    public Long get(Long timeMillis) {
+        maybeRefresh();
+        return index.getTimestampAtOrBefore(timeMillis);
+    }
+
+    @Override
+    public long getMillisForTimestamp(long timestamp) {
+        maybeRefresh();
+        return index.getMillisForTimestamp(timestamp);
+    }
+
+    public int size() {
+        return index.size;
+    }
+
+    private void maybeRefresh() {
+        long now = System.currentTimeMillis();
+        if (now - lastRefreshMillis < refreshIntervalMillis) {
+            return;
+        }
+        synchronized (this) {
+            if (now - lastRefreshMillis < refreshIntervalMillis) {
+                return;
+            }
+            // Anything punched since the last refresh is stamped no earlier than that refresh by a
+            // clock that lags ours by at most the skew bound. The newest punch we know about is no
+            // anchor, since a client whose clock runs ahead may have stamped it in our future.
+            long since = Math.max(0L, lastRefreshMillis - maxClockSkewMillis);
+            index = index.merge(puncherStore.getPunchesSince(since));
+            lastRefreshMillis = now;
+        }
+    }
+
+    private synchronized void maybeCompact() {
+        long now = System.currentTimeMillis();
+        if (now - lastCompactionMillis < compactionGranularityMillis) {
+            return;
+        }
+        lastCompactionMillis = now;
+        SortedMap<Long, Long> removed = Maps.newTreeMap();
+        PunchIndex compacted = index.compact(now - compactionAgeMillis, compactionGranularityMillis, removed);
+        if (removed.isEmpty()) {
+            return;
+        }
+        // Thin the index first; the rows left in the table are only ever a superset.
+        index = compacted;
+        try {
+            puncherStore.deletePunches(removed);
+        } catch (RuntimeException e) {
+            log.warn("Failed to delete " + removed.size() + " old punches; they will be retried at the next compaction.", e);
+            return;
+        }
+        if (log.isInfoEnabled()) {
+            log.info("Compacted " + removed.size() + " punches older than " + (now - compactionAgeMillis)
+                    + " millis; " + compacted.size + " punches remain.");
+        }
+    }
+
+    /**
+     * Punches sorted by wall clock time in parallel arrays. {@code minTimestampFrom[i]} is the
+     * smallest timestamp punched at index i or later, which is non-decreasing even if clients
+     * punched slightly out of order, so looking up the latest punch at or below a timestamp is a
+     * binary search as well.
+     * <p>
+     * Appending a punch that is newer in both time and timestamp writes past {@code size} in the
+     * shared arrays and publishes a new instance with a larger size, so readers of older instances
+     * are unaffected. Anything else copies.
+     */
+    @Immutable
+    private static final class PunchIndex {
+        static final PunchIndex EMPTY = new PunchIndex(new long[0], new long[0], new long[0], 0);
+
+        final long[] millis;
+        final long[] timestamps;
+        final long[] minTimestampFrom;
+        final int size;
+
+        PunchIndex(long[] millis, long[] timestamps, long[] minTimestampFrom, int size) {
+            this.millis = millis;
+            this.timestamps = timestamps;
+            this.minTimestampFrom = minTimestampFrom;
+            this.size = size;
+        }
+
+        /**
+         * The timestamp of the latest punch at or before timeMillis.
+         */
+        long getTimestampAtOrBefore(long timeMillis) {
+            int i = Arrays.binarySearch(millis, 0, size, timeMillis);
+            if (i < 0) {
+                i = -i - 2;
+            }
+            return i < 0 ? Long.MIN_VALUE : timestamps[i];
+        }
+
+        /**
+         * The time of the latest punch whose timestamp is at or below timestamp.
+         */
+        long getMillisForTimestamp(long timestamp) {
+            // Find the last index whose suffix minimum is <= timestamp.
+            int lo = 0;
+            int hi = size - 1;
+            int found = -1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (minTimestampFrom[mid] <= timestamp) {
+                    found = mid;
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            return found < 0 ? 0L : millis[found];
+        }
+
+        /**
+         * Must only be called by the single writer holding the store's lock.
+         */
+        PunchIndex merge(SortedMap<Long, Long> punches) {
+            PunchIndex result = this;
+            for (Map.Entry<Long, Long> punch : punches.entrySet()) {
+                result = result.with(punch.getKey(), punch.getValue());
+            }
+            return result;
+        }
+
+        private PunchIndex with(long timeMillis, long timestamp) {
+            if (size == 0 || (timeMillis > millis[size - 1] && timestamp >= timestamps[size - 1])) {
+                long[] newMillis = millis;
+                long[] newTimestamps = timestamps;
+                long[] newMinTimestampFrom = minTimestampFrom;
+                if (size == millis.length) {
+                    int capacity = Math.max(16, size + (size >> 1));
+                    newMillis = Arrays.copyOf(millis, capacity);
+                    newTimestamps = Arrays.copyOf(timestamps, capacity);
+                    newMinTimestampFrom = Arrays.copyOf(minTimestampFrom, capacity);
+                }
+                newMillis[size] = timeMillis;
+                newTimestamps[size] = timestamp;
+                newMinTimestampFrom[size] = timestamp;
+                return new PunchIndex(newMillis, newTimestamps, newMinTimestampFrom, size + 1);
+            }
+            int i = Arrays.binarySearch(millis, 0, size, timeMillis);
+            if (i >= 0 && timestamps[i] == timestamp) {
+                return this;
+            }
+            SortedMap<Long, Long> all = toMap();
+            all.put(timeMillis, timestamp);
+            return build(all);
+        }
+
+        /**
+         * Keeps only the earliest punch in each granularity bucket for punches before cutoffMillis,
+         * adding the punches that were dropped to removed.
+         */
+        PunchIndex compact(long cutoffMillis, long granularityMillis, SortedMap<Long, Long> removed) {
+            SortedMap<Long, Long> kept = Maps.newTreeMap();
+            long lastBucket = Long.MIN_VALUE;
+            for (int i = 0; i < size; i++) {
+                if (millis[i] >= cutoffMillis) {
+                    kept.put(millis[i], timestamps[i]);
+                    continue;
+                }
+                long bucket = millis[i] / granularityMillis;
+                if (bucket != lastBucket) {
+                    kept.put(millis[i], timestamps[i]);
+                    lastBucket = bucket;
+                } else {
+                    removed.put(millis[i], timestamps[i]);
+                }
+            }
+            return removed.isEmpty() ? this : build(kept);
+        }
+
+        private SortedMap<Long, Long> toMap() {
+            SortedMap<Long, Long> map = Maps.newTreeMap();
+            for (int i = 0; i < size; i++) {
+                map.put(millis[i], timestamps[i]);
+            }
+            return map;
+        }
+
+        private static PunchIndex build(SortedMap<Long, Long> punches) {
+            int size = punches.size();
+            long[] millis = new long[size];
+            long[] timestamps = new long[size];
+            long[] minTimestampFrom = new long[size];
+            int i = 0;
+            for (Map.Entry<Long, Long> punch : punches.entrySet()) {
+                millis[i] = punch.getKey();
+                timestamps[i] = punch.getValue();
+                i++;
+            }
+            long min = Long.MAX_VALUE;
+            for (int j = size - 1; j >= 0; j--) {
+                min = Math.min(min, timestamps[j]);
+                minTimestampFrom[j] = min;
+            }
+            return new PunchIndex(millis, timestamps, minTimestampFrom, size);
+        }
+    }
+}
@@ -15,8 +15,14 @@
  */
 package com.palantir.atlasdb.cleaner;
 
+import java.util.Map;
+import java.util.SortedMap;
+
+import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
 import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
@@ -60,9 +66,7 @@ public class KeyValueServicePuncherStore implements PuncherStore {
 
     @Override
     public void put(long timestamp, long timeMillis) {
-        byte[] row = EncodingUtils.encodeUnsignedVarLong(timeMillis);
-        EncodingUtils.flipAllBitsInPlace(row);
-        Cell cell = Cell.create(row, COLUMN);
+        Cell cell = Cell.create(encodeRow(timeMillis), COLUMN);
         byte[] value = EncodingUtils.encodeUnsignedVarLong(timestamp);
         keyValueService.put(AtlasDbConstants.PUNCH_TABLE, ImmutableMap.of(cell, value), timestamp);
     }
@@ -91,6 +95,52 @@ public class KeyValueServicePuncherStore implements PuncherStore {
         return getMillisForTimestamp(keyValueService, timestamp);
     }
 
+    /**
+     * Reads every punch made at or after timeMillis, keyed by wall clock time.
+     */
+    public SortedMap<Long, Long> getPunchesSince(long timeMillis) {
+        byte[] startRow = encodeRow(Long.MAX_VALUE);
+        RangeRequest.Builder rangeRequest = RangeRequest.builder().startRowInclusive(startRow);
+        if (timeMillis > 0) {
+            // Rows are in descending time order, so the range ends just past the row for timeMillis.
+            rangeRequest = rangeRequest.endRowExclusive(encodeRow(timeMillis - 1));
+        }
+        ClosableIterator<RowResult<Value>> result =
+                keyValueService.getRange(AtlasDbConstants.PUNCH_TABLE, rangeRequest.build(), Long.MAX_VALUE);
+        SortedMap<Long, Long> punches = Maps.newTreeMap();
+        try {
+            while (result.hasNext()) {
+                RowResult<Value> row = result.next();
+                byte[] encodedMillis = row.getRowName();
+                EncodingUtils.flipAllBitsInPlace(encodedMillis);
+                punches.put(EncodingUtils.decodeUnsignedVarLong(encodedMillis),
+                        EncodingUtils.decodeUnsignedVarLong(row.getColumns().get(COLUMN).getContents()));
+            }
+        } finally {
+            result.close();
+        }
+        return punches;
+    }
+
+    /**
+     * Deletes the given punches, keyed by wall clock time.
+     */
+    public void deletePunches(Map<Long, Long> timeMillisToTimestamp) {
+        Multimap<Cell, Long> toDelete = HashMultimap.create();
+        for (Map.Entry<Long, Long> punch : timeMillisToTimestamp.entrySet()) {
+            toDelete.put(Cell.create(encodeRow(punch.getKey()), COLUMN), punch.getValue());
+        }
+        if (!toDelete.isEmpty()) {
+            keyValueService.delete(AtlasDbConstants.PUNCH_TABLE, toDelete);
+        }
+    }
+
+    private static byte[] encodeRow(long timeMillis) {
+        byte[] row = EncodingUtils.encodeUnsignedVarLong(timeMillis);
+        EncodingUtils.flipAllBitsInPlace(row);
+        return row;
+    }
+
     public static long getMillisForTimestamp(KeyValueService kvs, long timestamp) {
         long timestampExclusive = timestamp + 1;
         // punch table is keyed by the real value we're trying to find so we have to do a whole table
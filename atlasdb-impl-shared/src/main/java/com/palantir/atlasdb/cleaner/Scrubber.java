@@ -23,12 +23,16 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.concurrent.GuardedBy;
 
@@ -38,10 +42,11 @@ import org.slf4j.LoggerFactory;
 import com.google.common.base.Functions;
 import com.google.common.base.Supplier;
 import com.google.common.collect.HashMultimap;
-import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
 import com.google.common.collect.Ordering;
@@ -55,6 +60,7 @@ import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.keyvalue.impl.KeyValueServices;
 import com.palantir.atlasdb.table.description.UniformRowNamePartitioner;
 import com.palantir.atlasdb.table.description.ValueType;
 import com.palantir.atlasdb.transaction.api.Transaction;
@@ -67,7 +73,6 @@ import com.palantir.common.base.AbortingVisitor;
 import com.palantir.common.base.BatchingVisitable;
 import com.palantir.common.base.BatchingVisitableView;
 import com.palantir.common.base.Throwables;
-import com.palantir.common.collect.Maps2;
 import com.palantir.common.concurrent.ExecutorInheritableThreadLocal;
 import com.palantir.common.concurrent.NamedThreadFactory;
 import com.palantir.common.concurrent.PTExecutors;
@@ -84,9 +89,16 @@ public final class Scrubber {
     private static final Logger log = LoggerFactory.getLogger(Scrubber.class);
     private static final int MAX_RETRY_ATTEMPTS = 100;
     private static final int RETRY_SLEEP_INTERVAL_IN_MILLIS = 1000;
+    // Bounds how many cells each queue depth sample reads.
+    private static final int QUEUE_DEPTH_SCAN_LIMIT = 100000;
+    // Counting the queue is a scan of the _scrub table, so it is sampled on its own schedule
+    // rather than after every background pass.
+    private static final long QUEUE_DEPTH_SAMPLE_INTERVAL_MILLIS = 5 * 60 * 1000;
 
     private final ScheduledExecutorService service = PTExecutors.newSingleThreadScheduledExecutor(
             new NamedThreadFactory("scrubber", true /* daemon */));
+    private final ScheduledExecutorService queueDepthSampler = PTExecutors.newSingleThreadScheduledExecutor(
+            new NamedThreadFactory("scrubber-queue-depth", true /* daemon */));
     @GuardedBy("this") private boolean scrubTaskLaunched = false;
 
     private final KeyValueService keyValueService;
@@ -105,6 +117,9 @@ public final class Scrubber {
     private final ExecutorService readerExec;
     private final ExecutorService exec;
 
+    private final AtomicLong queueDepth = new AtomicLong();
+    private final AtomicLong lagTimestamps = new AtomicLong();
+
     private static final String SCRUBBER_THREAD_PREFIX = "AtlasScrubber";
 
     // Keep track of threads spawned by scrub, so we don't starve when
@@ -215,10 +230,30 @@ public final class Scrubber {
             }
         };
         service.schedule(scrubTask, 0, TimeUnit.MILLISECONDS);
+        queueDepthSampler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    sampleQueueDepth();
+                } catch (Throwable t) { // (authorized)
+                    // A failure would cancel the schedule, so log it and try again next time.
+                    log.error("Failed to sample the scrub queue depth", t);
+                }
+            }
+        }, 0, QUEUE_DEPTH_SAMPLE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
         scrubTaskLaunched = true;
     }
 
-    private void runBackgroundScrubTask(final TransactionManager txManager) {
+    /* package */ void sampleQueueDepth() {
+        long depth = scrubberStore.getNumberRemainingScrubCells(QUEUE_DEPTH_SCAN_LIMIT);
+        queueDepth.set(depth);
+        ScrubberMetrics.QUEUE_DEPTH.set(depth);
+        if (log.isInfoEnabled()) {
+            log.info("Scrub queue depth is " + depth + (depth >= QUEUE_DEPTH_SCAN_LIMIT ? " or more" : "") + " cells.");
+        }
+    }
+
+    /* package */ void runBackgroundScrubTask(final TransactionManager txManager) {
         log.info("Starting scrub task");
 
         // Warning: Let T be the hard delete transaction that triggered a scrub, and let S be its
@@ -248,6 +283,14 @@ public final class Scrubber {
         }
         rangeBoundaries.add(PtBytes.EMPTY_BYTE_ARRAY);
 
+        // Readers only pull batches off the scrub queue; the batches are independent of each other,
+        // so they are scrubbed on the worker pool while the readers keep going. The semaphore keeps
+        // a bounded number of batches in memory. Once a batch fails the readers stop handing out
+        // more work, and the failure is rethrown after the batches already in flight finish.
+        final Semaphore batchesInFlight = new Semaphore(2 * threadCount);
+        final AtomicBoolean batchFailed = new AtomicBoolean(false);
+        final ConcurrentLinkedQueue<Future<Void>> batchFutures = new ConcurrentLinkedQueue<Future<Void>>();
+        final AtomicLong oldestScrubTimestamp = new AtomicLong(maxScrubTimestamp);
         List<Future<Void>> readerFutures = Lists.newArrayList();
         final AtomicInteger totalCellsRead = new AtomicInteger(0);
         for (int i = 0; i < rangeBoundaries.size() - 1; i++) {
@@ -262,31 +305,75 @@ public final class Scrubber {
                     BatchingVisitableView.of(scrubQueue).batchAccept(1, new AbortingVisitor<List<SortedMap<Long, Multimap<TableReference, Cell>>>, RuntimeException>() {
                         @Override
                         public boolean visit(List<SortedMap<Long, Multimap<TableReference, Cell>>> batch) {
-                            for (SortedMap<Long, Multimap<TableReference, Cell>> cells : batch) {
-                                // We may actually get more cells than the batch size. The batch size is used for pulling off the scrub queue,
-                                // and a single entry in the scrub queue may match multiple tables.
-                                // These will get broken down into smaller batches later on when we actually do deletes.
-                                int numCellsRead = scrubSomeCells(cells, txManager, maxScrubTimestamp);
-                                int totalRead = totalCellsRead.addAndGet(numCellsRead);
-                                if (log.isInfoEnabled()) {
-                                    log.info("Scrub task processed " + numCellsRead + " cells in a batch, total " + totalRead + " processed so far.");
-                                }
+                            for (final SortedMap<Long, Multimap<TableReference, Cell>> cells : batch) {
                                 if (!isScrubEnabled.get()) {
                                     log.info("Stopping scrub for banned hours.");
                                     break;
                                 }
+                                if (cells.isEmpty()) {
+                                    continue;
+                                }
+                                batchesInFlight.acquireUninterruptibly();
+                                if (batchFailed.get()) {
+                                    batchesInFlight.release();
+                                    return false;
+                                }
+                                updateMin(oldestScrubTimestamp, cells.firstKey());
+                                try {
+                                    batchFutures.add(exec.submit(new Callable<Void>() {
+                                        @Override
+                                        public Void call() {
+                                            inScrubThread.set(true);
+                                            try {
+                                                // We may actually get more cells than the batch size. The batch size is used for pulling off the scrub queue,
+                                                // and a single entry in the scrub queue may match multiple tables.
+                                                int numCellsRead = scrubSomeCells(cells, txManager, maxScrubTimestamp);
+                                                int totalRead = totalCellsRead.addAndGet(numCellsRead);
+                                                if (log.isInfoEnabled()) {
+                                                    log.info("Scrub task processed " + numCellsRead + " cells in a batch, total " + totalRead + " processed so far.");
+                                                }
+                                                return null;
+                                            } catch (RuntimeException e) {
+                                                batchFailed.set(true);
+                                                throw e;
+                                            } catch (Error e) {
+                                                batchFailed.set(true);
+                                                throw e;
+                                            } finally {
+                                                batchesInFlight.release();
+                                            }
+                                        }}));
+                                } catch (RuntimeException e) {
+                                    batchesInFlight.release();
+                                    throw e;
+                                }
                             }
-                            return isScrubEnabled.get();
+                            return isScrubEnabled.get() && !batchFailed.get();
                         }});
                     return null;
                 }}));
         }
 
-        for (Future<Void> readerFuture : readerFutures) {
-            Futures.getUnchecked(readerFuture);
+        try {
+            for (Future<Void> readerFuture : readerFutures) {
+                Futures.getUnchecked(readerFuture);
+            }
+        } finally {
+            // Wait for every batch that was handed off, even if a reader failed, so that the next
+            // pass does not race with batches still in flight from this one.
+            for (Future<Void> batchFuture : batchFutures) {
+                Futures.getUnchecked(batchFuture);
+            }
         }
 
+        long lag = maxScrubTimestamp - oldestScrubTimestamp.get();
+        lagTimestamps.set(lag);
+        ScrubberMetrics.LAG_TIMESTAMPS.set(lag);
+
         log.info("Scrub background task running at timestamp " + maxScrubTimestamp + " processed a total of " + totalCellsRead.get() + " cells");
+        if (log.isInfoEnabled()) {
+            log.info("The oldest scrub queue entry processed was " + lag + " timestamps behind the scrub timestamp.");
+        }
 
         log.info("Finished scrub task");
     }
@@ -334,7 +421,11 @@ public final class Scrubber {
 
                     // Here we don't need to check scrub timestamps because we guarantee that scrubImmediately is called
                     // AFTER the transaction commits
-                    scrubCells(txManager, batchMultimap, scrubTimestamp, TransactionType.AGGRESSIVE_HARD_DELETE);
+                    Map<TableReference, Map<Cell, Long>> cellsToScrub = Maps.newHashMap();
+                    for (Entry<TableReference, Collection<Cell>> e : batchMultimap.asMap().entrySet()) {
+                        cellsToScrub.put(e.getKey(), Maps.asMap(ImmutableSet.copyOf(e.getValue()), Functions.constant(scrubTimestamp)));
+                    }
+                    scrubCells(txManager, cellsToScrub, TransactionType.AGGRESSIVE_HARD_DELETE);
 
                     Multimap<Cell, Long> cellToScrubTimestamp = HashMultimap.create();
 
@@ -388,10 +479,17 @@ public final class Scrubber {
         scrubberStore.queueCellsForScrubbing(cellToTableRefs, scrubTimestamp, batchSizeSupplier.get());
     }
 
-    private long getCommitTimestampRollBackIfNecessary(long startTimestamp,
-                                                       Multimap<TableReference, Cell> tableNameToCell) {
-        Long commitTimestamp = transactionService.get(startTimestamp);
-        if (commitTimestamp == null) {
+    /**
+     * Resolves the commit timestamps of all the given hard delete transactions with a single
+     * lookup, rolling back any that have not committed yet. Cells written by transactions that
+     * turn out to have failed are deleted with one call per table.
+     */
+    private Map<Long, Long> getCommitTimestampsRollBackIfNecessary(SortedMap<Long, Multimap<TableReference, Cell>> scrubTimestampToTableNameToCell) {
+        long start = System.nanoTime();
+        Set<Long> startTimestamps = scrubTimestampToTableNameToCell.keySet();
+        Map<Long, Long> commitTimestamps = Maps.newHashMap(transactionService.get(startTimestamps));
+        Set<Long> uncommitted = ImmutableSet.copyOf(Sets.difference(startTimestamps, commitTimestamps.keySet()));
+        for (long startTimestamp : uncommitted) {
             // Roll back this transaction (note that rolling back arbitrary transactions
             // can never cause correctness issues, only liveness issues)
             try {
@@ -403,18 +501,35 @@ public final class Scrubber {
                 log.error("This isn't a bug but it should be very infrequent. " + msg,
                         new TransactionFailedRetriableException(msg, e));
             }
-            commitTimestamp = transactionService.get(startTimestamp);
         }
-        if (commitTimestamp == null) {
-            throw new RuntimeException("expected commit timestamp to be non-null for startTs: " + startTimestamp);
+        if (!uncommitted.isEmpty()) {
+            commitTimestamps.putAll(transactionService.get(uncommitted));
         }
-        if (commitTimestamp == TransactionConstants.FAILED_COMMIT_TS) {
-            for (TableReference table : tableNameToCell.keySet()) {
-                Map<Cell, Long> toDelete = Maps2.createConstantValueMap(tableNameToCell.get(table), startTimestamp);
-                keyValueService.delete(table, Multimaps.forMap(toDelete));
+
+        Map<TableReference, Multimap<Cell, Long>> failedWrites = Maps.newHashMap();
+        for (Entry<Long, Multimap<TableReference, Cell>> entry : scrubTimestampToTableNameToCell.entrySet()) {
+            long startTimestamp = entry.getKey();
+            Long commitTimestamp = commitTimestamps.get(startTimestamp);
+            if (commitTimestamp == null) {
+                throw new RuntimeException("expected commit timestamp to be non-null for startTs: " + startTimestamp);
+            }
+            if (commitTimestamp == TransactionConstants.FAILED_COMMIT_TS) {
+                for (Entry<TableReference, Cell> e : entry.getValue().entries()) {
+                    Multimap<Cell, Long> cellToTimestamp = failedWrites.get(e.getKey());
+                    if (cellToTimestamp == null) {
+                        cellToTimestamp = HashMultimap.create();
+                        failedWrites.put(e.getKey(), cellToTimestamp);
+                    }
+                    cellToTimestamp.put(e.getValue(), startTimestamp);
+                }
             }
         }
-        return commitTimestamp;
+        ScrubberMetrics.RESOLVE_COMMIT_TIMESTAMPS.record(System.nanoTime() - start, startTimestamps.size(), 0);
+
+        for (Entry<TableReference, Multimap<Cell, Long>> entry : failedWrites.entrySet()) {
+            delete(entry.getKey(), entry.getValue(), ImmutableMultimap.<Cell, Long>of());
+        }
+        return commitTimestamps;
     }
 
     /**
@@ -442,17 +557,20 @@ public final class Scrubber {
             return 0; // No cells left to scrub
         }
 
+        long start = System.nanoTime();
+        Map<Long, Long> commitTimestamps = getCommitTimestampsRollBackIfNecessary(scrubTimestampToTableNameToCell);
+
         Multimap<Long, Cell> toRemoveFromScrubQueue = HashMultimap.create();
+        Map<TableReference, Map<Cell, Long>> cellsToScrub = Maps.newHashMap();
 
         int numCellsReadFromScrubTable = 0;
-        List<Future<Void>> scrubFutures = Lists.newArrayList();
         for (Map.Entry<Long, Multimap<TableReference, Cell>> entry : scrubTimestampToTableNameToCell.entrySet()) {
-            final long scrubTimestamp = entry.getKey();
-            final Multimap<TableReference, Cell> tableNameToCell = entry.getValue();
+            long scrubTimestamp = entry.getKey();
+            Multimap<TableReference, Cell> tableNameToCell = entry.getValue();
 
             numCellsReadFromScrubTable += tableNameToCell.size();
 
-            long commitTimestamp = getCommitTimestampRollBackIfNecessary(scrubTimestamp, tableNameToCell);
+            long commitTimestamp = commitTimestamps.get(scrubTimestamp);
             if (commitTimestamp >= maxScrubTimestamp) {
                 // We cannot scrub this yet because not all transactions can read this value.
                 continue;
@@ -461,30 +579,30 @@ public final class Scrubber {
                 // (we still remove it from the _scrub table with the call to markCellsAsScrubbed though),
                 // or else we could cause permanent data loss if the hard delete transaction failed after
                 // queuing cells to scrub but before successfully committing
-                for (final List<Entry<TableReference, Cell>> batch : Iterables.partition(tableNameToCell.entries(), batchSizeSupplier.get())) {
-                    final Multimap<TableReference, Cell> batchMultimap = HashMultimap.create();
-                    for (Entry<TableReference, Cell> e : batch) {
-                        batchMultimap.put(e.getKey(), e.getValue());
+                for (Entry<TableReference, Cell> e : tableNameToCell.entries()) {
+                    Map<Cell, Long> cellToScrubTimestamp = cellsToScrub.get(e.getKey());
+                    if (cellToScrubTimestamp == null) {
+                        cellToScrubTimestamp = Maps.newHashMap();
+                        cellsToScrub.put(e.getKey(), cellToScrubTimestamp);
+                    }
+                    // Scrubbing a cell up to its latest committed hard delete also removes everything
+                    // that the earlier hard deletes of the same cell would have removed.
+                    Long existing = cellToScrubTimestamp.get(e.getValue());
+                    if (existing == null || existing < scrubTimestamp) {
+                        cellToScrubTimestamp.put(e.getValue(), scrubTimestamp);
                     }
-                    scrubFutures.add(exec.submit(new Callable<Void>() {
-                        @Override
-                        public Void call() throws Exception {
-                            scrubCells(txManager, batchMultimap,
-                                    scrubTimestamp,
-                                    aggressiveScrub ? TransactionType.AGGRESSIVE_HARD_DELETE : TransactionType.HARD_DELETE);
-                            return null;
-                        }}));
                 }
             }
             toRemoveFromScrubQueue.putAll(scrubTimestamp, tableNameToCell.values());
         }
 
-        for (Future<Void> future : scrubFutures) {
-            Futures.getUnchecked(future);
-        }
+        scrubCells(txManager, cellsToScrub,
+                aggressiveScrub ? TransactionType.AGGRESSIVE_HARD_DELETE : TransactionType.HARD_DELETE);
 
+        long markStart = System.nanoTime();
         Multimap<Cell, Long> cellToScrubTimestamp = HashMultimap.create();
         scrubberStore.markCellsAsScrubbed(Multimaps.invertFrom(toRemoveFromScrubQueue, cellToScrubTimestamp), batchSizeSupplier.get());
+        ScrubberMetrics.MARK_SCRUBBED.record(System.nanoTime() - markStart, cellToScrubTimestamp.size(), 0);
 
         if (log.isTraceEnabled()) {
             log.trace("Finished scrubbing cells: " + scrubTimestampToTableNameToCell);
@@ -502,31 +620,47 @@ public final class Scrubber {
                     maxTimestamp + ") from tables " + tables);
         }
 
+        ScrubberMetrics.SCRUB_BATCH.record(System.nanoTime() - start, numCellsReadFromScrubTable, 0);
         return numCellsReadFromScrubTable;
     }
 
+    /**
+     * Removes every value of each cell written before the cell's scrub timestamp. The old
+     * timestamps are read in batches, but all the deletes for a table go out together.
+     */
     private void scrubCells(TransactionManager txManager,
-                            Multimap<TableReference, Cell> tableNameToCells,
-                            long scrubTimestamp,
+                            Map<TableReference, Map<Cell, Long>> tableToCellToScrubTimestamp,
                             Transaction.TransactionType transactionType) {
-        for (Entry<TableReference, Collection<Cell>> entry : tableNameToCells.asMap().entrySet()) {
+        for (Entry<TableReference, Map<Cell, Long>> entry : tableToCellToScrubTimestamp.entrySet()) {
             TableReference tableRef = entry.getKey();
+            Map<Cell, Long> cellToScrubTimestamp = entry.getValue();
             if (log.isInfoEnabled()) {
-                log.info("Attempting to immediately scrub " + entry.getValue().size() + " cells from table " + tableRef);
+                log.info("Attempting to immediately scrub " + cellToScrubTimestamp.size() + " cells from table " + tableRef);
             }
-            for (List<Cell> cells : Iterables.partition(entry.getValue(), batchSizeSupplier.get())) {
-                Multimap<Cell, Long> timestampsToDelete = HashMultimap.create(
-                        keyValueService.getAllTimestamps(tableRef, ImmutableSet.copyOf(cells), scrubTimestamp));
-                for (Cell cell : ImmutableList.copyOf(timestampsToDelete.keySet())) {
-                    // Don't scrub garbage collection sentinels
-                    timestampsToDelete.remove(cell, Value.INVALID_VALUE_TIMESTAMP);
+            Multimap<Cell, Long> timestampsToDelete = HashMultimap.create();
+            Multimap<Cell, Long> readTimestamps = HashMultimap.create();
+            for (List<Cell> cells : Iterables.partition(cellToScrubTimestamp.keySet(), batchSizeSupplier.get())) {
+                long readTimestamp = 0L;
+                for (Cell cell : cells) {
+                    readTimestamp = Math.max(readTimestamp, cellToScrubTimestamp.get(cell));
+                }
+                long start = System.nanoTime();
+                Multimap<Cell, Long> allTimestamps = keyValueService.getAllTimestamps(tableRef, ImmutableSet.copyOf(cells), readTimestamp);
+                ScrubberMetrics.READ_TIMESTAMPS.record(System.nanoTime() - start, allTimestamps.size(), 0);
+                readTimestamps.putAll(allTimestamps);
+                for (Entry<Cell, Long> e : allTimestamps.entries()) {
+                    long timestamp = e.getValue();
+                    // Don't scrub garbage collection sentinels, and only go up to this cell's own scrub timestamp
+                    if (timestamp != Value.INVALID_VALUE_TIMESTAMP && timestamp < cellToScrubTimestamp.get(e.getKey())) {
+                        timestampsToDelete.put(e.getKey(), timestamp);
+                    }
                 }
-                // If transactionType == TransactionType.AGGRESSIVE_HARD_DELETE this might
-                // force other transactions to abort or retry
-                deleteCellsAtTimestamps(txManager, tableRef, timestampsToDelete, transactionType);
             }
+            // If transactionType == TransactionType.AGGRESSIVE_HARD_DELETE this might
+            // force other transactions to abort or retry
+            deleteCellsAtTimestamps(txManager, tableRef, timestampsToDelete, readTimestamps, transactionType);
             if (log.isInfoEnabled()) {
-                log.info("Immediately scrubbed " + entry.getValue().size() + " cells from table " + tableRef);
+                log.info("Immediately scrubbed " + cellToScrubTimestamp.size() + " cells from table " + tableRef);
             }
         }
     }
@@ -534,6 +668,7 @@ public final class Scrubber {
     private void deleteCellsAtTimestamps(TransactionManager txManager,
                                          TableReference tableRef,
                                          Multimap<Cell, Long> cellToTimestamp,
+                                         Multimap<Cell, Long> readTimestamps,
                                          Transaction.TransactionType transactionType) {
         if (!cellToTimestamp.isEmpty()) {
             for (Follower follower : followers) {
@@ -542,10 +677,48 @@ public final class Scrubber {
             keyValueService.addGarbageCollectionSentinelValues(
                     tableRef,
                     cellToTimestamp.keySet());
-            keyValueService.delete(tableRef, cellToTimestamp);
+            delete(tableRef, cellToTimestamp, readTimestamps);
         }
     }
 
+    private void delete(TableReference tableRef,
+                        Multimap<Cell, Long> cellToTimestamp,
+                        Multimap<Cell, Long> readTimestamps) {
+        long start = System.nanoTime();
+        try {
+            KeyValueServices.deleteTimestamps(keyValueService, tableRef, cellToTimestamp, readTimestamps);
+            ScrubberMetrics.DELETE.record(System.nanoTime() - start, cellToTimestamp.size(), 0);
+        } catch (RuntimeException e) {
+            ScrubberMetrics.DELETE.recordFailure(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    private static void updateMin(AtomicLong min, long value) {
+        long current;
+        while (value < (current = min.get())) {
+            if (min.compareAndSet(current, value)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Number of cells left in the scrub queue when it was last sampled, capped at the number of
+     * cells the sample is allowed to scan.
+     */
+    public long getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    /**
+     * How far, in timestamps, the oldest scrub queue entry seen by the last background pass was
+     * behind the timestamp the pass scrubbed up to.
+     */
+    public long getLagTimestamps() {
+        return lagTimestamps.get();
+    }
+
     public long getUnreadableTimestamp() {
         return unreadableTimestampSupplier.get();
     }
@@ -557,6 +730,7 @@ public final class Scrubber {
     public void shutdown() {
         exec.shutdown();
         readerExec.shutdown();
+        queueDepthSampler.shutdownNow();
         service.shutdownNow();
         boolean shutdown = false;
         try {
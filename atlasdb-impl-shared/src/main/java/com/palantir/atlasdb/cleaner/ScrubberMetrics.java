@@ -0,0 +1,51 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.cleaner;
+
+import com.palantir.util.metrics.Gauge;
+import com.palantir.util.metrics.MetricsRegistry;
+import com.palantir.util.metrics.OperationMetrics;
+
+/**
+ * Metrics for the background and immediate {@link Scrubber} work, published through the
+ * default {@link MetricsRegistry}.
+ */
+final class ScrubberMetrics {
+    static final String METRIC_TYPE = "Scrubber";
+
+    static final OperationMetrics SCRUB_BATCH = metric("scrubBatch");
+    static final OperationMetrics RESOLVE_COMMIT_TIMESTAMPS = metric("resolveCommitTimestamps");
+    static final OperationMetrics READ_TIMESTAMPS = metric("readTimestamps");
+    static final OperationMetrics DELETE = metric("delete");
+    static final OperationMetrics MARK_SCRUBBED = metric("markScrubbed");
+
+    /** Cells left in the scrub queue, capped at the number of cells a sample may scan. */
+    static final Gauge QUEUE_DEPTH = gauge("queueDepth");
+    /** Timestamps between the oldest entry the last background pass saw and its scrub timestamp. */
+    static final Gauge LAG_TIMESTAMPS = gauge("lagTimestamps");
+
+    private ScrubberMetrics() {
+        // static metrics
+    }
+
+    private static OperationMetrics metric(String name) {
+        return MetricsRegistry.getDefault().operation(METRIC_TYPE, null, name);
+    }
+
+    private static Gauge gauge(String name) {
+        return MetricsRegistry.getDefault().gauge(METRIC_TYPE, null, name);
+    }
+}
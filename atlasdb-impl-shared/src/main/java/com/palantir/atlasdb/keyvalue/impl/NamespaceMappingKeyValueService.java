@@ -16,6 +16,7 @@
 package com.palantir.atlasdb.keyvalue.impl;
 
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -24,18 +25,25 @@ import com.google.common.collect.ForwardingObject;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.palantir.atlasdb.keyvalue.NamespacedKeyValueService;
+import com.palantir.atlasdb.keyvalue.api.BulkLoadingKeyValueService;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.ColumnarKeyValueService;
+import com.palantir.atlasdb.keyvalue.api.ColumnarResults;
 import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeDeletingKeyValueService;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.SnapshottingKeyValueService;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.common.base.ClosableIterator;
 import com.palantir.util.paging.TokenBackedBasicResultsPage;
 
-public class NamespaceMappingKeyValueService extends ForwardingObject implements KeyValueService {
+public class NamespaceMappingKeyValueService extends ForwardingObject implements KeyValueService,
+        BulkLoadingKeyValueService, ColumnarKeyValueService, RangeDeletingKeyValueService,
+        SnapshottingKeyValueService {
     private final NamespacedKeyValueService delegate;
 
     public static NamespaceMappingKeyValueService create(NamespacedKeyValueService delegate) {
@@ -51,6 +59,11 @@ public class NamespaceMappingKeyValueService extends ForwardingObject implements
         return delegate;
     }
 
+    @Override
+    public void bulkLoad(TableReference tableRef, Iterator<Entry<Cell, byte[]>> sortedCells, long timestamp) {
+        KeyValueServices.bulkLoad(delegate(), tableRef, sortedCells, timestamp);
+    }
+
     @Override
     public void createTable(TableReference tableRef, byte[] tableMetadata) {
         delegate().createTable(tableRef, tableMetadata);
@@ -61,6 +74,11 @@ public class NamespaceMappingKeyValueService extends ForwardingObject implements
         delegate().delete(tableRef, keys);
     }
 
+    @Override
+    public void deleteAllTimestampsBelow(TableReference tableRef, Map<Cell, Long> maxTimestampExclusiveByCell) {
+        KeyValueServices.deleteAllTimestampsBelow(delegate(), tableRef, maxTimestampExclusiveByCell);
+    }
+
     @Override
     public Multimap<Cell, Long> getAllTimestamps(TableReference tableRef, Set<Cell> keys, long timestamp) {
         return delegate().getAllTimestamps(tableRef, keys, timestamp);
@@ -87,6 +105,17 @@ public class NamespaceMappingKeyValueService extends ForwardingObject implements
         return delegate().getRows(tableRef, rows, columnSelection, timestamp);
     }
 
+    @Override
+    public ColumnarResults getRowsColumnar(TableReference tableRef, Iterable<byte[]> rows,
+                                           ColumnSelection columnSelection, long timestamp) {
+        return KeyValueServices.getRowsColumnar(delegate(), tableRef, rows, columnSelection, timestamp);
+    }
+
+    @Override
+    public ColumnarResults getRangeColumnar(TableReference tableRef, RangeRequest rangeRequest, long timestamp) {
+        return KeyValueServices.getRangeColumnar(delegate(), tableRef, rangeRequest, timestamp);
+    }
+
     @Override
     public Map<Cell, Long> getLatestTimestamps(TableReference tableRef, Map<Cell, Long> timestampByCell) {
         return delegate().getLatestTimestamps(tableRef, timestampByCell);
@@ -181,6 +210,14 @@ public class NamespaceMappingKeyValueService extends ForwardingObject implements
         delegate().addGarbageCollectionSentinelValues(tableRef, cells);
     }
 
+    /**
+     * This service passes every call through unchanged, so the delegate's snapshot needs no wrapping.
+     */
+    @Override
+    public KeyValueService openReadSnapshot() {
+        return KeyValueServices.openReadSnapshot(delegate());
+    }
+
     @Override
     public void initializeFromFreshInstance() {
         delegate().initializeFromFreshInstance();
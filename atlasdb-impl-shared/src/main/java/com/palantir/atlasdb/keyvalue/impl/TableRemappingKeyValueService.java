@@ -16,6 +16,7 @@
 package com.palantir.atlasdb.keyvalue.impl;
 
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -29,20 +30,26 @@ import com.google.common.collect.Sets;
 import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.keyvalue.NamespacedKeyValueService;
 import com.palantir.atlasdb.keyvalue.TableMappingService;
+import com.palantir.atlasdb.keyvalue.api.BulkLoadingKeyValueService;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.ColumnarKeyValueService;
+import com.palantir.atlasdb.keyvalue.api.ColumnarResults;
 import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.Namespace;
+import com.palantir.atlasdb.keyvalue.api.RangeDeletingKeyValueService;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.SnapshottingKeyValueService;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.common.base.ClosableIterator;
 import com.palantir.util.paging.TokenBackedBasicResultsPage;
 
 public class TableRemappingKeyValueService extends ForwardingObject implements
-        NamespacedKeyValueService {
+        NamespacedKeyValueService, BulkLoadingKeyValueService, ColumnarKeyValueService, RangeDeletingKeyValueService,
+        SnapshottingKeyValueService {
     public static TableRemappingKeyValueService create(KeyValueService delegate,
                                                        TableMappingService tableMapper) {
         return new TableRemappingKeyValueService(delegate, tableMapper);
@@ -69,6 +76,11 @@ public class TableRemappingKeyValueService extends ForwardingObject implements
                 cells);
     }
 
+    @Override
+    public void bulkLoad(TableReference tableRef, Iterator<Entry<Cell, byte[]>> sortedCells, long timestamp) {
+        KeyValueServices.bulkLoad(delegate(), tableMapper.getMappedTableName(tableRef), sortedCells, timestamp);
+    }
+
     @Override
     public void createTable(TableReference tableRef, byte[] tableMetadata) {
         TableReference shortName = tableMapper.addTable(tableRef);
@@ -96,6 +108,14 @@ public class TableRemappingKeyValueService extends ForwardingObject implements
         delegate().delete(tableMapper.getMappedTableName(tableRef), keys);
     }
 
+    @Override
+    public void deleteAllTimestampsBelow(TableReference tableRef, Map<Cell, Long> maxTimestampExclusiveByCell) {
+        KeyValueServices.deleteAllTimestampsBelow(
+                delegate(),
+                tableMapper.getMappedTableName(tableRef),
+                maxTimestampExclusiveByCell);
+    }
+
     @Override
     public void dropTable(TableReference tableRef) {
         dropTables(ImmutableSet.of(tableRef));
@@ -216,6 +236,35 @@ public class TableRemappingKeyValueService extends ForwardingObject implements
                 timestamp);
     }
 
+    @Override
+    public ColumnarResults getRowsColumnar(TableReference tableRef,
+                                           Iterable<byte[]> rows,
+                                           ColumnSelection columnSelection,
+                                           long timestamp) {
+        return KeyValueServices.getRowsColumnar(
+                delegate(),
+                tableMapper.getMappedTableName(tableRef),
+                rows,
+                columnSelection,
+                timestamp);
+    }
+
+    @Override
+    public ColumnarResults getRangeColumnar(TableReference tableRef,
+                                            RangeRequest rangeRequest,
+                                            long timestamp) {
+        return KeyValueServices.getRangeColumnar(
+                delegate(),
+                tableMapper.getMappedTableName(tableRef),
+                rangeRequest,
+                timestamp);
+    }
+
+    @Override
+    public TableRemappingKeyValueService openReadSnapshot() {
+        return create(KeyValueServices.openReadSnapshot(delegate()), tableMapper);
+    }
+
     @Override
     public void initializeFromFreshInstance() {
         delegate.initializeFromFreshInstance();
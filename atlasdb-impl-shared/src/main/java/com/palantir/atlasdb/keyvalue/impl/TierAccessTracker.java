@@ -0,0 +1,117 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.collect.Lists;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * Tracks how recently the rows of one tiered table were accessed, for {@link TieredKvsMover}.
+ * <p>
+ * Access times live in a fixed size sketch rather than a map: each row hashes to a few slots that
+ * hold the last access time in seconds, and a row's access time is the minimum over its slots.
+ * Collisions can only make a row look more recently used than it was, so a hot row is never
+ * mistaken for a cold one. Rows never seen since the tracker was created count as accessed at
+ * creation, so a restart does not make the whole primary tier look cold.
+ * <p>
+ * Rows that reads had to fetch from the secondary tier are also queued, up to a bound, as
+ * candidates to move back to the primary tier.
+ */
+@ThreadSafe
+final class TierAccessTracker {
+    private static final int NUM_HASHES = 3;
+    private static final long TICK_MILLIS = TimeUnit.SECONDS.toMillis(1);
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final AtomicIntegerArray lastAccessTicks;
+    private final long createdMillis;
+    private final int maxPromotionCandidates;
+    private final Queue<byte[]> promotionCandidates = new ConcurrentLinkedQueue<byte[]>();
+    private final AtomicInteger numPromotionCandidates = new AtomicInteger();
+
+    TierAccessTracker(int sketchSize, int maxPromotionCandidates) {
+        this.lastAccessTicks = new AtomicIntegerArray(sketchSize);
+        this.createdMillis = System.currentTimeMillis();
+        this.maxPromotionCandidates = maxPromotionCandidates;
+    }
+
+    void recordAccess(byte[] row) {
+        // Stored ticks are offset by one so that zero means never accessed.
+        int tick = (int) ((System.currentTimeMillis() - createdMillis) / TICK_MILLIS) + 1;
+        HashCode hash = HASH_FUNCTION.hashBytes(row);
+        long h1 = hash.asLong();
+        long h2 = h1 >>> 32 | h1 << 32;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            // Racing writers store nearly identical ticks, so a plain set is good enough.
+            lastAccessTicks.lazySet(slot(h1, h2, i), tick);
+        }
+    }
+
+    /**
+     * Returns the latest time the row may have been accessed.
+     */
+    long getLastAccessMillis(byte[] row) {
+        HashCode hash = HASH_FUNCTION.hashBytes(row);
+        long h1 = hash.asLong();
+        long h2 = h1 >>> 32 | h1 << 32;
+        int minTick = Integer.MAX_VALUE;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            minTick = Math.min(minTick, lastAccessTicks.get(slot(h1, h2, i)));
+        }
+        if (minTick == 0) {
+            return createdMillis;
+        }
+        return createdMillis + (minTick - 1) * TICK_MILLIS;
+    }
+
+    boolean isColdSince(byte[] row, long cutoffMillis) {
+        return getLastAccessMillis(row) < cutoffMillis;
+    }
+
+    private int slot(long h1, long h2, int i) {
+        long combined = h1 + i * h2;
+        return (int) ((combined & Long.MAX_VALUE) % lastAccessTicks.length());
+    }
+
+    void addPromotionCandidate(byte[] row) {
+        if (numPromotionCandidates.incrementAndGet() > maxPromotionCandidates) {
+            numPromotionCandidates.decrementAndGet();
+            return;
+        }
+        promotionCandidates.add(row);
+    }
+
+    List<byte[]> drainPromotionCandidates(int max) {
+        List<byte[]> rows = Lists.newArrayList();
+        byte[] row;
+        while (rows.size() < max && (row = promotionCandidates.poll()) != null) {
+            numPromotionCandidates.decrementAndGet();
+            rows.add(row);
+        }
+        return rows;
+    }
+}
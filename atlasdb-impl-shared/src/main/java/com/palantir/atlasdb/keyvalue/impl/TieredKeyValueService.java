@@ -15,12 +15,14 @@
  */
 package com.palantir.atlasdb.keyvalue.impl;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 
@@ -33,6 +35,7 @@ import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
@@ -57,6 +60,9 @@ import com.palantir.util.paging.SimpleTokenBackedResultsPage;
 import com.palantir.util.paging.TokenBackedBasicResultsPage;
 
 public class TieredKeyValueService implements KeyValueService {
+    private static final int ACCESS_SKETCH_SIZE = 1 << 18;
+    private static final int MAX_PROMOTION_CANDIDATES = 10000;
+
     /**
      * We keep track of and report only the tables we're actually tiering
      * so the TieredKvsMover can know what tables need to be moved between
@@ -66,6 +72,7 @@ public class TieredKeyValueService implements KeyValueService {
     private final KeyValueService primary;
     private final KeyValueService secondary;
     private final ExecutorService executor;
+    private final ConcurrentMap<TableReference, TierAccessTracker> accessTrackers = Maps.newConcurrentMap();
 
     public static TieredKeyValueService create(Set<TableReference> tieredTables,
                                                KeyValueService primary,
@@ -107,13 +114,40 @@ public class TieredKeyValueService implements KeyValueService {
     /**
      * Returns the secondary key value service.
      * <p>
-     * The secondary tier is only written to by TieredKvsMover during batch operations
+     * The secondary tier is only written to by {@link TieredKvsMover} during batch operations
      * that move the contents of tiered tables from the primary tier to the secondary tier.
      */
     public KeyValueService getSecondaryTier() {
         return secondary;
     }
 
+    /**
+     * Returns the access tracker for a tiered table, creating it on first use.
+     */
+    TierAccessTracker getAccessTracker(TableReference tableRef) {
+        TierAccessTracker tracker = accessTrackers.get(tableRef);
+        if (tracker == null) {
+            tracker = new TierAccessTracker(ACCESS_SKETCH_SIZE, MAX_PROMOTION_CANDIDATES);
+            TierAccessTracker existing = accessTrackers.putIfAbsent(tableRef, tracker);
+            if (existing != null) {
+                tracker = existing;
+            }
+        }
+        return tracker;
+    }
+
+    private void recordCellAccesses(TableReference tableRef, Iterable<Cell> cells) {
+        TierAccessTracker tracker = getAccessTracker(tableRef);
+        byte[] lastRow = null;
+        for (Cell cell : cells) {
+            // Cells usually arrive grouped by row, so skip re-hashing the same row.
+            if (lastRow != cell.getRowName()) {
+                lastRow = cell.getRowName();
+                tracker.recordAccess(lastRow);
+            }
+        }
+    }
+
     private boolean isNotTiered(TableReference tableRef) {
         if (tieredTables.isEmpty()) {
             return AtlasDbConstants.hiddenTables.contains(tableRef);
@@ -162,17 +196,58 @@ public class TieredKeyValueService implements KeyValueService {
         if (isNotTiered(tableRef)) {
             return primary.getRows(tableRef, rows, columnSelection, timestamp);
         }
+        TierAccessTracker tracker = getAccessTracker(tableRef);
+        for (byte[] row : rows) {
+            tracker.recordAccess(row);
+        }
         Map<Cell, Value> primaryResults = primary.getRows(tableRef, rows, columnSelection, timestamp);
-        Map<Cell, Value> results = Maps.newHashMap(secondary.getRows(tableRef, rows, columnSelection, timestamp));
+        Iterable<byte[]> secondaryRows = rows;
+        if (!columnSelection.allColumnsSelected()) {
+            // Anything in the primary tier is newer than the secondary tier, so rows that the
+            // primary already has every selected column for don't need to be read again.
+            secondaryRows = getRowsMissingColumns(rows, columnSelection, primaryResults);
+            if (Iterables.isEmpty(secondaryRows)) {
+                return primaryResults;
+            }
+        }
+        Map<Cell, Value> secondaryResults = secondary.getRows(tableRef, secondaryRows, columnSelection, timestamp);
+        addPromotionCandidates(tracker, secondaryResults.keySet());
+        Map<Cell, Value> results = Maps.newHashMap(secondaryResults);
         results.putAll(primaryResults);
         return results;
     }
 
+    private static List<byte[]> getRowsMissingColumns(Iterable<byte[]> rows,
+                                                      ColumnSelection columnSelection,
+                                                      Map<Cell, Value> primaryResults) {
+        List<byte[]> missing = Lists.newArrayList();
+        for (byte[] row : rows) {
+            for (byte[] col : columnSelection.getSelectedColumns()) {
+                if (!primaryResults.containsKey(Cell.create(row, col))) {
+                    missing.add(row);
+                    break;
+                }
+            }
+        }
+        return missing;
+    }
+
+    private static void addPromotionCandidates(TierAccessTracker tracker, Iterable<Cell> cellsFromSecondary) {
+        byte[] lastRow = null;
+        for (Cell cell : cellsFromSecondary) {
+            if (lastRow == null || !Arrays.equals(lastRow, cell.getRowName())) {
+                lastRow = cell.getRowName();
+                tracker.addPromotionCandidate(lastRow);
+            }
+        }
+    }
+
     @Override
     public Map<Cell, Value> get(TableReference tableRef, Map<Cell, Long> timestampByCell) {
         if (isNotTiered(tableRef)) {
             return primary.get(tableRef, timestampByCell);
         }
+        recordCellAccesses(tableRef, timestampByCell.keySet());
         Map<Cell, Value> results;
         Map<Cell, Value> primaryResults = primary.get(tableRef, timestampByCell);
         if (primaryResults.size() == timestampByCell.size()) {
@@ -188,7 +263,9 @@ public class TieredKeyValueService implements KeyValueService {
                     results.put(entry.getKey(), value);
                 }
             }
-            results.putAll(secondary.get(tableRef, missingCells));
+            Map<Cell, Value> secondaryResults = secondary.get(tableRef, missingCells);
+            addPromotionCandidates(getAccessTracker(tableRef), secondaryResults.keySet());
+            results.putAll(secondaryResults);
         }
         return results;
     }
@@ -274,16 +351,27 @@ public class TieredKeyValueService implements KeyValueService {
     @Override
     public void put(TableReference tableRef, Map<Cell, byte[]> values, long timestamp) {
         primary.put(tableRef, values, timestamp);
+        if (!isNotTiered(tableRef)) {
+            recordCellAccesses(tableRef, values.keySet());
+        }
     }
 
     @Override
     public void multiPut(Map<TableReference, ? extends Map<Cell, byte[]>> valuesByTable, long timestamp) {
         primary.multiPut(valuesByTable, timestamp);
+        for (Entry<TableReference, ? extends Map<Cell, byte[]>> entry : valuesByTable.entrySet()) {
+            if (!isNotTiered(entry.getKey())) {
+                recordCellAccesses(entry.getKey(), entry.getValue().keySet());
+            }
+        }
     }
 
     @Override
     public void putWithTimestamps(TableReference tableRef, Multimap<Cell, Value> values) {
         primary.putWithTimestamps(tableRef, values);
+        if (!isNotTiered(tableRef)) {
+            recordCellAccesses(tableRef, values.keySet());
+        }
     }
 
     @Override
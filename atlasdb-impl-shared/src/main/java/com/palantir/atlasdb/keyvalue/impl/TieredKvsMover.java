@@ -0,0 +1,266 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.UnsignedBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RangeRequests;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.common.base.ClosableIterator;
+import com.palantir.common.concurrent.NamedThreadFactory;
+import com.palantir.common.concurrent.PTExecutors;
+
+/**
+ * Moves rows of the tiered tables of a {@link TieredKeyValueService} between its tiers based on
+ * how recently they were accessed.
+ * <p>
+ * Each pass scans a bounded number of primary tier rows per table, continuing where the previous
+ * pass stopped, and moves the rows that have not been accessed for coldAfterMillis to the secondary
+ * tier. It then moves rows that reads recently had to fetch from the secondary tier back to the
+ * primary tier.
+ * <p>
+ * Every move copies all versions of a batch of rows, checks that the source still has them, and
+ * only then deletes exactly the copied versions from the source. Readers of the tiered service
+ * merge both tiers, so they see the same values at every step; writes racing with a move land in
+ * the primary tier and are left alone; and versions deleted from both tiers while a move is in
+ * flight (by sweep, for example) are removed again from the destination instead of resurrected.
+ */
+public final class TieredKvsMover {
+    private static final Logger log = LoggerFactory.getLogger(TieredKvsMover.class);
+
+    private final TieredKeyValueService tieredKvs;
+    private final long coldAfterMillis;
+    private final long periodMillis;
+    private final int batchSizeRows;
+    private final int maxRowsPerPass;
+    private final ConcurrentMap<TableReference, byte[]> demotionCursors = Maps.newConcurrentMap();
+    private final ScheduledExecutorService service = PTExecutors.newSingleThreadScheduledExecutor(
+            new NamedThreadFactory("tiered-kvs-mover", true /* daemon */));
+
+    public static TieredKvsMover create(TieredKeyValueService tieredKvs,
+                                        long coldAfterMillis,
+                                        long periodMillis,
+                                        int batchSizeRows,
+                                        int maxRowsPerPass) {
+        Preconditions.checkArgument(batchSizeRows > 0, "batchSizeRows must be positive");
+        Preconditions.checkArgument(maxRowsPerPass >= batchSizeRows, "maxRowsPerPass must be at least batchSizeRows");
+        return new TieredKvsMover(tieredKvs, coldAfterMillis, periodMillis, batchSizeRows, maxRowsPerPass);
+    }
+
+    private TieredKvsMover(TieredKeyValueService tieredKvs,
+                           long coldAfterMillis,
+                           long periodMillis,
+                           int batchSizeRows,
+                           int maxRowsPerPass) {
+        this.tieredKvs = tieredKvs;
+        this.coldAfterMillis = coldAfterMillis;
+        this.periodMillis = periodMillis;
+        this.batchSizeRows = batchSizeRows;
+        this.maxRowsPerPass = maxRowsPerPass;
+    }
+
+    public void start() {
+        service.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    runOnce();
+                } catch (Throwable t) { // (authorized)
+                    log.error("Failed to move rows between tiers, will retry at the next pass.", t);
+                }
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void shutdown() {
+        service.shutdownNow();
+    }
+
+    /**
+     * Runs one pass over all tiered tables.
+     */
+    public void runOnce() {
+        for (TableReference tableRef : tieredKvs.getTieredTablenames()) {
+            int demoted = demoteColdRows(tableRef);
+            int promoted = promoteHotRows(tableRef);
+            if (log.isInfoEnabled() && (demoted > 0 || promoted > 0)) {
+                log.info("Moved " + demoted + " cold rows to the secondary tier and " + promoted
+                        + " hot rows to the primary tier for table " + tableRef);
+            }
+        }
+    }
+
+    /**
+     * @return the number of rows moved to the secondary tier
+     */
+    int demoteColdRows(TableReference tableRef) {
+        TierAccessTracker tracker = tieredKvs.getAccessTracker(tableRef);
+        long cutoffMillis = System.currentTimeMillis() - coldAfterMillis;
+        byte[] startRow = demotionCursors.get(tableRef);
+        RangeRequest.Builder range = RangeRequest.builder().batchHint(batchSizeRows);
+        if (startRow != null) {
+            range = range.startRowInclusive(startRow);
+        }
+
+        int scanned = 0;
+        int moved = 0;
+        Multimap<Cell, Value> batch = ArrayListMultimap.create();
+        int rowsInBatch = 0;
+        byte[] nextStartRow = null;
+        ClosableIterator<RowResult<Set<Value>>> rows = tieredKvs.getPrimaryTier().getRangeWithHistory(
+                tableRef, range.build(), Long.MAX_VALUE);
+        try {
+            while (rows.hasNext()) {
+                RowResult<Set<Value>> row = rows.next();
+                scanned++;
+                if (tracker.isColdSince(row.getRowName(), cutoffMillis)) {
+                    addRow(batch, row);
+                    rowsInBatch++;
+                    if (rowsInBatch >= batchSizeRows) {
+                        moved += move(tableRef, batch, tieredKvs.getPrimaryTier(), tieredKvs.getSecondaryTier());
+                        batch.clear();
+                        rowsInBatch = 0;
+                    }
+                }
+                if (scanned >= maxRowsPerPass) {
+                    if (!RangeRequests.isLastRowName(row.getRowName())) {
+                        nextStartRow = RangeRequests.nextLexicographicName(row.getRowName());
+                    }
+                    break;
+                }
+            }
+        } finally {
+            rows.close();
+        }
+        moved += move(tableRef, batch, tieredKvs.getPrimaryTier(), tieredKvs.getSecondaryTier());
+
+        if (nextStartRow == null) {
+            demotionCursors.remove(tableRef);
+        } else {
+            demotionCursors.put(tableRef, nextStartRow);
+        }
+        return moved;
+    }
+
+    /**
+     * @return the number of rows moved to the primary tier
+     */
+    int promoteHotRows(TableReference tableRef) {
+        TierAccessTracker tracker = tieredKvs.getAccessTracker(tableRef);
+        long cutoffMillis = System.currentTimeMillis() - coldAfterMillis;
+        SortedSet<byte[]> candidates = Sets.newTreeSet(UnsignedBytes.lexicographicalComparator());
+        candidates.addAll(tracker.drainPromotionCandidates(maxRowsPerPass));
+
+        int moved = 0;
+        Multimap<Cell, Value> batch = ArrayListMultimap.create();
+        int rowsInBatch = 0;
+        for (byte[] candidate : candidates) {
+            if (tracker.isColdSince(candidate, cutoffMillis)) {
+                continue;
+            }
+            RangeRequest.Builder range = RangeRequest.builder().startRowInclusive(candidate);
+            if (!RangeRequests.isLastRowName(candidate)) {
+                range = range.endRowExclusive(RangeRequests.nextLexicographicName(candidate));
+            }
+            ClosableIterator<RowResult<Set<Value>>> rows = tieredKvs.getSecondaryTier().getRangeWithHistory(
+                    tableRef, range.build(), Long.MAX_VALUE);
+            try {
+                if (rows.hasNext()) {
+                    addRow(batch, rows.next());
+                    rowsInBatch++;
+                }
+            } finally {
+                rows.close();
+            }
+            if (rowsInBatch >= batchSizeRows) {
+                moved += move(tableRef, batch, tieredKvs.getSecondaryTier(), tieredKvs.getPrimaryTier());
+                batch.clear();
+                rowsInBatch = 0;
+            }
+        }
+        moved += move(tableRef, batch, tieredKvs.getSecondaryTier(), tieredKvs.getPrimaryTier());
+        return moved;
+    }
+
+    private static void addRow(Multimap<Cell, Value> batch, RowResult<Set<Value>> row) {
+        for (Map.Entry<Cell, Set<Value>> cell : row.getCells()) {
+            batch.putAll(cell.getKey(), cell.getValue());
+        }
+    }
+
+    /**
+     * Copies the given versions from source to destination and then removes them from source.
+     *
+     * @return the number of rows moved
+     */
+    private int move(TableReference tableRef,
+                     Multimap<Cell, Value> versions,
+                     KeyValueService source,
+                     KeyValueService destination) {
+        if (versions.isEmpty()) {
+            return 0;
+        }
+        destination.putWithTimestamps(tableRef, versions);
+
+        // Versions deleted from both tiers since we read them must not survive in the destination.
+        Multimap<Cell, Long> copied = HashMultimap.create();
+        for (Map.Entry<Cell, Value> e : versions.entries()) {
+            copied.put(e.getKey(), e.getValue().getTimestamp());
+        }
+        Multimap<Cell, Long> stillInSource = source.getAllTimestamps(
+                tableRef, ImmutableSet.copyOf(copied.keySet()), Long.MAX_VALUE);
+        Multimap<Cell, Long> vanished = HashMultimap.create();
+        Multimap<Cell, Long> toDelete = HashMultimap.create();
+        for (Map.Entry<Cell, Long> e : copied.entries()) {
+            if (stillInSource.containsEntry(e.getKey(), e.getValue())) {
+                toDelete.put(e.getKey(), e.getValue());
+            } else {
+                vanished.put(e.getKey(), e.getValue());
+            }
+        }
+        if (!vanished.isEmpty()) {
+            destination.delete(tableRef, vanished);
+        }
+        source.delete(tableRef, toDelete);
+
+        Set<byte[]> rows = Sets.newTreeSet(UnsignedBytes.lexicographicalComparator());
+        for (Cell cell : copied.keySet()) {
+            rows.add(cell.getRowName());
+        }
+        return rows.size();
+    }
+}
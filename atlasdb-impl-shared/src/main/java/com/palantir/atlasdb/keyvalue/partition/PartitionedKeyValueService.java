@@ -23,6 +23,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedSet;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
@@ -40,9 +41,12 @@ import com.google.common.base.Supplier;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableList.Builder;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
+import com.google.common.primitives.UnsignedBytes;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
 import com.palantir.atlasdb.keyvalue.api.InsufficientConsistencyException;
@@ -67,6 +71,7 @@ import com.palantir.atlasdb.keyvalue.partition.util.EndpointRequestExecutor;
 import com.palantir.atlasdb.keyvalue.partition.util.EndpointRequestExecutor.EndpointRequestCompletionService;
 import com.palantir.atlasdb.keyvalue.partition.util.MergeResults;
 import com.palantir.atlasdb.keyvalue.partition.util.PartitionedRangedIterator;
+import com.palantir.atlasdb.keyvalue.partition.util.QuorumRead;
 import com.palantir.atlasdb.keyvalue.partition.util.RowResults;
 import com.palantir.atlasdb.keyvalue.remoting.RemotingPartitionMapService;
 import com.palantir.atlasdb.keyvalue.remoting.proxy.VersionCheckProxy;
@@ -103,28 +108,34 @@ public class PartitionedKeyValueService extends PartitionMapProvider implements
         return runWithPartitionMapRetryable(new Function<DynamicPartitionMap, Map<Cell, Value>>() {
             @Override
             public Map<Cell, Value> apply(DynamicPartitionMap input) {
-                final Map<Cell, Value> overallResult = Maps.newHashMap();
-                final EndpointRequestCompletionService<Map<Cell, Value>> execSvc = EndpointRequestExecutor.newService(executor);
-                final QuorumTracker<Map<Cell, Value>, byte[]> tracker = QuorumTracker.of(
-                        rows, input.getReadRowsParameters(rows));
-
-                // Schedule tasks for execution
+                final List<Pair<KeyValueService, SortedSet<byte[]>>> requests = Lists.newArrayList();
                 input.runForRowsRead(tableRef.getQualifiedName(), rows, new Function<Pair<KeyValueService,Iterable<byte[]>>, Void>() {
                     @Override
-                    public Void apply(final Pair<KeyValueService, Iterable<byte[]>> e) {
-                        Future<Map<Cell, Value>> future = execSvc.submit(new Callable<Map<Cell, Value>>() {
-                            @Override
-                            public Map<Cell, Value> call() throws Exception {
-                                return e.lhSide.getRows(tableRef, e.rhSide, columnSelection, timestamp);
-                            }
-                        }, e.lhSide);
-                        tracker.registerRef(future, e.rhSide);
+                    public Void apply(Pair<KeyValueService, Iterable<byte[]>> e) {
+                        // The sorted copy still holds the original arrays
+                        SortedSet<byte[]> endpointRows = ImmutableSortedSet.copyOf(
+                                UnsignedBytes.lexicographicalComparator(), e.rhSide);
+                        requests.add(Pair.create(e.lhSide, endpointRows));
                         return null;
                     }
                 });
 
-                completeReadRequest(tracker, execSvc, MergeResults.newCellValueMapMerger(overallResult));
-                return overallResult;
+                return new QuorumRead<byte[], SortedSet<byte[]>>(tableRef, executor) {
+                    @Override
+                    protected Iterable<byte[]> getUnits(SortedSet<byte[]> request) {
+                        return request;
+                    }
+
+                    @Override
+                    protected Map<Cell, Value> read(KeyValueService kvs, SortedSet<byte[]> request) {
+                        return kvs.getRows(tableRef, request, columnSelection, timestamp);
+                    }
+
+                    @Override
+                    protected boolean isRequested(SortedSet<byte[]> request, Cell cell) {
+                        return request.contains(cell.getRowName());
+                    }
+                }.run(requests, input.getReadRowsParameters(rows));
             }
         });
     }
@@ -135,29 +146,31 @@ public class PartitionedKeyValueService extends PartitionMapProvider implements
         return runWithPartitionMapRetryable(new Function<DynamicPartitionMap, Map<Cell, Value>>() {
             @Override
             public Map<Cell, Value> apply(@Nullable DynamicPartitionMap input) {
-                final EndpointRequestCompletionService<Map<Cell, Value>> execSvc = EndpointRequestExecutor.newService(executor);
-                final QuorumTracker<Map<Cell, Value>, Cell> tracker = QuorumTracker.of(
-                        timestampByCell.keySet(),
-                        input.getReadCellsParameters(timestampByCell.keySet()));
-                final Map<Cell, Value> globalResult = Maps.newHashMap();
-
-                // Schedule the tasks
+                final List<Pair<KeyValueService, Map<Cell, Long>>> requests = Lists.newArrayList();
                 input.runForCellsRead(tableRef.getQualifiedName(), timestampByCell, new Function<Pair<KeyValueService, Map<Cell, Long>>, Void>() {
                     @Override
-                    public Void apply(final Pair<KeyValueService, Map<Cell, Long>> e) {
-                        Future<Map<Cell, Value>> future = execSvc.submit(new Callable<Map<Cell, Value>>() {
-                            @Override
-                            public Map<Cell, Value> call() throws Exception {
-                                return e.lhSide.get(tableRef, e.rhSide);
-                            }
-                        }, e.lhSide);
-                        tracker.registerRef(future, e.rhSide.keySet());
+                    public Void apply(Pair<KeyValueService, Map<Cell, Long>> e) {
+                        requests.add(e);
                         return null;
                     }
                 });
 
-                completeReadRequest(tracker, execSvc, MergeResults.newCellValueMapMerger(globalResult));
-                return globalResult;
+                return new QuorumRead<Cell, Map<Cell, Long>>(tableRef, executor) {
+                    @Override
+                    protected Iterable<Cell> getUnits(Map<Cell, Long> request) {
+                        return request.keySet();
+                    }
+
+                    @Override
+                    protected Map<Cell, Value> read(KeyValueService kvs, Map<Cell, Long> request) {
+                        return kvs.get(tableRef, request);
+                    }
+
+                    @Override
+                    protected boolean isRequested(Map<Cell, Long> request, Cell cell) {
+                        return request.containsKey(cell);
+                    }
+                }.run(requests, input.getReadCellsParameters(timestampByCell.keySet()));
             }
         });
     }
@@ -20,6 +20,8 @@ import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.concurrent.ThreadSafe;
 
@@ -39,10 +41,12 @@ import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 
     private final ConcurrentMap<Future<?>, KeyValueService> endpointByFuture;
     private final ConcurrentHashMultiset<KeyValueService> numberOfTasksByEndpoint;
+    private final ConcurrentMap<KeyValueService, AtomicLong> latencyNanosByEndpoint;
 
     private EndpointRequestExecutor() {
         numberOfTasksByEndpoint = ConcurrentHashMultiset.create();
         endpointByFuture = Maps.newConcurrentMap();
+        latencyNanosByEndpoint = Maps.newConcurrentMap();
     }
 
     private static final EndpointRequestExecutor instance = new EndpointRequestExecutor();
@@ -52,12 +56,40 @@ import com.palantir.atlasdb.keyvalue.api.KeyValueService;
     public interface EndpointRequestCompletionService<FutureReturnType> {
         Future<FutureReturnType> submit(Callable<FutureReturnType> callable, KeyValueService kvs);
         Future<FutureReturnType> take() throws InterruptedException;
+        Future<FutureReturnType> poll(long timeout, TimeUnit unit) throws InterruptedException;
     }
 
     public static <FutureReturnType> EndpointRequestCompletionService<FutureReturnType> newService(final ExecutorService executor) {
         return instance.newServiceInternal(executor);
     }
 
+    /**
+     * Returns the moving average of the time it took the endpoint to answer
+     * recent requests, or 0 if no request has been sent to it yet.
+     * Failed requests count double, so that endpoints which keep failing
+     * are tried last.
+     */
+    public static long getLatencyEstimateNanos(KeyValueService kvs) {
+        AtomicLong latency = instance.latencyNanosByEndpoint.get(kvs);
+        return latency == null ? 0L : latency.get();
+    }
+
+    private void recordLatency(KeyValueService kvs, long nanos, boolean success) {
+        AtomicLong latency = latencyNanosByEndpoint.get(kvs);
+        if (latency == null) {
+            AtomicLong newLatency = new AtomicLong(nanos);
+            latency = latencyNanosByEndpoint.putIfAbsent(kvs, newLatency);
+            if (latency == null) {
+                return;
+            }
+        }
+        // Exponentially weighted with alpha = 1/8. Lost updates under
+        // contention are fine since this is only used as a hint.
+        long old = latency.get();
+        long sample = success ? nanos : Math.max(nanos, 2 * old);
+        latency.set(old + (sample - old) / 8);
+    }
+
     private <FutureReturnType> EndpointRequestCompletionService<FutureReturnType> newServiceInternal(final ExecutorService executor) {
         return new EndpointRequestCompletionService<FutureReturnType>() {
             final ExecutorCompletionService<FutureReturnType> execSvc = new ExecutorCompletionService<>(executor);
@@ -73,8 +105,8 @@ import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 
             @Override
             public Future<FutureReturnType> submit(
-                    Callable<FutureReturnType> callable,
-                    KeyValueService kvs) {
+                    final Callable<FutureReturnType> callable,
+                    final KeyValueService kvs) {
 
                 final Future<FutureReturnType> ret;
 
@@ -96,7 +128,25 @@ import com.palantir.atlasdb.keyvalue.api.KeyValueService;
                     });
                 } else {
                     numberOfTasksByEndpoint.add(kvs);
-                    ret = execSvc.submit(callable);
+                    ret = execSvc.submit(new Callable<FutureReturnType>() {
+                        @Override
+                        public FutureReturnType call() throws Exception {
+                            long start = System.nanoTime();
+                            boolean success = false;
+                            try {
+                                FutureReturnType result = callable.call();
+                                success = true;
+                                return result;
+                            } finally {
+                                recordLatency(kvs, System.nanoTime() - start, success);
+                            }
+                        }
+
+                        @Override
+                        public String toString() {
+                            return callable.toString();
+                        }
+                    });
                 }
                 endpointByFuture.put(ret, kvs);
                 return ret;
@@ -106,6 +156,11 @@ import com.palantir.atlasdb.keyvalue.api.KeyValueService;
             public Future<FutureReturnType> take() throws InterruptedException {
                 return registerTaskCompleted(execSvc.take());
             }
+
+            @Override
+            public Future<FutureReturnType> poll(long timeout, TimeUnit unit) throws InterruptedException {
+                return registerTaskCompleted(execSvc.poll(timeout, unit));
+            }
         };
     }
 }
@@ -0,0 +1,224 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.partition.util;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Function;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.primitives.Longs;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.keyvalue.partition.quorum.QuorumParameters.QuorumRequestParameters;
+import com.palantir.atlasdb.keyvalue.partition.quorum.QuorumTracker;
+import com.palantir.atlasdb.keyvalue.partition.util.EndpointRequestExecutor.EndpointRequestCompletionService;
+import com.palantir.util.Pair;
+
+/**
+ * Reads cell values from the replicas of a key range.
+ *
+ * The replicas that answered fastest recently are asked first, and only as many
+ * of them as are needed to reach the read quorum. The others are only asked if
+ * one of those fails or takes much longer than expected. The read returns as soon
+ * as the quorum is reached and the remaining requests are cancelled.
+ *
+ * Replicas that answered with an older latest value for a cell than the merged
+ * result are repaired in the background. Replicas that have no value for the cell
+ * at all are left alone, since the value may have been deleted in the meantime.
+ *
+ * @param <TrackingUnit> the unit the quorum is tracked for (rows or cells)
+ * @param <RequestType> what a single endpoint is asked for
+ */
+public abstract class QuorumRead<TrackingUnit, RequestType> {
+    private static final Logger log = LoggerFactory.getLogger(QuorumRead.class);
+
+    private static final long MIN_HEDGE_DELAY_MILLIS = 5;
+    private static final long MAX_HEDGE_DELAY_MILLIS = 1000;
+    private static final int HEDGE_DELAY_LATENCY_MULTIPLIER = 3;
+
+    private final TableReference tableRef;
+    private final ExecutorService executor;
+
+    protected QuorumRead(TableReference tableRef, ExecutorService executor) {
+        this.tableRef = tableRef;
+        this.executor = executor;
+    }
+
+    protected abstract Iterable<TrackingUnit> getUnits(RequestType request);
+
+    protected abstract Map<Cell, Value> read(KeyValueService kvs, RequestType request) throws Exception;
+
+    /**
+     * Whether the cell has been asked for by the request, ie. whether
+     * the endpoint that was sent the request should store that cell.
+     */
+    protected abstract boolean isRequested(RequestType request, Cell cell);
+
+    public Map<Cell, Value> run(List<Pair<KeyValueService, RequestType>> requests,
+                                Map<TrackingUnit, QuorumRequestParameters> parameters) {
+        final Map<Cell, Value> result = Maps.newHashMap();
+        final EndpointRequestCompletionService<Map<Cell, Value>> execSvc = EndpointRequestExecutor.newService(executor);
+        final QuorumTracker<Map<Cell, Value>, TrackingUnit> tracker = QuorumTracker.of(parameters.keySet(), parameters);
+
+        List<EndpointRead> reads = Lists.newArrayListWithCapacity(requests.size());
+        for (Pair<KeyValueService, RequestType> request : requests) {
+            reads.add(new EndpointRead(request.lhSide, request.rhSide));
+        }
+        Collections.sort(reads, new Comparator<EndpointRead>() {
+            @Override
+            public int compare(EndpointRead o1, EndpointRead o2) {
+                return Longs.compare(o1.latencyEstimateNanos, o2.latencyEstimateNanos);
+            }
+        });
+
+        // Ask the fastest replicas until every unit is covered by enough of them
+        Map<TrackingUnit, Integer> missingReplicas = Maps.newHashMap();
+        for (Map.Entry<TrackingUnit, QuorumRequestParameters> e : parameters.entrySet()) {
+            missingReplicas.put(e.getKey(), e.getValue().getSuccessFactor());
+        }
+        List<EndpointRead> backups = Lists.newArrayList();
+        long slowestLatencyNanos = 0L;
+        for (EndpointRead read : reads) {
+            if (coversMissingUnit(read, missingReplicas)) {
+                for (TrackingUnit unit : getUnits(read.request)) {
+                    Integer missing = missingReplicas.get(unit);
+                    if (missing != null) {
+                        missingReplicas.put(unit, missing - 1);
+                    }
+                }
+                slowestLatencyNanos = Math.max(slowestLatencyNanos, read.latencyEstimateNanos);
+                read.submit(execSvc, tracker);
+            } else {
+                backups.add(read);
+            }
+        }
+
+        long hedgeDelayMillis = TimeUnit.NANOSECONDS.toMillis(HEDGE_DELAY_LATENCY_MULTIPLIER * slowestLatencyNanos);
+        hedgeDelayMillis = Math.min(MAX_HEDGE_DELAY_MILLIS, Math.max(MIN_HEDGE_DELAY_MILLIS, hedgeDelayMillis));
+
+        RequestCompletions.completeReadRequest(
+                tracker,
+                execSvc,
+                MergeResults.newCellValueMapMerger(result),
+                Iterators.transform(backups.iterator(), new Function<EndpointRead, Runnable>() {
+                    @Override
+                    public Runnable apply(final EndpointRead read) {
+                        return new Runnable() {
+                            @Override
+                            public void run() {
+                                read.submit(execSvc, tracker);
+                            }
+                        };
+                    }
+                }),
+                hedgeDelayMillis);
+
+        if (!result.isEmpty()) {
+            scheduleReadRepair(reads, result);
+        }
+        return result;
+    }
+
+    private boolean coversMissingUnit(EndpointRead read, Map<TrackingUnit, Integer> missingReplicas) {
+        for (TrackingUnit unit : getUnits(read.request)) {
+            Integer missing = missingReplicas.get(unit);
+            if (missing != null && missing > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void scheduleReadRepair(List<EndpointRead> reads, Map<Cell, Value> result) {
+        for (EndpointRead read : reads) {
+            final Map<Cell, Value> response = read.response;
+            if (response == null) {
+                // Failed, cancelled or never asked
+                continue;
+            }
+            final Multimap<Cell, Value> staleValues = HashMultimap.create();
+            for (Map.Entry<Cell, Value> e : result.entrySet()) {
+                Value own = response.get(e.getKey());
+                // A replica without any value may have had the version deleted by sweep or
+                // scrub since the other replicas were read, so only older values are repaired.
+                if (own != null && own.getTimestamp() < e.getValue().getTimestamp()
+                        && isRequested(read.request, e.getKey())) {
+                    staleValues.put(e.getKey(), e.getValue());
+                }
+            }
+            if (!staleValues.isEmpty()) {
+                final KeyValueService kvs = read.kvs;
+                log.debug("Repairing {} stale cells of table {} on endpoint {}.", staleValues.size(), tableRef, kvs);
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            kvs.putWithTimestamps(tableRef, staleValues);
+                        } catch (KeyAlreadyExistsException e) {
+                            // A concurrent write or repair got there first
+                            log.debug("Read repair of table {} on endpoint {} raced with another write.", tableRef, kvs);
+                        } catch (RuntimeException e) {
+                            log.warn("Read repair of table " + tableRef + " on endpoint " + kvs + " failed.", e);
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    private final class EndpointRead {
+        final KeyValueService kvs;
+        final RequestType request;
+        final long latencyEstimateNanos;
+        volatile Map<Cell, Value> response;
+
+        EndpointRead(KeyValueService kvs, RequestType request) {
+            this.kvs = kvs;
+            this.request = request;
+            this.latencyEstimateNanos = EndpointRequestExecutor.getLatencyEstimateNanos(kvs);
+        }
+
+        void submit(EndpointRequestCompletionService<Map<Cell, Value>> execSvc,
+                    QuorumTracker<Map<Cell, Value>, TrackingUnit> tracker) {
+            Future<Map<Cell, Value>> future = execSvc.submit(new Callable<Map<Cell, Value>>() {
+                @Override
+                public Map<Cell, Value> call() throws Exception {
+                    Map<Cell, Value> ret = read(kvs, request);
+                    response = ret;
+                    return ret;
+                }
+            }, kvs);
+            tracker.registerRef(future, getUnits(request));
+        }
+    }
+}
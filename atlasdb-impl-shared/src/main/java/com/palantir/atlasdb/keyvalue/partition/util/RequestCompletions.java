@@ -15,9 +15,11 @@
  */
 package com.palantir.atlasdb.keyvalue.partition.util;
 
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -48,19 +50,40 @@ public class RequestCompletions {
      * This will block until success or failure of the request can be concluded.
      * In case of failure it will rethrow the last encountered exception.
      *
+     * Each of the <code>backupRequests</code> submits one more task and registers
+     * it with the tracker. The next one is run whenever a task fails, when no task
+     * is running anymore or when no task has completed for <code>hedgeDelayMillis</code>.
+     *
      * @param tracker
      * @param execSvc
      * @param mergeFunction
+     * @param backupRequests
+     * @param hedgeDelayMillis
      */
     private static <TrackingUnit, FutureReturnType> void completeRequest(
             QuorumTracker<FutureReturnType, TrackingUnit> tracker,
             EndpointRequestCompletionService<FutureReturnType> execSvc,
-            Function<FutureReturnType, Void> mergeFunction) {
+            Function<FutureReturnType, Void> mergeFunction,
+            Iterator<? extends Runnable> backupRequests,
+            long hedgeDelayMillis) {
 
         try {
             // Wait until we can conclude success or failure
             while (!tracker.finished()) {
-                Future<FutureReturnType> future = execSvc.take();
+                final Future<FutureReturnType> future;
+                if (!backupRequests.hasNext()) {
+                    future = execSvc.take();
+                } else if (!tracker.hasJobsRunning()) {
+                    backupRequests.next().run();
+                    continue;
+                } else {
+                    future = execSvc.poll(hedgeDelayMillis, TimeUnit.MILLISECONDS);
+                    if (future == null) {
+                        // The fastest replicas are too slow this time, ask another one
+                        backupRequests.next().run();
+                        continue;
+                    }
+                }
                 try {
                     FutureReturnType result = future.get();
                     mergeFunction.apply(result);
@@ -72,6 +95,9 @@ public class RequestCompletions {
                     if (isNonInterceptableException(cause) || tracker.failed()) {
                         Throwables.rewrapAndThrowUncheckedException(cause);
                     }
+                    if (backupRequests.hasNext()) {
+                        backupRequests.next().run();
+                    }
                 }
             }
         } catch (InterruptedException e) {
@@ -92,8 +118,30 @@ public class RequestCompletions {
             EndpointRequestCompletionService<FutureReturnType> execSvc,
             Function<FutureReturnType, Void> mergeFunction) {
 
+        completeReadRequest(tracker, execSvc, mergeFunction, Collections.<Runnable> emptyIterator(), 0L);
+    }
+
+    /**
+     * Like {@link #completeReadRequest(QuorumTracker, EndpointRequestCompletionService, Function)}
+     * but only some of the replicas have been asked up front. The remaining ones are asked one
+     * by one, by running the next of <code>backupRequests</code>, if one of the replicas fails or
+     * none answers within <code>hedgeDelayMillis</code>.
+     *
+     * @param tracker
+     * @param execSvc
+     * @param mergeFunction
+     * @param backupRequests
+     * @param hedgeDelayMillis
+     */
+    public static <TrackingUnit, FutureReturnType> void completeReadRequest(
+            QuorumTracker<FutureReturnType, TrackingUnit> tracker,
+            EndpointRequestCompletionService<FutureReturnType> execSvc,
+            Function<FutureReturnType, Void> mergeFunction,
+            Iterator<? extends Runnable> backupRequests,
+            long hedgeDelayMillis) {
+
         try {
-            completeRequest(tracker, execSvc, mergeFunction);
+            completeRequest(tracker, execSvc, mergeFunction, backupRequests, hedgeDelayMillis);
         } finally {
             tracker.cancel(true);
         }
@@ -113,7 +161,7 @@ public class RequestCompletions {
             final EndpointRequestCompletionService<Void> execSvc) {
 
         try {
-            completeRequest(tracker, execSvc, Functions.<Void> identity());
+            completeRequest(tracker, execSvc, Functions.<Void> identity(), Collections.<Runnable> emptyIterator(), 0L);
         } catch (RuntimeException e) {
             tracker.cancel(true);
             throw e;
@@ -144,12 +144,14 @@ public class RemotingKeyValueService extends ForwardingKeyValueService {
     public static KeyValueService createClientSide(String uri, Supplier<Long> localVersionSupplier) {
         ServiceContext<Long> outboxVersionCtx = RemoteContextHolder.OUTBOX.getProviderForKey(LONG_HOLDER.PM_VERSION);
 
+        SmileContentNegotiation negotiation = new SmileContentNegotiation(kvsSmileMapper(), true);
         KeyValueService remotingKvs = Feign.builder()
-                .encoder(new OctetStreamDelegateEncoder(new JacksonEncoder(kvsMapper())))
-                .decoder(new OctetStreamDelegateDecoder(new JacksonDecoder(kvsMapper())))
+                .encoder(new OctetStreamDelegateEncoder(negotiation.encoder(new JacksonEncoder(kvsMapper()))))
+                .decoder(new OctetStreamDelegateDecoder(negotiation.decoder(new JacksonDecoder(kvsMapper()))))
                 .errorDecoder(KeyValueServiceErrorDecoder.instance())
                 .contract(new JAXRSContract())
                 .requestInterceptor(new OutboxShippingInterceptor(kvsMapper()))
+                .requestInterceptor(negotiation.requestInterceptor())
                 .target(KeyValueService.class, uri);
 
         KeyValueService versionSettingRemotingKvs = PopulateServiceContextProxy.newProxyInstance(
@@ -236,9 +238,24 @@ public class RemotingKeyValueService extends ForwardingKeyValueService {
     public static SimpleModule kvsModule() {
         return kvsModule;
     }
+    private static final ObjectMapper kvsSmileMapper = SmileContentNegotiation.newSmileMapper(); static {
+        kvsSmileMapper.registerModule(kvsModule);
+        kvsSmileMapper.registerModule(new GuavaModule());
+    }
     public static ObjectMapper kvsMapper() {
         return kvsMapper;
     }
+    public static ObjectMapper kvsSmileMapper() {
+        return kvsSmileMapper;
+    }
+
+    /**
+     * Register this with the server of a remote key value service so that clients
+     * can send and receive rows in Smile instead of JSON.
+     */
+    public static SmileFeature smileFeature() {
+        return new SmileFeature(kvsSmileMapper);
+    }
 
     // This method transforms an iterator into paging iterator that can be
     // sent over-the-wire in json.
@@ -0,0 +1,145 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.remoting;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.google.common.collect.Iterables;
+import com.palantir.common.remoting.RemotingMediaTypes;
+
+import feign.FeignException;
+import feign.RequestInterceptor;
+import feign.RequestTemplate;
+import feign.Response;
+import feign.Util;
+import feign.codec.DecodeException;
+import feign.codec.Decoder;
+import feign.codec.EncodeException;
+import feign.codec.Encoder;
+
+/**
+ * Client side of the negotiation of {@link RemotingMediaTypes#APPLICATION_JACKSON_SMILE}
+ * for a single feign proxy. See {@link SmileFeature} for the server side.
+ *
+ * Requests ask for JSON until a response carried the {@link RemotingMediaTypes#ACCEPTS_SMILE_HEADER},
+ * and for Smile (falling back to JSON) from then on. If <code>smileRequestBodies</code> is set, request
+ * bodies are encoded with Smile as well once the server is known to accept it. Any response without
+ * the header, eg. after failing over to an older server, switches back to JSON.
+ *
+ * The encoder, decoder and interceptor of one instance must be used by the same proxy.
+ */
+public final class SmileContentNegotiation {
+    private final ObjectMapper smileMapper;
+    private final boolean smileRequestBodies;
+    private volatile boolean serverAcceptsSmile = false;
+
+    public SmileContentNegotiation(ObjectMapper smileMapper, boolean smileRequestBodies) {
+        this.smileMapper = smileMapper;
+        this.smileRequestBodies = smileRequestBodies;
+    }
+
+    /**
+     * Returns a mapper writing raw binary Smile. The caller has to register the
+     * same modules as on the JSON mapper it is used alongside.
+     */
+    public static ObjectMapper newSmileMapper() {
+        SmileFactory factory = new SmileFactory();
+        // HTTP bodies are binary safe, no need for the 7 bit encoding
+        factory.disable(SmileGenerator.Feature.ENCODE_BINARY_AS_7BIT);
+        return new ObjectMapper(factory);
+    }
+
+    public Encoder encoder(final Encoder jsonEncoder) {
+        return new Encoder() {
+            @Override
+            public void encode(Object object, Type bodyType, RequestTemplate template) throws EncodeException {
+                if (!smileRequestBodies
+                        || !serverAcceptsSmile
+                        || !isJson(template.headers().get(HttpHeaders.CONTENT_TYPE))) {
+                    jsonEncoder.encode(object, bodyType, template);
+                    return;
+                }
+                try {
+                    template.body(smileMapper.writeValueAsBytes(object), null);
+                } catch (JsonProcessingException e) {
+                    throw new EncodeException(e.getMessage(), e);
+                }
+                template.header(HttpHeaders.CONTENT_TYPE, RemotingMediaTypes.APPLICATION_JACKSON_SMILE);
+            }
+        };
+    }
+
+    public Decoder decoder(final Decoder jsonDecoder) {
+        return new Decoder() {
+            @Override
+            public Object decode(Response response, Type type) throws IOException, DecodeException, FeignException {
+                serverAcceptsSmile = !getHeader(response.headers(), RemotingMediaTypes.ACCEPTS_SMILE_HEADER).isEmpty();
+                Collection<String> contentTypes = getHeader(response.headers(), HttpHeaders.CONTENT_TYPE);
+                if (contentTypes.size() != 1
+                        || !Iterables.getOnlyElement(contentTypes).startsWith(RemotingMediaTypes.APPLICATION_JACKSON_SMILE)) {
+                    return jsonDecoder.decode(response, type);
+                }
+                if (response.status() == 404) {
+                    return Util.emptyValueOf(type);
+                }
+                if (response.body() == null) {
+                    return null;
+                }
+                return smileMapper.readValue(response.body().asInputStream(), smileMapper.constructType(type));
+            }
+        };
+    }
+
+    public RequestInterceptor requestInterceptor() {
+        return new RequestInterceptor() {
+            @Override
+            public void apply(RequestTemplate template) {
+                if (serverAcceptsSmile && isJson(template.headers().get(HttpHeaders.ACCEPT))) {
+                    template.header(
+                            HttpHeaders.ACCEPT,
+                            RemotingMediaTypes.APPLICATION_JACKSON_SMILE,
+                            MediaType.APPLICATION_JSON);
+                }
+            }
+        };
+    }
+
+    private static boolean isJson(Collection<String> headerValues) {
+        return headerValues != null
+                && headerValues.size() == 1
+                && Iterables.getOnlyElement(headerValues).startsWith(MediaType.APPLICATION_JSON);
+    }
+
+    private static Collection<String> getHeader(Map<String, Collection<String>> headers, String name) {
+        for (Map.Entry<String, Collection<String>> e : headers.entrySet()) {
+            if (name.equalsIgnoreCase(e.getKey())) {
+                return e.getValue();
+            }
+        }
+        return Collections.emptyList();
+    }
+}
@@ -0,0 +1,54 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.remoting;
+
+import java.io.IOException;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.Feature;
+import javax.ws.rs.core.FeatureContext;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.jaxrs.smile.JacksonSmileProvider;
+import com.palantir.common.remoting.RemotingMediaTypes;
+
+/**
+ * Server side of the negotiation of {@link RemotingMediaTypes#APPLICATION_JACKSON_SMILE}.
+ * Registers a Smile reader and writer for resources that declare the media type and
+ * advertises them to clients on every response. See {@link SmileContentNegotiation}.
+ */
+public final class SmileFeature implements Feature {
+    private final ObjectMapper smileMapper;
+
+    public SmileFeature(ObjectMapper smileMapper) {
+        this.smileMapper = smileMapper;
+    }
+
+    @Override
+    public boolean configure(FeatureContext context) {
+        context.register(new JacksonSmileProvider(smileMapper));
+        context.register(new ContainerResponseFilter() {
+            @Override
+            public void filter(ContainerRequestContext requestContext,
+                               ContainerResponseContext responseContext) throws IOException {
+                responseContext.getHeaders().putSingle(RemotingMediaTypes.ACCEPTS_SMILE_HEADER, "true");
+            }
+        });
+        return true;
+    }
+}
@@ -17,24 +17,41 @@ package com.palantir.atlasdb.schema;
 
 
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Supplier;
-import com.google.common.collect.ImmutableList;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.BulkLoadingKeyValueService;
+import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.Namespace;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RangeRequests;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
-import com.palantir.atlasdb.table.description.RowNamePartitioner;
-import com.palantir.atlasdb.table.description.TableMetadata;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.keyvalue.impl.KeyValueServices;
+import com.palantir.atlasdb.transaction.api.Transaction;
 import com.palantir.atlasdb.transaction.api.TransactionManager;
+import com.palantir.atlasdb.transaction.api.TransactionTask;
+import com.palantir.common.base.BatchingVisitables;
+import com.palantir.common.base.ClosableIterator;
 import com.palantir.common.base.Throwables;
 import com.palantir.common.concurrent.PTExecutors;
 
@@ -42,6 +59,8 @@ public class KeyValueServiceMigrator {
     private final TableReference checkpointTable;
     private static final String CHECKPOINT_TABLE_NAME = "tmp_migrate_progress";
     private static final int PARTITIONS = 256;
+    private static final String BULK_LOAD_SUFFIX = ".bulk";
+    private static final long BULK_LOAD_RANGE_ID = 0L;
 
     private final TransactionManager fromTransactionManager;
     private final TransactionManager toTransactionManager;
@@ -199,6 +218,15 @@ public class KeyValueServiceMigrator {
         }
     }
 
+    /**
+     * Migrates all the tables concurrently over the shared executor. Each table is split by
+     * sampling the source KVS, and long-running ranges are split further when workers go idle.
+     * <p>
+     * If the destination KVS can bulk load, tables that are still empty there are instead copied
+     * whole by a single bulk load, and only marked as done in the checkpoints once it returns. A
+     * bulk load that was interrupted leaves the table non-empty, so the next run copies it by
+     * ranges instead.
+     */
     private void migrateTables(Set<TableReference> tables,
                                TransactionManager readTxManager,
                                TransactionManager txManager,
@@ -206,37 +234,143 @@ public class KeyValueServiceMigrator {
                                long migrationTimestamp,
                                ExecutorService executor,
                                GeneralTaskCheckpointer checkpointer) {
+        boolean canBulkLoad = KeyValueServices.supports(writeKvs, BulkLoadingKeyValueService.class);
+        List<KvsRangeMigrator> rangeMigrators = Lists.newArrayList();
+        List<Future<?>> bulkLoads = Lists.newArrayList();
         for (TableReference table : tables) {
-            KvsRangeMigrator rangeMigrator =
-                    new KvsRangeMigratorBuilder().srcTable(table).readBatchSize(getBatchSize(table)).readTxManager(
-                            readTxManager).txManager(txManager).writeKvs(writeKvs).migrationTimestamp(
-                            migrationTimestamp).checkpointer(checkpointer).build();
-            TableMigratorBuilder builder =
-                    new TableMigratorBuilder().srcTable(table).partitions(PARTITIONS).partitioners(
-                            getPartitioners(fromKvs, table)).readBatchSize(
-                            getBatchSize(table)).executor(executor).checkpointer(checkpointer).progress(
-                            taskProgress).rangeMigrator(rangeMigrator);
-            TableMigrator migrator = builder.build();
-            migrator.migrate();
+            if (canBulkLoad) {
+                String bulkLoadId = table.getQualifiedName() + BULK_LOAD_SUFFIX;
+                checkpointer.createCheckpoints(bulkLoadId, ImmutableMap.of(BULK_LOAD_RANGE_ID, PtBytes.EMPTY_BYTE_ARRAY));
+                if (isBulkLoaded(bulkLoadId, txManager, checkpointer)) {
+                    processMessage("table " + table + " was already bulk loaded", KvsMigrationMessageLevel.INFO);
+                    continue;
+                }
+                if (isEmpty(writeKvs, table)) {
+                    bulkLoads.add(executor.submit(PTExecutors.wrap(createBulkLoadTask(
+                            table,
+                            bulkLoadId,
+                            readTxManager,
+                            txManager,
+                            writeKvs,
+                            migrationTimestamp,
+                            checkpointer))));
+                    continue;
+                }
+            }
+            rangeMigrators.add(new KvsRangeMigratorBuilder().srcTable(table).readBatchSize(getBatchSize(table)).readTxManager(
+                    readTxManager).txManager(txManager).writeKvs(writeKvs).migrationTimestamp(
+                    migrationTimestamp).checkpointer(checkpointer).build());
         }
+        MultiTableMigrator migrator = new MultiTableMigrator(
+                fromKvs,
+                Long.MAX_VALUE,
+                PARTITIONS,
+                threads,
+                executor,
+                checkpointer,
+                taskProgress);
+        migrator.migrate(rangeMigrators);
+        for (Future<?> bulkLoad : bulkLoads) {
+            try {
+                bulkLoad.get();
+            } catch (InterruptedException e) {
+                Throwables.throwUncheckedException(e);
+            } catch (ExecutionException e) {
+                Throwables.throwUncheckedException(e.getCause());
+            }
+        }
+    }
+
+    private Runnable createBulkLoadTask(final TableReference table,
+                                        final String bulkLoadId,
+                                        final TransactionManager readTxManager,
+                                        final TransactionManager txManager,
+                                        final KeyValueService writeKvs,
+                                        final long migrationTimestamp,
+                                        final GeneralTaskCheckpointer checkpointer) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                processMessage("bulk loading table " + table, KvsMigrationMessageLevel.INFO);
+                KeyValueServices.bulkLoad(
+                        writeKvs,
+                        table,
+                        readSortedCells(readTxManager, table, getBatchSize(table)),
+                        migrationTimestamp);
+                txManager.runTaskWithRetry(new TransactionTask<Void, RuntimeException>() {
+                    @Override
+                    public Void execute(Transaction t) {
+                        checkpointer.checkpoint(bulkLoadId, BULK_LOAD_RANGE_ID, PtBytes.EMPTY_BYTE_ARRAY, t);
+                        return null;
+                    }
+                });
+                processMessage("bulk loaded table " + table, KvsMigrationMessageLevel.INFO);
+            }
+        };
+    }
+
+    private static boolean isBulkLoaded(final String bulkLoadId,
+                                        TransactionManager txManager,
+                                        final GeneralTaskCheckpointer checkpointer) {
+        return txManager.runTaskReadOnly(new TransactionTask<Boolean, RuntimeException>() {
+            @Override
+            public Boolean execute(Transaction t) {
+                return checkpointer.getCheckpoint(bulkLoadId, BULK_LOAD_RANGE_ID, t) == null;
+            }
+        });
     }
 
-    private List<RowNamePartitioner> getPartitioners(KeyValueService kvs, TableReference table) {
+    private static boolean isEmpty(KeyValueService kvs, TableReference table) {
+        ClosableIterator<RowResult<Value>> range =
+                kvs.getRange(table, RangeRequest.builder().batchHint(1).build(), Long.MAX_VALUE);
         try {
-            byte[] metadata = kvs.getMetadataForTable(table);
-            TableMetadata tableMeta = TableMetadata.BYTES_HYDRATOR.hydrateFromBytes(metadata);
-            return tableMeta.getRowMetadata().getPartitionersForRow();
-        } catch (RuntimeException e) {
-            processMessage(
-                    "Could not resolve partitioners from table metadata for "
-                            + table
-                            + " this may result in a small decrease in performance migrating this table.",
-                    e,
-                    KvsMigrationMessageLevel.WARN);
-            return ImmutableList.of();
+            return !range.hasNext();
+        } finally {
+            range.close();
         }
     }
 
+    /**
+     * Reads the cells of the table in ascending order, a batch of rows per read transaction like
+     * {@link KvsRangeMigrator}.
+     */
+    private static Iterator<Map.Entry<Cell, byte[]>> readSortedCells(final TransactionManager readTxManager,
+                                                                     final TableReference table,
+                                                                     final int batchSize) {
+        return Iterators.concat(new AbstractIterator<Iterator<Map.Entry<Cell, byte[]>>>() {
+            private byte[] nextRow = PtBytes.EMPTY_BYTE_ARRAY;
+
+            @Override
+            protected Iterator<Map.Entry<Cell, byte[]>> computeNext() {
+                if (nextRow == null) {
+                    return endOfData();
+                }
+                final RangeRequest range = RangeRequest.builder()
+                        .startRowInclusive(nextRow)
+                        .batchHint(batchSize)
+                        .build();
+                List<RowResult<byte[]>> rows = readTxManager.runTaskReadOnly(
+                        new TransactionTask<List<RowResult<byte[]>>, RuntimeException>() {
+                    @Override
+                    public List<RowResult<byte[]>> execute(Transaction t) {
+                        return BatchingVisitables.take(t.getRange(table, range), batchSize);
+                    }
+                });
+                byte[] lastRow = rows.isEmpty() ? null : rows.get(rows.size() - 1).getRowName();
+                if (rows.size() < batchSize || RangeRequests.isLastRowName(lastRow)) {
+                    nextRow = null;
+                } else {
+                    nextRow = RangeRequests.nextLexicographicName(lastRow);
+                }
+                List<Map.Entry<Cell, byte[]>> cells = Lists.newArrayList();
+                for (RowResult<byte[]> row : rows) {
+                    Iterables.addAll(cells, row.getCells());
+                }
+                return cells.iterator();
+            }
+        });
+    }
+
     private int getBatchSize(TableReference table) {
         Integer batchSize = readBatchSizeOverrides.get(table);
         return batchSize != null ? batchSize : defaultBatchSize;
@@ -49,6 +49,7 @@ import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.SweepResults;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.keyvalue.impl.KeyValueServices;
 import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.SweepStrategy;
 import com.palantir.atlasdb.transaction.api.Transaction.TransactionType;
 import com.palantir.atlasdb.transaction.api.TransactionFailedRetriableException;
@@ -153,7 +154,7 @@ public class SweepTaskRunnerImpl implements SweepTaskRunner {
             Set<Cell> sentinelsToAdd = Sets.newHashSet();
             Multimap<Cell, Long> rowTimestamps = getTimestampsFromRowResults(rowResultTimestamps, sweepStrategy);
             Multimap<Cell, Long> cellTsPairsToSweep = getCellTsPairsToSweep(rowTimestamps, peekingValues, sweepTimestamp, sweepStrategy, sentinelsToAdd);
-            sweepCells(tableRef, cellTsPairsToSweep, sentinelsToAdd);
+            sweepCells(tableRef, cellTsPairsToSweep, rowTimestamps, sentinelsToAdd);
             byte[] nextRow = rowResultTimestamps.size() < batchSize ? null :
                 RangeRequests.getNextStartRow(false, Iterables.getLast(rowResultTimestamps).getRowName());
             return new SweepResults(nextRow, rowResultTimestamps.size(), cellTsPairsToSweep.size(), sweepTimestamp);
@@ -299,6 +300,7 @@ public class SweepTaskRunnerImpl implements SweepTaskRunner {
 
     private void sweepCells(TableReference tableRef,
                             Multimap<Cell, Long> cellTsPairsToSweep,
+                            Multimap<Cell, Long> readTimestamps,
                             Set<Cell> sentinelsToAdd) {
         if (cellTsPairsToSweep.isEmpty()) {
             return;
@@ -312,6 +314,6 @@ public class SweepTaskRunnerImpl implements SweepTaskRunner {
                     tableRef,
                     sentinelsToAdd);
         }
-        keyValueService.delete(tableRef, cellTsPairsToSweep);
+        KeyValueServices.deleteTimestamps(keyValueService, tableRef, cellTsPairsToSweep, readTimestamps);
     }
 }
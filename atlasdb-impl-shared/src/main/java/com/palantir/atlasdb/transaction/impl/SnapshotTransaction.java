@@ -15,6 +15,7 @@
  */
 package com.palantir.atlasdb.transaction.impl;
 
+import java.util.AbstractList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -69,6 +70,8 @@ import com.palantir.atlasdb.cleaner.NoOpCleaner;
 import com.palantir.atlasdb.encoding.PtBytes;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.ColumnarKeyValueService;
+import com.palantir.atlasdb.keyvalue.api.ColumnarResults;
 import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
@@ -77,6 +80,7 @@ import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.atlasdb.keyvalue.impl.Cells;
+import com.palantir.atlasdb.keyvalue.impl.KeyValueServices;
 import com.palantir.atlasdb.keyvalue.impl.RowResults;
 import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.SweepStrategy;
 import com.palantir.atlasdb.table.description.exceptions.AtlasDbConstraintException;
@@ -115,9 +119,10 @@ import com.palantir.lock.LockRequest;
 import com.palantir.lock.RemoteLockService;
 import com.palantir.timestamp.TimestampService;
 import com.palantir.util.AssertUtils;
+import com.palantir.util.ConcurrentSoftCache;
 import com.palantir.util.DistributedCacheMgrCache;
 import com.palantir.util.Pair;
-import com.palantir.util.SoftCache;
+import com.palantir.util.metrics.OperationMetrics;
 import com.palantir.util.paging.TokenBackedBasicResultsPage;
 
 /**
@@ -165,7 +170,7 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
 
     protected final ConcurrentMap<TableReference, ConcurrentNavigableMap<Cell, byte[]>> writesByTable = Maps.newConcurrentMap();
     private final ConflictDetectionManager conflictDetectionManager;
-    private final DistributedCacheMgrCache<Long, Long> cachedCommitTimes = new SoftCache<Long, Long>();
+    private final DistributedCacheMgrCache<Long, Long> cachedCommitTimes = new ConcurrentSoftCache<Long, Long>();
     private final AtomicLong byteCount = new AtomicLong();
 
     private final AtlasDbConstraintCheckingMode constraintCheckingMode;
@@ -320,17 +325,26 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
             return AbstractTransaction.EMPTY_SORTED_ROWS;
         }
         Map<Cell, byte[]> result = Maps.newHashMap();
-        Map<Cell, Value> rawResults = Maps.newHashMap(
-                keyValueService.getRows(tableRef, rows, columnSelection, getStartTimestamp()));
         SortedMap<Cell, byte[]> writes = writesByTable.get(tableRef);
-        if (writes != null) {
-            for (byte[] row : rows) {
-                extractLocalWritesForRow(result, writes, row);
+        Map<Cell, Value> rawResults;
+        if ((writes == null || writes.isEmpty()) && KeyValueServices.supports(keyValueService, ColumnarKeyValueService.class)) {
+            ColumnarResults columnarResults = ((ColumnarKeyValueService) keyValueService).getRowsColumnar(
+                    tableRef, rows, columnSelection, getStartTimestamp());
+            logIfLargeRead(tableRef, columnarResults);
+            rawResults = postFilterVisibleValues(tableRef, columnarResults, result);
+        } else {
+            rawResults = Maps.newHashMap(
+                    keyValueService.getRows(tableRef, rows, columnSelection, getStartTimestamp()));
+            logIfLargeRead(tableRef, rawResults);
+            if (writes != null) {
+                for (byte[] row : rows) {
+                    extractLocalWritesForRow(result, writes, row);
+                }
             }
-        }
 
-        // We don't need to do work postfiltering if we have a write locally.
-        rawResults.keySet().removeAll(result.keySet());
+            // We don't need to do work postfiltering if we have a write locally.
+            rawResults.keySet().removeAll(result.keySet());
+        }
 
         SortedMap<byte[], RowResult<byte[]>> results = filterRowResults(tableRef, rawResults, result);
         if (perfLogger.isDebugEnabled()) {
@@ -353,17 +367,65 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
                 ColumnSelection.all(),
                 getStartTimestamp()));
 
+        logIfLargeRead(tableRef, rawResults);
         return filterRowResults(tableRef, rawResults, Maps.<Cell, byte[]>newHashMap());
     }
 
+    /**
+     * Postfilters rows whose size the caller has already checked with {@link #logIfLargeRead}.
+     */
     private SortedMap<byte[], RowResult<byte[]>> filterRowResults(TableReference tableRef,
                                                                   Map<Cell, Value> rawResults,
                                                                   Map<Cell, byte[]> result) {
-        getWithPostfiltering(tableRef, rawResults, result, Value.GET_VALUE);
+        postfilter(tableRef, rawResults, result, Value.GET_VALUE);
         Map<Cell, byte[]> filterDeletedValues = Maps.filterValues(result, Predicates.not(Value.IS_EMPTY));
         return RowResults.viewOfSortedMap(Cells.breakCellsUpByRow(filterDeletedValues));
     }
 
+    /**
+     * Copies the values that are visible to this transaction straight from the columnar results
+     * to the output, creating cells only for them, and returns everything else (uncommitted,
+     * too new, or a sweep sentinel) for the regular postfilter to deal with.
+     */
+    private Map<Cell, Value> postFilterVisibleValues(TableReference tableRef,
+                                                     ColumnarResults rawResults,
+                                                     @Output Map<Cell, byte[]> results) {
+        if (isTempTable(tableRef) || (AtlasDbConstants.SKIP_POSTFILTER_TABLES.contains(tableRef) && allowHiddenTableAccess)) {
+            return rawResults.toCellMap();
+        }
+        Set<Long> startTimestamps = Sets.newHashSet();
+        for (int i = 0; i < rawResults.size(); i++) {
+            startTimestamps.add(rawResults.getTimestamp(i));
+        }
+        Map<Long, Long> commitTimestamps = getCommitTimestamps(tableRef, startTimestamps, true);
+        Map<Cell, Value> remaining = Maps.newHashMap();
+        for (int row = 0; row < rawResults.getNumRows(); row++) {
+            byte[] rowName = null;
+            for (int i = rawResults.getFirstCell(row); i < rawResults.getEndCell(row); i++) {
+                long startTimestamp = rawResults.getTimestamp(i);
+                Long commitTimestamp = commitTimestamps.get(startTimestamp);
+                boolean visible = startTimestamp != Value.INVALID_VALUE_TIMESTAMP
+                        && commitTimestamp != null
+                        && commitTimestamp != TransactionConstants.FAILED_COMMIT_TS
+                        && commitTimestamp <= getStartTimestamp();
+                if (visible && rawResults.getContentsLength(i) == 0) {
+                    // a committed delete
+                    continue;
+                }
+                if (rowName == null) {
+                    rowName = rawResults.getRowName(row);
+                }
+                Cell cell = Cell.create(rowName, rawResults.getColumnName(i));
+                if (visible) {
+                    results.put(cell, rawResults.getContents(i));
+                } else {
+                    remaining.put(cell, rawResults.getValue(i));
+                }
+            }
+        }
+        return remaining;
+    }
+
     /**
      * This will add any local writes for this row to the result map.
      * <p>
@@ -835,23 +897,62 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
                                           Map<Cell, Value> rawResults,
                                           @Output Map<Cell, T> results,
                                           Function<Value, T> transformer) {
+        logIfLargeRead(tableRef, rawResults);
+        postfilter(tableRef, rawResults, results, transformer);
+    }
+
+    private void logIfLargeRead(TableReference tableRef, Map<Cell, Value> rawResults) {
         long bytes = 0;
         for (Map.Entry<Cell, Value> e : rawResults.entrySet()) {
             bytes += e.getValue().getContents().length + Cells.getApproxSizeOfCell(e.getKey());
         }
+        logIfLargeRead(tableRef, bytes, rawResults.size(), rawResults.entrySet());
+    }
+
+    /**
+     * Counts the bytes the same way as for a map of results, without creating any cells.
+     */
+    private void logIfLargeRead(TableReference tableRef, final ColumnarResults rawResults) {
+        long bytes = 0;
+        for (int row = 0; row < rawResults.getNumRows(); row++) {
+            int rowNameLength = rawResults.getRowNameLength(row);
+            for (int i = rawResults.getFirstCell(row); i < rawResults.getEndCell(row); i++) {
+                bytes += rawResults.getContentsLength(i) + rowNameLength + rawResults.getColumnNameLength(i)
+                        + TransactionConstants.APPROX_IN_MEM_CELL_OVERHEAD_BYTES;
+            }
+        }
+        logIfLargeRead(tableRef, bytes, rawResults.size(), new AbstractList<Map.Entry<Cell, Value>>() {
+            @Override
+            public Map.Entry<Cell, Value> get(int index) {
+                return Maps.immutableEntry(rawResults.getCell(index), rawResults.getValue(index));
+            }
+
+            @Override
+            public int size() {
+                return rawResults.size();
+            }
+        });
+    }
+
+    private void logIfLargeRead(TableReference tableRef, long bytes, int numResults, Iterable<?> results) {
         if (bytes > TransactionConstants.ERROR_LEVEL_FOR_QUEUED_BYTES && !AtlasDbConstants.TABLES_KNOWN_TO_BE_POORLY_DESIGNED.contains(tableRef)) {
             log.error("A single get had a lot of bytes: " + bytes + " for table " + tableRef.getQualifiedName() + ". "
-                    + "The number of results was " + rawResults.size() + ". "
-                    + "The first 10 results were " + Iterables.limit(rawResults.entrySet(), 10) + ". "
+                    + "The number of results was " + numResults + ". "
+                    + "The first 10 results were " + Iterables.limit(results, 10) + ". "
                     + "This can potentially cause out-of-memory errors.",
                     new RuntimeException("This exception and stack trace are provided for debugging purposes."));
         } else if (bytes > TransactionConstants.WARN_LEVEL_FOR_QUEUED_BYTES && log.isWarnEnabled()) {
             log.warn("A single get had quite a few bytes: " + bytes + " for table " + tableRef.getQualifiedName() + ". "
-                    + "The number of results was " + rawResults.size() + ". "
-                    + "The first 10 results were " + Iterables.limit(rawResults.entrySet(), 10) + ". ",
+                    + "The number of results was " + numResults + ". "
+                    + "The first 10 results were " + Iterables.limit(results, 10) + ". ",
                     new RuntimeException("This exception and stack trace are provided for debugging purposes."));
         }
+    }
 
+    private <T> void postfilter(TableReference tableRef,
+                                Map<Cell, Value> rawResults,
+                                @Output Map<Cell, T> results,
+                                Function<Value, T> transformer) {
         if (isTempTable(tableRef) || (AtlasDbConstants.SKIP_POSTFILTER_TABLES.contains(tableRef) && allowHiddenTableAccess)) {
             // If we are reading from a temp table, we can just bypass postfiltering
             // or skip postfiltering if reading the transaction or namespace table from atlasdb shell
@@ -927,7 +1028,9 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         }
 
         if (!keysToReload.isEmpty()) {
+            long start = System.nanoTime();
             Map<Cell, Value> nextRawResults = keyValueService.get(tableRef, keysToReload);
+            TransactionMetrics.POST_FILTER_REREADS.record(System.nanoTime() - start, keysToReload.size(), 0L);
             return nextRawResults;
         } else {
             return ImmutableMap.of();
@@ -1088,6 +1191,7 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         }
 
         boolean success = false;
+        long start = System.nanoTime();
         try {
             if (numWriters.get() > 0) {
                 // After we set state to committing we need to make sure no one is still writing.
@@ -1106,9 +1210,17 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
                     getStartTimestamp(),
                     getTrasactionTimer().elapsed(TimeUnit.MILLISECONDS));
             success = true;
+        } catch (TransactionConflictException e) {
+            TransactionMetrics.COMMIT_CONFLICTS.record(System.nanoTime() - start);
+            throw e;
         } finally {
             // Once we are in state committing, we need to try/finally to set the state to a terminal state.
             state.set(success ? State.COMMITTED : State.FAILED);
+            if (success) {
+                TransactionMetrics.COMMIT.record(System.nanoTime() - start);
+            } else {
+                TransactionMetrics.COMMIT.recordFailure(System.nanoTime() - start);
+            }
         }
     }
 
@@ -1136,15 +1248,15 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         }
         Stopwatch watch = Stopwatch.createStarted();
         LockRefreshToken commitLocksToken = acquireLocksForCommit();
-        long millisForLocks = watch.elapsed(TimeUnit.MILLISECONDS);
+        long millisForLocks = recordCommitPhase(TransactionMetrics.COMMIT_ACQUIRE_LOCKS, watch);
         try {
             watch.reset().start();
             throwIfConflictOnCommit(commitLocksToken, transactionService);
-            long millisCheckingForConflicts = watch.elapsed(TimeUnit.MILLISECONDS);
+            long millisCheckingForConflicts = recordCommitPhase(TransactionMetrics.COMMIT_CHECK_CONFLICTS, watch);
 
             watch.reset().start();
             keyValueService.multiPut(writesByTable, getStartTimestamp());
-            long millisForWrites = watch.elapsed(TimeUnit.MILLISECONDS);
+            long millisForWrites = recordCommitPhase(TransactionMetrics.COMMIT_WRITES, watch);
 
             // Now that all writes are done, get the commit timestamp
             // We must do this before we check that our locks are still valid to ensure that
@@ -1158,7 +1270,7 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
             // scrub timestamp (same as the hard delete transaction's start timestamp)
             watch.reset().start();
             cleaner.punch(commitTimestamp);
-            long millisForPunch = watch.elapsed(TimeUnit.MILLISECONDS);
+            long millisForPunch = recordCommitPhase(TransactionMetrics.COMMIT_PUNCH, watch);
 
             throwIfReadWriteConflictForSerializable(commitTimestamp);
 
@@ -1168,7 +1280,7 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
 
             watch.reset().start();
             putCommitTimestamp(commitTimestamp, commitLocksToken, transactionService);
-            long millisForCommitTs = watch.elapsed(TimeUnit.MILLISECONDS);
+            long millisForCommitTs = recordCommitPhase(TransactionMetrics.COMMIT_PUT_COMMIT_TIMESTAMP, watch);
 
             Set<LockRefreshToken> expiredLocks = refreshExternalAndCommitLocks(commitLocksToken);
             if (!expiredLocks.isEmpty()) {
@@ -1192,6 +1304,12 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         }
     }
 
+    private static long recordCommitPhase(OperationMetrics metrics, Stopwatch watch) {
+        long nanos = watch.elapsed(TimeUnit.NANOSECONDS);
+        metrics.record(nanos);
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
     protected void throwIfReadWriteConflictForSerializable(long commitTimestamp) {
         // This is for overriding to get serializable transactions
     }
@@ -1451,10 +1569,13 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
      * @return true if the other transaction was rolled back
      */
     private boolean rollbackOtherTransaction(long startTs, TransactionService transactionService) {
+        long start = System.nanoTime();
         try {
             transactionService.putUnlessExists(startTs, TransactionConstants.FAILED_COMMIT_TS);
+            TransactionMetrics.ROLLBACKS.record(System.nanoTime() - start);
             return true;
         } catch (KeyAlreadyExistsException e) {
+                TransactionMetrics.ROLLBACKS.recordFailure(System.nanoTime() - start);
                 String msg = "Two transactions tried to roll back someone else's request with start: " + startTs;
                 log.error("This isn't a bug but it should be very infrequent. " + msg, new TransactionFailedRetriableException(msg, e));
                 return false;
@@ -21,31 +21,30 @@ import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.Nullable;
 
 import com.google.common.base.Function;
+import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.Iterables;
 import com.palantir.atlasdb.cleaner.Cleaner;
 import com.palantir.atlasdb.cleaner.NoOpCleaner;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.SnapshottingKeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.KeyValueServices;
 import com.palantir.atlasdb.transaction.api.AtlasDbConstraintCheckingMode;
 import com.palantir.atlasdb.transaction.api.LockAwareTransactionTask;
 import com.palantir.atlasdb.transaction.api.LockAwareTransactionTasks;
 import com.palantir.atlasdb.transaction.api.Transaction.TransactionType;
 import com.palantir.atlasdb.transaction.api.TransactionFailedRetriableException;
 import com.palantir.atlasdb.transaction.api.TransactionReadSentinelBehavior;
+import com.palantir.atlasdb.transaction.api.TransactionStartService;
 import com.palantir.atlasdb.transaction.api.TransactionTask;
 import com.palantir.atlasdb.transaction.service.TransactionService;
 import com.palantir.common.base.Throwables;
-import com.palantir.lock.AtlasTimestampLockDescriptor;
 import com.palantir.lock.HeldLocksToken;
 import com.palantir.lock.LockClient;
-import com.palantir.lock.LockDescriptor;
-import com.palantir.lock.LockMode;
 import com.palantir.lock.LockRefreshToken;
-import com.palantir.lock.LockRequest;
 import com.palantir.lock.RemoteLockService;
 import com.palantir.timestamp.TimestampService;
 
@@ -63,6 +62,7 @@ import com.palantir.timestamp.TimestampService;
     final AtomicLong recentImmutableTs = new AtomicLong(-1L);
     final Cleaner cleaner;
     final boolean allowHiddenTableAccess;
+    final TransactionStarter transactionStarter;
 
     protected SnapshotTransactionManager(KeyValueService keyValueService,
                                       TimestampService timestampService,
@@ -87,6 +87,26 @@ import com.palantir.timestamp.TimestampService;
                                       SweepStrategyManager sweepStrategyManager,
                                       Cleaner cleaner,
                                       boolean allowHiddenTableAccess) {
+        this(keyValueService, timestampService, lockClient, lockService, transactionService,
+                constraintModeSupplier, conflictDetectionManager, sweepStrategyManager, cleaner, allowHiddenTableAccess,
+                new TransactionStartServiceImpl(lockService, timestampService));
+    }
+
+    /**
+     * @param transactionStartService starts read-write transactions. Use one served next to the
+     *        lock and timestamp services to start them with a single remote call.
+     */
+    protected SnapshotTransactionManager(KeyValueService keyValueService,
+                                      TimestampService timestampService,
+                                      LockClient lockClient,
+                                      RemoteLockService lockService,
+                                      TransactionService transactionService,
+                                      Supplier<AtlasDbConstraintCheckingMode> constraintModeSupplier,
+                                      ConflictDetectionManager conflictDetectionManager,
+                                      SweepStrategyManager sweepStrategyManager,
+                                      Cleaner cleaner,
+                                      boolean allowHiddenTableAccess,
+                                      TransactionStartService transactionStartService) {
         Preconditions.checkArgument(lockClient != LockClient.ANONYMOUS);
         this.keyValueService = keyValueService;
         this.timestampService = timestampService;
@@ -98,6 +118,8 @@ import com.palantir.timestamp.TimestampService;
         this.constraintModeSupplier = constraintModeSupplier;
         this.cleaner = cleaner;
         this.allowHiddenTableAccess = allowHiddenTableAccess;
+        this.transactionStarter = new TransactionStarter(transactionStartService, lockService,
+                lockClient.getClientId(), TransactionStarter.DEFAULT_SHARE_WINDOW_MILLIS);
     }
 
     @Override
@@ -122,25 +144,18 @@ import com.palantir.timestamp.TimestampService;
     }
 
     public RawTransaction setupRunTaskWithLocksThrowOnConflict(Iterable<LockRefreshToken> lockTokens) {
-        long immutableLockTs = timestampService.getFreshTimestamp();
-        Supplier<Long> startTimestampSupplier = getStartTimestampSupplier();
-        LockDescriptor lockDesc = AtlasTimestampLockDescriptor.of(immutableLockTs);
-        LockRequest lockRequest =
-                LockRequest.builder(ImmutableSortedMap.of(lockDesc, LockMode.READ)).withLockedInVersionId(
-                        immutableLockTs).build();
-        final LockRefreshToken lock;
-        try {
-            lock = lockService.lock(lockClient.getClientId(), lockRequest);
-        } catch (InterruptedException e) {
-            throw Throwables.throwUncheckedException(e);
-        }
+        TransactionStarter.Start start = transactionStarter.start();
+        LockRefreshToken lock = start.getImmutableTsLock();
         try {
+            long immutableTs = start.getImmutableTimestamp();
+            updateRecentImmutableTimestamp(immutableTs);
+            Supplier<Long> startTimestampSupplier = getStartTimestampSupplier(start.getStartTimestamp());
             ImmutableList<LockRefreshToken> allTokens =
                     ImmutableList.<LockRefreshToken> builder().add(lock).addAll(lockTokens).build();
-            SnapshotTransaction t = createTransaction(immutableLockTs, startTimestampSupplier, allTokens);
+            SnapshotTransaction t = createTransaction(immutableTs, startTimestampSupplier, allTokens);
             return new RawTransaction(t, lock);
         } catch (Throwable t) {
-            lockService.unlock(lock);
+            transactionStarter.release(lock);
             Throwables.throwIfInstance(t, Error.class);
             Throwables.throwIfInstance(t, RuntimeException.class);
             throw Throwables.rewrapAndThrowUncheckedException(t);
@@ -154,7 +169,7 @@ import com.palantir.timestamp.TimestampService;
         try {
             result = runTaskThrowOnConflict(task, tx);
         } finally {
-            lockService.unlock(tx.getImmutableTsLock());
+            transactionStarter.release(tx.getImmutableTsLock());
         }
         if ((tx.getTransactionType() == TransactionType.AGGRESSIVE_HARD_DELETE) && !tx.isAborted()) {
             // t.getCellsToScrubImmediately() checks that t has been committed
@@ -166,7 +181,7 @@ import com.palantir.timestamp.TimestampService;
         return result;
     }
 
-    protected SnapshotTransaction createTransaction(long immutableLockTs,
+    protected SnapshotTransaction createTransaction(long immutableTs,
                                                   Supplier<Long> startTimestampSupplier,
                                                   ImmutableList<LockRefreshToken> allTokens) {
         return new SnapshotTransaction(
@@ -178,7 +193,7 @@ import com.palantir.timestamp.TimestampService;
                 startTimestampSupplier,
                 conflictDetectionManager,
                 sweepStrategyManager,
-                getImmutableTimestampInternal(immutableLockTs),
+                immutableTs,
                 allTokens,
                 constraintModeSupplier.get(),
                 cleaner.getTransactionReadTimeoutMillis(),
@@ -189,13 +204,32 @@ import com.palantir.timestamp.TimestampService;
     @Override
     public <T, E extends Exception> T runTaskReadOnly(TransactionTask<T, E> task) throws E {
         long immutableTs = getApproximateImmutableTimestamp();
+        if (!KeyValueServices.supports(keyValueService, SnapshottingKeyValueService.class)) {
+            return runTaskReadOnly(task, keyValueService, immutableTs, getStartTimestampSupplier());
+        }
+        // The snapshot must be taken after the start timestamp is handed out so that it contains
+        // the writes of every transaction that committed before the start timestamp.
+        Supplier<Long> startTimestampSupplier = getStartTimestampSupplier();
+        startTimestampSupplier.get();
+        KeyValueService snapshot = ((SnapshottingKeyValueService) keyValueService).openReadSnapshot();
+        try {
+            return runTaskReadOnly(task, snapshot, immutableTs, startTimestampSupplier);
+        } finally {
+            snapshot.close();
+        }
+    }
+
+    private <T, E extends Exception> T runTaskReadOnly(TransactionTask<T, E> task,
+                                                       KeyValueService readKeyValueService,
+                                                       long immutableTs,
+                                                       Supplier<Long> startTimestampSupplier) throws E {
         SnapshotTransaction t = new SnapshotTransaction(
-                keyValueService,
+                readKeyValueService,
                 lockService,
                 timestampService,
                 transactionService,
                 NoOpCleaner.INSTANCE,
-                getStartTimestampSupplier(),
+                startTimestampSupplier,
                 conflictDetectionManager,
                 sweepStrategyManager,
                 immutableTs,
@@ -207,6 +241,20 @@ import com.palantir.timestamp.TimestampService;
         return runTaskThrowOnConflict(task, new OnlyWriteTempTablesTransaction(t, sweepStrategyManager));
     }
 
+    private Supplier<Long> getStartTimestampSupplier(Optional<Long> startTimestamp) {
+        if (!startTimestamp.isPresent()) {
+            return getStartTimestampSupplier();
+        }
+        final long startTs = startTimestamp.get();
+        return Suppliers.memoize(new Supplier<Long>() {
+            @Override
+            public Long get() {
+                cleaner.punch(startTs);
+                return startTs;
+            }
+        });
+    }
+
     private Supplier<Long> getStartTimestampSupplier() {
         return Suppliers.memoize(new Supplier<Long>() {
             @Override
@@ -246,15 +294,19 @@ import com.palantir.timestamp.TimestampService;
     protected long getImmutableTimestampInternal(long ts) {
         Long minLocked = lockService.getMinLockedInVersionId(lockClient.getClientId());
         long ret = minLocked == null ? ts : minLocked;
+        updateRecentImmutableTimestamp(ret);
+        return ret;
+    }
+
+    private void updateRecentImmutableTimestamp(long immutableTs) {
         long recentTs = recentImmutableTs.get();
-        while (recentTs < ret) {
-            if (recentImmutableTs.compareAndSet(recentTs, ret)) {
+        while (recentTs < immutableTs) {
+            if (recentImmutableTs.compareAndSet(recentTs, immutableTs)) {
                 break;
             } else {
                 recentTs = recentImmutableTs.get();
             }
         }
-        return ret;
     }
 
     @Override
@@ -0,0 +1,45 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import com.palantir.util.metrics.MetricsRegistry;
+import com.palantir.util.metrics.OperationMetrics;
+
+/**
+ * Metrics shared by all {@link SnapshotTransaction}s in the process, published through the
+ * default {@link MetricsRegistry}.
+ */
+final class TransactionMetrics {
+    static final String METRIC_TYPE = "SnapshotTransaction";
+
+    static final OperationMetrics COMMIT = metric("commit");
+    static final OperationMetrics COMMIT_ACQUIRE_LOCKS = metric("commitAcquireLocks");
+    static final OperationMetrics COMMIT_CHECK_CONFLICTS = metric("commitCheckConflicts");
+    static final OperationMetrics COMMIT_WRITES = metric("commitWrites");
+    static final OperationMetrics COMMIT_PUNCH = metric("commitPunch");
+    static final OperationMetrics COMMIT_PUT_COMMIT_TIMESTAMP = metric("commitPutCommitTimestamp");
+    static final OperationMetrics COMMIT_CONFLICTS = metric("commitConflicts");
+    static final OperationMetrics POST_FILTER_REREADS = metric("postFilterRereads");
+    static final OperationMetrics ROLLBACKS = metric("rollbackOtherTransaction");
+
+    private TransactionMetrics() {
+        // static metrics
+    }
+
+    private static OperationMetrics metric(String name) {
+        return MetricsRegistry.getDefault().operation(METRIC_TYPE, null, name);
+    }
+}
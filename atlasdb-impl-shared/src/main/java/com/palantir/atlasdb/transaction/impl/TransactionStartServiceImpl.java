@@ -0,0 +1,62 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import com.google.common.collect.ImmutableSortedMap;
+import com.palantir.atlasdb.transaction.api.TransactionStartResponse;
+import com.palantir.atlasdb.transaction.api.TransactionStartService;
+import com.palantir.lock.AtlasTimestampLockDescriptor;
+import com.palantir.lock.LockMode;
+import com.palantir.lock.LockRefreshToken;
+import com.palantir.lock.LockRequest;
+import com.palantir.lock.RemoteLockService;
+import com.palantir.timestamp.TimestampService;
+
+/**
+ * Implements {@link TransactionStartService} on top of a lock service and a timestamp service.
+ * <p>
+ * Served next to local instances of both this makes the whole transaction start one remote call.
+ * Clients that can only reach remote instances use it directly, which makes the same calls that
+ * starting a transaction always made.
+ */
+public class TransactionStartServiceImpl implements TransactionStartService {
+    private final RemoteLockService lockService;
+    private final TimestampService timestampService;
+
+    public TransactionStartServiceImpl(RemoteLockService lockService, TimestampService timestampService) {
+        this.lockService = lockService;
+        this.timestampService = timestampService;
+    }
+
+    @Override
+    public TransactionStartResponse startTransaction(String client) throws InterruptedException {
+        long immutableLockTs = timestampService.getFreshTimestamp();
+        LockRequest lockRequest = LockRequest.builder(ImmutableSortedMap.of(
+                AtlasTimestampLockDescriptor.of(immutableLockTs), LockMode.READ))
+                .withLockedInVersionId(immutableLockTs)
+                .build();
+        LockRefreshToken lock = lockService.lock(client, lockRequest);
+        try {
+            Long minLocked = lockService.getMinLockedInVersionId(client);
+            long immutableTs = minLocked == null ? immutableLockTs : minLocked;
+            long startTs = timestampService.getFreshTimestamp();
+            return new TransactionStartResponse(lock, immutableLockTs, immutableTs, startTs);
+        } catch (RuntimeException | Error e) {
+            lockService.unlock(lock);
+            throw e;
+        }
+    }
+}
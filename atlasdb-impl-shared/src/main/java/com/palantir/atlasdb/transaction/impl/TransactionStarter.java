@@ -0,0 +1,146 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.Maps;
+import com.palantir.atlasdb.transaction.api.TransactionStartResponse;
+import com.palantir.atlasdb.transaction.api.TransactionStartService;
+import com.palantir.common.base.Throwables;
+import com.palantir.lock.LockRefreshToken;
+import com.palantir.lock.RemoteLockService;
+
+/**
+ * Starts transactions through a {@link TransactionStartService} and lets transactions that start
+ * while a recently started one is still running share its immutable timestamp lock.
+ * <p>
+ * Shared locks are reference counted and unlocked when the last transaction using them
+ * finishes. A lock is only shared within the share window after it was taken, so a steady
+ * stream of overlapping transactions cannot hold the immutable timestamp back indefinitely.
+ * Transactions that share a lock fetch their own start timestamp.
+ */
+@ThreadSafe
+final class TransactionStarter {
+    static final long DEFAULT_SHARE_WINDOW_MILLIS = 1000;
+
+    private final TransactionStartService startService;
+    private final RemoteLockService lockService;
+    private final String client;
+    private final long shareWindowMillis;
+    private final ConcurrentMap<LockRefreshToken, SharedLock> sharedLocks = Maps.newConcurrentMap();
+    @GuardedBy("this")
+    private SharedLock current = null;
+
+    TransactionStarter(TransactionStartService startService,
+                       RemoteLockService lockService,
+                       String client,
+                       long shareWindowMillis) {
+        this.startService = startService;
+        this.lockService = lockService;
+        this.client = client;
+        this.shareWindowMillis = shareWindowMillis;
+    }
+
+    Start start() {
+        synchronized (this) {
+            if (current != null && System.currentTimeMillis() - current.acquiredMillis < shareWindowMillis) {
+                current.refCount++;
+                return new Start(current.response.getImmutableTsLock(),
+                        current.response.getImmutableTimestamp(),
+                        Optional.<Long>absent());
+            }
+        }
+
+        TransactionStartResponse response;
+        try {
+            response = startService.startTransaction(client);
+        } catch (InterruptedException e) {
+            throw Throwables.throwUncheckedException(e);
+        }
+        SharedLock lock = new SharedLock(response, System.currentTimeMillis());
+        sharedLocks.put(response.getImmutableTsLock(), lock);
+        synchronized (this) {
+            current = lock;
+        }
+        return new Start(response.getImmutableTsLock(),
+                response.getImmutableTimestamp(),
+                Optional.of(response.getStartTimestamp()));
+    }
+
+    /**
+     * Releases a lock returned by {@link #start}, unlocking it if no other transaction uses it.
+     */
+    void release(LockRefreshToken lock) {
+        SharedLock shared = sharedLocks.get(lock);
+        if (shared != null) {
+            synchronized (this) {
+                shared.refCount--;
+                if (shared.refCount > 0) {
+                    return;
+                }
+                sharedLocks.remove(lock);
+                if (current == shared) {
+                    current = null;
+                }
+            }
+        }
+        lockService.unlock(lock);
+    }
+
+    static final class Start {
+        private final LockRefreshToken immutableTsLock;
+        private final long immutableTimestamp;
+        private final Optional<Long> startTimestamp;
+
+        Start(LockRefreshToken immutableTsLock, long immutableTimestamp, Optional<Long> startTimestamp) {
+            this.immutableTsLock = immutableTsLock;
+            this.immutableTimestamp = immutableTimestamp;
+            this.startTimestamp = startTimestamp;
+        }
+
+        LockRefreshToken getImmutableTsLock() {
+            return immutableTsLock;
+        }
+
+        long getImmutableTimestamp() {
+            return immutableTimestamp;
+        }
+
+        /**
+         * The start timestamp, if it came with the lock.
+         */
+        Optional<Long> getStartTimestamp() {
+            return startTimestamp;
+        }
+    }
+
+    private static final class SharedLock {
+        final TransactionStartResponse response;
+        final long acquiredMillis;
+        // guarded by the owning TransactionStarter
+        int refCount = 1;
+
+        SharedLock(TransactionStartResponse response, long acquiredMillis) {
+            this.response = response;
+            this.acquiredMillis = acquiredMillis;
+        }
+    }
+}
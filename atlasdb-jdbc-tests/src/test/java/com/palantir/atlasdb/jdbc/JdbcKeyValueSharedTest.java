@@ -15,8 +15,15 @@
  */
 package com.palantir.atlasdb.jdbc;
 
+import java.util.Map;
+
+import org.junit.Assert;
 import org.junit.Ignore;
+import org.junit.Test;
 
+import com.google.common.collect.Maps;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.impl.AbstractAtlasDbKeyValueServiceTest;
 import com.palantir.atlasdb.keyvalue.jdbc.JdbcKeyValueService;
@@ -47,6 +54,20 @@ public class JdbcKeyValueSharedTest extends AbstractAtlasDbKeyValueServiceTest {
         // ignore
     }
 
+    @Test
+    public void testBulkLoadConflictingValueThrows() {
+        db.bulkLoad(TEST_TABLE, getSortedTestData().entrySet().iterator(), TEST_TIMESTAMP);
+        Map<Cell, byte[]> conflicting = Maps.newTreeMap();
+        conflicting.putAll(getSortedTestData());
+        conflicting.put(Cell.create(row1, column2), value22);
+        try {
+            db.bulkLoad(TEST_TABLE, conflicting.entrySet().iterator(), TEST_TIMESTAMP);
+            Assert.fail("bulkLoad must not overwrite a cell with a different value");
+        } catch (KeyAlreadyExistsException e) {
+            // Expected
+        }
+    }
+
     @Override
     public void tearDown() throws Exception {
         super.tearDown();
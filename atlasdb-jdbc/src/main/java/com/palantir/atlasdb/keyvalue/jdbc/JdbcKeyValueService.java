@@ -55,6 +55,7 @@ import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -106,6 +107,7 @@ import com.google.common.hash.Hashing;
 import com.google.common.io.BaseEncoding;
 import com.google.common.primitives.UnsignedBytes;
 import com.palantir.atlasdb.jdbc.config.JdbcDataSourceConfiguration;
+import com.palantir.atlasdb.keyvalue.api.BulkLoadingKeyValueService;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
 import com.palantir.atlasdb.keyvalue.api.InsufficientConsistencyException;
@@ -126,7 +128,11 @@ import com.palantir.util.paging.AbstractPagingIterable;
 import com.palantir.util.paging.SimpleTokenBackedResultsPage;
 import com.palantir.util.paging.TokenBackedBasicResultsPage;
 
-public class JdbcKeyValueService implements KeyValueService {
+public class JdbcKeyValueService implements BulkLoadingKeyValueService {
+    // Four bind parameters per cell keeps a full insert well under common parameter limits.
+    private static final int BULK_LOAD_CELLS_PER_INSERT = 1000;
+    private static final long BULK_LOAD_BYTES_PER_INSERT = 4L * 1024 * 1024;
+
     private final String tablePrefix;
     private final SQLDialect sqlDialect;
     private final DataSource dataSource;
@@ -494,6 +500,31 @@ public class JdbcKeyValueService implements KeyValueService {
         });
     }
 
+    /**
+     * Loads the cells with multi-row inserts of up to {@link #BULK_LOAD_CELLS_PER_INSERT} cells
+     * each, all on one connection.
+     */
+    @Override
+    public void bulkLoad(final TableReference tableRef,
+                         Iterator<Entry<Cell, byte[]>> sortedCells,
+                         final long timestamp) {
+        final Iterator<List<Entry<Cell, byte[]>>> batches = KeyValueServices.partitionSortedCells(
+                sortedCells, BULK_LOAD_CELLS_PER_INSERT, BULK_LOAD_BYTES_PER_INSERT);
+        run(new Function<DSLContext, Void>() {
+            @Override
+            public Void apply(DSLContext ctx) {
+                while (batches.hasNext()) {
+                    Map<Cell, byte[]> values = Maps.newLinkedHashMap();
+                    for (Entry<Cell, byte[]> entry : batches.next()) {
+                        values.put(entry.getKey(), entry.getValue());
+                    }
+                    putBatch(ctx, tableRef, new SingleTimestampPutBatch(values, timestamp), true);
+                }
+                return null;
+            }
+        });
+    }
+
     @Override
     public void putUnlessExists(final TableReference tableRef,
                                 final Map<Cell, byte[]> values) throws KeyAlreadyExistsException {
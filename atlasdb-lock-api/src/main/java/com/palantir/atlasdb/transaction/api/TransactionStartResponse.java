@@ -0,0 +1,85 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.api;
+
+import java.io.Serializable;
+
+import javax.annotation.concurrent.Immutable;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.Preconditions;
+import com.palantir.lock.LockRefreshToken;
+
+/**
+ * The result of {@link TransactionStartService#startTransaction}.
+ */
+@Immutable
+public final class TransactionStartResponse implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final LockRefreshToken immutableTsLock;
+    private final long immutableLockTs;
+    private final long immutableTimestamp;
+    private final long startTimestamp;
+
+    @JsonCreator
+    public TransactionStartResponse(@JsonProperty("immutableTsLock") LockRefreshToken immutableTsLock,
+                                    @JsonProperty("immutableLockTs") long immutableLockTs,
+                                    @JsonProperty("immutableTimestamp") long immutableTimestamp,
+                                    @JsonProperty("startTimestamp") long startTimestamp) {
+        Preconditions.checkArgument(immutableTimestamp <= immutableLockTs && immutableLockTs < startTimestamp,
+                "Timestamps out of order: immutable %s, locked %s, start %s",
+                immutableTimestamp, immutableLockTs, startTimestamp);
+        this.immutableTsLock = Preconditions.checkNotNull(immutableTsLock);
+        this.immutableLockTs = immutableLockTs;
+        this.immutableTimestamp = immutableTimestamp;
+        this.startTimestamp = startTimestamp;
+    }
+
+    /**
+     * The read lock on {@link #getImmutableLockTs()}.
+     */
+    public LockRefreshToken getImmutableTsLock() {
+        return immutableTsLock;
+    }
+
+    /**
+     * The timestamp that {@link #getImmutableTsLock()} locks.
+     */
+    public long getImmutableLockTs() {
+        return immutableLockTs;
+    }
+
+    /**
+     * The client's immutable timestamp while the lock is held.
+     */
+    public long getImmutableTimestamp() {
+        return immutableTimestamp;
+    }
+
+    public long getStartTimestamp() {
+        return startTimestamp;
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionStartResponse [immutableTsLock=" + immutableTsLock
+                + ", immutableLockTs=" + immutableLockTs
+                + ", immutableTimestamp=" + immutableTimestamp
+                + ", startTimestamp=" + startTimestamp + "]";
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.api;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+import com.palantir.common.annotation.NonIdempotent;
+import com.palantir.common.remoting.RemotingMediaTypes;
+
+/**
+ * Does everything a read-write transaction needs from the lock and timestamp servers before it
+ * can start in a single call, where doing it through {@link com.palantir.lock.RemoteLockService}
+ * and the timestamp service takes four.
+ * <p>
+ * This is served next to the lock and timestamp services, so the calls it makes to them are
+ * local.
+ */
+@Path("/transaction-start")
+public interface TransactionStartService {
+    /**
+     * Gets a fresh timestamp and read locks it for the given client as its immutable timestamp
+     * lock, reads the client's immutable timestamp with the new lock held, and then gets a fresh
+     * start timestamp.
+     * <p>
+     * The caller owns the returned lock and must unlock it through the lock service once the
+     * transaction has finished.
+     */
+    @POST
+    @Path("start/{client: .*}")
+    @Produces({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
+    @Consumes({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
+    @NonIdempotent TransactionStartResponse startTransaction(@PathParam("client") String client)
+            throws InterruptedException;
+}
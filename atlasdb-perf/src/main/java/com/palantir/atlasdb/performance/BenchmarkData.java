@@ -0,0 +1,89 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Random;
+
+import com.google.common.collect.Maps;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+
+/**
+ * Deterministic data generation shared by the benchmarks.
+ */
+public final class BenchmarkData {
+    public static final TableReference TABLE = TableReference.createFromFullyQualifiedName("benchmark.data");
+    public static final byte[] COLUMN = PtBytes.toBytes("c");
+
+    private static final long SEED = 0x5eedL;
+
+    private BenchmarkData() {
+        // utility
+    }
+
+    public static Random newRandom() {
+        return new Random(SEED);
+    }
+
+    public static byte[] randomBytes(Random random, int numBytes) {
+        byte[] ret = new byte[numBytes];
+        random.nextBytes(ret);
+        return ret;
+    }
+
+    /**
+     * Row names are fixed width and sort in the same order as their index, which keeps range
+     * benchmarks predictable across backends.
+     */
+    public static byte[] rowName(int index) {
+        return PtBytes.toBytes(String.format("row%010d", index));
+    }
+
+    public static Cell cell(int index) {
+        return Cell.create(rowName(index), COLUMN);
+    }
+
+    public static Map<Cell, byte[]> cells(Random random, int firstIndex, int count, int valueSize) {
+        Map<Cell, byte[]> ret = Maps.newHashMapWithExpectedSize(count);
+        for (int i = firstIndex; i < firstIndex + count; i++) {
+            ret.put(cell(i), randomBytes(random, valueSize));
+        }
+        return ret;
+    }
+
+    public static File createScratchDirectory() {
+        try {
+            return Files.createTempDirectory("atlasdb-perf").toFile();
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to create a scratch directory for the benchmark", e);
+        }
+    }
+
+    public static void deleteScratchDirectory(File dir) {
+        File[] children = dir.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteScratchDirectory(child);
+            }
+        }
+        dir.delete();
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.palantir.atlasdb.ptobject.EncodingBuffer;
+import com.palantir.atlasdb.ptobject.EncodingUtils;
+import com.palantir.atlasdb.table.description.ValueType;
+
+/**
+ * Encode and decode costs of the {@link EncodingUtils} and {@link ValueType} primitives that
+ * generated table code uses to build and parse row and column names.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EncodingBenchmarks {
+    private long longValue;
+    private String stringValue;
+    private UUID uuidValue;
+    private byte[] encodedVarLong;
+    private byte[] encodedVarString;
+    private byte[] encodedFixedLong;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        longValue = 1234567890123L;
+        stringValue = "some.moderately.long.component.name";
+        uuidValue = new UUID(longValue, ~longValue);
+        encodedVarLong = EncodingUtils.encodeVarLong(longValue);
+        encodedVarString = EncodingUtils.encodeVarString(stringValue);
+        encodedFixedLong = ValueType.FIXED_LONG.convertFromJava(longValue);
+    }
+
+    @Benchmark
+    public byte[] encodeVarLong() {
+        return EncodingUtils.encodeVarLong(longValue);
+    }
+
+    @Benchmark
+    public long decodeVarLong() {
+        return EncodingUtils.decodeVarLong(encodedVarLong);
+    }
+
+    @Benchmark
+    public byte[] encodeVarString() {
+        return EncodingUtils.encodeVarString(stringValue);
+    }
+
+    @Benchmark
+    public String decodeVarString() {
+        return EncodingUtils.decodeVarString(encodedVarString);
+    }
+
+    @Benchmark
+    public byte[] encodeUuid() {
+        return EncodingUtils.encodeUUID(uuidValue);
+    }
+
+    @Benchmark
+    public byte[] convertFixedLongFromJava() {
+        return ValueType.FIXED_LONG.convertFromJava(longValue);
+    }
+
+    @Benchmark
+    public Object convertFixedLongToJava() {
+        return ValueType.FIXED_LONG.convertToJava(encodedFixedLong, 0);
+    }
+
+    /**
+     * The old way generated row classes persisted a three component key: each component is
+     * encoded separately and then concatenated.
+     */
+    @Benchmark
+    public byte[] encodeCompositeRowKey() {
+        byte[] first = ValueType.FIXED_LONG.convertFromJava(longValue);
+        byte[] second = EncodingUtils.encodeVarString(stringValue);
+        byte[] third = EncodingUtils.encodeVarLong(longValue);
+        return EncodingUtils.add(first, second, third);
+    }
+
+    /**
+     * Mirrors how generated row classes persist a three component key: each component is
+     * written into the thread's {@link EncodingBuffer} and only the result is allocated.
+     */
+    @Benchmark
+    public byte[] encodeCompositeRowKeyWithBuffer() {
+        return EncodingBuffer.threadLocal()
+                .putFixedLong(longValue)
+                .putVarString(stringValue)
+                .putVarLong(longValue)
+                .toByteArray();
+    }
+}
@@ -0,0 +1,134 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.palantir.exception.PalantirSqlException;
+import com.palantir.nexus.db.sql.id.IdCache;
+import com.palantir.nexus.db.sql.id.IdFactory;
+import com.palantir.nexus.db.sql.id.IdGenerator;
+import com.palantir.nexus.db.sql.id.PrefetchingIdFactory;
+
+/**
+ * Throughput of handing out IDs from a sequence in an embedded H2 database through
+ * {@link IdCache}, which refills synchronously on the requesting thread, and through
+ * {@link PrefetchingIdFactory}, from 1 and 8 threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IdFactoryBenchmarks {
+    private static final int BATCH_SIZE = 100;
+
+    @State(Scope.Benchmark)
+    public static class FactoryState {
+        @Param({"ID_CACHE", "PREFETCHING"})
+        private String factoryType;
+
+        private JdbcConnectionPool pool;
+        private IdFactory factory;
+
+        @Setup(Level.Trial)
+        public void setUp() throws SQLException {
+            pool = JdbcConnectionPool.create("jdbc:h2:mem:ids_" + System.nanoTime() + ";DB_CLOSE_DELAY=-1", "sa", "");
+            try (Connection c = pool.getConnection(); Statement s = c.createStatement()) {
+                s.execute("CREATE SEQUENCE ids");
+            }
+            IdGenerator generator = new H2SequenceIdGenerator(pool);
+            if (factoryType.equals("ID_CACHE")) {
+                factory = IdCache.createIdCache(generator, IdCache.BLOCK_SIZE, 10 * IdCache.BLOCK_SIZE, 0);
+            } else {
+                factory = new PrefetchingIdFactory(generator);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            if (factory instanceof PrefetchingIdFactory) {
+                ((PrefetchingIdFactory) factory).shutdown();
+            }
+            pool.dispose();
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long nextId1Thread(FactoryState state) {
+        return state.factory.getNextId();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public long nextId8Threads(FactoryState state) {
+        return state.factory.getNextId();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public long[] nextIdBatch8Threads(FactoryState state) {
+        return state.factory.getNextIds(BATCH_SIZE);
+    }
+
+    private static final class H2SequenceIdGenerator implements IdGenerator {
+        private static final String SQL = "SELECT NEXT VALUE FOR ids FROM SYSTEM_RANGE(1, ?)";
+
+        private final JdbcConnectionPool pool;
+
+        H2SequenceIdGenerator(JdbcConnectionPool pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        public int generate(long[] ids) {
+            try (Connection c = pool.getConnection(); PreparedStatement ps = c.prepareStatement(SQL)) {
+                ps.setInt(1, ids.length);
+                try (ResultSet rs = ps.executeQuery()) {
+                    int count = 0;
+                    while (count < ids.length && rs.next()) {
+                        ids[count++] = rs.getLong(1);
+                    }
+                    return count;
+                }
+            } catch (SQLException e) {
+                throw PalantirSqlException.create(e);
+            }
+        }
+    }
+}
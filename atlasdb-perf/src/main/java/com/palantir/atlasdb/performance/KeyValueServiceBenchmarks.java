@@ -0,0 +1,138 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.common.base.ClosableIterator;
+
+/**
+ * Raw {@link KeyValueService} get, put and range throughput for each {@link KvsBackend}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class KeyValueServiceBenchmarks {
+    private static final long DATA_TIMESTAMP = 1L;
+    private static final int VALUE_SIZE = 100;
+    private static final int BATCH_SIZE = 100;
+    private static final int RANGE_SIZE = 1000;
+
+    @Param({"IN_MEMORY", "OFF_HEAP", "ROCKSDB", "JDBC_H2"})
+    public KvsBackend backend;
+
+    @Param({"10000"})
+    public int numRows;
+
+    private File dataDir;
+    private KeyValueService kvs;
+    private Random random;
+    private final AtomicLong writeTimestamp = new AtomicLong(DATA_TIMESTAMP + 1);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataDir = BenchmarkData.createScratchDirectory();
+        kvs = backend.create(dataDir);
+        kvs.initializeFromFreshInstance();
+        kvs.createTable(BenchmarkData.TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA);
+        random = BenchmarkData.newRandom();
+        for (int i = 0; i < numRows; i += BATCH_SIZE) {
+            kvs.put(BenchmarkData.TABLE,
+                    BenchmarkData.cells(random, i, Math.min(BATCH_SIZE, numRows - i), VALUE_SIZE),
+                    DATA_TIMESTAMP);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        kvs.dropTable(BenchmarkData.TABLE);
+        kvs.close();
+        BenchmarkData.deleteScratchDirectory(dataDir);
+    }
+
+    @Benchmark
+    public Map<Cell, Value> singleGet() {
+        Cell cell = BenchmarkData.cell(random.nextInt(numRows));
+        return kvs.get(BenchmarkData.TABLE, ImmutableMap.of(cell, Long.MAX_VALUE));
+    }
+
+    @Benchmark
+    public Map<Cell, Value> batchedGetRows() {
+        int first = random.nextInt(numRows - BATCH_SIZE);
+        List<byte[]> rows = Lists.newArrayListWithCapacity(BATCH_SIZE);
+        for (int i = first; i < first + BATCH_SIZE; i++) {
+            rows.add(BenchmarkData.rowName(i));
+        }
+        return kvs.getRows(BenchmarkData.TABLE, rows, ColumnSelection.all(), Long.MAX_VALUE);
+    }
+
+    @Benchmark
+    public void batchedPut() {
+        int first = random.nextInt(numRows - BATCH_SIZE);
+        kvs.put(BenchmarkData.TABLE,
+                BenchmarkData.cells(random, first, BATCH_SIZE, VALUE_SIZE),
+                writeTimestamp.incrementAndGet());
+    }
+
+    @Benchmark
+    public void rangeScan(Blackhole blackhole) {
+        int first = random.nextInt(numRows - RANGE_SIZE);
+        RangeRequest request = RangeRequest.builder()
+                .startRowInclusive(BenchmarkData.rowName(first))
+                .endRowExclusive(BenchmarkData.rowName(first + RANGE_SIZE))
+                .build();
+        ClosableIterator<RowResult<Value>> it = kvs.getRange(BenchmarkData.TABLE, request, Long.MAX_VALUE);
+        try {
+            while (it.hasNext()) {
+                blackhole.consume(it.next());
+            }
+        } finally {
+            it.close();
+        }
+    }
+}
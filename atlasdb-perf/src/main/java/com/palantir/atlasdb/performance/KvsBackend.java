@@ -0,0 +1,69 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance;
+
+import java.io.File;
+import java.util.Properties;
+
+import com.palantir.atlasdb.jdbc.config.ImmutableHikariDataSourceConfiguration;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.OffHeapKeyValueService;
+import com.palantir.atlasdb.keyvalue.jdbc.ImmutableJdbcKeyValueConfiguration;
+import com.palantir.atlasdb.keyvalue.jdbc.JdbcKeyValueService;
+import com.palantir.atlasdb.keyvalue.rocksdb.impl.RocksDbKeyValueService;
+
+/**
+ * The key value services that the benchmarks can be run against. Every backend is created
+ * empty, in a scratch directory owned by the benchmark, so that runs do not interfere with
+ * each other.
+ */
+public enum KvsBackend {
+    IN_MEMORY {
+        @Override
+        public KeyValueService create(File dataDir) {
+            return new InMemoryKeyValueService(false);
+        }
+    },
+    OFF_HEAP {
+        @Override
+        public KeyValueService create(File dataDir) {
+            return new OffHeapKeyValueService(false);
+        }
+    },
+    ROCKSDB {
+        @Override
+        public KeyValueService create(File dataDir) {
+            return RocksDbKeyValueService.create(new File(dataDir, "rocksdb").getAbsolutePath());
+        }
+    },
+    JDBC_H2 {
+        @Override
+        public KeyValueService create(File dataDir) {
+            Properties properties = new Properties();
+            properties.put("jdbcUrl", "jdbc:h2:" + new File(dataDir, "h2benchmarkDb").getAbsolutePath());
+            properties.put("username", "sa");
+            return JdbcKeyValueService.create(ImmutableJdbcKeyValueConfiguration.builder()
+                    .dataSourceConfig(ImmutableHikariDataSourceConfiguration.builder()
+                            .sqlDialect("H2")
+                            .properties(properties)
+                            .build())
+                    .build());
+        }
+    };
+
+    public abstract KeyValueService create(File dataDir);
+}
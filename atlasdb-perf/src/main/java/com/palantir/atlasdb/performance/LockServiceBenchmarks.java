@@ -0,0 +1,116 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableSortedMap;
+import com.palantir.lock.LockMode;
+import com.palantir.lock.LockRefreshToken;
+import com.palantir.lock.LockRequest;
+import com.palantir.lock.LockServerOptions;
+import com.palantir.lock.StringLockDescriptor;
+import com.palantir.lock.impl.LockServiceImpl;
+
+/**
+ * Lock plus unlock round trips against an in-process {@link LockServiceImpl}, both on
+ * uncontended per-thread locks and on a single shared read lock.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class LockServiceBenchmarks {
+    private static final String CLIENT = "benchmark";
+
+    @State(Scope.Benchmark)
+    public static class LockServerState {
+        private final AtomicInteger threadIds = new AtomicInteger();
+        private LockServiceImpl lockService;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            lockService = LockServiceImpl.create(new LockServerOptions() {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                public boolean isStandaloneServer() {
+                    return false;
+                }
+            });
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            lockService.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private LockRequest exclusiveRequest;
+        private LockRequest sharedRequest;
+
+        @Setup(Level.Trial)
+        public void setUp(LockServerState server) {
+            String lockName = "lock-" + server.threadIds.incrementAndGet();
+            exclusiveRequest = LockRequest.builder(ImmutableSortedMap.of(
+                    StringLockDescriptor.of(lockName), LockMode.WRITE)).doNotBlock().build();
+            sharedRequest = LockRequest.builder(ImmutableSortedMap.of(
+                    StringLockDescriptor.of("shared"), LockMode.READ)).doNotBlock().build();
+        }
+    }
+
+    @Benchmark
+    public boolean uncontendedLockUnlock(LockServerState server, ThreadState thread) throws InterruptedException {
+        return lockAndUnlock(server.lockService, thread.exclusiveRequest);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean uncontendedLockUnlockMultiThreaded(LockServerState server, ThreadState thread)
+            throws InterruptedException {
+        return lockAndUnlock(server.lockService, thread.exclusiveRequest);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean sharedReadLockUnlock(LockServerState server, ThreadState thread) throws InterruptedException {
+        return lockAndUnlock(server.lockService, thread.sharedRequest);
+    }
+
+    private static boolean lockAndUnlock(LockServiceImpl lockService, LockRequest request)
+            throws InterruptedException {
+        LockRefreshToken token = lockService.lock(CLIENT, request);
+        return token != null && lockService.unlock(token);
+    }
+}
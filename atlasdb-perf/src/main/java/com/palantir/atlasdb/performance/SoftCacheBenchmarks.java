@@ -0,0 +1,134 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.palantir.util.ConcurrentSoftCache;
+import com.palantir.util.MBeanCache;
+import com.palantir.util.SoftCache;
+
+/**
+ * Throughput of {@link SoftCache} against {@link ConcurrentSoftCache} under a read-mostly mix of
+ * gets and puts of the kind the commit timestamp cache sees, from 1 to 32 threads sharing one cache.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SoftCacheBenchmarks {
+    private static final int NUM_KEYS = 100000;
+    private static final int PUT_PERCENTAGE = 10;
+
+    @State(Scope.Benchmark)
+    public static class CacheState {
+        @Param({"SOFT_CACHE", "CONCURRENT_SOFT_CACHE"})
+        private String cacheType;
+
+        private final AtomicLong seeds = new AtomicLong();
+        private MBeanCache<Long, Long> cache;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            if (cacheType.equals("SOFT_CACHE")) {
+                cache = new SoftCache<Long, Long>();
+            } else {
+                cache = new ConcurrentSoftCache<Long, Long>();
+            }
+            for (long i = 0; i < NUM_KEYS; i++) {
+                cache.put(i, i + 1);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private long seed;
+
+        @Setup(Level.Trial)
+        public void setUp(CacheState state) {
+            seed = state.seeds.incrementAndGet() * 0x9E3779B97F4A7C15L;
+        }
+
+        long next() {
+            seed ^= seed << 13;
+            seed ^= seed >>> 7;
+            seed ^= seed << 17;
+            return seed;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Long getOrPut1Thread(CacheState state, ThreadState thread) {
+        return getOrPut(state.cache, thread);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public Long getOrPut2Threads(CacheState state, ThreadState thread) {
+        return getOrPut(state.cache, thread);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Long getOrPut4Threads(CacheState state, ThreadState thread) {
+        return getOrPut(state.cache, thread);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Long getOrPut8Threads(CacheState state, ThreadState thread) {
+        return getOrPut(state.cache, thread);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Long getOrPut16Threads(CacheState state, ThreadState thread) {
+        return getOrPut(state.cache, thread);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public Long getOrPut32Threads(CacheState state, ThreadState thread) {
+        return getOrPut(state.cache, thread);
+    }
+
+    private static Long getOrPut(MBeanCache<Long, Long> cache, ThreadState thread) {
+        long random = thread.next() & Long.MAX_VALUE;
+        long key = random % NUM_KEYS;
+        if ((random >>> 32) % 100 < PUT_PERCENTAGE) {
+            return cache.put(key, key + 1);
+        }
+        return cache.get(key);
+    }
+}
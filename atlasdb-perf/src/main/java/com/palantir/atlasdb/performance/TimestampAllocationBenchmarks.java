@@ -0,0 +1,106 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.palantir.timestamp.PersistentTimestampService;
+import com.palantir.timestamp.TimestampBoundStore;
+
+/**
+ * Latency of bursts of timestamp requests to {@link PersistentTimestampService} separated by idle
+ * periods, against a bound store that takes a fixed time to store each new upper limit, as a
+ * database or Cassandra bound store would. Stalls show up in the upper percentiles whenever a
+ * burst drains the buffer faster than the store can extend it.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class TimestampAllocationBenchmarks {
+    private static final int BATCH_SIZE = 1000;
+    private static final long IDLE_MILLIS = 50;
+
+    @State(Scope.Benchmark)
+    public static class ServiceState {
+        @Param({"10", "100"})
+        private long storeLatencyMillis;
+
+        @Param({"100000", "1000000"})
+        private int burstSize;
+
+        private PersistentTimestampService timestampService;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            timestampService = PersistentTimestampService.create(new SlowTimestampBoundStore(storeLatencyMillis));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class IdleState {
+        @Setup(Level.Invocation)
+        public void idle() {
+            Uninterruptibles.sleepUninterruptibly(IDLE_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long burst(ServiceState state, IdleState idle) {
+        long last = 0;
+        for (int handedOut = 0; handedOut < state.burstSize; handedOut += BATCH_SIZE) {
+            last = state.timestampService.getFreshTimestamps(BATCH_SIZE).getUpperBound();
+        }
+        return last;
+    }
+
+    private static final class SlowTimestampBoundStore implements TimestampBoundStore {
+        private final long latencyMillis;
+        private long upperLimit = 0;
+
+        SlowTimestampBoundStore(long latencyMillis) {
+            this.latencyMillis = latencyMillis;
+        }
+
+        @Override
+        public synchronized long getUpperLimit() {
+            return upperLimit;
+        }
+
+        @Override
+        public synchronized void storeUpperLimit(long limit) {
+            Uninterruptibles.sleepUninterruptibly(latencyMillis, TimeUnit.MILLISECONDS);
+            upperLimit = limit;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.SimpleKvsTimestampBoundStore;
+import com.palantir.timestamp.PersistentTimestampService;
+import com.palantir.timestamp.TimestampRange;
+
+/**
+ * Timestamp handout throughput of {@link PersistentTimestampService}, backed by a key value
+ * service bound store.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TimestampServiceBenchmarks {
+    private static final int BATCH_SIZE = 100;
+
+    private KeyValueService kvs;
+    private PersistentTimestampService timestampService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        kvs = new InMemoryKeyValueService(false);
+        timestampService = PersistentTimestampService.create(SimpleKvsTimestampBoundStore.create(kvs));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        kvs.close();
+    }
+
+    @Benchmark
+    public long freshTimestamp() {
+        return timestampService.getFreshTimestamp();
+    }
+
+    @Benchmark
+    public TimestampRange freshTimestampBatch() {
+        return timestampService.getFreshTimestamps(BATCH_SIZE);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public long freshTimestampContended() {
+        return timestampService.getFreshTimestamp();
+    }
+}
@@ -0,0 +1,173 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.base.Suppliers;
+import com.google.common.collect.Sets;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.cleaner.NoOpCleaner;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.transaction.api.AtlasDbConstraintCheckingMode;
+import com.palantir.atlasdb.transaction.api.Transaction;
+import com.palantir.atlasdb.transaction.api.TransactionManager;
+import com.palantir.atlasdb.transaction.api.TransactionTask;
+import com.palantir.atlasdb.transaction.impl.ConflictDetectionManagers;
+import com.palantir.atlasdb.transaction.impl.SerializableTransactionManager;
+import com.palantir.atlasdb.transaction.impl.SweepStrategyManagers;
+import com.palantir.atlasdb.transaction.impl.TransactionTables;
+import com.palantir.atlasdb.transaction.service.TransactionServices;
+import com.palantir.lock.LockClient;
+import com.palantir.lock.LockServerOptions;
+import com.palantir.lock.impl.LockServiceImpl;
+import com.palantir.timestamp.InMemoryTimestampService;
+
+/**
+ * End to end {@link com.palantir.atlasdb.transaction.impl.SnapshotTransaction} throughput:
+ * read-only, write-only and read-modify-write transactions, each including commit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TransactionBenchmarks {
+    private static final int VALUE_SIZE = 100;
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"IN_MEMORY", "OFF_HEAP", "ROCKSDB", "JDBC_H2"})
+    public KvsBackend backend;
+
+    @Param({"10000"})
+    public int numRows;
+
+    private File dataDir;
+    private KeyValueService kvs;
+    private LockServiceImpl lockService;
+    private TransactionManager txManager;
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataDir = BenchmarkData.createScratchDirectory();
+        kvs = backend.create(dataDir);
+        kvs.initializeFromFreshInstance();
+        TransactionTables.createTables(kvs);
+        kvs.createTable(BenchmarkData.TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA);
+        lockService = LockServiceImpl.create(new LockServerOptions() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public boolean isStandaloneServer() {
+                return false;
+            }
+        });
+        txManager = new SerializableTransactionManager(
+                kvs,
+                new InMemoryTimestampService(),
+                LockClient.of("benchmark"),
+                lockService,
+                TransactionServices.createTransactionService(kvs),
+                Suppliers.ofInstance(AtlasDbConstraintCheckingMode.NO_CONSTRAINT_CHECKING),
+                ConflictDetectionManagers.createDefault(kvs),
+                SweepStrategyManagers.createDefault(kvs),
+                NoOpCleaner.INSTANCE);
+        random = BenchmarkData.newRandom();
+        for (int i = 0; i < numRows; i += BATCH_SIZE) {
+            write(i, Math.min(BATCH_SIZE, numRows - i));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        lockService.close();
+        kvs.close();
+        BenchmarkData.deleteScratchDirectory(dataDir);
+    }
+
+    @Benchmark
+    public Map<Cell, byte[]> readTransaction() {
+        final Set<Cell> cells = randomCells();
+        return txManager.runTaskReadOnly(new TransactionTask<Map<Cell, byte[]>, RuntimeException>() {
+            @Override
+            public Map<Cell, byte[]> execute(Transaction t) {
+                return t.get(BenchmarkData.TABLE, cells);
+            }
+        });
+    }
+
+    @Benchmark
+    public void writeTransaction() {
+        write(random.nextInt(numRows - BATCH_SIZE), BATCH_SIZE);
+    }
+
+    @Benchmark
+    public Map<Cell, byte[]> readWriteTransaction() {
+        final Set<Cell> cells = randomCells();
+        return txManager.runTaskWithRetry(new TransactionTask<Map<Cell, byte[]>, RuntimeException>() {
+            @Override
+            public Map<Cell, byte[]> execute(Transaction t) {
+                Map<Cell, byte[]> values = t.get(BenchmarkData.TABLE, cells);
+                for (Map.Entry<Cell, byte[]> e : values.entrySet()) {
+                    t.put(BenchmarkData.TABLE, Collections.singletonMap(e.getKey(), e.getValue()));
+                }
+                return values;
+            }
+        });
+    }
+
+    private Set<Cell> randomCells() {
+        int first = random.nextInt(numRows - BATCH_SIZE);
+        Set<Cell> cells = Sets.newHashSetWithExpectedSize(BATCH_SIZE);
+        for (int i = first; i < first + BATCH_SIZE; i++) {
+            cells.add(BenchmarkData.cell(i));
+        }
+        return cells;
+    }
+
+    private void write(int firstIndex, int count) {
+        final Map<Cell, byte[]> values = BenchmarkData.cells(random, firstIndex, count, VALUE_SIZE);
+        txManager.runTaskWithRetry(new TransactionTask<Void, RuntimeException>() {
+            @Override
+            public Void execute(Transaction t) {
+                t.put(BenchmarkData.TABLE, values);
+                return null;
+            }
+        });
+    }
+}
@@ -29,6 +29,7 @@ import org.junit.Test;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
@@ -38,10 +39,19 @@ import com.palantir.atlasdb.encoding.PtBytes;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
 import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.CachePriority;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.ExpirationStrategy;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.PartitionStrategy;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.SweepStrategy;
+import com.palantir.atlasdb.table.description.ColumnMetadataDescription;
+import com.palantir.atlasdb.table.description.NameMetadataDescription;
+import com.palantir.atlasdb.table.description.TableMetadata;
+import com.palantir.atlasdb.transaction.api.ConflictHandler;
 import com.palantir.common.base.ClosableIterator;
 
 public final class RocksDbKeyValueServiceTest {
@@ -290,6 +300,62 @@ public final class RocksDbKeyValueServiceTest {
         assertEquals("yoyo", new String(meta));
     }
 
+    @Test
+    public void testTunedTableSurvivesReopenAndTruncate() {
+        TableReference tunedTable = TableReference.createWithEmptyNamespace("tuned");
+        byte[] metadata = new TableMetadata(
+                new NameMetadataDescription(),
+                new ColumnMetadataDescription(),
+                ConflictHandler.RETRY_ON_WRITE_WRITE,
+                CachePriority.HOTTEST,
+                PartitionStrategy.ORDERED,
+                false,
+                64,
+                true,
+                SweepStrategy.CONSERVATIVE,
+                ExpirationStrategy.NEVER,
+                true).persistToBytes();
+        Cell cell = Cell.create(PtBytes.toBytes("row"), PtBytes.toBytes("col"));
+        db.createTable(tunedTable, metadata);
+        db.put(tunedTable, ImmutableMap.of(cell, PtBytes.toBytes("value")), 1L);
+
+        db.close();
+        db = RocksDbKeyValueService.create("testdb");
+        assertEquals("value", PtBytes.toString(db.get(tunedTable, ImmutableMap.of(cell, 2L)).get(cell).getContents()));
+
+        db.putMetadataForTable(tunedTable, AtlasDbConstants.GENERIC_TABLE_METADATA);
+        db.truncateTable(tunedTable);
+        db.put(tunedTable, ImmutableMap.of(cell, PtBytes.toBytes("value2")), 3L);
+        assertEquals("value2", PtBytes.toString(db.get(tunedTable, ImmutableMap.of(cell, 4L)).get(cell).getContents()));
+        db.dropTable(tunedTable);
+    }
+
+    @Test
+    public void testReadSnapshotIgnoresLaterWrites() {
+        final Cell cell = Cell.create("r1".getBytes(), "c1".getBytes());
+        final Cell cell2 = Cell.create("r2".getBytes(), "c1".getBytes());
+        db.put(TABLE, ImmutableMap.of(cell, "v1".getBytes()), 1);
+        KeyValueService snapshot = db.openReadSnapshot();
+        try {
+            db.put(TABLE, ImmutableMap.of(cell, "v2".getBytes()), 2);
+            db.put(TABLE, ImmutableMap.of(cell2, "v3".getBytes()), 2);
+            db.delete(TABLE, ImmutableMultimap.of(cell, 1L));
+
+            Value value = snapshot.get(TABLE, ImmutableMap.of(cell, 3L)).get(cell);
+            assertEquals(1L, value.getTimestamp());
+            assertEquals("v1", new String(value.getContents()));
+            ClosableIterator<RowResult<Value>> it = snapshot.getRange(TABLE, RangeRequest.builder().build(), 3);
+            try {
+                assertEquals(1, Iterators.size(it));
+            } finally {
+                it.close();
+            }
+        } finally {
+            snapshot.close();
+        }
+        assertEquals("v2", new String(db.get(TABLE, ImmutableMap.of(cell, 3L)).get(cell).getContents()));
+    }
+
     @Test
     public void testLockFile() {
         try {
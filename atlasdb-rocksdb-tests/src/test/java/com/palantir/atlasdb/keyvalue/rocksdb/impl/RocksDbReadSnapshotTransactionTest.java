@@ -0,0 +1,270 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.rocksdb.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.cleaner.NoOpCleaner;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.factory.TransactionManagers;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.SnapshottingKeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.impl.ForwardingKeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.KeyValueServices;
+import com.palantir.atlasdb.transaction.api.AtlasDbConstraintCheckingMode;
+import com.palantir.atlasdb.transaction.api.Transaction;
+import com.palantir.atlasdb.transaction.api.TransactionTask;
+import com.palantir.atlasdb.transaction.impl.ConflictDetectionManagers;
+import com.palantir.atlasdb.transaction.impl.SerializableTransactionManager;
+import com.palantir.atlasdb.transaction.impl.SweepStrategyManagers;
+import com.palantir.atlasdb.transaction.impl.TransactionTables;
+import com.palantir.atlasdb.transaction.service.TransactionService;
+import com.palantir.atlasdb.transaction.service.TransactionServices;
+import com.palantir.lock.LockClient;
+import com.palantir.lock.impl.LockServiceImpl;
+import com.palantir.timestamp.InMemoryTimestampService;
+import com.palantir.timestamp.TimestampRange;
+import com.palantir.timestamp.TimestampService;
+
+/**
+ * Read-only transactions against RocksDB read from a snapshot that the transaction manager
+ * takes once the start timestamp has been handed out and releases when the task is done. The
+ * store is wrapped the way {@link TransactionManagers#create} wraps it.
+ */
+public final class RocksDbReadSnapshotTransactionTest {
+    private static final TableReference TABLE = TableReference.createWithEmptyNamespace("snapshot_test");
+    private static final byte[] COLUMN = PtBytes.toBytes("c");
+    private static final Cell EARLY_CELL = Cell.create(PtBytes.toBytes("early"), COLUMN);
+    private static final Cell RACING_CELL = Cell.create(PtBytes.toBytes("racing"), COLUMN);
+    private static final Cell LATE_CELL = Cell.create(PtBytes.toBytes("late"), COLUMN);
+
+    private RocksDbKeyValueService db = null;
+    private KeyValueService kvs = null;
+    private LockServiceImpl lockService;
+    private TransactionService transactionService;
+    private HookedTimestampService timestampService;
+    private SerializableTransactionManager txManager;
+    private final AtomicInteger snapshotsOpened = new AtomicInteger();
+    private final AtomicInteger snapshotsClosed = new AtomicInteger();
+
+    @Before
+    public void setUp() throws Exception {
+        db = RocksDbKeyValueService.create("testdb");
+        for (TableReference table : db.getAllTableNames()) {
+            if (!table.getQualifiedName().equals("default") && !table.getQualifiedName().equals("_metadata")) {
+                db.dropTable(table);
+            }
+        }
+        kvs = TransactionManagers.wrapKeyValueService(
+                new CountingSnapshotsKeyValueService(),
+                new InMemoryTimestampService(),
+                true);
+        TransactionTables.createTables(kvs);
+        kvs.createTable(TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA);
+
+        lockService = LockServiceImpl.create();
+        transactionService = TransactionServices.createTransactionService(kvs);
+        timestampService = new HookedTimestampService();
+        txManager = new SerializableTransactionManager(
+                kvs,
+                timestampService,
+                LockClient.of("snapshot test"),
+                lockService,
+                transactionService,
+                Suppliers.ofInstance(AtlasDbConstraintCheckingMode.NO_CONSTRAINT_CHECKING),
+                ConflictDetectionManagers.createDefault(kvs),
+                SweepStrategyManagers.createDefault(kvs),
+                NoOpCleaner.INSTANCE);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (lockService != null) {
+            lockService.close();
+            lockService = null;
+        }
+        if (kvs != null) {
+            kvs.close();
+            kvs = null;
+            db = null;
+        }
+    }
+
+    @Test
+    public void testWrappedStoreSupportsSnapshots() {
+        assertTrue(KeyValueServices.supports(kvs, SnapshottingKeyValueService.class));
+    }
+
+    @Test
+    public void testReadOnlyTaskReadsFromSnapshotTakenAfterStartTimestamp() {
+        txManager.runTaskWithRetry(new TransactionTask<Void, RuntimeException>() {
+            @Override
+            public Void execute(Transaction t) {
+                t.put(TABLE, ImmutableMap.of(EARLY_CELL, PtBytes.toBytes("early")));
+                return null;
+            }
+        });
+
+        // A writer that committed before the read-only transaction starts, but whose write only
+        // lands once the start timestamp has been handed out.
+        final long writerStartTs = timestampService.getFreshTimestamp();
+        long writerCommitTs = timestampService.getFreshTimestamp();
+        transactionService.putUnlessExists(writerStartTs, writerCommitTs);
+        txManager.getImmutableTimestamp();
+        timestampService.runAfterNextTimestamp(new Runnable() {
+            @Override
+            public void run() {
+                db.put(TABLE, ImmutableMap.of(RACING_CELL, PtBytes.toBytes("racing")), writerStartTs);
+            }
+        });
+
+        Map<Cell, byte[]> read = txManager.runTaskReadOnly(new TransactionTask<Map<Cell, byte[]>, RuntimeException>() {
+            @Override
+            public Map<Cell, byte[]> execute(Transaction t) {
+                assertEquals(1, snapshotsOpened.get());
+                // Written and committed below the start timestamp, but after the snapshot was taken
+                db.put(TABLE, ImmutableMap.of(LATE_CELL, PtBytes.toBytes("late")), writerStartTs);
+                return t.get(TABLE, ImmutableSet.of(EARLY_CELL, RACING_CELL, LATE_CELL));
+            }
+        });
+
+        assertEquals(ImmutableSet.of(EARLY_CELL, RACING_CELL), read.keySet());
+        assertArrayEquals(PtBytes.toBytes("early"), read.get(EARLY_CELL));
+        assertArrayEquals(PtBytes.toBytes("racing"), read.get(RACING_CELL));
+        assertEquals(1, snapshotsClosed.get());
+
+        // A new read-only transaction gets a new snapshot that does see the late write
+        Map<Cell, byte[]> reread = txManager.runTaskReadOnly(new TransactionTask<Map<Cell, byte[]>, RuntimeException>() {
+            @Override
+            public Map<Cell, byte[]> execute(Transaction t) {
+                return t.get(TABLE, ImmutableSet.of(LATE_CELL));
+            }
+        });
+        assertArrayEquals(PtBytes.toBytes("late"), reread.get(LATE_CELL));
+        assertEquals(2, snapshotsOpened.get());
+        assertEquals(2, snapshotsClosed.get());
+    }
+
+    @Test
+    public void testSnapshotReleasedWhenTaskThrows() {
+        try {
+            txManager.runTaskReadOnly(new TransactionTask<Void, RuntimeException>() {
+                @Override
+                public Void execute(Transaction t) {
+                    t.get(TABLE, ImmutableSet.of(EARLY_CELL));
+                    throw new IllegalStateException("task failed");
+                }
+            });
+            fail("the task should have thrown");
+        } catch (IllegalStateException e) {
+            assertEquals("task failed", e.getMessage());
+        }
+        assertEquals(1, snapshotsOpened.get());
+        assertEquals(1, snapshotsClosed.get());
+    }
+
+    @Test
+    public void testWritesAreNotSnapshotted() {
+        txManager.runTaskWithRetry(new TransactionTask<Void, RuntimeException>() {
+            @Override
+            public Void execute(Transaction t) {
+                t.put(TABLE, ImmutableMap.of(EARLY_CELL, PtBytes.toBytes("early")));
+                return null;
+            }
+        });
+        assertEquals(0, snapshotsOpened.get());
+        assertFalse(txManager.runTaskReadOnly(new TransactionTask<Map<Cell, byte[]>, RuntimeException>() {
+            @Override
+            public Map<Cell, byte[]> execute(Transaction t) {
+                return t.get(TABLE, ImmutableSet.of(EARLY_CELL));
+            }
+        }).isEmpty());
+    }
+
+    /**
+     * Counts the snapshots the transaction manager opens and closes on the database, below the
+     * production wrappers.
+     */
+    private class CountingSnapshotsKeyValueService extends ForwardingKeyValueService implements SnapshottingKeyValueService {
+        @Override
+        protected KeyValueService delegate() {
+            return db;
+        }
+
+        @Override
+        public KeyValueService openReadSnapshot() {
+            final KeyValueService snapshot = db.openReadSnapshot();
+            snapshotsOpened.incrementAndGet();
+            return new ForwardingKeyValueService() {
+                @Override
+                protected KeyValueService delegate() {
+                    return snapshot;
+                }
+
+                @Override
+                public void close() {
+                    snapshotsClosed.incrementAndGet();
+                    super.close();
+                }
+            };
+        }
+    }
+
+    /**
+     * Runs a hook right after the next timestamp has been handed out.
+     */
+    private static class HookedTimestampService implements TimestampService {
+        private final TimestampService delegate = new InMemoryTimestampService();
+        private volatile Runnable afterNextTimestamp = null;
+
+        void runAfterNextTimestamp(Runnable hook) {
+            afterNextTimestamp = hook;
+        }
+
+        @Override
+        public long getFreshTimestamp() {
+            long timestamp = delegate.getFreshTimestamp();
+            Runnable hook = afterNextTimestamp;
+            afterNextTimestamp = null;
+            if (hook != null) {
+                hook.run();
+            }
+            return timestamp;
+        }
+
+        @Override
+        public TimestampRange getFreshTimestamps(int numTimestampsRequested) {
+            return delegate.getFreshTimestamps(numTimestampsRequested);
+        }
+    }
+}
@@ -23,24 +23,32 @@ import java.lang.reflect.Method;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
 import java.nio.channels.OverlappingFileLockException;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.annotation.Nullable;
 import javax.management.MBeanServer;
 import javax.management.ObjectName;
 
+import org.apache.commons.lang.ArrayUtils;
 import org.rocksdb.ColumnFamilyDescriptor;
 import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.Comparator;
 import org.rocksdb.DBOptions;
+import org.rocksdb.FlushOptions;
 import org.rocksdb.Options;
+import org.rocksdb.ReadOptions;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
 import org.rocksdb.RocksIterator;
+import org.rocksdb.Snapshot;
 import org.rocksdb.WriteBatch;
 import org.rocksdb.WriteOptions;
 import org.slf4j.Logger;
@@ -48,26 +56,37 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Charsets;
 import com.google.common.base.Function;
+import com.google.common.base.Functions;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
+import com.google.common.primitives.UnsignedBytes;
 import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.keyvalue.api.BulkLoadingKeyValueService;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.ColumnarKeyValueService;
+import com.palantir.atlasdb.keyvalue.api.ColumnarResults;
 import com.palantir.atlasdb.keyvalue.api.InsufficientConsistencyException;
 import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeDeletingKeyValueService;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.SnapshottingKeyValueService;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.atlasdb.keyvalue.impl.KeyValueServices;
@@ -78,16 +97,21 @@ import com.palantir.util.MutuallyExclusiveSetLock.LockState;
 import com.palantir.util.file.TempFileUtils;
 import com.palantir.util.paging.TokenBackedBasicResultsPage;
 
-public class RocksDbKeyValueService implements KeyValueService {
+public class RocksDbKeyValueService implements BulkLoadingKeyValueService, ColumnarKeyValueService,
+        RangeDeletingKeyValueService, SnapshottingKeyValueService {
     private static final Logger log = LoggerFactory.getLogger(RocksDbKeyValueService.class);
     private static final TableReference METADATA_TABLE_NAME = TableReference.createWithEmptyNamespace("_metadata");
     private static final long PUT_UNLESS_EXISTS_TS = 0L;
     private static final String LOCK_FILE_PREFIX = ".pt_kv_lock";
+    private static final int BULK_LOAD_BATCH_CELLS = 100000;
+    private static final long BULK_LOAD_BATCH_BYTES = 64L * 1024 * 1024;
     final RocksDB db;
     final ColumnFamilyMap columnFamilies;
+    private final ConcurrentMap<String, RocksDbTableTuning> tableTunings;
     private final FileLock lock;
     private final RandomAccessFile lockFile;
     private final WriteOpts writeOptions;
+    private final ReadOptions readOptions;
     private final MutuallyExclusiveSetLock<Cell> lockSet = MutuallyExclusiveSetLock.<Cell>create(false);
     private volatile boolean closed = false;
 
@@ -108,19 +132,29 @@ public class RocksDbKeyValueService implements KeyValueService {
         setReflectionOpts(dbOpts, dbOptions);
         ColumnFamilyOptions cfMetadataOpts = new ColumnFamilyOptions();
         setReflectionOpts(cfMetadataOpts, cfOptions);
-        ColumnFamilyOptions cfCommonOpts;
+        final Comparator cfComparator;
         switch (comparator) {
         case "atlasdb-v2":
-            cfCommonOpts = new ColumnFamilyOptions().setComparator(RocksComparator.INSTANCE);
+            cfComparator = RocksComparator.INSTANCE;
             break;
         case "atlasdb":
-            cfCommonOpts = new ColumnFamilyOptions().setComparator(RocksOldComparator.INSTANCE);
+            cfComparator = RocksOldComparator.INSTANCE;
             break;
         default:
             throw new IllegalArgumentException("Unknown comparator " + comparator);
         }
-        setReflectionOpts(cfCommonOpts, cfOptions);
-        return create(dataDir, dbOpts, cfMetadataOpts, cfCommonOpts, writeOpts);
+        final Map<String, String> cfCommonOptions = ImmutableMap.copyOf(cfOptions);
+        // Tables with the same tuning share an options object, and with it a block cache.
+        LoadingCache<RocksDbTableTuning, ColumnFamilyOptions> cfTunedOpts = CacheBuilder.newBuilder().build(
+                new CacheLoader<RocksDbTableTuning, ColumnFamilyOptions>() {
+                    @Override
+                    public ColumnFamilyOptions load(RocksDbTableTuning tuning) {
+                        ColumnFamilyOptions cfCommonOpts = new ColumnFamilyOptions().setComparator(cfComparator);
+                        setReflectionOpts(cfCommonOpts, cfCommonOptions);
+                        return tuning.applyTo(cfCommonOpts);
+                    }
+                });
+        return create(dataDir, dbOpts, cfMetadataOpts, cfTunedOpts, writeOpts);
     }
 
     private static void setReflectionOpts(Object opts,
@@ -153,11 +187,23 @@ public class RocksDbKeyValueService implements KeyValueService {
         }
     }
 
+    /**
+     * Uses the given options for every table, ignoring the tuning hints in their metadata.
+     */
     public static RocksDbKeyValueService create(String dataDir,
                                                 DBOptions dbOptions,
                                                 ColumnFamilyOptions cfMetadataOptions,
                                                 ColumnFamilyOptions cfCommonOptions,
                                                 WriteOpts writeOptions) {
+        return create(dataDir, dbOptions, cfMetadataOptions,
+                Functions.<ColumnFamilyOptions>constant(cfCommonOptions), writeOptions);
+    }
+
+    private static RocksDbKeyValueService create(String dataDir,
+                                                 DBOptions dbOptions,
+                                                 ColumnFamilyOptions cfMetadataOptions,
+                                                 Function<? super RocksDbTableTuning, ColumnFamilyOptions> cfCommonOptions,
+                                                 WriteOpts writeOptions) {
         try {
             RocksDbKeyValueService kvs = lockAndCreateDb(new File(dataDir), dbOptions, cfMetadataOptions, cfCommonOptions, writeOptions);
             registerMBean(kvs);
@@ -182,7 +228,7 @@ public class RocksDbKeyValueService implements KeyValueService {
     private static RocksDbKeyValueService lockAndCreateDb(File dbDir,
                                                           final DBOptions dbOptions,
                                                           final ColumnFamilyOptions cfMetadataOptions,
-                                                          final ColumnFamilyOptions cfCommonOptions,
+                                                          final Function<? super RocksDbTableTuning, ColumnFamilyOptions> cfCommonOptions,
                                                           final WriteOpts writeOpts) throws IOException, RocksDBException {
         TempFileUtils.mkdirsWithRetry(dbDir);
         Preconditions.checkArgument(dbDir.exists() && dbDir.isDirectory(), "DB file must be a directory: " + dbDir);
@@ -210,23 +256,25 @@ public class RocksDbKeyValueService implements KeyValueService {
             }
             List<byte[]> initialCfs = MoreObjects.firstNonNull(
                     RocksDB.listColumnFamilies(new Options(dbOptions, cfMetadataOptions), dbDir.getAbsolutePath()), ImmutableList.<byte[]>of());
+            final ConcurrentMap<String, RocksDbTableTuning> tableTunings =
+                    readTableTunings(dbDir, dbOptions, cfMetadataOptions, initialCfs);
             List<ColumnFamilyDescriptor> cfDescriptors = Lists.newArrayListWithCapacity(initialCfs.size());
             List<ColumnFamilyHandle> cfHandles = Lists.newArrayListWithCapacity(1 + initialCfs.size());
             cfDescriptors.add(new ColumnFamilyDescriptor(RocksDB.DEFAULT_COLUMN_FAMILY));
             for (byte[] cf : initialCfs) {
                 String tableName = new String(cf, Charsets.UTF_8);
-                cfDescriptors.add(getCfDescriptor(tableName, cfMetadataOptions, cfCommonOptions));
+                cfDescriptors.add(getCfDescriptor(tableName, cfMetadataOptions, cfCommonOptions, tableTunings));
             }
             RocksDB db = RocksDB.open(dbOptions, dbDir.getAbsolutePath(), cfDescriptors, cfHandles);
             Preconditions.checkState(cfDescriptors.size() == cfHandles.size());
             ColumnFamilyMap columnFamilies = new ColumnFamilyMap(new Function<String, ColumnFamilyDescriptor>() {
                 @Override
                 public ColumnFamilyDescriptor apply(String tableName) {
-                    return getCfDescriptor(tableName, cfMetadataOptions, cfCommonOptions);
+                    return getCfDescriptor(tableName, cfMetadataOptions, cfCommonOptions, tableTunings);
                 }
             }, db);
             columnFamilies.initialize(cfDescriptors, cfHandles);
-            RocksDbKeyValueService ret = new RocksDbKeyValueService(db, columnFamilies, lock, randomAccessFile, writeOpts);
+            RocksDbKeyValueService ret = new RocksDbKeyValueService(db, columnFamilies, tableTunings, lock, randomAccessFile, writeOpts);
             ret.createTable(METADATA_TABLE_NAME, AtlasDbConstants.EMPTY_TABLE_METADATA);
             success = true;
             return ret;
@@ -239,26 +287,74 @@ public class RocksDbKeyValueService implements KeyValueService {
         }
     }
 
-    private static ColumnFamilyDescriptor getCfDescriptor(String tableName,
+    /**
+     * Reads the tuning of every table from the metadata column family before the database is
+     * opened, because column family options can only be set when a column family is opened.
+     */
+    private static ConcurrentMap<String, RocksDbTableTuning> readTableTunings(File dbDir,
+                                                                             DBOptions dbOptions,
+                                                                             ColumnFamilyOptions cfMetadataOptions,
+                                                                             List<byte[]> initialCfs) throws RocksDBException {
+        ConcurrentMap<String, RocksDbTableTuning> tableTunings = Maps.newConcurrentMap();
+        byte[] metadataCf = METADATA_TABLE_NAME.getQualifiedName().getBytes(Charsets.UTF_8);
+        boolean hasMetadataCf = false;
+        for (byte[] cf : initialCfs) {
+            hasMetadataCf |= Arrays.equals(cf, metadataCf);
+        }
+        if (!hasMetadataCf) {
+            return tableTunings;
+        }
+        List<ColumnFamilyDescriptor> cfDescriptors = ImmutableList.of(
+                new ColumnFamilyDescriptor(RocksDB.DEFAULT_COLUMN_FAMILY),
+                new ColumnFamilyDescriptor(metadataCf, cfMetadataOptions));
+        List<ColumnFamilyHandle> cfHandles = Lists.newArrayListWithCapacity(cfDescriptors.size());
+        RocksDB db = RocksDB.openReadOnly(dbOptions, dbDir.getAbsolutePath(), cfDescriptors, cfHandles);
+        try {
+            RocksIterator iter = db.newIterator(cfHandles.get(1));
+            try {
+                for (iter.seekToFirst(); iter.isValid(); iter.next()) {
+                    tableTunings.put(new String(iter.key(), Charsets.UTF_8), RocksDbTableTuning.fromMetadata(iter.value()));
+                }
+            } finally {
+                iter.dispose();
+            }
+        } finally {
+            for (ColumnFamilyHandle handle : cfHandles) {
+                handle.dispose();
+            }
+            db.close();
+        }
+        return tableTunings;
+    }
+
+    private static ColumnFamilyDescriptor getCfDescriptor(String cfName,
                                                           ColumnFamilyOptions cfMetadataOptions,
-                                                          ColumnFamilyOptions cfCommonOptions) {
-        if (tableName.equals(METADATA_TABLE_NAME.getQualifiedName())) {
-            return new ColumnFamilyDescriptor(tableName.getBytes(Charsets.UTF_8), cfMetadataOptions);
+                                                          Function<? super RocksDbTableTuning, ColumnFamilyOptions> cfCommonOptions,
+                                                          Map<String, RocksDbTableTuning> tableTunings) {
+        if (cfName.equals(METADATA_TABLE_NAME.getQualifiedName())) {
+            return new ColumnFamilyDescriptor(cfName.getBytes(Charsets.UTF_8), cfMetadataOptions);
         } else {
-            return new ColumnFamilyDescriptor(tableName.getBytes(Charsets.UTF_8), cfCommonOptions);
+            // Truncated tables live in column families named <table>__<index>.
+            int indexStart = cfName.lastIndexOf("__");
+            String tableName = indexStart == -1 ? cfName : cfName.substring(0, indexStart);
+            RocksDbTableTuning tuning = MoreObjects.firstNonNull(tableTunings.get(tableName), RocksDbTableTuning.DEFAULT);
+            return new ColumnFamilyDescriptor(cfName.getBytes(Charsets.UTF_8), cfCommonOptions.apply(tuning));
         }
     }
 
     private RocksDbKeyValueService(RocksDB db,
                                    ColumnFamilyMap columnFamilies,
+                                   ConcurrentMap<String, RocksDbTableTuning> tableTunings,
                                    FileLock lock,
                                    RandomAccessFile file,
                                    WriteOpts writeOptions) {
         this.db = db;
         this.columnFamilies = columnFamilies;
+        this.tableTunings = tableTunings;
         this.lock = lock;
         this.lockFile = file;
         this.writeOptions = writeOptions;
+        this.readOptions = new ReadOptions();
     }
 
     @Override
@@ -271,6 +367,7 @@ public class RocksDbKeyValueService implements KeyValueService {
         if (!closed) {
             try {
                 getDb().close();
+                readOptions.dispose();
                 lock.release();
                 lockFile.close();
             } catch (IOException e) {
@@ -296,10 +393,18 @@ public class RocksDbKeyValueService implements KeyValueService {
                                     Iterable<byte[]> rows,
                                     ColumnSelection columnSelection,
                                     long timestamp) {
+        return getRows(tableRef, rows, columnSelection, timestamp, readOptions);
+    }
+
+    Map<Cell, Value> getRows(TableReference tableRef,
+                             Iterable<byte[]> rows,
+                             ColumnSelection columnSelection,
+                             long timestamp,
+                             ReadOptions options) {
         try (Disposer d = new Disposer();
                 ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName())) {
             Map<Cell, Value> results = Maps.newHashMap();
-            RocksIterator iter = d.register(getDb().newIterator(table.getHandle()));
+            RocksIterator iter = d.register(getDb().newIterator(table.getHandle(), options));
             for (byte[] row : rows) {
                 RocksDbKeyValueServices.getRow(iter, row, columnSelection, timestamp, results);
             }
@@ -307,13 +412,87 @@ public class RocksDbKeyValueService implements KeyValueService {
         }
     }
 
+    @Override
+    public ColumnarResults getRowsColumnar(TableReference tableRef,
+                                           Iterable<byte[]> rows,
+                                           ColumnSelection columnSelection,
+                                           long timestamp) {
+        return getRowsColumnar(tableRef, rows, columnSelection, timestamp, readOptions);
+    }
+
+    ColumnarResults getRowsColumnar(TableReference tableRef,
+                                    Iterable<byte[]> rows,
+                                    ColumnSelection columnSelection,
+                                    long timestamp,
+                                    ReadOptions options) {
+        try (Disposer d = new Disposer();
+                ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName())) {
+            ColumnarResults.Builder builder = ColumnarResults.builder();
+            RocksIterator iter = d.register(getDb().newIterator(table.getHandle(), options));
+            for (byte[] row : ImmutableSortedSet.copyOf(UnsignedBytes.lexicographicalComparator(), rows)) {
+                iter.seek(RocksDbKeyValueServices.getKey(row, timestamp - 1));
+                // row + 0x00 is the first row after this one
+                byte[] endRow = ArrayUtils.add(row, (byte) 0);
+                RocksDbKeyValueServices.appendLatestValues(iter, endRow, columnSelection, timestamp, Integer.MAX_VALUE, builder);
+            }
+            return builder.build();
+        }
+    }
+
+    @Override
+    public ColumnarResults getRangeColumnar(TableReference tableRef,
+                                            RangeRequest rangeRequest,
+                                            long timestamp) {
+        if (rangeRequest.isReverse()) {
+            return KeyValueServices.getRangeColumnarUsingGetRange(this, tableRef, rangeRequest, timestamp);
+        }
+        return getRangeColumnar(tableRef, rangeRequest, timestamp, readOptions);
+    }
+
+    /**
+     * Only supports forward ranges.
+     */
+    ColumnarResults getRangeColumnar(TableReference tableRef,
+                                     RangeRequest rangeRequest,
+                                     long timestamp,
+                                     ReadOptions options) {
+        try (Disposer d = new Disposer();
+                ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName())) {
+            ColumnarResults.Builder builder = ColumnarResults.builder();
+            RocksIterator iter = d.register(getDb().newIterator(table.getHandle(), options));
+            byte[] start = rangeRequest.getStartInclusive();
+            if (start.length == 0) {
+                iter.seekToFirst();
+            } else {
+                iter.seek(RocksDbKeyValueServices.getKey(start, timestamp - 1));
+            }
+            ColumnSelection columns = rangeRequest.getColumnNames().isEmpty()
+                    ? ColumnSelection.all()
+                    : ColumnSelection.create(rangeRequest.getColumnNames());
+            RocksDbKeyValueServices.appendLatestValues(
+                    iter,
+                    rangeRequest.getEndExclusive(),
+                    columns,
+                    timestamp,
+                    KeyValueServices.getColumnarBatchSize(rangeRequest),
+                    builder);
+            return builder.build();
+        }
+    }
+
     @Override
     public Map<Cell, Value> get(TableReference tableRef,
                                 Map<Cell, Long> timestampByCell) {
+        return get(tableRef, timestampByCell, readOptions);
+    }
+
+    Map<Cell, Value> get(TableReference tableRef,
+                         Map<Cell, Long> timestampByCell,
+                         ReadOptions options) {
         try (Disposer d = new Disposer();
                 ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName())) {
             Map<Cell, Value> results = Maps.newHashMap();
-            RocksIterator iter = d.register(getDb().newIterator(table.getHandle()));
+            RocksIterator iter = d.register(getDb().newIterator(table.getHandle(), options));
             for (Entry<Cell, Long> entry : timestampByCell.entrySet()) {
                 Value value = RocksDbKeyValueServices.getCell(iter, entry.getKey(), entry.getValue());
                 if (value != null) {
@@ -327,10 +506,16 @@ public class RocksDbKeyValueService implements KeyValueService {
     @Override
     public Map<Cell, Long> getLatestTimestamps(TableReference tableRef,
                                                Map<Cell, Long> timestampByCell) {
+        return getLatestTimestamps(tableRef, timestampByCell, readOptions);
+    }
+
+    Map<Cell, Long> getLatestTimestamps(TableReference tableRef,
+                                        Map<Cell, Long> timestampByCell,
+                                        ReadOptions options) {
         try (Disposer d = new Disposer();
                 ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName())) {
             Map<Cell, Long> results = Maps.newHashMap();
-            RocksIterator iter = d.register(getDb().newIterator(table.getHandle()));
+            RocksIterator iter = d.register(getDb().newIterator(table.getHandle(), options));
             for (Entry<Cell, Long> entry : timestampByCell.entrySet()) {
                 Long ts = RocksDbKeyValueServices.getTimestamp(iter, entry.getKey(), entry.getValue());
                 if (ts != null) {
@@ -402,6 +587,35 @@ public class RocksDbKeyValueService implements KeyValueService {
         }
     }
 
+    /**
+     * Writes large batches with the write ahead log disabled, then flushes the column family so
+     * the data is durable once this returns. A load that fails part way may lose the part of it
+     * that was still only in the memtable, which is fine because bulk loads can be retried.
+     */
+    @Override
+    public void bulkLoad(TableReference tableRef, Iterator<Entry<Cell, byte[]>> sortedCells, long timestamp) {
+        Iterator<List<Entry<Cell, byte[]>>> batches =
+                KeyValueServices.partitionSortedCells(sortedCells, BULK_LOAD_BATCH_CELLS, BULK_LOAD_BATCH_BYTES);
+        try (Disposer d = new Disposer();
+                ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName())) {
+            WriteOptions options = d.register(new WriteOptions().setDisableWAL(true).setSync(false));
+            while (batches.hasNext()) {
+                try (Disposer batchDisposer = new Disposer()) {
+                    WriteBatch batch = batchDisposer.register(new WriteBatch());
+                    for (Entry<Cell, byte[]> entry : batches.next()) {
+                        byte[] key = RocksDbKeyValueServices.getKey(entry.getKey(), timestamp);
+                        batch.put(table.getHandle(), key, entry.getValue());
+                    }
+                    getDb().write(options, batch);
+                }
+            }
+            FlushOptions flushOptions = d.register(new FlushOptions().setWaitForFlush(true));
+            getDb().flush(flushOptions, table.getHandle());
+        } catch (RocksDBException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
     @Override
     public void putUnlessExists(TableReference tableRef, Map<Cell, byte[]> values)
             throws KeyAlreadyExistsException {
@@ -447,6 +661,26 @@ public class RocksDbKeyValueService implements KeyValueService {
         }
     }
 
+    /**
+     * Finds the versions below each bound with one seek per cell and removes them in a single
+     * write batch. rocksdbjni 4.1.0 has no deleteRange, so the versions are still removed one by one.
+     */
+    @Override
+    public void deleteAllTimestampsBelow(TableReference tableRef, Map<Cell, Long> maxTimestampExclusiveByCell) {
+        try (Disposer d = new Disposer();
+                ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName())) {
+            WriteOptions options = d.register(new WriteOptions().setSync(writeOptions.fsyncPut()));
+            WriteBatch batch = d.register(new WriteBatch());
+            RocksIterator iter = d.register(getDb().newIterator(table.getHandle()));
+            for (Entry<Cell, Long> entry : maxTimestampExclusiveByCell.entrySet()) {
+                RocksDbKeyValueServices.removeTimestampsBelow(iter, table.getHandle(), entry.getKey(), entry.getValue(), batch);
+            }
+            getDb().write(options, batch);
+        } catch (RocksDBException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
     @Override
     public void truncateTable(TableReference tableRef) {
         try {
@@ -467,8 +701,15 @@ public class RocksDbKeyValueService implements KeyValueService {
     public ClosableIterator<RowResult<Value>> getRange(TableReference tableRef,
                                                        RangeRequest rangeRequest,
                                                        long timestamp) {
+        return getRange(tableRef, rangeRequest, timestamp, readOptions);
+    }
+
+    ClosableIterator<RowResult<Value>> getRange(TableReference tableRef,
+                                                RangeRequest rangeRequest,
+                                                long timestamp,
+                                                ReadOptions options) {
         ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName());
-        RocksIterator iter = getDb().newIterator(table.getHandle());
+        RocksIterator iter = getDb().newIterator(table.getHandle(), options);
         return new ValueRangeIterator(table, iter, rangeRequest, timestamp);
     }
 
@@ -476,8 +717,15 @@ public class RocksDbKeyValueService implements KeyValueService {
     public ClosableIterator<RowResult<Set<Value>>> getRangeWithHistory(TableReference tableRef,
                                                                        RangeRequest rangeRequest,
                                                                        long timestamp) {
+        return getRangeWithHistory(tableRef, rangeRequest, timestamp, readOptions);
+    }
+
+    ClosableIterator<RowResult<Set<Value>>> getRangeWithHistory(TableReference tableRef,
+                                                                RangeRequest rangeRequest,
+                                                                long timestamp,
+                                                                ReadOptions options) {
         ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName());
-        RocksIterator iter = getDb().newIterator(table.getHandle());
+        RocksIterator iter = getDb().newIterator(table.getHandle(), options);
         return new HistoryRangeIterator(table, iter, rangeRequest, timestamp);
     }
 
@@ -485,8 +733,15 @@ public class RocksDbKeyValueService implements KeyValueService {
     public ClosableIterator<RowResult<Set<Long>>> getRangeOfTimestamps(TableReference tableRef,
                                                                        RangeRequest rangeRequest,
                                                                        long timestamp) {
+        return getRangeOfTimestamps(tableRef, rangeRequest, timestamp, readOptions);
+    }
+
+    ClosableIterator<RowResult<Set<Long>>> getRangeOfTimestamps(TableReference tableRef,
+                                                                RangeRequest rangeRequest,
+                                                                long timestamp,
+                                                                ReadOptions options) {
         ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName());
-        RocksIterator iter = getDb().newIterator(table.getHandle());
+        RocksIterator iter = getDb().newIterator(table.getHandle(), options);
         return new TimestampRangeIterator(table, iter, rangeRequest, timestamp);
     }
 
@@ -524,6 +779,7 @@ public class RocksDbKeyValueService implements KeyValueService {
     @Override
     public void createTables(Map<TableReference, byte[]> tableRefToTableMetadata)
             throws InsufficientConsistencyException {
+        updateTableTunings(tableRefToTableMetadata);
         for (TableReference tableRef : tableRefToTableMetadata.keySet()) {
             try {
                 columnFamilies.create(tableRef.getQualifiedName());
@@ -590,6 +846,7 @@ public class RocksDbKeyValueService implements KeyValueService {
         } catch (RocksDBException e) {
             throw Throwables.propagate(e);
         }
+        updateTableTunings(ImmutableMap.of(tableRef, metadata));
     }
 
     @Override
@@ -605,6 +862,25 @@ public class RocksDbKeyValueService implements KeyValueService {
         } catch (RocksDBException e) {
             throw Throwables.propagate(e);
         }
+        updateTableTunings(tableRefToMetadata);
+    }
+
+    /**
+     * RocksDB cannot change the options of an open column family, so a new tuning is used the
+     * next time the table's column family is created, which is when it is truncated or the
+     * database is reopened.
+     */
+    private void updateTableTunings(Map<TableReference, byte[]> tableRefToMetadata) {
+        for (Entry<TableReference, byte[]> entry : tableRefToMetadata.entrySet()) {
+            String tableName = entry.getKey().getQualifiedName();
+            RocksDbTableTuning tuning = RocksDbTableTuning.fromMetadata(entry.getValue());
+            RocksDbTableTuning oldTuning = tableTunings.put(tableName, tuning);
+            if (!tuning.equals(MoreObjects.firstNonNull(oldTuning, RocksDbTableTuning.DEFAULT))
+                    && columnFamilies.getTableNames().contains(tableName)) {
+                log.info("The options of table {} changed to {} and will be applied when the table is "
+                        + "truncated or the database is reopened.", tableName, tuning);
+            }
+        }
     }
 
     @Override
@@ -630,9 +906,16 @@ public class RocksDbKeyValueService implements KeyValueService {
     public Multimap<Cell, Long> getAllTimestamps(TableReference tableRef,
                                                  Set<Cell> cells,
                                                  long timestamp) {
+        return getAllTimestamps(tableRef, cells, timestamp, readOptions);
+    }
+
+    Multimap<Cell, Long> getAllTimestamps(TableReference tableRef,
+                                          Set<Cell> cells,
+                                          long timestamp,
+                                          ReadOptions options) {
         try (ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName())) {
             Multimap<Cell, Long> results = ArrayListMultimap.create();
-            RocksIterator iter = getDb().newIterator(table.getHandle());
+            RocksIterator iter = getDb().newIterator(table.getHandle(), options);
             try {
                 for (Cell cell : cells) {
                     RocksDbKeyValueServices.getTimestamps(iter, cell, timestamp, results);
@@ -649,6 +932,17 @@ public class RocksDbKeyValueService implements KeyValueService {
         // nothing
     }
 
+    @Override
+    public KeyValueService openReadSnapshot() {
+        return new RocksDbSnapshotKeyValueService(this, getDb().getSnapshot());
+    }
+
+    void releaseSnapshot(Snapshot snapshot) {
+        if (!closed) {
+            db.releaseSnapshot(snapshot);
+        }
+    }
+
     private RocksDB getDb() {
         if (closed) {
             throw new IllegalStateException("Database has been closed.");
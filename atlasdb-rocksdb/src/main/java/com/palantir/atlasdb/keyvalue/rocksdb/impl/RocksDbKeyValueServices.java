@@ -21,14 +21,18 @@ import java.util.Arrays;
 import java.util.Map;
 
 import org.apache.commons.lang.ArrayUtils;
+import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.RocksIterator;
+import org.rocksdb.WriteBatch;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Multimap;
 import com.google.common.primitives.Longs;
+import com.google.common.primitives.UnsignedBytes;
 import com.palantir.atlasdb.encoding.PtBytes;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.ColumnarResults;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.atlasdb.ptobject.EncodingUtils;
 import com.palantir.common.annotation.Output;
@@ -68,6 +72,70 @@ public class RocksDbKeyValueServices {
         }
     }
 
+    /**
+     * Appends the latest value before the timestamp of each selected cell, starting at the
+     * iterator's position and continuing while rows are before endRowExclusive. Stops before the
+     * first cell that would start row number maxRows + 1. Row and column names are copied
+     * straight from the keys, without creating a {@link Cell} per key.
+     */
+    static void appendLatestValues(RocksIterator iter,
+                                   byte[] endRowExclusive,
+                                   ColumnSelection columnSelection,
+                                   long timestamp,
+                                   int maxRows,
+                                   @Output ColumnarResults.Builder builder) {
+        byte[] lastKey = null;
+        int lastRowSize = -1;
+        int lastColEnd = -1;
+        for (; iter.isValid(); iter.next()) {
+            byte[] key = iter.key();
+            int rowSize = getRowSize(key);
+            if (endRowExclusive.length != 0 && compareRow(key, rowSize, endRowExclusive) >= 0) {
+                return;
+            }
+            int colEnd = getColumnEnd(key, rowSize);
+            if (rowSize == lastRowSize && colEnd == lastColEnd && rangeEquals(key, lastKey, colEnd)) {
+                // an older version of a cell we have already seen
+                continue;
+            }
+            long ts = parseTimestamp(key, colEnd);
+            if (ts >= timestamp) {
+                continue;
+            }
+            lastKey = key;
+            lastRowSize = rowSize;
+            lastColEnd = colEnd;
+            if (!columnSelection.allColumnsSelected()
+                    && !columnSelection.contains(Arrays.copyOfRange(key, rowSize, colEnd))) {
+                continue;
+            }
+            if (!builder.isLastRow(key, 0, rowSize) && builder.getNumRows() >= maxRows) {
+                return;
+            }
+            builder.add(key, 0, rowSize, key, rowSize, colEnd - rowSize, ts, iter.value());
+        }
+    }
+
+    private static int compareRow(byte[] key, int rowSize, byte[] row) {
+        int length = Math.min(rowSize, row.length);
+        for (int i = 0; i < length; i++) {
+            int result = UnsignedBytes.compare(key[i], row[i]);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return rowSize - row.length;
+    }
+
+    private static boolean rangeEquals(byte[] left, byte[] right, int length) {
+        for (int i = 0; i < length; i++) {
+            if (left[i] != right[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     static Value getCell(RocksIterator iter,
                          Cell cell,
                          long timestamp) {
@@ -108,6 +176,29 @@ public class RocksDbKeyValueServices {
         }
     }
 
+    /**
+     * Adds a removal of every version of the cell from 0 up to but excluding the timestamp to the
+     * batch. Versions sort newest first, so they are found with a single seek.
+     */
+    static void removeTimestampsBelow(RocksIterator iter,
+                                      ColumnFamilyHandle handle,
+                                      Cell cell,
+                                      long timestamp,
+                                      @Output WriteBatch batch) {
+        if (timestamp <= 0) {
+            return;
+        }
+        iter.seek(getKey(cell, timestamp - 1));
+        for (; iter.isValid(); iter.next()) {
+            byte[] key = iter.key();
+            Pair<Cell, Long> cellAndTs = parseCellAndTs(key);
+            if (!cell.equals(cellAndTs.lhSide) || cellAndTs.rhSide < 0) {
+                return;
+            }
+            batch.remove(handle, key);
+        }
+    }
+
     static byte[] getKey(byte[] row,
                          long timeStamp) {
         return getKey(row, new byte[1], timeStamp);
@@ -135,16 +226,29 @@ public class RocksDbKeyValueServices {
     }
 
     static Pair<Cell, Long> parseCellAndTs(byte[] key) {
+        int rowSize = getRowSize(key);
+        int colEnd = getColumnEnd(key, rowSize);
+
+        byte[] rowName = Arrays.copyOf(key, rowSize);
+        byte[] colName = Arrays.copyOfRange(key, rowSize, colEnd);
+        long ts = parseTimestamp(key, colEnd);
+
+        return Pair.create(Cell.create(rowName, colName), ts);
+    }
+
+    private static int getRowSize(byte[] key) {
         byte[] rowSizeBytes = new byte[2];
         rowSizeBytes[0] = key[key.length - 1];
         rowSizeBytes[1] = key[key.length - 2];
+        return (int) EncodingUtils.decodeVarLong(rowSizeBytes);
+    }
 
-        int rowSize = (int) EncodingUtils.decodeVarLong(rowSizeBytes);
-        int colEnd = key.length - 8 - EncodingUtils.sizeOfVarLong(rowSize);
+    private static int getColumnEnd(byte[] key, int rowSize) {
+        return key.length - 8 - EncodingUtils.sizeOfVarLong(rowSize);
+    }
 
-        byte[] rowName = Arrays.copyOf(key, rowSize);
-        byte[] colName = Arrays.copyOfRange(key, rowSize, colEnd);
-        long ts = Longs.fromBytes(
+    private static long parseTimestamp(byte[] key, int colEnd) {
+        return Longs.fromBytes(
                 key[colEnd+0],
                 key[colEnd+1],
                 key[colEnd+2],
@@ -153,8 +257,6 @@ public class RocksDbKeyValueServices {
                 key[colEnd+5],
                 key[colEnd+6],
                 key[colEnd+7]);
-
-        return Pair.create(Cell.create(rowName, colName), ts);
     }
 
     static boolean isInRange(byte[] row, byte[] endRow) {
@@ -0,0 +1,142 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.rocksdb.impl;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.rocksdb.ReadOptions;
+import org.rocksdb.Snapshot;
+
+import com.google.common.collect.Multimap;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.ColumnarKeyValueService;
+import com.palantir.atlasdb.keyvalue.api.ColumnarResults;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.keyvalue.impl.ForwardingKeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.KeyValueServices;
+import com.palantir.common.base.ClosableIterator;
+import com.palantir.util.paging.TokenBackedBasicResultsPage;
+
+/**
+ * Reads the tables of a {@link RocksDbKeyValueService} as of a pinned RocksDB snapshot and
+ * forwards everything else to the live database. Closing this releases the snapshot.
+ */
+class RocksDbSnapshotKeyValueService extends ForwardingKeyValueService implements ColumnarKeyValueService {
+    private final RocksDbKeyValueService delegate;
+    private final Snapshot snapshot;
+    private final ReadOptions readOptions;
+    private boolean closed = false;
+
+    RocksDbSnapshotKeyValueService(RocksDbKeyValueService delegate, Snapshot snapshot) {
+        this.delegate = delegate;
+        this.snapshot = snapshot;
+        this.readOptions = new ReadOptions().setSnapshot(snapshot);
+    }
+
+    @Override
+    protected KeyValueService delegate() {
+        return delegate;
+    }
+
+    @Override
+    public Map<Cell, Value> getRows(TableReference tableRef,
+                                    Iterable<byte[]> rows,
+                                    ColumnSelection columnSelection,
+                                    long timestamp) {
+        return delegate.getRows(tableRef, rows, columnSelection, timestamp, readOptions);
+    }
+
+    @Override
+    public ColumnarResults getRowsColumnar(TableReference tableRef,
+                                           Iterable<byte[]> rows,
+                                           ColumnSelection columnSelection,
+                                           long timestamp) {
+        return delegate.getRowsColumnar(tableRef, rows, columnSelection, timestamp, readOptions);
+    }
+
+    @Override
+    public ColumnarResults getRangeColumnar(TableReference tableRef,
+                                            RangeRequest rangeRequest,
+                                            long timestamp) {
+        if (rangeRequest.isReverse()) {
+            return KeyValueServices.getRangeColumnarUsingGetRange(this, tableRef, rangeRequest, timestamp);
+        }
+        return delegate.getRangeColumnar(tableRef, rangeRequest, timestamp, readOptions);
+    }
+
+    @Override
+    public Map<Cell, Value> get(TableReference tableRef, Map<Cell, Long> timestampByCell) {
+        return delegate.get(tableRef, timestampByCell, readOptions);
+    }
+
+    @Override
+    public Map<Cell, Long> getLatestTimestamps(TableReference tableRef, Map<Cell, Long> timestampByCell) {
+        return delegate.getLatestTimestamps(tableRef, timestampByCell, readOptions);
+    }
+
+    @Override
+    public ClosableIterator<RowResult<Value>> getRange(TableReference tableRef,
+                                                       RangeRequest rangeRequest,
+                                                       long timestamp) {
+        return delegate.getRange(tableRef, rangeRequest, timestamp, readOptions);
+    }
+
+    @Override
+    public ClosableIterator<RowResult<Set<Value>>> getRangeWithHistory(TableReference tableRef,
+                                                                       RangeRequest rangeRequest,
+                                                                       long timestamp) {
+        return delegate.getRangeWithHistory(tableRef, rangeRequest, timestamp, readOptions);
+    }
+
+    @Override
+    public ClosableIterator<RowResult<Set<Long>>> getRangeOfTimestamps(TableReference tableRef,
+                                                                       RangeRequest rangeRequest,
+                                                                       long timestamp) {
+        return delegate.getRangeOfTimestamps(tableRef, rangeRequest, timestamp, readOptions);
+    }
+
+    @Override
+    public Map<RangeRequest, TokenBackedBasicResultsPage<RowResult<Value>, byte[]>> getFirstBatchForRanges(TableReference tableRef,
+                                                                                                           Iterable<RangeRequest> rangeRequests,
+                                                                                                           long timestamp) {
+        return KeyValueServices.getFirstBatchForRangesUsingGetRange(this, tableRef, rangeRequests, timestamp);
+    }
+
+    @Override
+    public Multimap<Cell, Long> getAllTimestamps(TableReference tableRef, Set<Cell> cells, long timestamp) {
+        return delegate.getAllTimestamps(tableRef, cells, timestamp, readOptions);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            readOptions.dispose();
+            delegate.releaseSnapshot(snapshot);
+        }
+    }
+
+    @Override
+    public void teardown() {
+        close();
+    }
+}
@@ -0,0 +1,136 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.rocksdb.impl;
+
+import java.util.Arrays;
+
+import javax.annotation.Nullable;
+
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.CompactionStyle;
+import org.rocksdb.CompressionType;
+
+import com.google.common.base.Objects;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.CachePriority;
+import com.palantir.atlasdb.table.description.TableMetadata;
+
+/**
+ * The column family options that a table's {@link TableMetadata} asks for.
+ * <p>
+ * The cache priority picks the size of the table's block cache, an explicit compression block
+ * size sets the block size and switches to LZ4 compression, and append heavy, read light tables
+ * use universal compaction to cut write amplification. Column families opened with the same
+ * options object share its block cache, so tables with equal tunings share one cache and tables
+ * of different priorities never evict each other's blocks.
+ * <p>
+ * Negative lookup hints are ignored: reads are seeks over variable length composite keys, which
+ * bloom filters in this RocksDB version cannot answer.
+ */
+final class RocksDbTableTuning {
+    static final RocksDbTableTuning DEFAULT = new RocksDbTableTuning(CachePriority.WARM, 0, false);
+
+    private final CachePriority cachePriority;
+    private final int explicitBlockSizeKB;
+    private final boolean appendHeavyAndReadLight;
+
+    private RocksDbTableTuning(CachePriority cachePriority, int explicitBlockSizeKB, boolean appendHeavyAndReadLight) {
+        this.cachePriority = cachePriority;
+        this.explicitBlockSizeKB = explicitBlockSizeKB;
+        this.appendHeavyAndReadLight = appendHeavyAndReadLight;
+    }
+
+    static RocksDbTableTuning fromMetadata(@Nullable byte[] metadata) {
+        if (metadata == null
+                || Arrays.equals(metadata, AtlasDbConstants.EMPTY_TABLE_METADATA)
+                || Arrays.equals(metadata, AtlasDbConstants.GENERIC_TABLE_METADATA)) {
+            return DEFAULT;
+        }
+        TableMetadata tableMetadata;
+        try {
+            tableMetadata = TableMetadata.BYTES_HYDRATOR.hydrateFromBytes(metadata);
+        } catch (RuntimeException e) {
+            // Not every table stores a TableMetadata as its metadata.
+            return DEFAULT;
+        }
+        return new RocksDbTableTuning(
+                tableMetadata.getCachePriority(),
+                tableMetadata.getExplicitCompressionBlockSizeKB(),
+                tableMetadata.isAppendHeavyAndReadLight());
+    }
+
+    ColumnFamilyOptions applyTo(ColumnFamilyOptions options) {
+        BlockBasedTableConfig tableConfig = new BlockBasedTableConfig();
+        long blockCacheBytes = getBlockCacheBytes();
+        if (blockCacheBytes == 0) {
+            tableConfig.setNoBlockCache(true);
+        } else {
+            tableConfig.setBlockCacheSize(blockCacheBytes);
+        }
+        if (explicitBlockSizeKB > 0) {
+            tableConfig.setBlockSize(explicitBlockSizeKB * 1024L);
+            options.setCompressionType(CompressionType.LZ4_COMPRESSION);
+        }
+        if (appendHeavyAndReadLight) {
+            options.setCompactionStyle(CompactionStyle.UNIVERSAL);
+        }
+        return options.setTableFormatConfig(tableConfig);
+    }
+
+    private long getBlockCacheBytes() {
+        switch (cachePriority) {
+        case COLDEST:
+            return 0L;
+        case COLD:
+            return 16L * 1024 * 1024;
+        case WARM:
+            return 64L * 1024 * 1024;
+        case HOT:
+            return 128L * 1024 * 1024;
+        case HOTTEST:
+            return 256L * 1024 * 1024;
+        default:
+            throw new EnumConstantNotPresentException(CachePriority.class, cachePriority.name());
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        RocksDbTableTuning other = (RocksDbTableTuning) obj;
+        return cachePriority == other.cachePriority
+                && explicitBlockSizeKB == other.explicitBlockSizeKB
+                && appendHeavyAndReadLight == other.appendHeavyAndReadLight;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(cachePriority, explicitBlockSizeKB, appendHeavyAndReadLight);
+    }
+
+    @Override
+    public String toString() {
+        return "RocksDbTableTuning [cachePriority=" + cachePriority
+                + ", explicitBlockSizeKB=" + explicitBlockSizeKB
+                + ", appendHeavyAndReadLight=" + appendHeavyAndReadLight + "]";
+    }
+}
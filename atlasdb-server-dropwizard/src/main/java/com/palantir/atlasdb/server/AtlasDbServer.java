@@ -48,6 +48,7 @@ public class AtlasDbServer extends Application<AtlasDbServerConfiguration> {
         TableMetadataCache cache = new TableMetadataCache(tm.getKeyValueService());
 
         environment.jersey().register(new AtlasDbServiceImpl(tm.getKeyValueService(), tm, cache));
+        environment.jersey().register(new CloseableEntityFilter());
         environment.getObjectMapper().registerModule(new AtlasJacksonModule(cache).createModule());
     }
 
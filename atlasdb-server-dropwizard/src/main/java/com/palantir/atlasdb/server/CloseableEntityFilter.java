@@ -0,0 +1,44 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.server;
+
+import java.io.Closeable;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+
+import org.glassfish.jersey.server.CloseableService;
+
+/**
+ * Closes response entities that hold resources, such as the transaction of a streamed range,
+ * once Jersey is done with the request. This happens whether or not the entity was written, so
+ * nothing leaks when serialization fails or never starts.
+ */
+public class CloseableEntityFilter implements ContainerResponseFilter {
+    @Inject
+    private Provider<CloseableService> closeableService;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        Object entity = responseContext.getEntity();
+        if (entity instanceof Closeable) {
+            closeableService.get().add((Closeable) entity);
+        }
+    }
+}
@@ -17,6 +17,7 @@ package com.palantir.server;
 
 import java.lang.reflect.Field;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -33,6 +34,8 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.palantir.atlasdb.api.AtlasDbService;
+import com.palantir.atlasdb.api.BatchOperation;
+import com.palantir.atlasdb.api.BatchResult;
 import com.palantir.atlasdb.api.RangeToken;
 import com.palantir.atlasdb.api.TableCell;
 import com.palantir.atlasdb.api.TableCellVal;
@@ -54,10 +57,12 @@ import com.palantir.atlasdb.schema.generated.SweepPriorityTable;
 import com.palantir.atlasdb.schema.generated.SweepPriorityTable.CellsExamined;
 import com.palantir.atlasdb.schema.generated.SweepPriorityTable.SweepPriorityRow;
 import com.palantir.atlasdb.schema.generated.SweepPriorityTable.SweepPriorityRowResult;
+import com.palantir.atlasdb.server.CloseableEntityFilter;
 import com.palantir.atlasdb.table.description.TableMetadata;
 import com.palantir.atlasdb.transaction.impl.SerializableTransactionManager;
 
 import feign.Feign;
+import feign.FeignException;
 import feign.jackson.JacksonDecoder;
 import feign.jackson.JacksonEncoder;
 import feign.jaxrs.JAXRSContract;
@@ -71,7 +76,7 @@ public class TransactionRemotingTest {
     public final KeyValueService kvs = txMgr.getKeyValueService();
     public final TableMetadataCache cache = new TableMetadataCache(kvs);
     public final ObjectMapper mapper = new ObjectMapper(); { mapper.registerModule(new AtlasJacksonModule(cache).createModule()); }
-    public final @Rule DropwizardClientRule dropwizard = new DropwizardClientRule(new AtlasDbServiceImpl(kvs, txMgr, cache));
+    public final @Rule DropwizardClientRule dropwizard = new DropwizardClientRule(new AtlasDbServiceImpl(kvs, txMgr, cache), new CloseableEntityFilter());
     public AtlasDbService service;
 
     @SuppressWarnings("unchecked")
@@ -187,6 +192,57 @@ public class TransactionRemotingTest {
         Assert.assertNull(range.getNextRange());
     }
 
+    @Test
+    public void testGetRangeStream() throws InterruptedException {
+        setupFooStatus1("sweep.priority");
+        RangeToken range = service.getRangeStream(TransactionToken.autoCommit(), new TableRange(
+                "sweep.priority",
+                new byte[0],
+                new byte[0],
+                ImmutableList.<byte[]>of(),
+                1), 0);
+        SweepPriorityRowResult result = SweepPriorityRowResult.of(Iterables.getOnlyElement(range.getResults().getResults()));
+        Assert.assertEquals(1L, result.getCellsExamined().longValue());
+        Assert.assertNull(range.getNextRange());
+        assertNoTransactionsOpen();
+    }
+
+    @Test
+    public void testGetRangeStreamAbortsOnFailure() throws InterruptedException {
+        try {
+            // The table is only read while the response is written, so this fails during serialization
+            service.getRangeStream(TransactionToken.autoCommit(), new TableRange(
+                    "sweep.nonexistent",
+                    new byte[0],
+                    new byte[0],
+                    ImmutableList.<byte[]>of(),
+                    1), 0);
+            Assert.fail("Reading a range of a table that does not exist must fail");
+        } catch (FeignException e) {
+            // expected
+        }
+        assertNoTransactionsOpen();
+    }
+
+    @Test
+    public void testBatch() {
+        Map<Cell, byte[]> contents = getSweepPriorityTableContents();
+        TransactionToken txId = service.startTransaction();
+        List<BatchResult> results = service.batch(txId, ImmutableList.of(
+                BatchOperation.put(new TableCellVal("sweep.priority", contents)),
+                BatchOperation.getCells(new TableCell("sweep.priority", contents.keySet())),
+                BatchOperation.delete(new TableCell("sweep.priority", contents.keySet())),
+                BatchOperation.getRows(new TableRowSelection(
+                        "sweep.priority",
+                        ImmutableList.of(SweepPriorityRow.of("foo").persistToBytes()),
+                        ColumnSelection.all()))));
+        service.commit(txId);
+        Assert.assertEquals(4, results.size());
+        Assert.assertEquals(contents.keySet(), results.get(1).getCellValues().getResults().keySet());
+        Assert.assertEquals(BatchOperation.Type.DELETE, results.get(2).getType());
+        Assert.assertTrue(Iterables.isEmpty(results.get(3).getRowResult().getResults()));
+    }
+
     @Test
     public void testDelete() {
         setupFooStatus1("sweep.priority");
@@ -247,6 +303,19 @@ public class TransactionRemotingTest {
         service.getCells(txId, tableCell);
     }
 
+    /**
+     * Auto-commit range streams release their transaction after the response, so wait for that
+     * and then check that nothing holds back the immutable timestamp.
+     */
+    private void assertNoTransactionsOpen() throws InterruptedException {
+        long freshTimestamp = txMgr.getTimestampService().getFreshTimestamp();
+        long deadline = System.currentTimeMillis() + 10000;
+        while (txMgr.getImmutableTimestamp() < freshTimestamp) {
+            Assert.assertTrue("a transaction was never released", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
     private void setupFooStatus1(String table) {
         TransactionToken txId = service.startTransaction();
         service.put(txId, new TableCellVal(table, getSweepPriorityTableContents()));
@@ -15,6 +15,7 @@
  */
 package com.palantir.atlasdb.api;
 
+import java.util.List;
 import java.util.Set;
 
 import javax.ws.rs.Consumes;
@@ -23,6 +24,7 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 
 import com.palantir.atlasdb.table.description.TableMetadata;
@@ -78,6 +80,32 @@ public interface AtlasDbService {
     RangeToken getRange(@PathParam("token") TransactionToken token,
                         TableRange rangeRequest);
 
+    /**
+     * Like {@link #getRange}, but keeps streaming pages of the range in a single chunked response
+     * until the range is exhausted or at least maxBytes of rows have been sent. A maxBytes of zero
+     * streams the whole range.
+     */
+    @Idempotent
+    @POST
+    @Path("range-stream/{token}")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    RangeToken getRangeStream(@PathParam("token") TransactionToken token,
+                              TableRange rangeRequest,
+                              @QueryParam("maxBytes") long maxBytes);
+
+    /**
+     * Runs the operations in order in one transaction and returns one result per operation.
+     * Reads see the writes of earlier operations in the same batch.
+     */
+    @Idempotent
+    @POST
+    @Path("batch/{token}")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    List<BatchResult> batch(@PathParam("token") TransactionToken token,
+                            List<BatchOperation> operations);
+
     @Idempotent
     @POST
     @Path("put/{token}")
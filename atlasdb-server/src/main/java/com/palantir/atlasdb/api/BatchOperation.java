@@ -0,0 +1,108 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.api;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * One read or write of a batch, written as an object with a single field named after the
+ * kind of operation:
+ * <pre>
+ * { "rows": &lt;TableRowSelection> }
+ * { "cells": &lt;TableCell> }
+ * { "put": &lt;TableCellVal> }
+ * { "delete": &lt;TableCell> }
+ * </pre>
+ */
+public class BatchOperation {
+    public enum Type {
+        GET_ROWS("rows"),
+        GET_CELLS("cells"),
+        PUT("put"),
+        DELETE("delete");
+
+        private final String fieldName;
+
+        private Type(String fieldName) {
+            this.fieldName = fieldName;
+        }
+
+        public String getFieldName() {
+            return fieldName;
+        }
+
+        public static Type fromFieldName(String fieldName) {
+            for (Type type : values()) {
+                if (type.fieldName.equals(fieldName)) {
+                    return type;
+                }
+            }
+            throw new IllegalArgumentException("Unknown batch operation " + fieldName);
+        }
+    }
+
+    private final Type type;
+    private final Object argument;
+
+    private BatchOperation(Type type, Object argument) {
+        this.type = Preconditions.checkNotNull(type);
+        this.argument = Preconditions.checkNotNull(argument);
+    }
+
+    public static BatchOperation getRows(TableRowSelection rows) {
+        return new BatchOperation(Type.GET_ROWS, rows);
+    }
+
+    public static BatchOperation getCells(TableCell cells) {
+        return new BatchOperation(Type.GET_CELLS, cells);
+    }
+
+    public static BatchOperation put(TableCellVal data) {
+        return new BatchOperation(Type.PUT, data);
+    }
+
+    public static BatchOperation delete(TableCell cells) {
+        return new BatchOperation(Type.DELETE, cells);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Object getArgument() {
+        return argument;
+    }
+
+    public TableRowSelection getRowSelection() {
+        Preconditions.checkState(type == Type.GET_ROWS, "Not a row read: %s", type);
+        return (TableRowSelection) argument;
+    }
+
+    public TableCell getCells() {
+        Preconditions.checkState(type == Type.GET_CELLS || type == Type.DELETE, "Not a cell operation: %s", type);
+        return (TableCell) argument;
+    }
+
+    public TableCellVal getValues() {
+        Preconditions.checkState(type == Type.PUT, "Not a put: %s", type);
+        return (TableCellVal) argument;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchOperation [type=" + type + ", argument=" + argument + "]";
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.api;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * The result of one {@link BatchOperation}, written under the same field name as the operation:
+ * <pre>
+ * { "rows": &lt;TableRowResult> }
+ * { "cells": &lt;TableCellVal> }
+ * { "put": null }
+ * { "delete": null }
+ * </pre>
+ */
+public class BatchResult {
+    private final BatchOperation.Type type;
+    private final @Nullable Object result;
+
+    private BatchResult(BatchOperation.Type type, @Nullable Object result) {
+        this.type = Preconditions.checkNotNull(type);
+        this.result = result;
+    }
+
+    public static BatchResult rows(TableRowResult rows) {
+        return new BatchResult(BatchOperation.Type.GET_ROWS, Preconditions.checkNotNull(rows));
+    }
+
+    public static BatchResult cells(TableCellVal cells) {
+        return new BatchResult(BatchOperation.Type.GET_CELLS, Preconditions.checkNotNull(cells));
+    }
+
+    public static BatchResult write(BatchOperation.Type type) {
+        Preconditions.checkArgument(type == BatchOperation.Type.PUT || type == BatchOperation.Type.DELETE,
+                "Not a write: %s", type);
+        return new BatchResult(type, null);
+    }
+
+    public BatchOperation.Type getType() {
+        return type;
+    }
+
+    public @Nullable Object getResult() {
+        return result;
+    }
+
+    public TableRowResult getRowResult() {
+        Preconditions.checkState(type == BatchOperation.Type.GET_ROWS, "Not a row read: %s", type);
+        return (TableRowResult) result;
+    }
+
+    public TableCellVal getCellValues() {
+        Preconditions.checkState(type == BatchOperation.Type.GET_CELLS, "Not a cell read: %s", type);
+        return (TableCellVal) result;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult [type=" + type + ", result=" + result + "]";
+    }
+}
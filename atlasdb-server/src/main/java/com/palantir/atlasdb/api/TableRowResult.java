@@ -15,8 +15,6 @@
  */
 package com.palantir.atlasdb.api;
 
-import java.util.Collection;
-
 import com.google.common.base.Preconditions;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 
@@ -60,7 +58,7 @@ public class TableRowResult {
     private final String tableName;
     private final Iterable<RowResult<byte[]>> results;
 
-    public TableRowResult(String tableName, Collection<RowResult<byte[]>> results) {
+    public TableRowResult(String tableName, Iterable<RowResult<byte[]>> results) {
         this.tableName = Preconditions.checkNotNull(tableName);
         this.results = Preconditions.checkNotNull(results);
     }
@@ -30,7 +30,10 @@ import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 import com.palantir.atlasdb.api.AtlasDbService;
+import com.palantir.atlasdb.api.BatchOperation;
+import com.palantir.atlasdb.api.BatchResult;
 import com.palantir.atlasdb.api.RangeToken;
 import com.palantir.atlasdb.api.TableCell;
 import com.palantir.atlasdb.api.TableCellVal;
@@ -102,9 +105,7 @@ public class AtlasDbServiceImpl implements AtlasDbService {
         return runReadOnly(token, new RuntimeTransactionTask<TableRowResult>() {
             @Override
             public TableRowResult execute(Transaction t) {
-                Collection<RowResult<byte[]>> values = t.getRows(
-                        getTableRef(rows.getTableName()), rows.getRows(), rows.getColumnSelection()).values();
-                return new TableRowResult(rows.getTableName(), values);
+                return getRows(t, rows);
             }
         });
     }
@@ -115,8 +116,7 @@ public class AtlasDbServiceImpl implements AtlasDbService {
         return runReadOnly(token, new RuntimeTransactionTask<TableCellVal>() {
             @Override
             public TableCellVal execute(Transaction t) {
-                Map<Cell, byte[]> values = t.get(getTableRef(cells.getTableName()), ImmutableSet.copyOf(cells.getCells()));
-                return new TableCellVal(cells.getTableName(), values);
+                return getCells(t, cells);
             }
         });
     }
@@ -128,12 +128,7 @@ public class AtlasDbServiceImpl implements AtlasDbService {
             @Override
             public RangeToken execute(Transaction t) {
                 int limit = range.getBatchSize() + 1;
-                RangeRequest request = RangeRequest.builder()
-                    .startRowInclusive(range.getStartRow())
-                    .endRowExclusive(range.getEndRow())
-                    .batchHint(limit)
-                    .retainColumns(range.getColumns())
-                    .build();
+                RangeRequest request = toRangeRequest(range, limit);
                 BatchingVisitable<RowResult<byte[]>> visitable = t.getRange(getTableRef(range.getTableName()), request);
                 List<RowResult<byte[]>> results = BatchingVisitables.limit(visitable, limit).immutableCopy();
                 if (results.size() == limit) {
@@ -149,13 +144,61 @@ public class AtlasDbServiceImpl implements AtlasDbService {
         });
     }
 
+    @Override
+    public RangeToken getRangeStream(TransactionToken token,
+                                     TableRange range,
+                                     long maxBytes) {
+        if (token.shouldAutoCommit()) {
+            // The rows are read while the response is written, after this method has returned,
+            // so the transaction is opened here and released when the container closes the token.
+            final RawTransaction tx = txManager.setupRunTaskWithLocksThrowOnConflict(ImmutableList.<LockRefreshToken>of());
+            return StreamingRangeToken.create(tx, range, maxBytes, () -> abort(tx));
+        } else {
+            RawTransaction tx = transactions.getIfPresent(token);
+            Preconditions.checkNotNull(tx, "The given transaction does not exist.");
+            return StreamingRangeToken.create(tx, range, maxBytes, () -> { });
+        }
+    }
+
+    @Override
+    public List<BatchResult> batch(TransactionToken token,
+                                   final List<BatchOperation> operations) {
+        return runWithRetry(token, new RuntimeTransactionTask<List<BatchResult>>() {
+            @Override
+            public List<BatchResult> execute(Transaction t) {
+                List<BatchResult> results = Lists.newArrayListWithCapacity(operations.size());
+                for (BatchOperation operation : operations) {
+                    results.add(execute(t, operation));
+                }
+                return results;
+            }
+
+            private BatchResult execute(Transaction t, BatchOperation operation) {
+                switch (operation.getType()) {
+                case GET_ROWS:
+                    return BatchResult.rows(getRows(t, operation.getRowSelection()));
+                case GET_CELLS:
+                    return BatchResult.cells(getCells(t, operation.getCells()));
+                case PUT:
+                    put(t, operation.getValues());
+                    return BatchResult.write(operation.getType());
+                case DELETE:
+                    delete(t, operation.getCells());
+                    return BatchResult.write(operation.getType());
+                default:
+                    throw new IllegalArgumentException("Unknown batch operation " + operation.getType());
+                }
+            }
+        });
+    }
+
     @Override
     public void put(TransactionToken token,
                     final TableCellVal data) {
         runWithRetry(token, new TxTask() {
             @Override
             public Void execute(Transaction t) {
-                t.put(getTableRef(data.getTableName()), data.getResults());
+                put(t, data);
                 return null;
             }
         });
@@ -167,12 +210,40 @@ public class AtlasDbServiceImpl implements AtlasDbService {
         runWithRetry(token, new TxTask() {
             @Override
             public Void execute(Transaction t) {
-                t.delete(getTableRef(cells.getTableName()), ImmutableSet.copyOf(cells.getCells()));
+                delete(t, cells);
                 return null;
             }
         });
     }
 
+    private TableRowResult getRows(Transaction t, TableRowSelection rows) {
+        Collection<RowResult<byte[]>> values = t.getRows(
+                getTableRef(rows.getTableName()), rows.getRows(), rows.getColumnSelection()).values();
+        return new TableRowResult(rows.getTableName(), values);
+    }
+
+    private TableCellVal getCells(Transaction t, TableCell cells) {
+        Map<Cell, byte[]> values = t.get(getTableRef(cells.getTableName()), ImmutableSet.copyOf(cells.getCells()));
+        return new TableCellVal(cells.getTableName(), values);
+    }
+
+    private void put(Transaction t, TableCellVal data) {
+        t.put(getTableRef(data.getTableName()), data.getResults());
+    }
+
+    private void delete(Transaction t, TableCell cells) {
+        t.delete(getTableRef(cells.getTableName()), ImmutableSet.copyOf(cells.getCells()));
+    }
+
+    static RangeRequest toRangeRequest(TableRange range, int batchHint) {
+        return RangeRequest.builder()
+            .startRowInclusive(range.getStartRow())
+            .endRowExclusive(range.getEndRow())
+            .batchHint(batchHint)
+            .retainColumns(range.getColumns())
+            .build();
+    }
+
     @Override
     public void truncateTable(final String fullyQualifiedTableName) {
         kvs.truncateTable(getTableRef(fullyQualifiedTableName));
@@ -225,17 +296,21 @@ public class AtlasDbServiceImpl implements AtlasDbService {
     public void abort(TransactionToken token) {
         RawTransaction tx = transactions.getIfPresent(token);
         if (tx != null) {
-            txManager.finishRunTaskWithLockThrowOnConflict(tx, new TxTask() {
-                @Override
-                public Void execute(Transaction t) {
-                    t.abort();
-                    return null;
-                }
-            });
+            abort(tx);
             transactions.invalidate(token);
         }
     }
 
+    private void abort(RawTransaction tx) {
+        txManager.finishRunTaskWithLockThrowOnConflict(tx, new TxTask() {
+            @Override
+            public Void execute(Transaction t) {
+                t.abort();
+                return null;
+            }
+        });
+    }
+
     private TableReference getTableRef(String tableName) {
         return TableReference.createUnsafe(tableName);
     }
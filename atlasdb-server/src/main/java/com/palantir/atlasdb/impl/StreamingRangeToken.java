@@ -0,0 +1,147 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.impl;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.AbstractIterator;
+import com.palantir.atlasdb.api.RangeToken;
+import com.palantir.atlasdb.api.TableRange;
+import com.palantir.atlasdb.api.TableRowResult;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.transaction.api.Transaction;
+import com.palantir.common.base.BatchingVisitables;
+
+/**
+ * A range token whose rows are read page by page while the response is being written, so the
+ * client sees the first rows before the server has read the last ones. Rows stop once the range
+ * is exhausted or, after at least one row, once maxBytes have been sent; the next range is only
+ * known after the rows have been written.
+ */
+class StreamingRangeToken extends RangeToken implements Closeable {
+    private final RangeRows rows;
+    private final Runnable onClose;
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    private StreamingRangeToken(RangeRows rows, Runnable onClose) {
+        super(new TableRowResult(rows.range.getTableName(), rows), null);
+        this.rows = rows;
+        this.onClose = onClose;
+    }
+
+    /**
+     * @param onClose runs when the token is closed, which the container must do once the request
+     *        is over whether or not the rows were written, and should release the transaction if
+     *        it was opened for this range alone
+     */
+    static StreamingRangeToken create(Transaction t, TableRange range, long maxBytes, Runnable onClose) {
+        return new StreamingRangeToken(new RangeRows(t, range, maxBytes), onClose);
+    }
+
+    @Override
+    public boolean hasMoreResults() {
+        return rows.nextRange != null;
+    }
+
+    @Override
+    public @Nullable TableRange getNextRange() {
+        return rows.nextRange;
+    }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            onClose.run();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "StreamingRangeToken [range=" + rows.range + ", maxBytes=" + rows.maxBytes + "]";
+    }
+
+    private static class RangeRows implements Iterable<RowResult<byte[]>> {
+        private final Transaction t;
+        private final TableRange range;
+        private final long maxBytes;
+        private volatile @Nullable TableRange nextRange = null;
+
+        RangeRows(Transaction t, TableRange range, long maxBytes) {
+            this.t = t;
+            this.range = range;
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public Iterator<RowResult<byte[]>> iterator() {
+            return new AbstractIterator<RowResult<byte[]>>() {
+                private final TableReference tableRef = TableReference.createUnsafe(range.getTableName());
+                private @Nullable TableRange remaining = range;
+                private Iterator<RowResult<byte[]>> page = Collections.emptyIterator();
+                private long bytes = 0;
+
+                @Override
+                protected RowResult<byte[]> computeNext() {
+                    if (!page.hasNext()) {
+                        if (remaining == null) {
+                            return endOfData();
+                        }
+                        page = nextPage().iterator();
+                        if (!page.hasNext()) {
+                            return endOfData();
+                        }
+                    }
+                    RowResult<byte[]> row = page.next();
+                    if (maxBytes > 0 && bytes >= maxBytes) {
+                        nextRange = range.withStartRow(row.getRowName());
+                        return endOfData();
+                    }
+                    bytes += getApproxSize(row);
+                    return row;
+                }
+
+                private List<RowResult<byte[]>> nextPage() {
+                    int limit = remaining.getBatchSize() + 1;
+                    List<RowResult<byte[]>> results = BatchingVisitables.limit(
+                            t.getRange(tableRef, AtlasDbServiceImpl.toRangeRequest(remaining, limit)), limit).immutableCopy();
+                    if (results.size() == limit) {
+                        remaining = remaining.withStartRow(results.get(limit - 1).getRowName());
+                        return results.subList(0, limit - 1);
+                    } else {
+                        remaining = null;
+                        return results;
+                    }
+                }
+            };
+        }
+
+        private static long getApproxSize(RowResult<byte[]> row) {
+            long size = row.getRowName().length;
+            for (Map.Entry<byte[], byte[]> col : row.getColumns().entrySet()) {
+                size += col.getKey().length + col.getValue().length;
+            }
+            return size;
+        }
+    }
+}
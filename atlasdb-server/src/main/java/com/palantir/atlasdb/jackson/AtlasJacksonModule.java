@@ -19,6 +19,8 @@ import javax.inject.Inject;
 
 import com.fasterxml.jackson.databind.Module;
 import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.palantir.atlasdb.api.BatchOperation;
+import com.palantir.atlasdb.api.BatchResult;
 import com.palantir.atlasdb.api.RangeToken;
 import com.palantir.atlasdb.api.TableCell;
 import com.palantir.atlasdb.api.TableCellVal;
@@ -38,6 +40,8 @@ public class AtlasJacksonModule {
 
     public Module createModule() {
         SimpleModule module = new SimpleModule("Atlas");
+        module.addSerializer(new BatchOperationSerializer());
+        module.addSerializer(new BatchResultSerializer());
         module.addSerializer(new RangeTokenSerializer());
         module.addSerializer(new TableCellSerializer(cache));
         module.addSerializer(new TableCellValSerializer(cache));
@@ -45,6 +49,8 @@ public class AtlasJacksonModule {
         module.addSerializer(new TableRangeSerializer());
         module.addSerializer(new TableRowResultSerializer(cache));
         module.addSerializer(new TableRowSelectionSerializer(cache));
+        module.addDeserializer(BatchOperation.class, new BatchOperationDeserializer());
+        module.addDeserializer(BatchResult.class, new BatchResultDeserializer());
         module.addDeserializer(RangeToken.class, new RangeTokenDeserializer());
         module.addDeserializer(TableCell.class, new TableCellDeserializer(cache));
         module.addDeserializer(TableCellVal.class, new TableCellValDeserializer(cache));
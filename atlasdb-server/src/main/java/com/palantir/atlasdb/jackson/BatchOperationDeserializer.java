@@ -0,0 +1,57 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.jackson;
+
+import java.io.IOException;
+import java.util.Map.Entry;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.google.common.collect.Iterators;
+import com.palantir.atlasdb.api.BatchOperation;
+import com.palantir.atlasdb.api.TableCell;
+import com.palantir.atlasdb.api.TableCellVal;
+import com.palantir.atlasdb.api.TableRowSelection;
+
+public class BatchOperationDeserializer extends StdDeserializer<BatchOperation> {
+    private static final long serialVersionUID = 1L;
+
+    protected BatchOperationDeserializer() {
+        super(BatchOperation.class);
+    }
+
+    @Override
+    public BatchOperation deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException, JsonProcessingException {
+        JsonNode node = jp.readValueAsTree();
+        Entry<String, JsonNode> field = Iterators.getOnlyElement(node.fields());
+        JsonNode argument = field.getValue();
+        switch (BatchOperation.Type.fromFieldName(field.getKey())) {
+        case GET_ROWS:
+            return BatchOperation.getRows(jp.getCodec().treeToValue(argument, TableRowSelection.class));
+        case GET_CELLS:
+            return BatchOperation.getCells(jp.getCodec().treeToValue(argument, TableCell.class));
+        case PUT:
+            return BatchOperation.put(jp.getCodec().treeToValue(argument, TableCellVal.class));
+        case DELETE:
+            return BatchOperation.delete(jp.getCodec().treeToValue(argument, TableCell.class));
+        default:
+            throw new IllegalArgumentException("Unknown batch operation " + field.getKey());
+        }
+    }
+}
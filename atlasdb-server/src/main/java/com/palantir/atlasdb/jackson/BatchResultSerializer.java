@@ -0,0 +1,41 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.jackson;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerationException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.palantir.atlasdb.api.BatchResult;
+
+public class BatchResultSerializer extends StdSerializer<BatchResult> {
+    private static final long serialVersionUID = 1L;
+
+    public BatchResultSerializer() {
+        super(BatchResult.class);
+    }
+
+    @Override
+    public void serialize(BatchResult value,
+                          JsonGenerator jgen,
+                          SerializerProvider provider) throws IOException, JsonGenerationException {
+        jgen.writeStartObject(); {
+            jgen.writeObjectField(value.getType().getFieldName(), value.getResult());
+        } jgen.writeEndObject();
+    }
+}
@@ -41,12 +41,14 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.primitives.UnsignedBytes;
 import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.encoding.PtBytes;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.ColumnarResults;
 import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
@@ -153,6 +155,31 @@ public abstract class AbstractAtlasDbKeyValueServiceTest {
         assertArrayEquals(value22, values.get(Cell.create(row2, column2)).getContents());
     }
 
+    @Test
+    public void testGetRowsAndRangeColumnar() {
+        putTestDataForSingleTimestamp();
+        keyValueService.put(TEST_TABLE, ImmutableMap.of(Cell.create(row1, column0), value0_t1), TEST_TIMESTAMP + 1);
+        ColumnarResults rows = KeyValueServices.getRowsColumnar(keyValueService,
+                                                                TEST_TABLE,
+                                                                Arrays.asList(row2, row0, row1, row0),
+                                                                ColumnSelection.all(),
+                                                                TEST_TIMESTAMP + 1);
+        assertEquals(3, rows.getNumRows());
+        assertArrayEquals(row0, rows.getRowName(0));
+        assertEquals(keyValueService.getRows(TEST_TABLE, Arrays.asList(row0, row1, row2), ColumnSelection.all(), TEST_TIMESTAMP + 1),
+                rows.toCellMap());
+
+        RangeRequest range = RangeRequest.builder().batchHint(2).build();
+        ColumnarResults firstPage = KeyValueServices.getRangeColumnar(keyValueService, TEST_TABLE, range, TEST_TIMESTAMP + 2);
+        assertEquals(2, firstPage.getNumRows());
+        ClosableIterator<RowResult<Value>> rangeResults = keyValueService.getRange(TEST_TABLE, range, TEST_TIMESTAMP + 2);
+        try {
+            assertEquals(ImmutableList.copyOf(Iterators.limit(rangeResults, 2)), firstPage.asRowResults());
+        } finally {
+            rangeResults.close();
+        }
+    }
+
     @Test
     public void testGetRowsWhenMultipleVersions() {
         putTestDataForMultipleTimestamps();
@@ -484,6 +511,25 @@ public abstract class AbstractAtlasDbKeyValueServiceTest {
         assertTrue(result.hasNext());
     }
 
+    @Test
+    public void testDeleteTimestampsKeepsSentinelAndUndeletedVersions() {
+        Cell cell = Cell.create(row0, column0);
+        for (long ts = TEST_TIMESTAMP + 1; ts <= TEST_TIMESTAMP + 5; ts++) {
+            keyValueService.put(TEST_TABLE, ImmutableMap.of(cell, value00), ts);
+        }
+        keyValueService.addGarbageCollectionSentinelValues(TEST_TABLE, ImmutableSet.of(cell));
+        Multimap<Cell, Long> readTimestamps = keyValueService.getAllTimestamps(TEST_TABLE, ImmutableSet.of(cell), Long.MAX_VALUE);
+
+        KeyValueServices.deleteTimestamps(keyValueService,
+                                          TEST_TABLE,
+                                          ImmutableMultimap.of(cell, TEST_TIMESTAMP + 1, cell, TEST_TIMESTAMP + 2, cell, TEST_TIMESTAMP + 4),
+                                          readTimestamps);
+
+        Multimap<Cell, Long> remaining = keyValueService.getAllTimestamps(TEST_TABLE, ImmutableSet.of(cell), Long.MAX_VALUE);
+        assertEquals(ImmutableSet.of(Value.INVALID_VALUE_TIMESTAMP, TEST_TIMESTAMP + 3, TEST_TIMESTAMP + 5),
+                ImmutableSet.copyOf(remaining.get(cell)));
+    }
+
     @Test
     public void testPutWithTimestamps() {
         putTestDataForMultipleTimestamps();
@@ -606,6 +652,51 @@ public abstract class AbstractAtlasDbKeyValueServiceTest {
         }
     }
 
+    @Test
+    public void testBulkLoad() {
+        KeyValueServices.bulkLoad(keyValueService, TEST_TABLE, getSortedTestData().entrySet().iterator(), TEST_TIMESTAMP, 2, Long.MAX_VALUE);
+        assertBulkLoadedTestData();
+    }
+
+    @Test
+    public void testBulkLoadSameCellsAgain() {
+        KeyValueServices.bulkLoad(keyValueService, TEST_TABLE, getSortedTestData().entrySet().iterator(), TEST_TIMESTAMP, 2, Long.MAX_VALUE);
+        try {
+            // A failed load is retried by loading everything again, so this must be legal.
+            KeyValueServices.bulkLoad(keyValueService, TEST_TABLE, getSortedTestData().entrySet().iterator(), TEST_TIMESTAMP, 2, Long.MAX_VALUE);
+        } catch (KeyAlreadyExistsException e) {
+            Assert.fail("Must not throw when bulk loading the same cells again!");
+        }
+        assertBulkLoadedTestData();
+    }
+
+    @Test
+    public void testBulkLoadRejectsUnsortedCells() {
+        Map<Cell, byte[]> unsorted = ImmutableMap.of(
+                Cell.create(row1, column0), value10,
+                Cell.create(row0, column0), value00);
+        try {
+            KeyValueServices.bulkLoad(keyValueService, TEST_TABLE, unsorted.entrySet().iterator(), TEST_TIMESTAMP, 2, Long.MAX_VALUE);
+            Assert.fail("bulkLoad must reject cells that are not in ascending order");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testBulkLoadRejectsDuplicateCells() {
+        Cell cell = Cell.create(row0, column0);
+        Iterator<Entry<Cell, byte[]>> duplicates = ImmutableList.<Entry<Cell, byte[]>>of(
+                Maps.immutableEntry(cell, value00),
+                Maps.immutableEntry(cell, value01)).iterator();
+        try {
+            KeyValueServices.bulkLoad(keyValueService, TEST_TABLE, duplicates, TEST_TIMESTAMP, 2, Long.MAX_VALUE);
+            Assert.fail("bulkLoad must reject duplicate cells");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
     @Test
     public void testAddGCSentinelValues() {
         putTestDataForMultipleTimestamps();
@@ -701,6 +792,31 @@ public abstract class AbstractAtlasDbKeyValueServiceTest {
         keyValueService.put(TEST_TABLE, values, TEST_TIMESTAMP);
     }
 
+    protected Map<Cell, byte[]> getSortedTestData() {
+        return ImmutableSortedMap.<Cell, byte[]>naturalOrder()
+                .put(Cell.create(row0, column0), value00)
+                .put(Cell.create(row0, column1), value01)
+                .put(Cell.create(row1, column0), value10)
+                .put(Cell.create(row1, column2), value12)
+                .put(Cell.create(row2, column1), value21)
+                .put(Cell.create(row2, column2), value22)
+                .build();
+    }
+
+    private void assertBulkLoadedTestData() {
+        Map<Cell, byte[]> expected = getSortedTestData();
+        Map<Cell, Long> timestampByCell = Maps.newHashMap();
+        for (Cell cell : expected.keySet()) {
+            timestampByCell.put(cell, TEST_TIMESTAMP + 1);
+        }
+        Map<Cell, Value> loaded = keyValueService.get(TEST_TABLE, timestampByCell);
+        assertEquals(expected.keySet(), loaded.keySet());
+        for (Entry<Cell, byte[]> entry : expected.entrySet()) {
+            assertArrayEquals(entry.getValue(), loaded.get(entry.getKey()).getContents());
+            assertEquals(TEST_TIMESTAMP, loaded.get(entry.getKey()).getTimestamp());
+        }
+    }
+
     private void putValuesForTimestamps(Iterable<Long> timestamps) {
         Cell cell = Cell.create(PtBytes.toBytes("row"), PtBytes.toBytes("col"));
 
@@ -21,7 +21,9 @@ import org.junit.runners.Suite.SuiteClasses;
 
 import com.palantir.atlasdb.cleaner.AsyncPuncherTest;
 import com.palantir.atlasdb.cleaner.InMemorySweeperTest;
+import com.palantir.atlasdb.cleaner.IndexedPuncherStoreTest;
 import com.palantir.atlasdb.cleaner.PuncherTest;
+import com.palantir.atlasdb.cleaner.ScrubberTest;
 import com.palantir.atlasdb.compress.CompressionUtilsTest;
 import com.palantir.atlasdb.keyvalue.impl.RangeRequestsTest;
 
@@ -29,7 +31,9 @@ import com.palantir.atlasdb.keyvalue.impl.RangeRequestsTest;
 @SuiteClasses({
                 CompressionUtilsTest.class,
                 PuncherTest.class,
+                IndexedPuncherStoreTest.class,
                 InMemorySweeperTest.class,
+                ScrubberTest.class,
                 AsyncPuncherTest.class,
                 RangeRequestsTest.class,
     })
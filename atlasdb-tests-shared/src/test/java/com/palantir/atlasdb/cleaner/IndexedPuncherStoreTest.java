@@ -0,0 +1,150 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.cleaner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+
+public class IndexedPuncherStoreTest {
+    private static final long REFRESH_INTERVAL_MILLIS = 1L;
+    private static final long MINUTE_MILLIS = 60L * 1000;
+
+    private InMemoryKeyValueService kvs;
+    private KeyValueServicePuncherStore otherClient;
+
+    @Before
+    public void setUp() {
+        kvs = new InMemoryKeyValueService(false);
+        otherClient = KeyValueServicePuncherStore.create(kvs);
+    }
+
+    @After
+    public void tearDown() {
+        kvs.close();
+    }
+
+    @Test
+    public void testPunchFromLaggingClockIsIndexed() throws InterruptedException {
+        IndexedPuncherStore store = IndexedPuncherStore.create(
+                KeyValueServicePuncherStore.create(kvs),
+                REFRESH_INTERVAL_MILLIS);
+        long now = System.currentTimeMillis();
+        store.put(100L, now);
+        otherClient.put(110L, now - 5 * MINUTE_MILLIS);
+
+        waitForRefresh();
+        assertEquals(110L, (long) store.get(now - 4 * MINUTE_MILLIS));
+    }
+
+    @Test
+    public void testPunchAfterLeadingClockIsIndexed() throws InterruptedException {
+        IndexedPuncherStore store = IndexedPuncherStore.create(
+                KeyValueServicePuncherStore.create(kvs),
+                REFRESH_INTERVAL_MILLIS);
+        long now = System.currentTimeMillis();
+        store.put(100L, now);
+        otherClient.put(120L, now + 5 * MINUTE_MILLIS);
+        waitForRefresh();
+        assertEquals(120L, (long) store.get(now + 5 * MINUTE_MILLIS));
+
+        long later = now + MINUTE_MILLIS;
+        otherClient.put(110L, later);
+        waitForRefresh();
+        assertEquals(110L, (long) store.get(later));
+    }
+
+    @Test
+    public void testPunchLaggingBeyondClockSkewIsOnlySeenByNewStores() throws InterruptedException {
+        IndexedPuncherStore store = IndexedPuncherStore.create(
+                KeyValueServicePuncherStore.create(kvs),
+                REFRESH_INTERVAL_MILLIS,
+                IndexedPuncherStore.DEFAULT_COMPACTION_AGE_MILLIS,
+                IndexedPuncherStore.DEFAULT_COMPACTION_GRANULARITY_MILLIS,
+                MINUTE_MILLIS);
+        long now = System.currentTimeMillis();
+        store.put(100L, now);
+        otherClient.put(110L, now - 5 * MINUTE_MILLIS);
+
+        waitForRefresh();
+        assertEquals(Long.MIN_VALUE, (long) store.get(now - 4 * MINUTE_MILLIS));
+
+        IndexedPuncherStore newStore = IndexedPuncherStore.create(
+                KeyValueServicePuncherStore.create(kvs),
+                REFRESH_INTERVAL_MILLIS);
+        assertEquals(110L, (long) newStore.get(now - 4 * MINUTE_MILLIS));
+    }
+
+    @Test
+    public void testCompactionKeepsEarliestPunchInEachBucket() throws InterruptedException {
+        long granularity = 10L;
+        long now = System.currentTimeMillis();
+        long base = (now - 10 * MINUTE_MILLIS) / granularity * granularity;
+        otherClient.put(100L, base);
+        otherClient.put(103L, base + 3);
+        otherClient.put(106L, base + 6);
+        otherClient.put(110L, base + granularity);
+        otherClient.put(113L, base + granularity + 3);
+        IndexedPuncherStore store = IndexedPuncherStore.create(
+                KeyValueServicePuncherStore.create(kvs),
+                REFRESH_INTERVAL_MILLIS,
+                MINUTE_MILLIS,
+                granularity,
+                MINUTE_MILLIS / 2);
+        assertEquals(5, store.size());
+        long[] times = { base - 1, base, base + 5, base + granularity - 1, base + granularity, base + 2 * granularity };
+        long[] before = new long[times.length];
+        for (int i = 0; i < times.length; i++) {
+            before[i] = store.get(times[i]);
+        }
+
+        // Compaction runs from put once the granularity has passed since the store was created.
+        Thread.sleep(2 * granularity);
+        store.put(200L, now);
+        assertEquals(3, store.size());
+
+        for (int i = 0; i < times.length; i++) {
+            long after = store.get(times[i]);
+            assertTrue("compaction may only move lookups to earlier punches", after <= before[i]);
+        }
+        assertEquals(Long.MIN_VALUE, (long) store.get(base - 1));
+        assertEquals(100L, (long) store.get(base));
+        assertEquals(110L, (long) store.get(base + granularity));
+        assertEquals(100L, (long) store.get(base + granularity - 1));
+        assertEquals(110L, (long) store.get(base + 2 * granularity));
+        assertEquals(200L, (long) store.get(now));
+        assertEquals(base, store.getMillisForTimestamp(109L));
+        assertEquals(base + granularity, store.getMillisForTimestamp(113L));
+
+        // The thinned punches are gone from the table too, so a new store gives the same answers.
+        IndexedPuncherStore newStore = IndexedPuncherStore.create(
+                KeyValueServicePuncherStore.create(kvs),
+                REFRESH_INTERVAL_MILLIS);
+        assertEquals(3, newStore.size());
+        for (long time : times) {
+            assertEquals(store.get(time), newStore.get(time));
+        }
+    }
+
+    private static void waitForRefresh() throws InterruptedException {
+        Thread.sleep(10 * REFRESH_INTERVAL_MILLIS);
+    }
+}
@@ -0,0 +1,241 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.cleaner;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Suppliers;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ConcurrentHashMultiset;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multiset;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.AtlasDbTestCase;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.Namespace;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.common.base.BatchingVisitable;
+import com.palantir.common.base.BatchingVisitableFromIterable;
+import com.palantir.util.metrics.MetricName;
+import com.palantir.util.metrics.MetricsRegistry;
+
+public class ScrubberTest extends AtlasDbTestCase {
+    private static final TableReference TABLE = TableReference.create(Namespace.DEFAULT_NAMESPACE, "scrub_test");
+    private static final byte[] COLUMN = PtBytes.toBytes("c");
+    private static final long SCRUB_TIMESTAMP = 1000L;
+
+    private Scrubber scrubber;
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        keyValueService.createTable(TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA);
+    }
+
+    @Override
+    @After
+    public void tearDown() throws Exception {
+        if (scrubber != null) {
+            scrubber.shutdown();
+        }
+        super.tearDown();
+    }
+
+    @Test
+    public void testMetricsAreRegistered() {
+        MetricsRegistry registry = MetricsRegistry.getDefault();
+        Assert.assertSame(ScrubberMetrics.QUEUE_DEPTH,
+                registry.getGauges().get(MetricName.of(ScrubberMetrics.METRIC_TYPE, "queueDepth")));
+        Assert.assertSame(ScrubberMetrics.LAG_TIMESTAMPS,
+                registry.getGauges().get(MetricName.of(ScrubberMetrics.METRIC_TYPE, "lagTimestamps")));
+        Assert.assertSame(ScrubberMetrics.SCRUB_BATCH,
+                registry.getMetrics().get(MetricName.of(ScrubberMetrics.METRIC_TYPE, "scrubBatch")));
+    }
+
+    @Test
+    public void testBackgroundScrubRecordsMetrics() {
+        Cell cell = Cell.create(PtBytes.toBytes("row"), COLUMN);
+        putCommitted(cell, PtBytes.toBytes("v1"), 10L);
+        putCommitted(cell, PtBytes.toBytes("v2"), 20L);
+        // The hard delete that queued the cell
+        putCommitted(cell, PtBytes.EMPTY_BYTE_ARRAY, 30L);
+
+        scrubber = createScrubber(KeyValueServiceScrubberStore.create(keyValueService), 2);
+        scrubber.queueCellsForScrubbing(ImmutableMultimap.of(cell, TABLE), 30L);
+        scrubber.sampleQueueDepth();
+        Assert.assertEquals(1L, scrubber.getQueueDepth());
+        Assert.assertEquals(1L, ScrubberMetrics.QUEUE_DEPTH.getValue());
+
+        long batches = ScrubberMetrics.SCRUB_BATCH.getCalls();
+        long deletedCells = ScrubberMetrics.DELETE.getCells();
+        scrubber.runBackgroundScrubTask(txManager);
+
+        Assert.assertEquals(ImmutableSet.of(Value.INVALID_VALUE_TIMESTAMP, 30L), ImmutableSet.copyOf(
+                keyValueService.getAllTimestamps(TABLE, ImmutableSet.of(cell), Long.MAX_VALUE).get(cell)));
+        Assert.assertEquals(batches + 1, ScrubberMetrics.SCRUB_BATCH.getCalls());
+        Assert.assertEquals(deletedCells + 2, ScrubberMetrics.DELETE.getCells());
+        Assert.assertEquals(SCRUB_TIMESTAMP - 30L, scrubber.getLagTimestamps());
+        Assert.assertEquals(SCRUB_TIMESTAMP - 30L, ScrubberMetrics.LAG_TIMESTAMPS.getValue());
+
+        scrubber.sampleQueueDepth();
+        Assert.assertEquals(0L, scrubber.getQueueDepth());
+        Assert.assertEquals(0L, ScrubberMetrics.QUEUE_DEPTH.getValue());
+    }
+
+    @Test
+    public void testBatchesInFlightAreBounded() {
+        int threads = 2;
+        SlowScrubberStore store = new SlowScrubberStore(createQueue(50), -1);
+        scrubber = createScrubber(store, threads);
+        scrubber.runBackgroundScrubTask(txManager);
+
+        Assert.assertEquals(50, store.marked.size());
+        Assert.assertEquals(50, store.marked.elementSet().size());
+        // Each worker and queued batch holds a permit; the reader may hold one more it has not submitted yet
+        Assert.assertTrue("too many batches in flight: " + store.maxInFlight.get(),
+                store.maxInFlight.get() <= 2 * threads + 2);
+        Assert.assertTrue("batches were not scrubbed in parallel", store.maxInFlight.get() > 1);
+    }
+
+    @Test
+    public void testFailedBatchStopsReader() {
+        int threads = 1;
+        SlowScrubberStore store = new SlowScrubberStore(createQueue(50), 0);
+        scrubber = createScrubber(store, threads);
+        try {
+            scrubber.runBackgroundScrubTask(txManager);
+            Assert.fail("the failed batch should fail the pass");
+        } catch (RuntimeException e) {
+            // expected
+        }
+        Assert.assertTrue("the reader kept going after a batch failed: " + store.handedOut.get(),
+                store.handedOut.get() <= 2 * threads + 2);
+    }
+
+    private void putCommitted(Cell cell, byte[] value, long startTimestamp) {
+        keyValueService.put(TABLE, ImmutableMap.of(cell, value), startTimestamp);
+        transactionService.putUnlessExists(startTimestamp, startTimestamp + 1);
+    }
+
+    private List<SortedMap<Long, Multimap<TableReference, Cell>>> createQueue(int size) {
+        List<SortedMap<Long, Multimap<TableReference, Cell>>> queue = Lists.newArrayList();
+        for (int i = 0; i < size; i++) {
+            long startTimestamp = 2 * i + 1;
+            transactionService.putUnlessExists(startTimestamp, startTimestamp + 1);
+            Cell cell = Cell.create(PtBytes.toBytes("row" + i), COLUMN);
+            queue.add(ImmutableSortedMap.<Long, Multimap<TableReference, Cell>>of(
+                    startTimestamp, ImmutableMultimap.of(TABLE, cell)));
+        }
+        return queue;
+    }
+
+    private Scrubber createScrubber(ScrubberStore store, int threads) {
+        return Scrubber.create(
+                keyValueService,
+                store,
+                Suppliers.ofInstance(Long.MAX_VALUE),
+                Suppliers.ofInstance(true),
+                Suppliers.ofInstance(SCRUB_TIMESTAMP),
+                Suppliers.ofInstance(SCRUB_TIMESTAMP),
+                transactionService,
+                false,
+                Suppliers.ofInstance(1),
+                threads,
+                1,
+                ImmutableList.<Follower>of());
+    }
+
+    /**
+     * Serves a fixed scrub queue one entry at a time and takes a while to mark each entry as
+     * scrubbed, so that the reader gets ahead of the workers.
+     */
+    private static class SlowScrubberStore implements ScrubberStore {
+        private final List<SortedMap<Long, Multimap<TableReference, Cell>>> queue;
+        private final int failingBatch;
+        final AtomicInteger handedOut = new AtomicInteger();
+        final AtomicInteger finished = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        final Multiset<Long> marked = ConcurrentHashMultiset.create();
+
+        SlowScrubberStore(List<SortedMap<Long, Multimap<TableReference, Cell>>> queue, int failingBatch) {
+            this.queue = queue;
+            this.failingBatch = failingBatch;
+        }
+
+        @Override
+        public void queueCellsForScrubbing(Multimap<Cell, TableReference> cellToTableRefs, long scrubTimestamp, int batchSize) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void markCellsAsScrubbed(Multimap<Cell, Long> cellToScrubTimestamp, int batchSize) {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+            if (finished.getAndIncrement() == failingBatch) {
+                throw new RuntimeException("failed to mark cells as scrubbed");
+            }
+            marked.addAll(cellToScrubTimestamp.values());
+        }
+
+        @Override
+        public BatchingVisitable<SortedMap<Long, Multimap<TableReference, Cell>>> getBatchingVisitableScrubQueue(int cellsToScrubBatchSize,
+                                                                                                                 long maxScrubTimestamp,
+                                                                                                                 byte[] startRow,
+                                                                                                                 byte[] endRow) {
+            final Iterator<SortedMap<Long, Multimap<TableReference, Cell>>> entries = queue.iterator();
+            return BatchingVisitableFromIterable.create(new AbstractIterator<SortedMap<Long, Multimap<TableReference, Cell>>>() {
+                @Override
+                protected SortedMap<Long, Multimap<TableReference, Cell>> computeNext() {
+                    if (!entries.hasNext()) {
+                        return endOfData();
+                    }
+                    int inFlight = handedOut.incrementAndGet() - finished.get();
+                    int max;
+                    while (inFlight > (max = maxInFlight.get()) && !maxInFlight.compareAndSet(max, inFlight)) {
+                        // retry
+                    }
+                    return entries.next();
+                }
+            });
+        }
+
+        @Override
+        public int getNumberRemainingScrubCells(int maxCellsToScan) {
+            return Math.min(queue.size() - finished.get(), maxCellsToScan);
+        }
+    }
+}
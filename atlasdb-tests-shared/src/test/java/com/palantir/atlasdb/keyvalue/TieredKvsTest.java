@@ -48,6 +48,7 @@ import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
 import com.palantir.atlasdb.keyvalue.impl.TieredKeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.TieredKvsMover;
 import com.palantir.common.base.ClosableIterator;
 import com.palantir.util.paging.TokenBackedBasicResultsPage;
 
@@ -351,6 +352,20 @@ public class TieredKvsTest {
         }
     }
 
+    @Test
+    public void testMoverDemotesColdRowsAndPromotesHotRows() {
+        // A negative cold age puts the cutoff in the future, so every row counts as cold.
+        TieredKvsMover.create(tieredKvs, -60000L, 1000L, 2, 10).runOnce();
+        assertFalse(primaryKvs.getRange(tieredTable, RangeRequest.all(), Long.MAX_VALUE).hasNext());
+        assertEquals(getExpectedRange300(), ImmutableList.copyOf(tieredKvs.getRange(tieredTable, RangeRequest.all(), 300L)));
+
+        Map<Cell, Value> hot = tieredKvs.get(tieredTable, ImmutableMap.of(getCell(0, 0), 300L));
+        TieredKvsMover.create(tieredKvs, 60000L, 1000L, 2, 10).runOnce();
+        assertEquals(hot, primaryKvs.get(tieredTable, ImmutableMap.of(getCell(0, 0), 300L)));
+        assertEquals(ImmutableMap.of(), secondaryKvs.get(tieredTable, ImmutableMap.of(getCell(0, 0), 300L)));
+        assertEquals(getExpectedRange300(), ImmutableList.copyOf(tieredKvs.getRange(tieredTable, RangeRequest.all(), 300L)));
+    }
+
     private List<RowResult<Value>> getExpectedRange300() {
         List<RowResult<Value>> expected = Lists.newArrayList();
         for (int row = 0; row < 4; row++) {
@@ -0,0 +1,121 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.util.metrics.MetricsRegistry;
+import com.palantir.util.metrics.OperationMetrics;
+
+public class AdaptiveBatchSizerTest {
+    private static final TableReference TABLE = TableReference.createWithEmptyNamespace("table");
+    private static final long TARGET_MILLIS = 100;
+    private static final long SLOW_NANOS = TimeUnit.MILLISECONDS.toNanos(2 * TARGET_MILLIS);
+    private static final long FAST_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final double DELTA = 1e-9;
+
+    private MetricsRegistry registry;
+    private AdaptiveBatchSizer sizer;
+
+    @Before
+    public void setUp() {
+        registry = new MetricsRegistry();
+        sizer = new AdaptiveBatchSizer("kvs", TARGET_MILLIS, registry);
+    }
+
+    @Test
+    public void testStartsAtConfiguredLimits() {
+        assertEquals(1.0, sizer.getScale(TABLE), DELTA);
+        assertEquals(1000, sizer.getBatchCount(TABLE, 1000));
+        assertEquals(1 << 20, sizer.getBatchSizeBytes(TABLE, 1 << 20));
+    }
+
+    @Test
+    public void testSlowBatchesShrinkLimits() {
+        sizer.recordBatch(TABLE, 1000, 1 << 20, SLOW_NANOS);
+        assertEquals(0.75, sizer.getScale(TABLE), DELTA);
+        assertEquals(750, sizer.getBatchCount(TABLE, 1000));
+        sizer.recordBatch(TABLE, 750, 1 << 19, SLOW_NANOS);
+        assertEquals(0.5625, sizer.getScale(TABLE), DELTA);
+    }
+
+    @Test
+    public void testRejectionHalvesLimitsAndCountsAsFailure() {
+        sizer.recordRejection(TABLE, 1000, 1 << 20, FAST_NANOS);
+        assertEquals(0.5, sizer.getScale(TABLE), DELTA);
+        sizer.recordRejection(TABLE, 500, 1 << 19, FAST_NANOS);
+        assertEquals(0.25, sizer.getScale(TABLE), DELTA);
+        assertEquals(250, sizer.getBatchCount(TABLE, 1000));
+
+        OperationMetrics metrics = registry.operation(AdaptiveBatchSizer.METRIC_TYPE, "kvs." + TABLE.getQualifiedName(), "batch");
+        assertEquals(2, metrics.getFailures());
+    }
+
+    @Test
+    public void testFastBatchesGrowBackToConfiguredLimits() {
+        sizer.recordRejection(TABLE, 1000, 1 << 20, FAST_NANOS);
+        sizer.recordBatch(TABLE, 500, 1 << 19, FAST_NANOS);
+        assertEquals(0.55, sizer.getScale(TABLE), DELTA);
+        for (int i = 0; i < 100; i++) {
+            sizer.recordBatch(TABLE, 500, 1 << 19, FAST_NANOS);
+        }
+        assertEquals(1.0, sizer.getScale(TABLE), DELTA);
+        assertEquals(1000, sizer.getBatchCount(TABLE, 1000));
+    }
+
+    @Test
+    public void testBatchesNearTargetKeepLimits() {
+        sizer.recordRejection(TABLE, 1000, 1 << 20, FAST_NANOS);
+        sizer.recordBatch(TABLE, 500, 1 << 19, TimeUnit.MILLISECONDS.toNanos(3 * TARGET_MILLIS / 4));
+        assertEquals(0.5, sizer.getScale(TABLE), DELTA);
+    }
+
+    @Test
+    public void testLimitsNeverDropBelowFloor() {
+        for (int i = 0; i < 100; i++) {
+            sizer.recordRejection(TABLE, 1, 1, FAST_NANOS);
+        }
+        assertEquals(1.0 / 256, sizer.getScale(TABLE), DELTA);
+        assertEquals(390, sizer.getBatchCount(TABLE, 100000));
+        // Never below the minimum count and size, nor above what is configured
+        assertEquals(16, sizer.getBatchCount(TABLE, 1000));
+        assertEquals(8, sizer.getBatchCount(TABLE, 8));
+        assertEquals(16 * 1024, sizer.getBatchSizeBytes(TABLE, 1 << 20));
+        assertEquals(1024, sizer.getBatchSizeBytes(TABLE, 1024));
+    }
+
+    @Test
+    public void testZeroTargetOnlyAdaptsToRejections() {
+        AdaptiveBatchSizer rejectionsOnly = new AdaptiveBatchSizer("kvs", 0, registry);
+        rejectionsOnly.recordBatch(TABLE, 1000, 1 << 20, SLOW_NANOS);
+        assertEquals(1.0, rejectionsOnly.getScale(TABLE), DELTA);
+        rejectionsOnly.recordRejection(TABLE, 1000, 1 << 20, SLOW_NANOS);
+        assertEquals(0.5, rejectionsOnly.getScale(TABLE), DELTA);
+    }
+
+    @Test
+    public void testTablesAdaptIndependently() {
+        TableReference other = TableReference.createWithEmptyNamespace("other");
+        sizer.recordRejection(TABLE, 1000, 1 << 20, FAST_NANOS);
+        assertEquals(1.0, sizer.getScale(other), DELTA);
+    }
+}
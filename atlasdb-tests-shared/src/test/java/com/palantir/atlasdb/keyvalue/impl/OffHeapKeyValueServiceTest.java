@@ -0,0 +1,60 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.ImmutableMap;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.Value;
+
+public class OffHeapKeyValueServiceTest extends AbstractAtlasDbKeyValueServiceTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Override
+    protected KeyValueService getKeyValueService() {
+        return new OffHeapKeyValueService(false);
+    }
+
+    @Test
+    public void testReopenFromDirectory() throws Exception {
+        File dir = folder.newFolder();
+        Cell cell = Cell.create(row0, column0);
+        KeyValueService kvs = new OffHeapKeyValueService(false, dir);
+        kvs.createTable(TEST_TABLE, metadata0);
+        kvs.put(TEST_TABLE, ImmutableMap.of(cell, value00), TEST_TIMESTAMP);
+        kvs.close();
+
+        KeyValueService reopened = new OffHeapKeyValueService(false, dir);
+        try {
+            Map<Cell, Value> result = reopened.get(TEST_TABLE, ImmutableMap.of(cell, TEST_TIMESTAMP + 1));
+            assertEquals(Value.create(value00, TEST_TIMESTAMP), result.get(cell));
+            assertArrayEquals(metadata0, reopened.getMetadataForTable(TEST_TABLE));
+        } finally {
+            reopened.close();
+        }
+    }
+}
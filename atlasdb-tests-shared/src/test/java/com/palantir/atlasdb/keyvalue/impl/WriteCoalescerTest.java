@@ -0,0 +1,143 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.common.concurrent.PTExecutors;
+
+public class WriteCoalescerTest {
+    private static final TableReference TABLE = TableReference.createWithEmptyNamespace("table");
+    private static final long WINDOW_MICROS = TimeUnit.MILLISECONDS.toMicros(300);
+    private static final String BAD_ENTRY = "bad";
+
+    private final List<List<String>> writes = Collections.synchronizedList(Lists.<List<String>>newArrayList());
+    private final WriteCoalescer.Writer<String> writer = new WriteCoalescer.Writer<String>() {
+        @Override
+        public void write(TableReference tableRef, List<String> entries) {
+            if (entries.contains(BAD_ENTRY)) {
+                throw new IllegalArgumentException("cannot write " + BAD_ENTRY);
+            }
+            writes.add(ImmutableList.copyOf(entries));
+        }
+    };
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = PTExecutors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testLeaderWritesEntriesOfFollowers() throws Exception {
+        WriteCoalescer<String> coalescer = new WriteCoalescer<String>("kvs", WINDOW_MICROS, 100, writer);
+        Future<?> leader = write(coalescer, "a");
+        Thread.sleep(50);
+        Future<?> follower1 = write(coalescer, "b");
+        Future<?> follower2 = write(coalescer, "c");
+        leader.get();
+        follower1.get();
+        follower2.get();
+
+        assertEquals(1, writes.size());
+        assertEquals(ImmutableSet.of("a", "b", "c"), ImmutableSet.copyOf(writes.get(0)));
+    }
+
+    @Test
+    public void testFailedCombinedWriteIsRetriedByEachWriter() throws Exception {
+        WriteCoalescer<String> coalescer = new WriteCoalescer<String>("kvs", WINDOW_MICROS, 100, writer);
+        Future<?> leader = write(coalescer, "a");
+        Thread.sleep(50);
+        Future<?> badFollower = write(coalescer, BAD_ENTRY);
+        Future<?> goodFollower = write(coalescer, "c");
+
+        leader.get();
+        goodFollower.get();
+        try {
+            badFollower.get();
+            fail();
+        } catch (ExecutionException e) {
+            // Only the writer whose entries caused the failure sees it
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+        assertEquals(ImmutableSet.<List<String>>of(ImmutableList.of("a"), ImmutableList.of("c")),
+                ImmutableSet.copyOf(writes));
+    }
+
+    @Test
+    public void testFullGroupHandsOffToNewGroup() throws Exception {
+        WriteCoalescer<String> coalescer = new WriteCoalescer<String>("kvs", WINDOW_MICROS, 3, writer);
+        Future<?> first = write(coalescer, "a1", "a2");
+        Thread.sleep(50);
+        Future<?> second = write(coalescer, "b1", "b2");
+        first.get();
+        second.get();
+
+        assertEquals(ImmutableSet.<List<String>>of(ImmutableList.of("a1", "a2"), ImmutableList.of("b1", "b2")),
+                ImmutableSet.copyOf(writes));
+    }
+
+    @Test
+    public void testWriteAfterGroupClosedStartsNewGroup() throws Exception {
+        WriteCoalescer<String> coalescer = new WriteCoalescer<String>("kvs", WINDOW_MICROS, 100, writer);
+        write(coalescer, "a").get();
+        write(coalescer, "b").get();
+
+        assertEquals(ImmutableList.<List<String>>of(ImmutableList.of("a"), ImmutableList.of("b")), writes);
+    }
+
+    @Test
+    public void testLargeWritesAreNotDelayed() throws Exception {
+        WriteCoalescer<String> coalescer = new WriteCoalescer<String>("kvs", TimeUnit.SECONDS.toMicros(10), 2, writer);
+        long start = System.nanoTime();
+        write(coalescer, "a", "b").get();
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertEquals(ImmutableList.<List<String>>of(ImmutableList.of("a", "b")), writes);
+    }
+
+    private Future<?> write(final WriteCoalescer<String> coalescer, final String... entries) {
+        return executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() {
+                coalescer.write(TABLE, ImmutableList.copyOf(entries));
+                return null;
+            }
+        });
+    }
+}
@@ -0,0 +1,168 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl.partition;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.keyvalue.impl.ForwardingKeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.atlasdb.keyvalue.partition.quorum.QuorumParameters;
+import com.palantir.atlasdb.keyvalue.partition.quorum.QuorumParameters.QuorumRequestParameters;
+import com.palantir.atlasdb.keyvalue.partition.util.QuorumRead;
+import com.palantir.common.concurrent.PTExecutors;
+import com.palantir.util.Pair;
+
+public class QuorumReadTest {
+    private static final TableReference TABLE = TableReference.createWithEmptyNamespace("table");
+    private static final Cell CELL = Cell.create(PtBytes.toBytes("row"), PtBytes.toBytes("col"));
+    private static final Map<Cell, Long> REQUEST = ImmutableMap.of(CELL, Long.MAX_VALUE);
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = PTExecutors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testReadRepairUpdatesOlderReplica() throws InterruptedException {
+        ReplicaKeyValueService upToDate = new ReplicaKeyValueService(0);
+        ReplicaKeyValueService stale = new ReplicaKeyValueService(0);
+        upToDate.put(TABLE, ImmutableMap.of(CELL, PtBytes.toBytes("new")), 5L);
+        stale.put(TABLE, ImmutableMap.of(CELL, PtBytes.toBytes("old")), 1L);
+
+        Map<Cell, Value> result = read(new QuorumParameters(2, 2, 1), upToDate, stale);
+        assertEquals(5L, result.get(CELL).getTimestamp());
+
+        awaitReadRepair();
+        Value repaired = stale.get(TABLE, REQUEST).get(CELL);
+        assertEquals(5L, repaired.getTimestamp());
+        assertEquals("new", PtBytes.toString(repaired.getContents()));
+    }
+
+    @Test
+    public void testReadRepairDoesNotRestoreSweptCell() throws InterruptedException {
+        ReplicaKeyValueService notYetSwept = new ReplicaKeyValueService(0);
+        ReplicaKeyValueService swept = new ReplicaKeyValueService(0);
+        notYetSwept.put(TABLE, ImmutableMap.of(CELL, PtBytes.toBytes("value")), 5L);
+        swept.put(TABLE, ImmutableMap.of(CELL, PtBytes.toBytes("value")), 5L);
+        swept.delete(TABLE, ImmutableMultimap.of(CELL, 5L));
+
+        Map<Cell, Value> result = read(new QuorumParameters(2, 2, 1), notYetSwept, swept);
+        assertEquals(5L, result.get(CELL).getTimestamp());
+
+        awaitReadRepair();
+        assertTrue(swept.get(TABLE, REQUEST).isEmpty());
+    }
+
+    @Test
+    public void testAsksFastestReplicaFirst() throws InterruptedException {
+        ReplicaKeyValueService slow = new ReplicaKeyValueService(400);
+        ReplicaKeyValueService medium = new ReplicaKeyValueService(200);
+        ReplicaKeyValueService fast = new ReplicaKeyValueService(0);
+        for (KeyValueService kvs : ImmutableList.of(slow, medium, fast)) {
+            kvs.put(TABLE, ImmutableMap.of(CELL, PtBytes.toBytes("value")), 5L);
+        }
+
+        // Asking every replica once gives each of them a latency estimate
+        read(new QuorumParameters(3, 3, 1), slow, medium, fast);
+        assertEquals(1, fast.reads.get());
+
+        read(new QuorumParameters(3, 1, 3), slow, medium, fast);
+        assertEquals(2, fast.reads.get());
+        assertEquals(1, slow.reads.get());
+    }
+
+    private Map<Cell, Value> read(QuorumParameters quorumParameters, KeyValueService... replicas) {
+        ImmutableList.Builder<Pair<KeyValueService, Map<Cell, Long>>> requests = ImmutableList.builder();
+        for (KeyValueService replica : replicas) {
+            requests.add(Pair.create(replica, REQUEST));
+        }
+        Map<Cell, QuorumRequestParameters> parameters =
+                ImmutableMap.of(CELL, quorumParameters.getReadRequestParameters());
+        return new QuorumRead<Cell, Map<Cell, Long>>(TABLE, executor) {
+            @Override
+            protected Iterable<Cell> getUnits(Map<Cell, Long> request) {
+                return request.keySet();
+            }
+
+            @Override
+            protected Map<Cell, Value> read(KeyValueService kvs, Map<Cell, Long> request) {
+                return kvs.get(TABLE, request);
+            }
+
+            @Override
+            protected boolean isRequested(Map<Cell, Long> request, Cell cell) {
+                return request.containsKey(cell);
+            }
+        }.run(requests.build(), parameters);
+    }
+
+    private void awaitReadRepair() throws InterruptedException {
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    private static class ReplicaKeyValueService extends ForwardingKeyValueService {
+        private final KeyValueService delegate = new InMemoryKeyValueService(true);
+        private final long readDelayMillis;
+        final AtomicInteger reads = new AtomicInteger();
+
+        ReplicaKeyValueService(long readDelayMillis) {
+            this.readDelayMillis = readDelayMillis;
+        }
+
+        @Override
+        protected KeyValueService delegate() {
+            return delegate;
+        }
+
+        @Override
+        public Map<Cell, Value> get(TableReference tableRef, Map<Cell, Long> timestampByCell) {
+            reads.incrementAndGet();
+            try {
+                Thread.sleep(readDelayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+            return super.get(tableRef, timestampByCell);
+        }
+    }
+}
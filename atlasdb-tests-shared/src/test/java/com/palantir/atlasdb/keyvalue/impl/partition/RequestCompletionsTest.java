@@ -0,0 +1,136 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl.partition;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.atlasdb.keyvalue.partition.quorum.QuorumParameters;
+import com.palantir.atlasdb.keyvalue.partition.quorum.QuorumTracker;
+import com.palantir.atlasdb.keyvalue.partition.util.EndpointRequestExecutor;
+import com.palantir.atlasdb.keyvalue.partition.util.EndpointRequestExecutor.EndpointRequestCompletionService;
+import com.palantir.atlasdb.keyvalue.partition.util.RequestCompletions;
+import com.palantir.common.concurrent.PTExecutors;
+
+public class RequestCompletionsTest {
+    private static final String UNIT = "unit";
+    private static final List<String> UNITS = ImmutableList.of(UNIT);
+    private static final long SLOW_MILLIS = 10000;
+
+    private ExecutorService executor;
+    private EndpointRequestCompletionService<String> execSvc;
+    private QuorumTracker<String, String> tracker;
+    private List<String> results;
+    private AtomicInteger backupsRun;
+
+    @Before
+    public void setUp() {
+        executor = PTExecutors.newCachedThreadPool();
+        execSvc = EndpointRequestExecutor.newService(executor);
+        // Two replicas, one answer is enough
+        tracker = QuorumTracker.of(UNITS, ImmutableMap.of(UNIT, new QuorumParameters(2, 1, 2).getReadRequestParameters()));
+        results = Lists.newArrayList();
+        backupsRun = new AtomicInteger();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testAsksBackupWhenFirstReplicaIsSlow() {
+        submit(answerAfter(SLOW_MILLIS, "slow"));
+        long start = System.nanoTime();
+        complete(backup(answerAfter(0, "backup")), 20);
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(SLOW_MILLIS / 2));
+        assertEquals(1, backupsRun.get());
+        assertEquals(ImmutableList.of("backup"), results);
+    }
+
+    @Test
+    public void testAsksBackupWhenFirstReplicaFails() {
+        submit(new Callable<String>() {
+            @Override
+            public String call() {
+                throw new IllegalStateException("replica is down");
+            }
+        });
+        complete(backup(answerAfter(0, "backup")), SLOW_MILLIS);
+        assertEquals(1, backupsRun.get());
+        assertEquals(ImmutableList.of("backup"), results);
+    }
+
+    @Test
+    public void testDoesNotAskBackupWhenFirstReplicaAnswers() {
+        submit(answerAfter(0, "first"));
+        complete(backup(answerAfter(0, "backup")), SLOW_MILLIS);
+        assertEquals(0, backupsRun.get());
+        assertEquals(ImmutableList.of("first"), results);
+    }
+
+    private void submit(Callable<String> callable) {
+        Future<String> future = execSvc.submit(callable, new InMemoryKeyValueService(false));
+        tracker.registerRef(future, UNITS);
+    }
+
+    private Iterator<Runnable> backup(final Callable<String> callable) {
+        return ImmutableList.<Runnable>of(new Runnable() {
+            @Override
+            public void run() {
+                backupsRun.incrementAndGet();
+                submit(callable);
+            }
+        }).iterator();
+    }
+
+    private void complete(Iterator<Runnable> backups, long hedgeDelayMillis) {
+        RequestCompletions.completeReadRequest(tracker, execSvc, new Function<String, Void>() {
+            @Override
+            public Void apply(String input) {
+                results.add(input);
+                return null;
+            }
+        }, backups, hedgeDelayMillis);
+    }
+
+    private static Callable<String> answerAfter(final long millis, final String answer) {
+        return new Callable<String>() {
+            @Override
+            public String call() throws InterruptedException {
+                Thread.sleep(millis);
+                return answer;
+            }
+        };
+    }
+}
@@ -25,6 +25,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.SortedMap;
+import java.util.UUID;
 
 import org.junit.Test;
 
@@ -284,4 +285,50 @@ public class EncodingUtilsTest {
             assertEquals(components, result);
         }
     }
+
+    @Test
+    public void testBufferMatchesArrayEncoding() {
+        EncodingBuffer buffer = EncodingBuffer.create();
+        for (int i = 0; i < 1000; i++) {
+            long value = rand.nextLong() >> rand.nextInt(64);
+            byte[] bytes = new byte[rand.nextInt(300)];
+            rand.nextBytes(bytes);
+            String str = new String(bytes);
+            UUID uuid = new UUID(rand.nextLong(), rand.nextLong());
+
+            assertBufferMatches(buffer, ValueType.VAR_LONG, value & Long.MAX_VALUE);
+            assertBufferMatches(buffer, ValueType.VAR_SIGNED_LONG, value);
+            assertBufferMatches(buffer, ValueType.FIXED_LONG, value);
+            assertBufferMatches(buffer, ValueType.FIXED_LONG_LITTLE_ENDIAN, value);
+            assertBufferMatches(buffer, ValueType.NULLABLE_FIXED_LONG, value);
+            assertBufferMatches(buffer, ValueType.NULLABLE_FIXED_LONG, null);
+            assertBufferMatches(buffer, ValueType.VAR_STRING, str);
+            assertBufferMatches(buffer, ValueType.STRING, str);
+            assertBufferMatches(buffer, ValueType.SIZED_BLOB, bytes);
+            assertBufferMatches(buffer, ValueType.BLOB, bytes);
+            assertBufferMatches(buffer, ValueType.UUID, uuid);
+            assertEquals(ValueType.FIXED_LONG_LITTLE_ENDIAN.convertToJava(ValueType.FIXED_LONG_LITTLE_ENDIAN.convertFromJava(value), 0), value);
+        }
+    }
+
+    @Test
+    public void testBufferFlipsDescendingComponents() {
+        EncodingBuffer buffer = EncodingBuffer.create();
+        buffer.putVarLong(5);
+        int start = buffer.position();
+        buffer.putVarString("abc").flipAllBitsFrom(start);
+        byte[] expected = EncodingUtils.add(
+                EncodingUtils.encodeVarLong(5),
+                EncodingUtils.flipAllBits(EncodingUtils.encodeVarString("abc")));
+        assertArrayEquals(expected, buffer.toByteArray());
+    }
+
+    private static void assertBufferMatches(EncodingBuffer buffer, ValueType type, Object value) {
+        buffer.reset();
+        buffer.putVarLong(1);
+        int start = buffer.position();
+        type.convertFromJava(value, buffer);
+        byte[] actual = buffer.toByteArray();
+        assertArrayEquals(type.convertFromJava(value), Arrays.copyOfRange(actual, start, actual.length));
+    }
 }
@@ -0,0 +1,225 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.schema;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.AtlasDbTestCase;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.factory.TransactionManagers;
+import com.palantir.atlasdb.keyvalue.api.BulkLoadingKeyValueService;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.Namespace;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.atlasdb.schema.KeyValueServiceMigrator.KvsMigrationMessageLevel;
+import com.palantir.atlasdb.schema.KeyValueServiceMigrator.KvsMigrationMessageProcessor;
+import com.palantir.atlasdb.transaction.api.Transaction;
+import com.palantir.atlasdb.transaction.api.TransactionTask;
+import com.palantir.atlasdb.transaction.impl.ConflictDetectionManagers;
+import com.palantir.atlasdb.transaction.impl.SweepStrategyManagers;
+import com.palantir.atlasdb.transaction.impl.TestTransactionManager;
+import com.palantir.atlasdb.transaction.impl.TestTransactionManagerImpl;
+import com.palantir.atlasdb.transaction.impl.TransactionTables;
+import com.palantir.atlasdb.transaction.service.TransactionService;
+import com.palantir.atlasdb.transaction.service.TransactionServices;
+import com.palantir.common.base.BatchingVisitables;
+import com.palantir.timestamp.InMemoryTimestampService;
+import com.palantir.timestamp.TimestampService;
+
+public class KeyValueServiceMigratorTest extends AtlasDbTestCase {
+    private static final TableReference TABLE = TableReference.create(Namespace.create("test"), "migrated");
+    private static final byte[] COLUMN = PtBytes.toBytes("c");
+    private static final int ROWS = 50;
+    private static final int READ_BATCH_SIZE = 10;
+
+    private final BulkLoadRecordingKeyValueService rawToKvs = new BulkLoadRecordingKeyValueService();
+    private KeyValueService toKvs;
+    private TestTransactionManager toTxManager;
+    private long migrationTimestamp;
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        keyValueService.createTable(TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA);
+        txManager.runTaskWithRetry(new TransactionTask<Void, RuntimeException>() {
+            @Override
+            public Void execute(Transaction t) {
+                Map<Cell, byte[]> values = Maps.newHashMap();
+                for (long i = 0; i < ROWS; i++) {
+                    values.put(Cell.create(PtBytes.toBytes(i), COLUMN), PtBytes.toBytes(i));
+                }
+                t.put(TABLE, values);
+                return null;
+            }
+        });
+
+        TimestampService toTimestampService = new InMemoryTimestampService();
+        toKvs = TransactionManagers.wrapKeyValueService(rawToKvs, toTimestampService, false);
+        TransactionTables.createTables(toKvs);
+        TransactionService toTransactionService = TransactionServices.createTransactionService(toKvs);
+        toTxManager = new TestTransactionManagerImpl(
+                toKvs,
+                toTimestampService,
+                lockClient,
+                lockService,
+                toTransactionService,
+                ConflictDetectionManagers.createDefault(toKvs),
+                SweepStrategyManagers.createDefault(toKvs));
+        migrationTimestamp = toTimestampService.getFreshTimestamp();
+        toTransactionService.putUnlessExists(migrationTimestamp, toTimestampService.getFreshTimestamp());
+    }
+
+    @Override
+    @After
+    public void tearDown() throws Exception {
+        toKvs.close();
+        super.tearDown();
+    }
+
+    @Test
+    public void testEmptyTablesAreBulkLoaded() {
+        KeyValueServiceMigrator migrator = newMigrator();
+        migrator.setup();
+        migrator.migrate();
+
+        Assert.assertEquals(1, rawToKvs.bulkLoads.get());
+        Assert.assertEquals(ROWS, rawToKvs.bulkLoadedCells.get());
+        assertMigrated();
+
+        // a finished bulk load is not repeated
+        newMigrator().migrate();
+        Assert.assertEquals(1, rawToKvs.bulkLoads.get());
+        assertMigrated();
+    }
+
+    @Test
+    public void testFailedBulkLoadIsCopiedByRanges() {
+        KeyValueServiceMigrator migrator = newMigrator();
+        migrator.setup();
+        rawToKvs.failAfterCells = ROWS / 2;
+        try {
+            migrator.migrate();
+            Assert.fail("the bulk load should have failed");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        rawToKvs.failAfterCells = -1;
+
+        // The table was never checkpointed as bulk loaded, and is not empty any more
+        newMigrator().migrate();
+
+        Assert.assertEquals(1, rawToKvs.bulkLoads.get());
+        assertMigrated();
+    }
+
+    private KeyValueServiceMigrator newMigrator() {
+        return new KeyValueServiceMigrator(
+                Namespace.create("kvs_migrate"),
+                txManager,
+                toTxManager,
+                keyValueService,
+                toKvs,
+                Suppliers.ofInstance(migrationTimestamp),
+                4,
+                READ_BATCH_SIZE,
+                ImmutableMap.<TableReference, Integer>of(),
+                new KvsMigrationMessageProcessor() {
+                    @Override
+                    public void processMessage(String message, KvsMigrationMessageLevel level) {
+                        // nothing to do
+                    }
+                },
+                new TaskProgress() {
+                    @Override
+                    public void beginTask(String message, int tasks) {
+                        // nothing to do
+                    }
+
+                    @Override
+                    public void subTaskComplete() {
+                        // nothing to do
+                    }
+
+                    @Override
+                    public void taskComplete() {
+                        // nothing to do
+                    }
+                },
+                ImmutableSet.<TableReference>of());
+    }
+
+    private void assertMigrated() {
+        List<RowResult<byte[]>> rows = toTxManager.runTaskReadOnly(new TransactionTask<List<RowResult<byte[]>>, RuntimeException>() {
+            @Override
+            public List<RowResult<byte[]>> execute(Transaction t) {
+                return BatchingVisitables.copyToList(t.getRange(TABLE, RangeRequest.all()));
+            }
+        });
+        Assert.assertEquals(ROWS, rows.size());
+        for (int i = 0; i < ROWS; i++) {
+            Assert.assertEquals(i, PtBytes.toLong(rows.get(i).getRowName()));
+            Assert.assertEquals(i, PtBytes.toLong(rows.get(i).getColumns().get(COLUMN)));
+        }
+    }
+
+    /**
+     * Bulk loads with one put per cell, and fails part way if asked to.
+     */
+    private static class BulkLoadRecordingKeyValueService extends InMemoryKeyValueService
+            implements BulkLoadingKeyValueService {
+        final AtomicInteger bulkLoads = new AtomicInteger();
+        final AtomicInteger bulkLoadedCells = new AtomicInteger();
+        volatile int failAfterCells = -1;
+
+        BulkLoadRecordingKeyValueService() {
+            super(true);
+        }
+
+        @Override
+        public void bulkLoad(TableReference tableRef, Iterator<Entry<Cell, byte[]>> sortedCells, long timestamp) {
+            bulkLoads.incrementAndGet();
+            int cells = 0;
+            while (sortedCells.hasNext()) {
+                if (cells == failAfterCells) {
+                    throw new IllegalStateException("bulk load failed");
+                }
+                Entry<Cell, byte[]> entry = sortedCells.next();
+                put(tableRef, ImmutableMap.of(entry.getKey(), entry.getValue()), timestamp);
+                bulkLoadedCells.incrementAndGet();
+                cells++;
+            }
+        }
+    }
+}
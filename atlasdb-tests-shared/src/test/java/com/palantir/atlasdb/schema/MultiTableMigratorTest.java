@@ -0,0 +1,231 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.schema;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ConcurrentHashMultiset;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multiset;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.AtlasDbTestCase;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.Namespace;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RangeRequests;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.transaction.api.Transaction;
+import com.palantir.atlasdb.transaction.api.TransactionTask;
+import com.palantir.common.base.ClosableIterator;
+import com.palantir.common.base.Throwables;
+import com.palantir.common.concurrent.PTExecutors;
+
+public class MultiTableMigratorTest extends AtlasDbTestCase {
+    private static final byte[] COLUMN = PtBytes.toBytes("c");
+    private static final int THREADS = 8;
+
+    private GeneralTaskCheckpointer checkpointer;
+    private ExecutorService executor;
+    private final Multiset<Long> copiedRows = ConcurrentHashMultiset.create();
+    private final AtomicInteger completedTables = new AtomicInteger();
+    private final TaskProgress progress = new TaskProgress() {
+        @Override
+        public void beginTask(String message, int tasks) {
+            // nothing to do
+        }
+
+        @Override
+        public void subTaskComplete() {
+            completedTables.incrementAndGet();
+        }
+
+        @Override
+        public void taskComplete() {
+            // nothing to do
+        }
+    };
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        checkpointer = new GeneralTaskCheckpointer(
+                TableReference.create(Namespace.DEFAULT_NAMESPACE, "checkpoint"), keyValueService, txManager);
+        executor = PTExecutors.newFixedThreadPool(THREADS);
+    }
+
+    @Override
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+        super.tearDown();
+    }
+
+    @Test
+    public void testSplitsCopyEveryRowOnce() {
+        TableReference table = createTable("split", 0, 256);
+        newMigrator(1).migrate(ImmutableList.<KvsRangeMigrator>of(new SlowRangeMigrator(table, 2)));
+
+        assertCopiedOnce(0, 256);
+        Assert.assertEquals(1, completedTables.get());
+        Assert.assertTrue("the range was never split", getRangeCount(table) > 1);
+    }
+
+    @Test
+    public void testSplitsRacingWithCompletion() {
+        // Ranges are split as often as possible while they finish quickly
+        List<KvsRangeMigrator> rangeMigrators = Lists.newArrayList();
+        for (int i = 0; i < 16; i++) {
+            rangeMigrators.add(new SlowRangeMigrator(createTable("race" + i, i * 16, 16), 0));
+        }
+        newMigrator(1).migrate(rangeMigrators);
+
+        assertCopiedOnce(0, 256);
+        Assert.assertEquals(16, completedTables.get());
+    }
+
+    @Test
+    public void testResumesFromRangeCheckpoints() {
+        final TableReference table = createTable("resume", 0, 256);
+        final byte[] mid = toRowName(128);
+        // A previous run split the table in two and finished the first range
+        checkpointer.createCheckpoints(table.getQualifiedName() + ".ranges", ImmutableMap.of(
+                0L, PtBytes.toBytes(2L),
+                1L, mid,
+                2L, PtBytes.EMPTY_BYTE_ARRAY));
+        checkpointer.createCheckpoints(table.getQualifiedName(), ImmutableMap.of(
+                1L, PtBytes.EMPTY_BYTE_ARRAY,
+                2L, mid));
+        txManager.runTaskWithRetry(new TransactionTask<Void, RuntimeException>() {
+            @Override
+            public Void execute(Transaction t) {
+                checkpointer.checkpoint(table.getQualifiedName(), 1L, PtBytes.EMPTY_BYTE_ARRAY, t);
+                return null;
+            }
+        });
+
+        newMigrator(4).migrate(ImmutableList.<KvsRangeMigrator>of(new SlowRangeMigrator(table, 0)));
+
+        assertCopiedOnce(128, 128);
+        Assert.assertEquals(256 - 128, copiedRows.size());
+        Assert.assertEquals(1, completedTables.get());
+    }
+
+    private MultiTableMigrator newMigrator(int partitions) {
+        return new MultiTableMigrator(keyValueService, Long.MAX_VALUE, partitions, THREADS, executor, checkpointer, progress, 1L, 0L);
+    }
+
+    private TableReference createTable(String name, int firstRow, int rows) {
+        TableReference table = TableReference.create(Namespace.DEFAULT_NAMESPACE, name);
+        keyValueService.createTable(table, AtlasDbConstants.GENERIC_TABLE_METADATA);
+        Map<Cell, byte[]> values = Maps.newHashMap();
+        for (int i = firstRow; i < firstRow + rows; i++) {
+            values.put(Cell.create(toRowName(i), COLUMN), PtBytes.toBytes((long) i));
+        }
+        keyValueService.put(table, values, 1L);
+        return table;
+    }
+
+    private long getRangeCount(final TableReference table) {
+        return txManager.runTaskReadOnly(new TransactionTask<Long, RuntimeException>() {
+            @Override
+            public Long execute(Transaction t) {
+                return PtBytes.toLong(checkpointer.getCheckpoint(table.getQualifiedName() + ".ranges", 0L, t));
+            }
+        });
+    }
+
+    private void assertCopiedOnce(int firstRow, int rows) {
+        for (long i = firstRow; i < firstRow + rows; i++) {
+            Assert.assertEquals("copies of row " + i, 1, copiedRows.count(i));
+        }
+    }
+
+    // spreads the rows evenly over the keyspace, so that every range can be split
+    private static byte[] toRowName(long i) {
+        return PtBytes.toBytes(i << 56);
+    }
+
+    /**
+     * Copies one row per batch and records which rows it copied, instead of writing them anywhere.
+     */
+    private class SlowRangeMigrator extends KvsRangeMigrator {
+        private final TableReference table;
+        private final long batchMillis;
+
+        SlowRangeMigrator(TableReference table, long batchMillis) {
+            super(table, table, 1, txManager, txManager, keyValueService, 1L, checkpointer, null);
+            this.table = table;
+            this.batchMillis = batchMillis;
+        }
+
+        @Override
+        boolean migrateNextBatch(final RangeRequest range, final long rangeId) {
+            byte[] copiedRow = txManager.runTaskWithRetry(new TransactionTask<byte[], RuntimeException>() {
+                @Override
+                public byte[] execute(Transaction t) {
+                    byte[] start = checkpointer.getCheckpoint(table.getQualifiedName(), rangeId, t);
+                    if (start == null) {
+                        return null;
+                    }
+                    RangeRequest.Builder builder = range.getBuilder().startRowInclusive(start);
+                    RowResult<Value> row = builder.isInvalidRange() ? null : getFirstRow(builder.build());
+                    if (row == null) {
+                        checkpointer.checkpoint(table.getQualifiedName(), rangeId, PtBytes.EMPTY_BYTE_ARRAY, t);
+                        return null;
+                    }
+                    sleep();
+                    checkpointer.checkpoint(table.getQualifiedName(), rangeId, RangeRequests.nextLexicographicName(row.getRowName()), t);
+                    return row.getRowName();
+                }
+            });
+            if (copiedRow == null) {
+                return true;
+            }
+            // only count the copy once its checkpoint has committed
+            copiedRows.add(PtBytes.toLong(copiedRow) >>> 56);
+            return false;
+        }
+
+        private RowResult<Value> getFirstRow(RangeRequest range) {
+            try (ClosableIterator<RowResult<Value>> rows = keyValueService.getRange(table, range, Long.MAX_VALUE)) {
+                return rows.hasNext() ? rows.next() : null;
+            }
+        }
+
+        private void sleep() {
+            try {
+                Thread.sleep(batchMillis);
+            } catch (InterruptedException e) {
+                throw Throwables.throwUncheckedException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.schema;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.UnsignedBytes;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.Namespace;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+
+public class SampledRowNamePartitionerTest {
+    private static final TableReference TABLE = TableReference.create(Namespace.DEFAULT_NAMESPACE, "table");
+    private static final byte[] COLUMN = PtBytes.toBytes("c");
+
+    private KeyValueService kvs;
+
+    @Before
+    public void setUp() {
+        kvs = new InMemoryKeyValueService(false);
+        kvs.createTable(TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA);
+    }
+
+    @Test
+    public void testSmallTableIsNotSplit() {
+        putRows(10, new Random(0));
+        List<byte[]> partitions = new SampledRowNamePartitioner(kvs, TABLE, Long.MAX_VALUE).getPartitions(16);
+        Assert.assertEquals(1, partitions.size());
+        Assert.assertArrayEquals(PtBytes.EMPTY_BYTE_ARRAY, partitions.get(0));
+    }
+
+    @Test
+    public void testPartitionsAreBalanced() {
+        int rows = 20000;
+        int partitionCount = 16;
+        List<byte[]> rowNames = putRows(rows, new Random(0));
+        List<byte[]> partitions = new SampledRowNamePartitioner(kvs, TABLE, Long.MAX_VALUE).getPartitions(partitionCount);
+
+        Assert.assertEquals(partitionCount, partitions.size());
+        Assert.assertArrayEquals(PtBytes.EMPTY_BYTE_ARRAY, partitions.get(0));
+        for (int i = 1; i < partitions.size(); i++) {
+            Assert.assertTrue(UnsignedBytes.lexicographicalComparator().compare(partitions.get(i - 1), partitions.get(i)) < 0);
+        }
+
+        int[] counts = new int[partitions.size()];
+        for (byte[] rowName : rowNames) {
+            int partition = partitions.size() - 1;
+            while (UnsignedBytes.lexicographicalComparator().compare(rowName, partitions.get(partition)) < 0) {
+                partition--;
+            }
+            counts[partition]++;
+        }
+        for (int count : counts) {
+            Assert.assertTrue("unbalanced partition with " + count + " rows", count > rows / partitionCount / 2);
+            Assert.assertTrue("unbalanced partition with " + count + " rows", count < rows / partitionCount * 2);
+        }
+    }
+
+    @Test
+    public void testMidpoint() {
+        byte[] start = PtBytes.toBytes(100L);
+        byte[] end = PtBytes.toBytes(200L);
+        Assert.assertArrayEquals(PtBytes.toBytes(150L), SampledRowNamePartitioner.midpoint(start, end));
+        Assert.assertNull(SampledRowNamePartitioner.midpoint(start, PtBytes.toBytes(101L)));
+        Assert.assertNotNull(SampledRowNamePartitioner.midpoint(start, PtBytes.EMPTY_BYTE_ARRAY));
+    }
+
+    private List<byte[]> putRows(int count, Random random) {
+        Map<Cell, byte[]> values = Maps.newHashMap();
+        for (int i = 0; i < count; i++) {
+            byte[] rowName = new byte[8];
+            random.nextBytes(rowName);
+            values.put(Cell.create(rowName, COLUMN), PtBytes.toBytes(i));
+        }
+        kvs.put(TABLE, values, 1L);
+        List<byte[]> rowNames = Lists.newArrayList();
+        for (Cell cell : values.keySet()) {
+            rowNames.add(cell.getRowName());
+        }
+        return rowNames;
+    }
+}
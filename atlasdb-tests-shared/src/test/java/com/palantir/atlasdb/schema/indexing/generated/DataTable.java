@@ -51,6 +51,7 @@ import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.impl.Cells;
+import com.palantir.atlasdb.ptobject.EncodingBuffer;
 import com.palantir.atlasdb.ptobject.EncodingUtils;
 import com.palantir.atlasdb.table.api.AtlasDbDynamicMutableExpiringTable;
 import com.palantir.atlasdb.table.api.AtlasDbDynamicMutablePersistentTable;
@@ -173,8 +174,9 @@ public final class DataTable implements
 
         @Override
         public byte[] persistToBytes() {
-            byte[] idBytes = PtBytes.toBytes(Long.MIN_VALUE ^ id);
-            return EncodingUtils.add(idBytes);
+            EncodingBuffer __buffer = EncodingBuffer.threadLocal();
+            __buffer.putFixedLong(id);
+            return __buffer.toByteArray();
         }
 
         public static final Hydrator<DataRow> BYTES_HYDRATOR = new Hydrator<DataRow>() {
@@ -290,6 +292,7 @@ public final class DataTable implements
 
     public static final class DataRowResult implements TypedRowResult {
         private final RowResult<byte[]> row;
+        private Value valueValue;
 
         public static DataRowResult of(RowResult<byte[]> row) {
             return new DataRowResult(row);
@@ -327,12 +330,14 @@ public final class DataTable implements
         }
 
         public Long getValue() {
-            byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("v"));
-            if (bytes == null) {
-                return null;
+            if (valueValue == null) {
+                byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("v"));
+                if (bytes == null) {
+                    return null;
+                }
+                valueValue = Value.BYTES_HYDRATOR.hydrateFromBytes(bytes);
             }
-            Value value = Value.BYTES_HYDRATOR.hydrateFromBytes(bytes);
-            return value.getValue();
+            return valueValue.getValue();
         }
 
         public static Function<DataRowResult, Long> getValueFun() {
@@ -432,19 +437,22 @@ public final class DataTable implements
         deleteIndex2Idx(affectedCells);
         deleteIndex3Idx(affectedCells);
         deleteIndex4Idx(affectedCells);
+        Multimap<Index1IdxTable.Index1IdxRow, Index1IdxTable.Index1IdxColumnValue> index1IdxPuts = ArrayListMultimap.create();
+        Multimap<Index2IdxTable.Index2IdxRow, Index2IdxTable.Index2IdxColumnValue> index2IdxPuts = ArrayListMultimap.create();
+        Multimap<Index3IdxTable.Index3IdxRow, Index3IdxTable.Index3IdxColumnValue> index3IdxPuts = ArrayListMultimap.create();
+        Multimap<Index4IdxTable.Index4IdxRow, Index4IdxTable.Index4IdxColumnValue> index4IdxPuts = ArrayListMultimap.create();
         for (Entry<DataRow, ? extends DataNamedColumnValue<?>> e : rows.entries()) {
             if (e.getValue() instanceof Value)
             {
                 Value col = (Value) e.getValue();
                 {
                     DataRow row = e.getKey();
-                    Index1IdxTable table = Index1IdxTable.of(this);
                     long value = col.getValue();
                     long id = row.getId();
                     Index1IdxTable.Index1IdxRow indexRow = Index1IdxTable.Index1IdxRow.of(value);
                     Index1IdxTable.Index1IdxColumn indexCol = Index1IdxTable.Index1IdxColumn.of(row.persistToBytes(), e.getValue().persistColumnName(), id);
                     Index1IdxTable.Index1IdxColumnValue indexColVal = Index1IdxTable.Index1IdxColumnValue.of(indexCol, 0L);
-                    table.put(indexRow, indexColVal);
+                    index1IdxPuts.put(indexRow, indexColVal);
                 }
             }
             if (e.getValue() instanceof Value)
@@ -452,13 +460,12 @@ public final class DataTable implements
                 Value col = (Value) e.getValue();
                 {
                     DataRow row = e.getKey();
-                    Index2IdxTable table = Index2IdxTable.of(this);
                     long value = col.getValue();
                     long id = row.getId();
                     Index2IdxTable.Index2IdxRow indexRow = Index2IdxTable.Index2IdxRow.of(value, id);
                     Index2IdxTable.Index2IdxColumn indexCol = Index2IdxTable.Index2IdxColumn.of(row.persistToBytes(), e.getValue().persistColumnName());
                     Index2IdxTable.Index2IdxColumnValue indexColVal = Index2IdxTable.Index2IdxColumnValue.of(indexCol, 0L);
-                    table.put(indexRow, indexColVal);
+                    index2IdxPuts.put(indexRow, indexColVal);
                 }
             }
             if (e.getValue() instanceof Value)
@@ -466,13 +473,12 @@ public final class DataTable implements
                 Value col = (Value) e.getValue();
                 {
                     DataRow row = e.getKey();
-                    Index3IdxTable table = Index3IdxTable.of(this);
                     Iterable<Long> valueIterable = ImmutableList.of(col.getValue());
                     for (long value : valueIterable) {
                         Index3IdxTable.Index3IdxRow indexRow = Index3IdxTable.Index3IdxRow.of(value);
                         Index3IdxTable.Index3IdxColumn indexCol = Index3IdxTable.Index3IdxColumn.of(row.persistToBytes(), e.getValue().persistColumnName());
                         Index3IdxTable.Index3IdxColumnValue indexColVal = Index3IdxTable.Index3IdxColumnValue.of(indexCol, 0L);
-                        table.put(indexRow, indexColVal);
+                        index3IdxPuts.put(indexRow, indexColVal);
                     }
                 }
             }
@@ -481,7 +487,6 @@ public final class DataTable implements
                 Value col = (Value) e.getValue();
                 {
                     DataRow row = e.getKey();
-                    Index4IdxTable table = Index4IdxTable.of(this);
                     Iterable<Long> value1Iterable = ImmutableList.of(col.getValue());
                     Iterable<Long> value2Iterable = ImmutableList.of(col.getValue());
                     for (long value1 : value1Iterable) {
@@ -489,12 +494,24 @@ public final class DataTable implements
                             Index4IdxTable.Index4IdxRow indexRow = Index4IdxTable.Index4IdxRow.of(value1, value2);
                             Index4IdxTable.Index4IdxColumn indexCol = Index4IdxTable.Index4IdxColumn.of(row.persistToBytes(), e.getValue().persistColumnName());
                             Index4IdxTable.Index4IdxColumnValue indexColVal = Index4IdxTable.Index4IdxColumnValue.of(indexCol, 0L);
-                            table.put(indexRow, indexColVal);
+                            index4IdxPuts.put(indexRow, indexColVal);
                         }
                     }
                 }
             }
         }
+        if (!index1IdxPuts.isEmpty()) {
+            Index1IdxTable.of(this).put(index1IdxPuts);
+        }
+        if (!index2IdxPuts.isEmpty()) {
+            Index2IdxTable.of(this).put(index2IdxPuts);
+        }
+        if (!index3IdxPuts.isEmpty()) {
+            Index3IdxTable.of(this).put(index3IdxPuts);
+        }
+        if (!index4IdxPuts.isEmpty()) {
+            Index4IdxTable.of(this).put(index4IdxPuts);
+        }
         t.put(tableRef, ColumnValues.toCellValues(rows));
         for (DataTrigger trigger : triggers) {
             trigger.putData(rows);
@@ -596,7 +613,7 @@ public final class DataTable implements
 
     @Override
     public void delete(Iterable<DataRow> rows) {
-        Multimap<DataRow, DataNamedColumnValue<?>> result = getRowsMultimap(rows);
+        Multimap<DataRow, DataNamedColumnValue<?>> result = getRowsMultimap(rows, ColumnSelection.create(ImmutableList.of(PtBytes.toCachedBytes("v"))));
         deleteIndex1Idx(result);
         deleteIndex2Idx(result);
         deleteIndex3Idx(result);
@@ -638,6 +655,10 @@ public final class DataTable implements
         return rowResults;
     }
 
+    public List<DataRowResult> getRows(Iterable<DataRow> rows, Collection<DataNamedColumn> columns) {
+        return getRows(rows, getColumnSelection(columns));
+    }
+
     @Override
     public List<DataRowResult> getAsyncRows(Iterable<DataRow> rows, ExecutorService exec) {
         return getAsyncRows(rows, ColumnSelection.all(), exec);
@@ -719,7 +740,15 @@ public final class DataTable implements
     }
 
     private Multimap<DataRow, DataNamedColumnValue<?>> getAffectedCells(Multimap<DataRow, ? extends DataNamedColumnValue<?>> rows) {
-        Multimap<DataRow, DataNamedColumnValue<?>> oldData = getRowsMultimap(rows.keySet());
+        Set<String> shortNames = new HashSet<String>();
+        for (DataNamedColumnValue<?> v : rows.values()) {
+            shortNames.add(v.getShortColumnName());
+        }
+        List<byte[]> columnNames = Lists.newArrayListWithCapacity(shortNames.size());
+        for (String shortName : shortNames) {
+            columnNames.add(PtBytes.toCachedBytes(shortName));
+        }
+        Multimap<DataRow, DataNamedColumnValue<?>> oldData = getRowsMultimap(rows.keySet(), ColumnSelection.create(columnNames));
         Multimap<DataRow, DataNamedColumnValue<?>> cellsAffected = ArrayListMultimap.create();
         for (DataRow row : oldData.keySet()) {
             Set<String> columns = new HashSet<String>();
@@ -922,8 +951,9 @@ public final class DataTable implements
 
             @Override
             public byte[] persistToBytes() {
-                byte[] valueBytes = PtBytes.toBytes(Long.MIN_VALUE ^ value);
-                return EncodingUtils.add(valueBytes);
+                EncodingBuffer __buffer = EncodingBuffer.threadLocal();
+                __buffer.putFixedLong(value);
+                return __buffer.toByteArray();
             }
 
             public static final Hydrator<Index1IdxRow> BYTES_HYDRATOR = new Hydrator<Index1IdxRow>() {
@@ -1036,10 +1066,11 @@ public final class DataTable implements
 
             @Override
             public byte[] persistToBytes() {
-                byte[] rowNameBytes = EncodingUtils.encodeSizedBytes(rowName);
-                byte[] columnNameBytes = EncodingUtils.encodeSizedBytes(columnName);
-                byte[] idBytes = PtBytes.toBytes(Long.MIN_VALUE ^ id);
-                return EncodingUtils.add(rowNameBytes, columnNameBytes, idBytes);
+                EncodingBuffer __buffer = EncodingBuffer.threadLocal();
+                __buffer.putSizedBytes(rowName);
+                __buffer.putSizedBytes(columnName);
+                __buffer.putFixedLong(id);
+                return __buffer.toByteArray();
             }
 
             public static final Hydrator<Index1IdxColumn> BYTES_HYDRATOR = new Hydrator<Index1IdxColumn>() {
@@ -1565,9 +1596,10 @@ public final class DataTable implements
 
             @Override
             public byte[] persistToBytes() {
-                byte[] valueBytes = PtBytes.toBytes(Long.MIN_VALUE ^ value);
-                byte[] idBytes = PtBytes.toBytes(Long.MIN_VALUE ^ id);
-                return EncodingUtils.add(valueBytes, idBytes);
+                EncodingBuffer __buffer = EncodingBuffer.threadLocal();
+                __buffer.putFixedLong(value);
+                __buffer.putFixedLong(id);
+                return __buffer.toByteArray();
             }
 
             public static final Hydrator<Index2IdxRow> BYTES_HYDRATOR = new Hydrator<Index2IdxRow>() {
@@ -1583,13 +1615,15 @@ public final class DataTable implements
             };
 
             public static RangeRequest.Builder createPrefixRange(long value) {
-                byte[] valueBytes = PtBytes.toBytes(Long.MIN_VALUE ^ value);
-                return RangeRequest.builder().prefixRange(EncodingUtils.add(valueBytes));
+                EncodingBuffer __buffer = EncodingBuffer.threadLocal();
+                __buffer.putFixedLong(value);
+                return RangeRequest.builder().prefixRange(__buffer.toByteArray());
             }
 
             public static Prefix prefix(long value) {
-                byte[] valueBytes = PtBytes.toBytes(Long.MIN_VALUE ^ value);
-                return new Prefix(EncodingUtils.add(valueBytes));
+                EncodingBuffer __buffer = EncodingBuffer.threadLocal();
+                __buffer.putFixedLong(value);
+                return new Prefix(__buffer.toByteArray());
             }
 
             @Override
@@ -1678,9 +1712,10 @@ public final class DataTable implements
 
             @Override
             public byte[] persistToBytes() {
-                byte[] rowNameBytes = EncodingUtils.encodeSizedBytes(rowName);
-                byte[] columnNameBytes = EncodingUtils.encodeSizedBytes(columnName);
-                return EncodingUtils.add(rowNameBytes, columnNameBytes);
+                EncodingBuffer __buffer = EncodingBuffer.threadLocal();
+                __buffer.putSizedBytes(rowName);
+                __buffer.putSizedBytes(columnName);
+                return __buffer.toByteArray();
             }
 
             public static final Hydrator<Index2IdxColumn> BYTES_HYDRATOR = new Hydrator<Index2IdxColumn>() {
@@ -2194,8 +2229,9 @@ public final class DataTable implements
 
             @Override
             public byte[] persistToBytes() {
-                byte[] valueBytes = PtBytes.toBytes(Long.MIN_VALUE ^ value);
-                return EncodingUtils.add(valueBytes);
+                EncodingBuffer __buffer = EncodingBuffer.threadLocal();
+                __buffer.putFixedLong(value);
+                return __buffer.toByteArray();
             }
 
             public static final Hydrator<Index3IdxRow> BYTES_HYDRATOR = new Hydrator<Index3IdxRow>() {
@@ -2292,9 +2328,10 @@ public final class DataTable implements
 
             @Override
             public byte[] persistToBytes() {
-                byte[] rowNameBytes = EncodingUtils.encodeSizedBytes(rowName);
-                byte[] columnNameBytes = EncodingUtils.encodeSizedBytes(columnName);
-                return EncodingUtils.add(rowNameBytes, columnNameBytes);
+                EncodingBuffer __buffer = EncodingBuffer.threadLocal();
+                __buffer.putSizedBytes(rowName);
+                __buffer.putSizedBytes(columnName);
+                return __buffer.toByteArray();
             }
 
             public static final Hydrator<Index3IdxColumn> BYTES_HYDRATOR = new Hydrator<Index3IdxColumn>() {
@@ -2815,9 +2852,10 @@ public final class DataTable implements
 
             @Override
             public byte[] persistToBytes() {
-                byte[] value1Bytes = PtBytes.toBytes(Long.MIN_VALUE ^ value1);
-                byte[] value2Bytes = PtBytes.toBytes(Long.MIN_VALUE ^ value2);
-                return EncodingUtils.add(value1Bytes, value2Bytes);
+                EncodingBuffer __buffer = EncodingBuffer.threadLocal();
+                __buffer.putFixedLong(value1);
+                __buffer.putFixedLong(value2);
+                return __buffer.toByteArray();
             }
 
             public static final Hydrator<Index4IdxRow> BYTES_HYDRATOR = new Hydrator<Index4IdxRow>() {
@@ -2833,13 +2871,15 @@ public final class DataTable implements
             };
 
             public static RangeRequest.Builder createPrefixRange(long value1) {
-                byte[] value1Bytes = PtBytes.toBytes(Long.MIN_VALUE ^ value1);
-                return RangeRequest.builder().prefixRange(EncodingUtils.add(value1Bytes));
+                EncodingBuffer __buffer = EncodingBuffer.threadLocal();
+                __buffer.putFixedLong(value1);
+                return RangeRequest.builder().prefixRange(__buffer.toByteArray());
             }
 
             public static Prefix prefix(long value1) {
-                byte[] value1Bytes = PtBytes.toBytes(Long.MIN_VALUE ^ value1);
-                return new Prefix(EncodingUtils.add(value1Bytes));
+                EncodingBuffer __buffer = EncodingBuffer.threadLocal();
+                __buffer.putFixedLong(value1);
+                return new Prefix(__buffer.toByteArray());
             }
 
             @Override
@@ -2928,9 +2968,10 @@ public final class DataTable implements
 
             @Override
             public byte[] persistToBytes() {
-                byte[] rowNameBytes = EncodingUtils.encodeSizedBytes(rowName);
-                byte[] columnNameBytes = EncodingUtils.encodeSizedBytes(columnName);
-                return EncodingUtils.add(rowNameBytes, columnNameBytes);
+                EncodingBuffer __buffer = EncodingBuffer.threadLocal();
+                __buffer.putSizedBytes(rowName);
+                __buffer.putSizedBytes(columnName);
+                return __buffer.toByteArray();
             }
 
             public static final Hydrator<Index4IdxColumn> BYTES_HYDRATOR = new Hydrator<Index4IdxColumn>() {
@@ -3390,6 +3431,7 @@ public final class DataTable implements
      * {@link CompressionUtils}
      * {@link ConstraintCheckingTransaction}
      * {@link Descending}
+     * {@link EncodingBuffer}
      * {@link EncodingUtils}
      * {@link Entry}
      * {@link EnumSet}
@@ -3439,5 +3481,5 @@ public final class DataTable implements
      * {@link UnsignedBytes}
      * {@link ValueType}
      */
-    static String __CLASS_HASH = "TAfXhQqzRAKrhLBxlvImOw==";
+    static String __CLASS_HASH = "D/gziTmpx3OYZGcOOIG2eQ==";
 }
@@ -51,6 +51,7 @@ import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.impl.Cells;
+import com.palantir.atlasdb.ptobject.EncodingBuffer;
 import com.palantir.atlasdb.ptobject.EncodingUtils;
 import com.palantir.atlasdb.table.api.AtlasDbDynamicMutableExpiringTable;
 import com.palantir.atlasdb.table.api.AtlasDbDynamicMutablePersistentTable;
@@ -173,8 +174,9 @@ public final class TwoColumnsTable implements
 
         @Override
         public byte[] persistToBytes() {
-            byte[] idBytes = PtBytes.toBytes(Long.MIN_VALUE ^ id);
-            return EncodingUtils.add(idBytes);
+            EncodingBuffer __buffer = EncodingBuffer.threadLocal();
+            __buffer.putFixedLong(id);
+            return __buffer.toByteArray();
         }
 
         public static final Hydrator<TwoColumnsRow> BYTES_HYDRATOR = new Hydrator<TwoColumnsRow>() {
@@ -350,6 +352,8 @@ public final class TwoColumnsTable implements
 
     public static final class TwoColumnsRowResult implements TypedRowResult {
         private final RowResult<byte[]> row;
+        private Bar barValue;
+        private Foo fooValue;
 
         public static TwoColumnsRowResult of(RowResult<byte[]> row) {
             return new TwoColumnsRowResult(row);
@@ -391,21 +395,25 @@ public final class TwoColumnsTable implements
         }
 
         public Long getBar() {
-            byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("b"));
-            if (bytes == null) {
-                return null;
+            if (barValue == null) {
+                byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("b"));
+                if (bytes == null) {
+                    return null;
+                }
+                barValue = Bar.BYTES_HYDRATOR.hydrateFromBytes(bytes);
             }
-            Bar value = Bar.BYTES_HYDRATOR.hydrateFromBytes(bytes);
-            return value.getValue();
+            return barValue.getValue();
         }
 
         public Long getFoo() {
-            byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("f"));
-            if (bytes == null) {
-                return null;
+            if (fooValue == null) {
+                byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("f"));
+                if (bytes == null) {
+                    return null;
+                }
+                fooValue = Foo.BYTES_HYDRATOR.hydrateFromBytes(bytes);
             }
-            Foo value = Foo.BYTES_HYDRATOR.hydrateFromBytes(bytes);
-            return value.getValue();
+            return fooValue.getValue();
         }
 
         public static Function<TwoColumnsRowResult, Long> getBarFun() {
@@ -558,6 +566,8 @@ public final class TwoColumnsTable implements
         Multimap<TwoColumnsRow, TwoColumnsNamedColumnValue<?>> affectedCells = getAffectedCells(rows);
         deleteFooToIdCondIdx(affectedCells);
         deleteFooToIdIdx(affectedCells);
+        Multimap<FooToIdCondIdxTable.FooToIdCondIdxRow, FooToIdCondIdxTable.FooToIdCondIdxColumnValue> fooToIdCondIdxPuts = ArrayListMultimap.create();
+        Multimap<FooToIdIdxTable.FooToIdIdxRow, FooToIdIdxTable.FooToIdIdxColumnValue> fooToIdIdxPuts = ArrayListMultimap.create();
         for (Entry<TwoColumnsRow, ? extends TwoColumnsNamedColumnValue<?>> e : rows.entries()) {
             if (e.getValue() instanceof Foo)
             {
@@ -565,13 +575,12 @@ public final class TwoColumnsTable implements
                 if (col.getValue() > 1)
                 {
                     TwoColumnsRow row = e.getKey();
-                    FooToIdCondIdxTable table = FooToIdCondIdxTable.of(this);
                     long foo = col.getValue();
                     long id = row.getId();
                     FooToIdCondIdxTable.FooToIdCondIdxRow indexRow = FooToIdCondIdxTable.FooToIdCondIdxRow.of(foo);
                     FooToIdCondIdxTable.FooToIdCondIdxColumn indexCol = FooToIdCondIdxTable.FooToIdCondIdxColumn.of(row.persistToBytes(), e.getValue().persistColumnName(), id);
                     FooToIdCondIdxTable.FooToIdCondIdxColumnValue indexColVal = FooToIdCondIdxTable.FooToIdCondIdxColumnValue.of(indexCol, 0L);
-                    table.put(indexRow, indexColVal);
+                    fooToIdCondIdxPuts.put(indexRow, indexColVal);
                 }
             }
             if (e.getValue() instanceof Foo)
@@ -579,16 +588,21 @@ public final class TwoColumnsTable implements
                 Foo col = (Foo) e.getValue();
                 {
                     TwoColumnsRow row = e.getKey();
-                    FooToIdIdxTable table = FooToIdIdxTable.of(this);
                     long foo = col.getValue();
                     long id = row.getId();
                     FooToIdIdxTable.FooToIdIdxRow indexRow = FooToIdIdxTable.FooToIdIdxRow.of(foo);
                     FooToIdIdxTable.FooToIdIdxColumn indexCol = FooToIdIdxTable.FooToIdIdxColumn.of(row.persistToBytes(), e.getValue().persistColumnName(), id);
                     FooToIdIdxTable.FooToIdIdxColumnValue indexColVal = FooToIdIdxTable.FooToIdIdxColumnValue.of(indexCol, 0L);
-                    table.put(indexRow, indexColVal);
+                    fooToIdIdxPuts.put(indexRow, indexColVal);
                 }
             }
         }
+        if (!fooToIdCondIdxPuts.isEmpty()) {
+            FooToIdCondIdxTable.of(this).put(fooToIdCondIdxPuts);
+        }
+        if (!fooToIdIdxPuts.isEmpty()) {
+            FooToIdIdxTable.of(this).put(fooToIdIdxPuts);
+        }
         t.put(tableRef, ColumnValues.toCellValues(rows));
         for (TwoColumnsTrigger trigger : triggers) {
             trigger.putTwoColumns(rows);
@@ -665,7 +679,7 @@ public final class TwoColumnsTable implements
 
     @Override
     public void delete(Iterable<TwoColumnsRow> rows) {
-        Multimap<TwoColumnsRow, TwoColumnsNamedColumnValue<?>> result = getRowsMultimap(rows);
+        Multimap<TwoColumnsRow, TwoColumnsNamedColumnValue<?>> result = getRowsMultimap(rows, ColumnSelection.create(ImmutableList.of(PtBytes.toCachedBytes("f"))));
         deleteFooToIdCondIdx(result);
         deleteFooToIdIdx(result);
         List<byte[]> rowBytes = Persistables.persistAll(rows);
@@ -706,6 +720,10 @@ public final class TwoColumnsTable implements
         return rowResults;
     }
 
+    public List<TwoColumnsRowResult> getRows(Iterable<TwoColumnsRow> rows, Collection<TwoColumnsNamedColumn> columns) {
+        return getRows(rows, getColumnSelection(columns));
+    }
+
     @Override
     public List<TwoColumnsRowResult> getAsyncRows(Iterable<TwoColumnsRow> rows, ExecutorService exec) {
         return getAsyncRows(rows, ColumnSelection.all(), exec);
@@ -787,7 +805,15 @@ public final class TwoColumnsTable implements
     }
 
     private Multimap<TwoColumnsRow, TwoColumnsNamedColumnValue<?>> getAffectedCells(Multimap<TwoColumnsRow, ? extends TwoColumnsNamedColumnValue<?>> rows) {
-        Multimap<TwoColumnsRow, TwoColumnsNamedColumnValue<?>> oldData = getRowsMultimap(rows.keySet());
+        Set<String> shortNames = new HashSet<String>();
+        for (TwoColumnsNamedColumnValue<?> v : rows.values()) {
+            shortNames.add(v.getShortColumnName());
+        }
+        List<byte[]> columnNames = Lists.newArrayListWithCapacity(shortNames.size());
+        for (String shortName : shortNames) {
+            columnNames.add(PtBytes.toCachedBytes(shortName));
+        }
+        Multimap<TwoColumnsRow, TwoColumnsNamedColumnValue<?>> oldData = getRowsMultimap(rows.keySet(), ColumnSelection.create(columnNames));
         Multimap<TwoColumnsRow, TwoColumnsNamedColumnValue<?>> cellsAffected = ArrayListMultimap.create();
         for (TwoColumnsRow row : oldData.keySet()) {
             Set<String> columns = new HashSet<String>();
@@ -952,8 +978,9 @@ public final class TwoColumnsTable implements
 
             @Override
             public byte[] persistToBytes() {
-                byte[] fooBytes = PtBytes.toBytes(Long.MIN_VALUE ^ foo);
-                return EncodingUtils.add(fooBytes);
+                EncodingBuffer __buffer = EncodingBuffer.threadLocal();
+                __buffer.putFixedLong(foo);
+                return __buffer.toByteArray();
             }
 
             public static final Hydrator<FooToIdCondIdxRow> BYTES_HYDRATOR = new Hydrator<FooToIdCondIdxRow>() {
@@ -1066,10 +1093,11 @@ public final class TwoColumnsTable implements
 
             @Override
             public byte[] persistToBytes() {
-                byte[] rowNameBytes = EncodingUtils.encodeSizedBytes(rowName);
-                byte[] columnNameBytes = EncodingUtils.encodeSizedBytes(columnName);
-                byte[] idBytes = PtBytes.toBytes(Long.MIN_VALUE ^ id);
-                return EncodingUtils.add(rowNameBytes, columnNameBytes, idBytes);
+                EncodingBuffer __buffer = EncodingBuffer.threadLocal();
+                __buffer.putSizedBytes(rowName);
+                __buffer.putSizedBytes(columnName);
+                __buffer.putFixedLong(id);
+                return __buffer.toByteArray();
             }
 
             public static final Hydrator<FooToIdCondIdxColumn> BYTES_HYDRATOR = new Hydrator<FooToIdCondIdxColumn>() {
@@ -1554,8 +1582,9 @@ public final class TwoColumnsTable implements
 
             @Override
             public byte[] persistToBytes() {
-                byte[] fooBytes = PtBytes.toBytes(Long.MIN_VALUE ^ foo);
-                return EncodingUtils.add(fooBytes);
+                EncodingBuffer __buffer = EncodingBuffer.threadLocal();
+                __buffer.putFixedLong(foo);
+                return __buffer.toByteArray();
             }
 
             public static final Hydrator<FooToIdIdxRow> BYTES_HYDRATOR = new Hydrator<FooToIdIdxRow>() {
@@ -1668,10 +1697,11 @@ public final class TwoColumnsTable implements
 
             @Override
             public byte[] persistToBytes() {
-                byte[] rowNameBytes = EncodingUtils.encodeSizedBytes(rowName);
-                byte[] columnNameBytes = EncodingUtils.encodeSizedBytes(columnName);
-                byte[] idBytes = PtBytes.toBytes(Long.MIN_VALUE ^ id);
-                return EncodingUtils.add(rowNameBytes, columnNameBytes, idBytes);
+                EncodingBuffer __buffer = EncodingBuffer.threadLocal();
+                __buffer.putSizedBytes(rowName);
+                __buffer.putSizedBytes(columnName);
+                __buffer.putFixedLong(id);
+                return __buffer.toByteArray();
             }
 
             public static final Hydrator<FooToIdIdxColumn> BYTES_HYDRATOR = new Hydrator<FooToIdIdxColumn>() {
@@ -2102,6 +2132,7 @@ public final class TwoColumnsTable implements
      * {@link CompressionUtils}
      * {@link ConstraintCheckingTransaction}
      * {@link Descending}
+     * {@link EncodingBuffer}
      * {@link EncodingUtils}
      * {@link Entry}
      * {@link EnumSet}
@@ -2151,5 +2182,5 @@ public final class TwoColumnsTable implements
      * {@link UnsignedBytes}
      * {@link ValueType}
      */
-    static String __CLASS_HASH = "qm8uxD9QtsMkbXBnBo9Pvg==";
+    static String __CLASS_HASH = "2MhBtuLdnqwKeC8IUvgTgw==";
 }
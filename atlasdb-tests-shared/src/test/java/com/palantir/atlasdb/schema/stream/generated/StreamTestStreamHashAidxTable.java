@@ -51,6 +51,7 @@ import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.impl.Cells;
+import com.palantir.atlasdb.ptobject.EncodingBuffer;
 import com.palantir.atlasdb.ptobject.EncodingUtils;
 import com.palantir.atlasdb.table.api.AtlasDbDynamicMutableExpiringTable;
 import com.palantir.atlasdb.table.api.AtlasDbDynamicMutablePersistentTable;
@@ -171,8 +172,9 @@ public final class StreamTestStreamHashAidxTable implements
 
         @Override
         public byte[] persistToBytes() {
-            byte[] hashBytes = hash.getBytes();
-            return EncodingUtils.add(hashBytes);
+            EncodingBuffer __buffer = EncodingBuffer.threadLocal();
+            __buffer.putBytes(hash.getBytes());
+            return __buffer.toByteArray();
         }
 
         public static final Hydrator<StreamTestStreamHashAidxRow> BYTES_HYDRATOR = new Hydrator<StreamTestStreamHashAidxRow>() {
@@ -262,8 +264,9 @@ public final class StreamTestStreamHashAidxTable implements
 
         @Override
         public byte[] persistToBytes() {
-            byte[] streamIdBytes = EncodingUtils.encodeUnsignedVarLong(streamId);
-            return EncodingUtils.add(streamIdBytes);
+            EncodingBuffer __buffer = EncodingBuffer.threadLocal();
+            __buffer.putUnsignedVarLong(streamId);
+            return __buffer.toByteArray();
         }
 
         public static final Hydrator<StreamTestStreamHashAidxColumn> BYTES_HYDRATOR = new Hydrator<StreamTestStreamHashAidxColumn>() {
@@ -682,6 +685,7 @@ public final class StreamTestStreamHashAidxTable implements
      * {@link CompressionUtils}
      * {@link ConstraintCheckingTransaction}
      * {@link Descending}
+     * {@link EncodingBuffer}
      * {@link EncodingUtils}
      * {@link Entry}
      * {@link EnumSet}
@@ -731,5 +735,5 @@ public final class StreamTestStreamHashAidxTable implements
      * {@link UnsignedBytes}
      * {@link ValueType}
      */
-    static String __CLASS_HASH = "6Q3CdWP3VG1WC0bRFfDnqg==";
+    static String __CLASS_HASH = "B29yYc6xJwZh0ESPXmBzIg==";
 }
@@ -51,6 +51,7 @@ import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.impl.Cells;
+import com.palantir.atlasdb.ptobject.EncodingBuffer;
 import com.palantir.atlasdb.ptobject.EncodingUtils;
 import com.palantir.atlasdb.table.api.AtlasDbDynamicMutableExpiringTable;
 import com.palantir.atlasdb.table.api.AtlasDbDynamicMutablePersistentTable;
@@ -180,9 +181,10 @@ public final class StreamTestStreamValueTable implements
 
         @Override
         public byte[] persistToBytes() {
-            byte[] idBytes = EncodingUtils.encodeUnsignedVarLong(id);
-            byte[] blockIdBytes = EncodingUtils.encodeUnsignedVarLong(blockId);
-            return EncodingUtils.add(idBytes, blockIdBytes);
+            EncodingBuffer __buffer = EncodingBuffer.threadLocal();
+            __buffer.putUnsignedVarLong(id);
+            __buffer.putUnsignedVarLong(blockId);
+            return __buffer.toByteArray();
         }
 
         public static final Hydrator<StreamTestStreamValueRow> BYTES_HYDRATOR = new Hydrator<StreamTestStreamValueRow>() {
@@ -302,6 +304,7 @@ public final class StreamTestStreamValueTable implements
 
     public static final class StreamTestStreamValueRowResult implements TypedRowResult {
         private final RowResult<byte[]> row;
+        private Value valueValue;
 
         public static StreamTestStreamValueRowResult of(RowResult<byte[]> row) {
             return new StreamTestStreamValueRowResult(row);
@@ -339,12 +342,14 @@ public final class StreamTestStreamValueTable implements
         }
 
         public byte[] getValue() {
-            byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("v"));
-            if (bytes == null) {
-                return null;
+            if (valueValue == null) {
+                byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("v"));
+                if (bytes == null) {
+                    return null;
+                }
+                valueValue = Value.BYTES_HYDRATOR.hydrateFromBytes(bytes);
             }
-            Value value = Value.BYTES_HYDRATOR.hydrateFromBytes(bytes);
-            return value.getValue();
+            return valueValue.getValue();
         }
 
         public static Function<StreamTestStreamValueRowResult, byte[]> getValueFun() {
@@ -511,6 +516,10 @@ public final class StreamTestStreamValueTable implements
         return rowResults;
     }
 
+    public List<StreamTestStreamValueRowResult> getRows(Iterable<StreamTestStreamValueRow> rows, Collection<StreamTestStreamValueNamedColumn> columns) {
+        return getRows(rows, getColumnSelection(columns));
+    }
+
     @Override
     public List<StreamTestStreamValueRowResult> getAsyncRows(Iterable<StreamTestStreamValueRow> rows, ExecutorService exec) {
         return getAsyncRows(rows, ColumnSelection.all(), exec);
@@ -651,6 +660,7 @@ public final class StreamTestStreamValueTable implements
      * {@link CompressionUtils}
      * {@link ConstraintCheckingTransaction}
      * {@link Descending}
+     * {@link EncodingBuffer}
      * {@link EncodingUtils}
      * {@link Entry}
      * {@link EnumSet}
@@ -700,5 +710,5 @@ public final class StreamTestStreamValueTable implements
      * {@link UnsignedBytes}
      * {@link ValueType}
      */
-    static String __CLASS_HASH = "AW5bkfuNm5HKpXkur7a4cg==";
+    static String __CLASS_HASH = "skTQ24skLLyURLtlhcmnXA==";
 }
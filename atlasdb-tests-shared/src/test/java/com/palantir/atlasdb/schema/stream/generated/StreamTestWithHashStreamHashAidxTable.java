@@ -51,6 +51,7 @@ import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.impl.Cells;
+import com.palantir.atlasdb.ptobject.EncodingBuffer;
 import com.palantir.atlasdb.ptobject.EncodingUtils;
 import com.palantir.atlasdb.table.api.AtlasDbDynamicMutableExpiringTable;
 import com.palantir.atlasdb.table.api.AtlasDbDynamicMutablePersistentTable;
@@ -171,8 +172,9 @@ public final class StreamTestWithHashStreamHashAidxTable implements
 
         @Override
         public byte[] persistToBytes() {
-            byte[] hashBytes = hash.getBytes();
-            return EncodingUtils.add(hashBytes);
+            EncodingBuffer __buffer = EncodingBuffer.threadLocal();
+            __buffer.putBytes(hash.getBytes());
+            return __buffer.toByteArray();
         }
 
         public static final Hydrator<StreamTestWithHashStreamHashAidxRow> BYTES_HYDRATOR = new Hydrator<StreamTestWithHashStreamHashAidxRow>() {
@@ -262,8 +264,9 @@ public final class StreamTestWithHashStreamHashAidxTable implements
 
         @Override
         public byte[] persistToBytes() {
-            byte[] streamIdBytes = EncodingUtils.encodeUnsignedVarLong(streamId);
-            return EncodingUtils.add(streamIdBytes);
+            EncodingBuffer __buffer = EncodingBuffer.threadLocal();
+            __buffer.putUnsignedVarLong(streamId);
+            return __buffer.toByteArray();
         }
 
         public static final Hydrator<StreamTestWithHashStreamHashAidxColumn> BYTES_HYDRATOR = new Hydrator<StreamTestWithHashStreamHashAidxColumn>() {
@@ -671,6 +674,7 @@ public final class StreamTestWithHashStreamHashAidxTable implements
      * {@link CompressionUtils}
      * {@link ConstraintCheckingTransaction}
      * {@link Descending}
+     * {@link EncodingBuffer}
      * {@link EncodingUtils}
      * {@link Entry}
      * {@link EnumSet}
@@ -720,5 +724,5 @@ public final class StreamTestWithHashStreamHashAidxTable implements
      * {@link UnsignedBytes}
      * {@link ValueType}
      */
-    static String __CLASS_HASH = "6e3OpDo5DaHq4R1fMv/Mkg==";
+    static String __CLASS_HASH = "4RfoKIC7fIoWGYGG0BtDUg==";
 }
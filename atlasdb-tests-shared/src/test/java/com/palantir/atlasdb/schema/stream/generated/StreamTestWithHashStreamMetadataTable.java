@@ -51,6 +51,7 @@ import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.impl.Cells;
+import com.palantir.atlasdb.ptobject.EncodingBuffer;
 import com.palantir.atlasdb.ptobject.EncodingUtils;
 import com.palantir.atlasdb.table.api.AtlasDbDynamicMutableExpiringTable;
 import com.palantir.atlasdb.table.api.AtlasDbDynamicMutablePersistentTable;
@@ -177,9 +178,10 @@ public final class StreamTestWithHashStreamMetadataTable implements
 
         @Override
         public byte[] persistToBytes() {
-            byte[] firstComponentHashBytes = PtBytes.toBytes(Long.MIN_VALUE ^ firstComponentHash);
-            byte[] idBytes = EncodingUtils.encodeUnsignedVarLong(id);
-            return EncodingUtils.add(firstComponentHashBytes, idBytes);
+            EncodingBuffer __buffer = EncodingBuffer.threadLocal();
+            __buffer.putFixedLong(firstComponentHash);
+            __buffer.putUnsignedVarLong(id);
+            return __buffer.toByteArray();
         }
 
         public static final Hydrator<StreamTestWithHashStreamMetadataRow> BYTES_HYDRATOR = new Hydrator<StreamTestWithHashStreamMetadataRow>() {
@@ -323,6 +325,7 @@ public final class StreamTestWithHashStreamMetadataTable implements
 
     public static final class StreamTestWithHashStreamMetadataRowResult implements TypedRowResult {
         private final RowResult<byte[]> row;
+        private Metadata metadataValue;
 
         public static StreamTestWithHashStreamMetadataRowResult of(RowResult<byte[]> row) {
             return new StreamTestWithHashStreamMetadataRowResult(row);
@@ -360,12 +363,14 @@ public final class StreamTestWithHashStreamMetadataTable implements
         }
 
         public com.palantir.atlasdb.protos.generated.StreamPersistence.StreamMetadata getMetadata() {
-            byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("md"));
-            if (bytes == null) {
-                return null;
+            if (metadataValue == null) {
+                byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("md"));
+                if (bytes == null) {
+                    return null;
+                }
+                metadataValue = Metadata.BYTES_HYDRATOR.hydrateFromBytes(bytes);
             }
-            Metadata value = Metadata.BYTES_HYDRATOR.hydrateFromBytes(bytes);
-            return value.getValue();
+            return metadataValue.getValue();
         }
 
         public static Function<StreamTestWithHashStreamMetadataRowResult, com.palantir.atlasdb.protos.generated.StreamPersistence.StreamMetadata> getMetadataFun() {
@@ -532,6 +537,10 @@ public final class StreamTestWithHashStreamMetadataTable implements
         return rowResults;
     }
 
+    public List<StreamTestWithHashStreamMetadataRowResult> getRows(Iterable<StreamTestWithHashStreamMetadataRow> rows, Collection<StreamTestWithHashStreamMetadataNamedColumn> columns) {
+        return getRows(rows, getColumnSelection(columns));
+    }
+
     @Override
     public List<StreamTestWithHashStreamMetadataRowResult> getAsyncRows(Iterable<StreamTestWithHashStreamMetadataRow> rows, ExecutorService exec) {
         return getAsyncRows(rows, ColumnSelection.all(), exec);
@@ -672,6 +681,7 @@ public final class StreamTestWithHashStreamMetadataTable implements
      * {@link CompressionUtils}
      * {@link ConstraintCheckingTransaction}
      * {@link Descending}
+     * {@link EncodingBuffer}
      * {@link EncodingUtils}
      * {@link Entry}
      * {@link EnumSet}
@@ -721,5 +731,5 @@ public final class StreamTestWithHashStreamMetadataTable implements
      * {@link UnsignedBytes}
      * {@link ValueType}
      */
-    static String __CLASS_HASH = "nGuTzn1WeUahrGFlnGzejA==";
+    static String __CLASS_HASH = "xX/5mgoGiCDrbo6vrVbogQ==";
 }
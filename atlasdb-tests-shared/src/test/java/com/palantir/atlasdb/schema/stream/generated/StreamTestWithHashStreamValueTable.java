@@ -51,6 +51,7 @@ import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.impl.Cells;
+import com.palantir.atlasdb.ptobject.EncodingBuffer;
 import com.palantir.atlasdb.ptobject.EncodingUtils;
 import com.palantir.atlasdb.table.api.AtlasDbDynamicMutableExpiringTable;
 import com.palantir.atlasdb.table.api.AtlasDbDynamicMutablePersistentTable;
@@ -184,10 +185,11 @@ public final class StreamTestWithHashStreamValueTable implements
 
         @Override
         public byte[] persistToBytes() {
-            byte[] firstComponentHashBytes = PtBytes.toBytes(Long.MIN_VALUE ^ firstComponentHash);
-            byte[] idBytes = EncodingUtils.encodeUnsignedVarLong(id);
-            byte[] blockIdBytes = EncodingUtils.encodeUnsignedVarLong(blockId);
-            return EncodingUtils.add(firstComponentHashBytes, idBytes, blockIdBytes);
+            EncodingBuffer __buffer = EncodingBuffer.threadLocal();
+            __buffer.putFixedLong(firstComponentHash);
+            __buffer.putUnsignedVarLong(id);
+            __buffer.putUnsignedVarLong(blockId);
+            return __buffer.toByteArray();
         }
 
         public static final Hydrator<StreamTestWithHashStreamValueRow> BYTES_HYDRATOR = new Hydrator<StreamTestWithHashStreamValueRow>() {
@@ -311,6 +313,7 @@ public final class StreamTestWithHashStreamValueTable implements
 
     public static final class StreamTestWithHashStreamValueRowResult implements TypedRowResult {
         private final RowResult<byte[]> row;
+        private Value valueValue;
 
         public static StreamTestWithHashStreamValueRowResult of(RowResult<byte[]> row) {
             return new StreamTestWithHashStreamValueRowResult(row);
@@ -348,12 +351,14 @@ public final class StreamTestWithHashStreamValueTable implements
         }
 
         public byte[] getValue() {
-            byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("v"));
-            if (bytes == null) {
-                return null;
+            if (valueValue == null) {
+                byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("v"));
+                if (bytes == null) {
+                    return null;
+                }
+                valueValue = Value.BYTES_HYDRATOR.hydrateFromBytes(bytes);
             }
-            Value value = Value.BYTES_HYDRATOR.hydrateFromBytes(bytes);
-            return value.getValue();
+            return valueValue.getValue();
         }
 
         public static Function<StreamTestWithHashStreamValueRowResult, byte[]> getValueFun() {
@@ -520,6 +525,10 @@ public final class StreamTestWithHashStreamValueTable implements
         return rowResults;
     }
 
+    public List<StreamTestWithHashStreamValueRowResult> getRows(Iterable<StreamTestWithHashStreamValueRow> rows, Collection<StreamTestWithHashStreamValueNamedColumn> columns) {
+        return getRows(rows, getColumnSelection(columns));
+    }
+
     @Override
     public List<StreamTestWithHashStreamValueRowResult> getAsyncRows(Iterable<StreamTestWithHashStreamValueRow> rows, ExecutorService exec) {
         return getAsyncRows(rows, ColumnSelection.all(), exec);
@@ -660,6 +669,7 @@ public final class StreamTestWithHashStreamValueTable implements
      * {@link CompressionUtils}
      * {@link ConstraintCheckingTransaction}
      * {@link Descending}
+     * {@link EncodingBuffer}
      * {@link EncodingUtils}
      * {@link Entry}
      * {@link EnumSet}
@@ -709,5 +719,5 @@ public final class StreamTestWithHashStreamValueTable implements
      * {@link UnsignedBytes}
      * {@link ValueType}
      */
-    static String __CLASS_HASH = "5yyhOKf8MpAopIcJMcvNGw==";
+    static String __CLASS_HASH = "uy4HjXmaalj+aXkEVgzQ2w==";
 }
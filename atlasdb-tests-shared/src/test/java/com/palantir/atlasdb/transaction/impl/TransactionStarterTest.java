@@ -0,0 +1,143 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.palantir.atlasdb.transaction.api.TransactionStartResponse;
+import com.palantir.atlasdb.transaction.api.TransactionStartService;
+import com.palantir.lock.LockRefreshToken;
+import com.palantir.lock.LockServerOptions;
+import com.palantir.lock.impl.LockServiceImpl;
+import com.palantir.timestamp.InMemoryTimestampService;
+
+public class TransactionStarterTest {
+    private static final String CLIENT = "client";
+    private static final long LONG_SHARE_WINDOW_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private LockServiceImpl lockService;
+    private TransactionStartService startService;
+    private final AtomicInteger startCalls = new AtomicInteger();
+    private volatile boolean failStarts = false;
+
+    @Before
+    public void setUp() {
+        lockService = LockServiceImpl.create(new LockServerOptions() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public boolean isStandaloneServer() {
+                return false;
+            }
+        });
+        final TransactionStartService delegate =
+                new TransactionStartServiceImpl(lockService, new InMemoryTimestampService());
+        startService = new TransactionStartService() {
+            @Override
+            public TransactionStartResponse startTransaction(String client) throws InterruptedException {
+                startCalls.incrementAndGet();
+                if (failStarts) {
+                    throw new IllegalStateException("lock server is unavailable");
+                }
+                return delegate.startTransaction(client);
+            }
+        };
+    }
+
+    @After
+    public void tearDown() {
+        lockService.close();
+    }
+
+    @Test
+    public void testLockIsReleasedOnlyByLastSharer() {
+        TransactionStarter starter = new TransactionStarter(startService, lockService, CLIENT, LONG_SHARE_WINDOW_MILLIS);
+        TransactionStarter.Start first = starter.start();
+        TransactionStarter.Start second = starter.start();
+        assertEquals(1, startCalls.get());
+        assertEquals(first.getImmutableTsLock(), second.getImmutableTsLock());
+        assertEquals(first.getImmutableTimestamp(), second.getImmutableTimestamp());
+        assertTrue(first.getStartTimestamp().isPresent());
+        assertFalse(second.getStartTimestamp().isPresent());
+
+        starter.release(first.getImmutableTsLock());
+        assertTrue(isHeld(first.getImmutableTsLock()));
+        starter.release(second.getImmutableTsLock());
+        assertFalse(isHeld(first.getImmutableTsLock()));
+
+        // The released lock must not be handed out again
+        TransactionStarter.Start third = starter.start();
+        assertEquals(2, startCalls.get());
+        assertNotEquals(first.getImmutableTsLock(), third.getImmutableTsLock());
+        starter.release(third.getImmutableTsLock());
+        assertFalse(isHeld(third.getImmutableTsLock()));
+    }
+
+    @Test
+    public void testStartAfterShareWindowTakesFreshLock() throws InterruptedException {
+        TransactionStarter starter = new TransactionStarter(startService, lockService, CLIENT, 50);
+        TransactionStarter.Start first = starter.start();
+        Thread.sleep(100);
+        TransactionStarter.Start second = starter.start();
+        assertEquals(2, startCalls.get());
+        assertNotEquals(first.getImmutableTsLock(), second.getImmutableTsLock());
+        assertTrue(second.getStartTimestamp().isPresent());
+
+        starter.release(first.getImmutableTsLock());
+        assertFalse(isHeld(first.getImmutableTsLock()));
+        assertTrue(isHeld(second.getImmutableTsLock()));
+        starter.release(second.getImmutableTsLock());
+        assertFalse(isHeld(second.getImmutableTsLock()));
+    }
+
+    @Test
+    public void testReleaseAfterFailedStart() {
+        TransactionStarter starter = new TransactionStarter(startService, lockService, CLIENT, 0);
+        TransactionStarter.Start first = starter.start();
+        failStarts = true;
+        try {
+            starter.start();
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        failStarts = false;
+
+        starter.release(first.getImmutableTsLock());
+        assertFalse(isHeld(first.getImmutableTsLock()));
+
+        TransactionStarter.Start second = starter.start();
+        assertTrue(isHeld(second.getImmutableTsLock()));
+        starter.release(second.getImmutableTsLock());
+        assertFalse(isHeld(second.getImmutableTsLock()));
+    }
+
+    private boolean isHeld(LockRefreshToken lock) {
+        return lockService.refreshLockRefreshTokens(ImmutableList.of(lock)).contains(lock);
+    }
+}
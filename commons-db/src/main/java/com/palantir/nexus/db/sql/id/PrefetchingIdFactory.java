@@ -0,0 +1,238 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.nexus.db.sql.id;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.apache.commons.lang.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.palantir.common.concurrent.NamedThreadFactory;
+import com.palantir.common.concurrent.PTExecutors;
+import com.palantir.exception.PalantirSqlException;
+
+/**
+ * An IdFactory that fetches IDs from its generator ahead of demand on a background thread, so
+ * that callers do not wait on a database round trip during bursts.
+ * <p>
+ * Fetched blocks are split into small sub-blocks in a lock-free queue, and each thread hands out
+ * IDs from the sub-block it last took without any shared lock. Once fewer IDs than the low-water
+ * mark are queued, the next block is fetched. Block sizes follow the rate at which sub-blocks
+ * were taken since the previous fetch, aiming to cover about a second of demand, and the
+ * low-water mark covers a few fetches' worth of demand at that rate. Callers only block when the
+ * queue runs dry, and then all of them wait for the same fetch.
+ * <p>
+ * Like {@link IdCache} with background threads, IDs are not handed out in sequence order, and
+ * IDs left in the sub-blocks of idle threads or queued at shutdown are never used.
+ */
+@ThreadSafe
+public class PrefetchingIdFactory implements IdFactory {
+    private static final Logger log = LoggerFactory.getLogger(IdFactory.class);
+
+    static final int SUB_BLOCK_SIZE = 64;
+    static final int MIN_BLOCK_SIZE = 1024;
+    static final int MAX_BLOCK_SIZE = 64 * 1024;
+    private static final long TARGET_BLOCK_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final int FETCH_LATENCY_HEADROOM = 4;
+
+    private final IdGenerator idGenerator;
+    private final ExecutorService executor;
+    private final Queue<long[]> subBlocks = new ConcurrentLinkedQueue<long[]>();
+    private final AtomicLong queuedIds = new AtomicLong();
+    private final AtomicLong idsTaken = new AtomicLong();
+    private final ThreadLocal<SubBlock> currentSubBlock = new ThreadLocal<SubBlock>() {
+        @Override
+        protected SubBlock initialValue() {
+            return new SubBlock();
+        }
+    };
+
+    private volatile int blockSize = MIN_BLOCK_SIZE;
+    private volatile long lowWaterMark = MIN_BLOCK_SIZE / 2;
+    private volatile Future<?> fetch = null;
+
+    // Only accessed by the fetching thread.
+    private long idsTakenAtLastFetch = 0;
+    private long lastFetchNanos = System.nanoTime();
+    private double idsPerNano = 0.0;
+
+    public PrefetchingIdFactory(IdGenerator idGenerator) {
+        this.idGenerator = idGenerator;
+        this.executor = PTExecutors.newSingleThreadExecutor(
+                new NamedThreadFactory("Prefetching ID generation thread", /* isDaemon */ true)); //$NON-NLS-1$
+    }
+
+    @Override
+    public long getNextId() throws PalantirSqlException {
+        SubBlock current = currentSubBlock.get();
+        if (current.isEmpty()) {
+            current.reset(takeSubBlock());
+        }
+        return current.next();
+    }
+
+    @Override
+    public long[] getNextIds(int size) throws PalantirSqlException {
+        long[] ids = new long[size];
+        getNextIds(ids);
+        return ids;
+    }
+
+    @Override
+    public void getNextIds(long[] ids) throws PalantirSqlException {
+        SubBlock current = currentSubBlock.get();
+        int offset = 0;
+        while (offset < ids.length) {
+            if (current.isEmpty()) {
+                current.reset(takeSubBlock());
+            }
+            offset += current.drainTo(ids, offset);
+        }
+    }
+
+    /**
+     * Stops fetching IDs. IDs that were already fetched are still handed out, after which
+     * callers fail.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    int getBlockSize() {
+        return blockSize;
+    }
+
+    private long[] takeSubBlock() throws PalantirSqlException {
+        while (true) {
+            long[] ids = subBlocks.poll();
+            if (ids != null) {
+                idsTaken.addAndGet(ids.length);
+                if (queuedIds.addAndGet(-ids.length) < lowWaterMark) {
+                    startFetch();
+                }
+                return ids;
+            }
+            waitFor(startFetch());
+        }
+    }
+
+    private Future<?> startFetch() {
+        Future<?> current = fetch;
+        if (current != null && !current.isDone()) {
+            return current;
+        }
+        synchronized (this) {
+            if (fetch == null || fetch.isDone()) {
+                fetch = executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            do {
+                                fetchBlock();
+                            } while (queuedIds.get() < lowWaterMark && !Thread.currentThread().isInterrupted());
+                        } catch (RuntimeException | Error e) {
+                            // Callers only see this if they wait on this fetch, so log it here too.
+                            log.warn("Error prefetching IDs in the background", e); //$NON-NLS-1$
+                            throw e;
+                        }
+                    }
+                });
+            }
+            return fetch;
+        }
+    }
+
+    private static void waitFor(Future<?> future) throws PalantirSqlException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PalantirSqlException("Interrupted while waiting for IDs", e); //$NON-NLS-1$
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new PalantirSqlException("Failed to generate IDs", cause); //$NON-NLS-1$
+        }
+    }
+
+    // Only called on the fetching thread.
+    private void fetchBlock() throws PalantirSqlException {
+        long start = System.nanoTime();
+        long taken = idsTaken.get();
+        if (start > lastFetchNanos) {
+            double rate = (double) (taken - idsTakenAtLastFetch) / (start - lastFetchNanos);
+            // Follow increases immediately but let the rate fall back gradually.
+            idsPerNano = Math.max(rate, idsPerNano / 2);
+        }
+        idsTakenAtLastFetch = taken;
+        lastFetchNanos = start;
+        int size = (int) Math.min(MAX_BLOCK_SIZE, Math.max(MIN_BLOCK_SIZE, idsPerNano * TARGET_BLOCK_NANOS));
+        blockSize = size;
+
+        long[] ids = new long[size];
+        int generated = idGenerator.generate(ids);
+        Validate.isTrue(generated > 0, "The backing ID generator returned no IDs."); //$NON-NLS-1$
+        for (int i = 0; i < generated; i += SUB_BLOCK_SIZE) {
+            subBlocks.add(Arrays.copyOfRange(ids, i, Math.min(generated, i + SUB_BLOCK_SIZE)));
+        }
+        queuedIds.addAndGet(generated);
+
+        long latency = System.nanoTime() - start;
+        lowWaterMark = Math.min(size, Math.max(size / 2, (long) (idsPerNano * latency * FETCH_LATENCY_HEADROOM)));
+        if (log.isDebugEnabled()) {
+            log.debug("Fetched {} IDs in {} ms.", generated, TimeUnit.NANOSECONDS.toMillis(latency)); //$NON-NLS-1$
+        }
+    }
+
+    private static final class SubBlock {
+        private long[] ids = new long[0];
+        private int next = 0;
+
+        boolean isEmpty() {
+            return next == ids.length;
+        }
+
+        void reset(long[] newIds) {
+            ids = newIds;
+            next = 0;
+        }
+
+        long next() {
+            return ids[next++];
+        }
+
+        int drainTo(long[] dest, int offset) {
+            int count = Math.min(ids.length - next, dest.length - offset);
+            System.arraycopy(ids, next, dest, offset, count);
+            next += count;
+            return count;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.nexus.db.sql.id;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.palantir.exception.PalantirSqlException;
+
+public class PrefetchingIdFactoryTest extends Assert {
+    private static final int NUM_THREADS = 8;
+    private static final int IDS_PER_THREAD = 20000;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicBoolean failing = new AtomicBoolean(false);
+    private final IdGenerator generator = new IdGenerator() {
+        @Override
+        public int generate(long[] ids) {
+            if (failing.get()) {
+                throw PalantirSqlException.create("sequence unavailable");
+            }
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = sequence.incrementAndGet();
+            }
+            return ids.length;
+        }
+    };
+
+    @Test
+    public void testIdsAreUniqueAcrossThreads() throws Exception {
+        final PrefetchingIdFactory factory = new PrefetchingIdFactory(generator);
+        ExecutorService executor = Executors.newFixedThreadPool(NUM_THREADS);
+        try {
+            List<Future<long[]>> futures = Lists.newArrayList();
+            for (int i = 0; i < NUM_THREADS; i++) {
+                futures.add(executor.submit(new Callable<long[]>() {
+                    @Override
+                    public long[] call() {
+                        long[] ids = new long[IDS_PER_THREAD];
+                        long[] batch = new long[99];
+                        int offset = 0;
+                        while (offset + batch.length + 1 <= ids.length) {
+                            ids[offset++] = factory.getNextId();
+                            factory.getNextIds(batch);
+                            System.arraycopy(batch, 0, ids, offset, batch.length);
+                            offset += batch.length;
+                        }
+                        while (offset < ids.length) {
+                            ids[offset++] = factory.getNextId();
+                        }
+                        return ids;
+                    }
+                }));
+            }
+            Set<Long> seen = Sets.newHashSet();
+            for (Future<long[]> future : futures) {
+                for (long id : future.get()) {
+                    assertTrue("Duplicate id " + id, seen.add(id));
+                }
+            }
+            assertEquals(NUM_THREADS * IDS_PER_THREAD, seen.size());
+            assertTrue(factory.getBlockSize() >= PrefetchingIdFactory.MIN_BLOCK_SIZE);
+        } finally {
+            executor.shutdown();
+            factory.shutdown();
+        }
+    }
+
+    @Test
+    public void testRecoversAfterGeneratorFailure() {
+        PrefetchingIdFactory factory = new PrefetchingIdFactory(generator);
+        try {
+            failing.set(true);
+            try {
+                factory.getNextId();
+                fail("Expected the generator failure to be rethrown");
+            } catch (PalantirSqlException e) {
+                // expected
+            }
+            failing.set(false);
+            assertEquals(1L, factory.getNextId());
+        } finally {
+            factory.shutdown();
+        }
+    }
+}
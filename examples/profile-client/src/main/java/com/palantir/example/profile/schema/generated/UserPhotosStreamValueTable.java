@@ -51,6 +51,7 @@ import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.impl.Cells;
+import com.palantir.atlasdb.ptobject.EncodingBuffer;
 import com.palantir.atlasdb.ptobject.EncodingUtils;
 import com.palantir.atlasdb.table.api.AtlasDbDynamicMutableExpiringTable;
 import com.palantir.atlasdb.table.api.AtlasDbDynamicMutablePersistentTable;
@@ -180,9 +181,10 @@ public final class UserPhotosStreamValueTable implements
 
         @Override
         public byte[] persistToBytes() {
-            byte[] idBytes = EncodingUtils.encodeUnsignedVarLong(id);
-            byte[] blockIdBytes = EncodingUtils.encodeUnsignedVarLong(blockId);
-            return EncodingUtils.add(idBytes, blockIdBytes);
+            EncodingBuffer __buffer = EncodingBuffer.threadLocal();
+            __buffer.putUnsignedVarLong(id);
+            __buffer.putUnsignedVarLong(blockId);
+            return __buffer.toByteArray();
         }
 
         public static final Hydrator<UserPhotosStreamValueRow> BYTES_HYDRATOR = new Hydrator<UserPhotosStreamValueRow>() {
@@ -302,6 +304,7 @@ public final class UserPhotosStreamValueTable implements
 
     public static final class UserPhotosStreamValueRowResult implements TypedRowResult {
         private final RowResult<byte[]> row;
+        private Value valueValue;
 
         public static UserPhotosStreamValueRowResult of(RowResult<byte[]> row) {
             return new UserPhotosStreamValueRowResult(row);
@@ -339,12 +342,14 @@ public final class UserPhotosStreamValueTable implements
         }
 
         public byte[] getValue() {
-            byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("v"));
-            if (bytes == null) {
-                return null;
+            if (valueValue == null) {
+                byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("v"));
+                if (bytes == null) {
+                    return null;
+                }
+                valueValue = Value.BYTES_HYDRATOR.hydrateFromBytes(bytes);
             }
-            Value value = Value.BYTES_HYDRATOR.hydrateFromBytes(bytes);
-            return value.getValue();
+            return valueValue.getValue();
         }
 
         public static Function<UserPhotosStreamValueRowResult, byte[]> getValueFun() {
@@ -511,6 +516,10 @@ public final class UserPhotosStreamValueTable implements
         return rowResults;
     }
 
+    public List<UserPhotosStreamValueRowResult> getRows(Iterable<UserPhotosStreamValueRow> rows, Collection<UserPhotosStreamValueNamedColumn> columns) {
+        return getRows(rows, getColumnSelection(columns));
+    }
+
     @Override
     public List<UserPhotosStreamValueRowResult> getAsyncRows(Iterable<UserPhotosStreamValueRow> rows, ExecutorService exec) {
         return getAsyncRows(rows, ColumnSelection.all(), exec);
@@ -651,6 +660,7 @@ public final class UserPhotosStreamValueTable implements
      * {@link CompressionUtils}
      * {@link ConstraintCheckingTransaction}
      * {@link Descending}
+     * {@link EncodingBuffer}
      * {@link EncodingUtils}
      * {@link Entry}
      * {@link EnumSet}
@@ -700,5 +710,5 @@ public final class UserPhotosStreamValueTable implements
      * {@link UnsignedBytes}
      * {@link ValueType}
      */
-    static String __CLASS_HASH = "UzI7TXUlWL5M9KqjP/k4WA==";
+    static String __CLASS_HASH = "iitq913OHZRDB9XuryHBNQ==";
 }
@@ -51,6 +51,7 @@ import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.impl.Cells;
+import com.palantir.atlasdb.ptobject.EncodingBuffer;
 import com.palantir.atlasdb.ptobject.EncodingUtils;
 import com.palantir.atlasdb.table.api.AtlasDbDynamicMutableExpiringTable;
 import com.palantir.atlasdb.table.api.AtlasDbDynamicMutablePersistentTable;
@@ -173,8 +174,9 @@ public final class UserProfileTable implements
 
         @Override
         public byte[] persistToBytes() {
-            byte[] idBytes = EncodingUtils.encodeUUID(id);
-            return EncodingUtils.add(idBytes);
+            EncodingBuffer __buffer = EncodingBuffer.threadLocal();
+            __buffer.putUUID(id);
+            return __buffer.toByteArray();
         }
 
         public static final Hydrator<UserProfileRow> BYTES_HYDRATOR = new Hydrator<UserProfileRow>() {
@@ -487,6 +489,10 @@ public final class UserProfileTable implements
 
     public static final class UserProfileRowResult implements TypedRowResult {
         private final RowResult<byte[]> row;
+        private Create createValue;
+        private Json jsonValue;
+        private Metadata metadataValue;
+        private PhotoStreamId photoStreamIdValue;
 
         public static UserProfileRowResult of(RowResult<byte[]> row) {
             return new UserProfileRowResult(row);
@@ -536,39 +542,47 @@ public final class UserProfileTable implements
         }
 
         public com.palantir.example.profile.schema.CreationData getCreate() {
-            byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("c"));
-            if (bytes == null) {
-                return null;
+            if (createValue == null) {
+                byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("c"));
+                if (bytes == null) {
+                    return null;
+                }
+                createValue = Create.BYTES_HYDRATOR.hydrateFromBytes(bytes);
             }
-            Create value = Create.BYTES_HYDRATOR.hydrateFromBytes(bytes);
-            return value.getValue();
+            return createValue.getValue();
         }
 
         public com.fasterxml.jackson.databind.JsonNode getJson() {
-            byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("j"));
-            if (bytes == null) {
-                return null;
+            if (jsonValue == null) {
+                byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("j"));
+                if (bytes == null) {
+                    return null;
+                }
+                jsonValue = Json.BYTES_HYDRATOR.hydrateFromBytes(bytes);
             }
-            Json value = Json.BYTES_HYDRATOR.hydrateFromBytes(bytes);
-            return value.getValue();
+            return jsonValue.getValue();
         }
 
         public com.palantir.example.profile.protos.generated.ProfilePersistence.UserProfile getMetadata() {
-            byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("m"));
-            if (bytes == null) {
-                return null;
+            if (metadataValue == null) {
+                byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("m"));
+                if (bytes == null) {
+                    return null;
+                }
+                metadataValue = Metadata.BYTES_HYDRATOR.hydrateFromBytes(bytes);
             }
-            Metadata value = Metadata.BYTES_HYDRATOR.hydrateFromBytes(bytes);
-            return value.getValue();
+            return metadataValue.getValue();
         }
 
         public Long getPhotoStreamId() {
-            byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("p"));
-            if (bytes == null) {
-                return null;
+            if (photoStreamIdValue == null) {
+                byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("p"));
+                if (bytes == null) {
+                    return null;
+                }
+                photoStreamIdValue = PhotoStreamId.BYTES_HYDRATOR.hydrateFromBytes(bytes);
             }
-            PhotoStreamId value = PhotoStreamId.BYTES_HYDRATOR.hydrateFromBytes(bytes);
-            return value.getValue();
+            return photoStreamIdValue.getValue();
         }
 
         public static Function<UserProfileRowResult, com.palantir.example.profile.schema.CreationData> getCreateFun() {
@@ -832,20 +846,22 @@ public final class UserProfileTable implements
         deleteCookiesIdx(affectedCells);
         deleteCreatedIdx(affectedCells);
         deleteUserBirthdaysIdx(affectedCells);
+        Multimap<CookiesIdxTable.CookiesIdxRow, CookiesIdxTable.CookiesIdxColumnValue> cookiesIdxPuts = ArrayListMultimap.create();
+        Multimap<CreatedIdxTable.CreatedIdxRow, CreatedIdxTable.CreatedIdxColumnValue> createdIdxPuts = ArrayListMultimap.create();
+        Multimap<UserBirthdaysIdxTable.UserBirthdaysIdxRow, UserBirthdaysIdxTable.UserBirthdaysIdxColumnValue> userBirthdaysIdxPuts = ArrayListMultimap.create();
         for (Entry<UserProfileRow, ? extends UserProfileNamedColumnValue<?>> e : rows.entries()) {
             if (e.getValue() instanceof Json)
             {
                 Json col = (Json) e.getValue();
                 {
                     UserProfileRow row = e.getKey();
-                    CookiesIdxTable table = CookiesIdxTable.of(this);
                     Iterable<String> cookieIterable = com.palantir.example.profile.schema.ProfileSchema.getCookies(col.getValue());
                     java.util.UUID id = row.getId();
                     for (String cookie : cookieIterable) {
                         CookiesIdxTable.CookiesIdxRow indexRow = CookiesIdxTable.CookiesIdxRow.of(cookie);
                         CookiesIdxTable.CookiesIdxColumn indexCol = CookiesIdxTable.CookiesIdxColumn.of(row.persistToBytes(), e.getValue().persistColumnName(), id);
                         CookiesIdxTable.CookiesIdxColumnValue indexColVal = CookiesIdxTable.CookiesIdxColumnValue.of(indexCol, 0L);
-                        table.put(indexRow, indexColVal);
+                        cookiesIdxPuts.put(indexRow, indexColVal);
                     }
                 }
             }
@@ -854,13 +870,12 @@ public final class UserProfileTable implements
                 Create col = (Create) e.getValue();
                 {
                     UserProfileRow row = e.getKey();
-                    CreatedIdxTable table = CreatedIdxTable.of(this);
                     long time = col.getValue().getTimeCreated();
                     java.util.UUID id = row.getId();
                     CreatedIdxTable.CreatedIdxRow indexRow = CreatedIdxTable.CreatedIdxRow.of(time);
                     CreatedIdxTable.CreatedIdxColumn indexCol = CreatedIdxTable.CreatedIdxColumn.of(row.persistToBytes(), e.getValue().persistColumnName(), id);
                     CreatedIdxTable.CreatedIdxColumnValue indexColVal = CreatedIdxTable.CreatedIdxColumnValue.of(indexCol, 0L);
-                    table.put(indexRow, indexColVal);
+                    createdIdxPuts.put(indexRow, indexColVal);
                 }
             }
             if (e.getValue() instanceof Metadata)
@@ -868,16 +883,24 @@ public final class UserProfileTable implements
                 Metadata col = (Metadata) e.getValue();
                 {
                     UserProfileRow row = e.getKey();
-                    UserBirthdaysIdxTable table = UserBirthdaysIdxTable.of(this);
                     long birthday = col.getValue().getBirthEpochDay();
                     java.util.UUID id = row.getId();
                     UserBirthdaysIdxTable.UserBirthdaysIdxRow indexRow = UserBirthdaysIdxTable.UserBirthdaysIdxRow.of(birthday);
                     UserBirthdaysIdxTable.UserBirthdaysIdxColumn indexCol = UserBirthdaysIdxTable.UserBirthdaysIdxColumn.of(row.persistToBytes(), e.getValue().persistColumnName(), id);
                     UserBirthdaysIdxTable.UserBirthdaysIdxColumnValue indexColVal = UserBirthdaysIdxTable.UserBirthdaysIdxColumnValue.of(indexCol, 0L);
-                    table.put(indexRow, indexColVal);
+                    userBirthdaysIdxPuts.put(indexRow, indexColVal);
                 }
             }
         }
+        if (!cookiesIdxPuts.isEmpty()) {
+            CookiesIdxTable.of(this).put(cookiesIdxPuts);
+        }
+        if (!createdIdxPuts.isEmpty()) {
+            CreatedIdxTable.of(this).put(createdIdxPuts);
+        }
+        if (!userBirthdaysIdxPuts.isEmpty()) {
+            UserBirthdaysIdxTable.of(this).put(userBirthdaysIdxPuts);
+        }
         t.put(tableRef, ColumnValues.toCellValues(rows));
         for (UserProfileTrigger trigger : triggers) {
             trigger.putUserProfile(rows);
@@ -993,7 +1016,7 @@ public final class UserProfileTable implements
 
     @Override
     public void delete(Iterable<UserProfileRow> rows) {
-        Multimap<UserProfileRow, UserProfileNamedColumnValue<?>> result = getRowsMultimap(rows);
+        Multimap<UserProfileRow, UserProfileNamedColumnValue<?>> result = getRowsMultimap(rows, ColumnSelection.create(ImmutableList.of(PtBytes.toCachedBytes("c"), PtBytes.toCachedBytes("j"), PtBytes.toCachedBytes("m"))));
         deleteCookiesIdx(result);
         deleteCreatedIdx(result);
         deleteUserBirthdaysIdx(result);
@@ -1037,6 +1060,10 @@ public final class UserProfileTable implements
         return rowResults;
     }
 
+    public List<UserProfileRowResult> getRows(Iterable<UserProfileRow> rows, Collection<UserProfileNamedColumn> columns) {
+        return getRows(rows, getColumnSelection(columns));
+    }
+
     @Override
     public List<UserProfileRowResult> getAsyncRows(Iterable<UserProfileRow> rows, ExecutorService exec) {
         return getAsyncRows(rows, ColumnSelection.all(), exec);
@@ -1118,7 +1145,15 @@ public final class UserProfileTable implements
     }
 
     private Multimap<UserProfileRow, UserProfileNamedColumnValue<?>> getAffectedCells(Multimap<UserProfileRow, ? extends UserProfileNamedColumnValue<?>> rows) {
-        Multimap<UserProfileRow, UserProfileNamedColumnValue<?>> oldData = getRowsMultimap(rows.keySet());
+        Set<String> shortNames = new HashSet<String>();
+        for (UserProfileNamedColumnValue<?> v : rows.values()) {
+            shortNames.add(v.getShortColumnName());
+        }
+        List<byte[]> columnNames = Lists.newArrayListWithCapacity(shortNames.size());
+        for (String shortName : shortNames) {
+            columnNames.add(PtBytes.toCachedBytes(shortName));
+        }
+        Multimap<UserProfileRow, UserProfileNamedColumnValue<?>> oldData = getRowsMultimap(rows.keySet(), ColumnSelection.create(columnNames));
         Multimap<UserProfileRow, UserProfileNamedColumnValue<?>> cellsAffected = ArrayListMultimap.create();
         for (UserProfileRow row : oldData.keySet()) {
             Set<String> columns = new HashSet<String>();
@@ -1301,8 +1336,9 @@ public final class UserProfileTable implements
 
             @Override
             public byte[] persistToBytes() {
-                byte[] cookieBytes = PtBytes.toBytes(cookie);
-                return EncodingUtils.add(cookieBytes);
+                EncodingBuffer __buffer = EncodingBuffer.threadLocal();
+                __buffer.putString(cookie);
+                return __buffer.toByteArray();
             }
 
             public static final Hydrator<CookiesIdxRow> BYTES_HYDRATOR = new Hydrator<CookiesIdxRow>() {
@@ -1415,10 +1451,11 @@ public final class UserProfileTable implements
 
             @Override
             public byte[] persistToBytes() {
-                byte[] rowNameBytes = EncodingUtils.encodeSizedBytes(rowName);
-                byte[] columnNameBytes = EncodingUtils.encodeSizedBytes(columnName);
-                byte[] idBytes = EncodingUtils.encodeUUID(id);
-                return EncodingUtils.add(rowNameBytes, columnNameBytes, idBytes);
+                EncodingBuffer __buffer = EncodingBuffer.threadLocal();
+                __buffer.putSizedBytes(rowName);
+                __buffer.putSizedBytes(columnName);
+                __buffer.putUUID(id);
+                return __buffer.toByteArray();
             }
 
             public static final Hydrator<CookiesIdxColumn> BYTES_HYDRATOR = new Hydrator<CookiesIdxColumn>() {
@@ -1937,8 +1974,9 @@ public final class UserProfileTable implements
 
             @Override
             public byte[] persistToBytes() {
-                byte[] timeBytes = EncodingUtils.encodeUnsignedVarLong(time);
-                return EncodingUtils.add(timeBytes);
+                EncodingBuffer __buffer = EncodingBuffer.threadLocal();
+                __buffer.putUnsignedVarLong(time);
+                return __buffer.toByteArray();
             }
 
             public static final Hydrator<CreatedIdxRow> BYTES_HYDRATOR = new Hydrator<CreatedIdxRow>() {
@@ -2051,10 +2089,11 @@ public final class UserProfileTable implements
 
             @Override
             public byte[] persistToBytes() {
-                byte[] rowNameBytes = EncodingUtils.encodeSizedBytes(rowName);
-                byte[] columnNameBytes = EncodingUtils.encodeSizedBytes(columnName);
-                byte[] idBytes = EncodingUtils.encodeUUID(id);
-                return EncodingUtils.add(rowNameBytes, columnNameBytes, idBytes);
+                EncodingBuffer __buffer = EncodingBuffer.threadLocal();
+                __buffer.putSizedBytes(rowName);
+                __buffer.putSizedBytes(columnName);
+                __buffer.putUUID(id);
+                return __buffer.toByteArray();
             }
 
             public static final Hydrator<CreatedIdxColumn> BYTES_HYDRATOR = new Hydrator<CreatedIdxColumn>() {
@@ -2573,8 +2612,9 @@ public final class UserProfileTable implements
 
             @Override
             public byte[] persistToBytes() {
-                byte[] birthdayBytes = EncodingUtils.encodeSignedVarLong(birthday);
-                return EncodingUtils.add(birthdayBytes);
+                EncodingBuffer __buffer = EncodingBuffer.threadLocal();
+                __buffer.putSignedVarLong(birthday);
+                return __buffer.toByteArray();
             }
 
             public static final Hydrator<UserBirthdaysIdxRow> BYTES_HYDRATOR = new Hydrator<UserBirthdaysIdxRow>() {
@@ -2687,10 +2727,11 @@ public final class UserProfileTable implements
 
             @Override
             public byte[] persistToBytes() {
-                byte[] rowNameBytes = EncodingUtils.encodeSizedBytes(rowName);
-                byte[] columnNameBytes = EncodingUtils.encodeSizedBytes(columnName);
-                byte[] idBytes = EncodingUtils.encodeUUID(id);
-                return EncodingUtils.add(rowNameBytes, columnNameBytes, idBytes);
+                EncodingBuffer __buffer = EncodingBuffer.threadLocal();
+                __buffer.putSizedBytes(rowName);
+                __buffer.putSizedBytes(columnName);
+                __buffer.putUUID(id);
+                return __buffer.toByteArray();
             }
 
             public static final Hydrator<UserBirthdaysIdxColumn> BYTES_HYDRATOR = new Hydrator<UserBirthdaysIdxColumn>() {
@@ -3155,6 +3196,7 @@ public final class UserProfileTable implements
      * {@link CompressionUtils}
      * {@link ConstraintCheckingTransaction}
      * {@link Descending}
+     * {@link EncodingBuffer}
      * {@link EncodingUtils}
      * {@link Entry}
      * {@link EnumSet}
@@ -3204,5 +3246,5 @@ public final class UserProfileTable implements
      * {@link UnsignedBytes}
      * {@link ValueType}
      */
-    static String __CLASS_HASH = "O3BBdePYKzyTMAnT96FW7Q==";
+    static String __CLASS_HASH = "+BQY9ENjMAckMRI/NKQImw==";
 }
@@ -27,6 +27,7 @@ import javax.ws.rs.core.MediaType;
 
 import com.palantir.common.annotation.Idempotent;
 import com.palantir.common.annotation.NonIdempotent;
+import com.palantir.common.remoting.RemotingMediaTypes;
 
 @Path("/lock")
 public interface RemoteLockService {
@@ -36,8 +37,8 @@ public interface RemoteLockService {
      */
     @POST
     @Path("lock/{client: .*}")
-    @Produces(MediaType.APPLICATION_JSON)
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
+    @Consumes({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
     @Nullable
     LockRefreshToken lock(@PathParam("client") String client, LockRequest request) throws InterruptedException;
 
@@ -47,8 +48,8 @@ public interface RemoteLockService {
      */
     @POST
     @Path("try-lock/{client: .*}")
-    @Produces(MediaType.APPLICATION_JSON)
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
+    @Consumes({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
     HeldLocksToken lockAndGetHeldLocks(@PathParam("client") String client, LockRequest request) throws InterruptedException;
 
     /**
@@ -64,8 +65,8 @@ public interface RemoteLockService {
      */
     @POST
     @Path("unlock")
-    @Produces(MediaType.APPLICATION_JSON)
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
+    @Consumes({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
     @NonIdempotent boolean unlock(LockRefreshToken token);
 
     /**
@@ -75,8 +76,8 @@ public interface RemoteLockService {
      */
     @POST
     @Path("refresh-lock-tokens")
-    @Produces(MediaType.APPLICATION_JSON)
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
+    @Consumes({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
     @Idempotent Set<LockRefreshToken> refreshLockRefreshTokens(Iterable<LockRefreshToken> tokens);
 
     /**
@@ -86,14 +87,14 @@ public interface RemoteLockService {
      */
     @POST
     @Path("min-locked-in-version/{client: .*}")
-    @Produces(MediaType.APPLICATION_JSON)
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
+    @Consumes({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
     @Idempotent @Nullable Long getMinLockedInVersionId(@PathParam("client") String client);
 
     /** Returns the current time in milliseconds on the server. */
     @POST
     @Path("current-time-millis")
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
     @Idempotent long currentTimeMillis();
 
     @POST
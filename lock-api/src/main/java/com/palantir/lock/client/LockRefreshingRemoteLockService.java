@@ -95,6 +95,14 @@ public class LockRefreshingRemoteLockService extends ForwardingRemoteLockService
         return ret;
     }
 
+    /**
+     * Starts refreshing a lock that was acquired without going through this service, for example
+     * as part of a combined remote call. It is refreshed until it is unlocked through this service.
+     */
+    public void addLockToRefresh(LockRefreshToken token) {
+        toRefresh.add(token);
+    }
+
     @Override
     public boolean unlock(LockRefreshToken token) {
         toRefresh.remove(token);
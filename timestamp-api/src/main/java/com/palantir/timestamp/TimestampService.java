@@ -21,6 +21,8 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 
+import com.palantir.common.remoting.RemotingMediaTypes;
+
 @Path("/timestamp")
 public interface TimestampService {
     /**
@@ -29,7 +31,7 @@ public interface TimestampService {
      */
     @POST // This has to be POST because we can't allow caching.
     @Path("fresh-timestamp")
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
     long getFreshTimestamp();
 
     /**
@@ -38,6 +40,6 @@ public interface TimestampService {
      */
     @POST // This has to be POST because we can't allow caching.
     @Path("fresh-timestamps")
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, RemotingMediaTypes.APPLICATION_JACKSON_SMILE})
     TimestampRange getFreshTimestamps(@QueryParam("number") int numTimestampsRequested);
 }
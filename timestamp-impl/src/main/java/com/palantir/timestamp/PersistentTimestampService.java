@@ -16,6 +16,7 @@
 package com.palantir.timestamp;
 
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -31,6 +32,16 @@ import com.palantir.common.remoting.ServiceNotAvailableException;
 import com.palantir.common.time.Clock;
 import com.palantir.exception.PalantirInterruptedException;
 
+/**
+ * Hands out timestamps from a range reserved in a {@link TimestampBoundStore}.
+ * <p>
+ * The range is extended in the background before it runs out. Each extension is sized from the
+ * rate at which timestamps were handed out since the previous one, so that it lasts about thirty
+ * seconds, but is never smaller than a million timestamps nor larger than a hundred million.
+ * The rate falls back gradually when demand drops, so a burst does not immediately shrink the
+ * buffer again. An extension starts once half of the buffer is used or once fewer timestamps are
+ * left than would be handed out during a few round trips to the store, whichever comes first.
+ */
 @ThreadSafe
 public class PersistentTimestampService implements TimestampService {
     private static final Logger log = LoggerFactory.getLogger(PersistentTimestampService.class);
@@ -38,6 +49,10 @@ public class PersistentTimestampService implements TimestampService {
     private static final int MAX_REQUEST_RANGE_SIZE = 10 * 1000;
     static final long ALLOCATION_BUFFER_SIZE = 1000 * 1000;
     private static final int ONE_MINUTE_IN_MILLIS = 60000;
+    private static final long MAX_ALLOCATION_BUFFER_SIZE = 100 * ALLOCATION_BUFFER_SIZE;
+    private static final long TARGET_BUFFER_MILLIS = 30 * 1000;
+    private static final double RATE_DECAY = 0.5;
+    private static final int STORE_LATENCY_HEADROOM = 4;
 
     private final TimestampBoundStore store;
 
@@ -48,7 +63,14 @@ public class PersistentTimestampService implements TimestampService {
     private final AtomicBoolean isAllocationTaskSubmitted;
 
     private Clock clock;
-    private long lastAllocatedTime;
+    private volatile long lastAllocatedTime;
+
+    // Only written while holding the lock in allocateMoreTimestamps or fastForwardTimestamp.
+    private long lastReturnedAtLastAllocation;
+    private double handoutRatePerMilli = 0.0;
+    private double storeLatencyMillis = 0.0;
+    private volatile long allocationSize = ALLOCATION_BUFFER_SIZE;
+    private volatile long refillThreshold = ALLOCATION_BUFFER_SIZE / 2;
 
     public static PersistentTimestampService create(TimestampBoundStore tbs) {
         return create(
@@ -74,6 +96,7 @@ public class PersistentTimestampService implements TimestampService {
         isAllocationTaskSubmitted = new AtomicBoolean(false);
         this.clock = clock;
         lastAllocatedTime = clock.getTimeMillis();
+        lastReturnedAtLastAllocation = lastUpperBound;
     }
 
     public long getUpperLimitTimestampToHandOutInclusive() {
@@ -81,10 +104,39 @@ public class PersistentTimestampService implements TimestampService {
     }
 
     private synchronized void allocateMoreTimestamps() {
-        long newLimit = lastReturnedTimestamp.get() + ALLOCATION_BUFFER_SIZE;
+        long now = clock.getTimeMillis();
+        long lastReturned = lastReturnedTimestamp.get();
+        updateHandoutRate(lastReturned - lastReturnedAtLastAllocation, now - lastAllocatedTime);
+
+        // Never store a bound below one we may already be handing out from.
+        long newLimit = Math.max(lastReturned + allocationSize, upperLimitToHandOutInclusive.get());
+        long start = System.nanoTime();
         store.storeUpperLimit(newLimit);
+        updateStoreLatency(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
         // Prevent upper limit from falling behind stored upper limit.
         advanceAtomicLongToValue(upperLimitToHandOutInclusive, newLimit);
+
+        lastReturnedAtLastAllocation = lastReturned;
+        lastAllocatedTime = now;
+    }
+
+    private void updateHandoutRate(long handedOut, long elapsedMillis) {
+        double rate = (double) Math.max(handedOut, 0) / Math.max(elapsedMillis, 1);
+        handoutRatePerMilli = Math.max(rate, handoutRatePerMilli * RATE_DECAY);
+        long size = (long) (handoutRatePerMilli * TARGET_BUFFER_MILLIS);
+        allocationSize = Math.min(Math.max(size, ALLOCATION_BUFFER_SIZE), MAX_ALLOCATION_BUFFER_SIZE);
+        updateRefillThreshold();
+    }
+
+    private void updateStoreLatency(long latencyMillis) {
+        storeLatencyMillis = Math.max(latencyMillis, storeLatencyMillis * RATE_DECAY);
+        updateRefillThreshold();
+    }
+
+    private void updateRefillThreshold() {
+        long size = allocationSize;
+        long inFlight = (long) (handoutRatePerMilli * storeLatencyMillis * STORE_LATENCY_HEADROOM);
+        refillThreshold = Math.min(Math.max(size / 2, inFlight), size - size / 4);
     }
 
     private static void advanceAtomicLongToValue(AtomicLong toAdvance, long val) {
@@ -109,7 +161,6 @@ public class PersistentTimestampService implements TimestampService {
                             return;
                         }
                         allocateMoreTimestamps();
-                        lastAllocatedTime = clock.getTimeMillis();
                         allocationFailure = null;
                     } catch (Throwable e) { // (authorized)
                         createdException.initCause(e);
@@ -130,17 +181,17 @@ public class PersistentTimestampService implements TimestampService {
     }
 
     private boolean isAllocationRequired(long lastVal, long upperLimit) {
-        // we allocate new timestamps if we have less than half of our allocation buffer left
+        // we allocate new timestamps if we are close to running out of our allocation buffer
         // or we haven't allocated timestamps in the last sixty seconds. The latter case
         // exists in order to log errors faster against the class of bugs where your
         // timestamp limit changed unexpectedly (usually, multiple TS against the same DB)
         return exceededUpperLimit(lastVal, upperLimit)
-                || exceededHalfOfBuffer(lastVal, upperLimit)
+                || reachedRefillThreshold(lastVal, upperLimit)
                 || exceededLastAllocationTime();
     }
 
-    private boolean exceededHalfOfBuffer(long lastVal, long upperLimit) {
-        return (upperLimit - lastVal) <= ALLOCATION_BUFFER_SIZE / 2;
+    private boolean reachedRefillThreshold(long lastVal, long upperLimit) {
+        return (upperLimit - lastVal) <= refillThreshold;
     }
 
     private boolean exceededUpperLimit(long lastVal, long upperLimit) {
@@ -211,12 +262,14 @@ public class PersistentTimestampService implements TimestampService {
      * @param timestamp
      */
     public synchronized void fastForwardTimestamp(long timestamp) {
-        long upperLimit = timestamp + ALLOCATION_BUFFER_SIZE;
+        long upperLimit = timestamp + allocationSize;
         store.storeUpperLimit(upperLimit);
         // Prevent upper limit from falling behind stored upper limit.
         advanceAtomicLongToValue(upperLimitToHandOutInclusive, upperLimit);
 
         // Prevent ourselves from serving any of the bad (read: pre-fastForward) timestamps
         advanceAtomicLongToValue(lastReturnedTimestamp, timestamp);
+        // The jump is not demand, so keep it out of the next rate sample.
+        lastReturnedAtLastAllocation = Math.max(lastReturnedAtLastAllocation, timestamp);
     }
 }
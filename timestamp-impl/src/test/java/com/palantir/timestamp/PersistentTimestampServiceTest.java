@@ -26,6 +26,7 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
@@ -34,6 +35,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.jmock.Expectations;
 import org.jmock.Mockery;
@@ -41,6 +43,7 @@ import org.jmock.lib.concurrent.Synchroniser;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.mockito.ArgumentCaptor;
 import org.mockito.exceptions.verification.TooLittleActualInvocations;
 
 import com.google.common.collect.Lists;
@@ -104,6 +107,30 @@ public class PersistentTimestampServiceTest {
                 });
     }
 
+    @Test
+    public void allocateLargerBuffersWhenTimestampsAreHandedOutQuickly() {
+        AtomicLong time = new AtomicLong(0L);
+        Clock clock = mock(Clock.class);
+        when(clock.getTimeMillis()).thenAnswer(invocation -> time.get());
+        TimestampBoundStore timestampBoundStore = initialTimestampBoundStore();
+        PersistentTimestampService persistentTimestampService = PersistentTimestampService.create(timestampBoundStore, clock);
+
+        persistentTimestampService.getFreshTimestamp();
+        verify(timestampBoundStore).storeUpperLimit(PersistentTimestampService.ALLOCATION_BUFFER_SIZE);
+
+        // Use up half of the first buffer within one second.
+        time.set(1000L);
+        long lastReturned = 0L;
+        while (lastReturned < PersistentTimestampService.ALLOCATION_BUFFER_SIZE / 2) {
+            lastReturned = persistentTimestampService.getFreshTimestamps(10000).getUpperBound();
+        }
+
+        long minimumExpectedLimit = lastReturned + 10 * PersistentTimestampService.ALLOCATION_BUFFER_SIZE;
+        Awaitility
+                .await()
+                .until(() -> largestStoredUpperLimit(timestampBoundStore) >= minimumExpectedLimit);
+    }
+
     @Test
     public void doNotIncrementUpperLimitTooManyTimes() {
         // In the current implementation, it is possible for a single call to getFreshTimestamp to invoke storeUpperLimit more than once.
@@ -205,6 +232,12 @@ public class PersistentTimestampServiceTest {
         }
     }
 
+    private long largestStoredUpperLimit(TimestampBoundStore timestampBoundStore) {
+        ArgumentCaptor<Long> upperLimits = ArgumentCaptor.forClass(Long.class);
+        verify(timestampBoundStore, atLeast(1)).storeUpperLimit(upperLimits.capture());
+        return Collections.max(upperLimits.getAllValues());
+    }
+
     private TimestampBoundStore initialTimestampBoundStore() {
         TimestampBoundStore timestampBoundStore = mock(TimestampBoundStore.class);
         when(timestampBoundStore.getUpperLimit()).thenReturn(0L);